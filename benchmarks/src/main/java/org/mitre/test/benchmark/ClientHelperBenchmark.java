@@ -0,0 +1,70 @@
+package org.mitre.test.benchmark;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.mitre.test.ClientHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures content-type checks made for every response and every link in section feeds.
+ *
+ * Date: 10/16/26 7:35 PM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientHelperBenchmark {
+
+	private static final String[] CONTENT_TYPES = {
+			"application/atom+xml",
+			"application/xml; charset=UTF-8",
+			"text/xml",
+			"application/json",
+			"text/html; charset=ISO-8859-4",
+			"application/xhtml+xml",
+			"image/png",
+			"xml"
+	};
+
+	private HttpEntity[] entities;
+	private String[] mimeTypes;
+
+	@Setup
+	public void setup() {
+		entities = new HttpEntity[CONTENT_TYPES.length];
+		mimeTypes = new String[CONTENT_TYPES.length];
+		for (int i = 0; i < CONTENT_TYPES.length; i++) {
+			ByteArrayEntity entity = new ByteArrayEntity(new byte[0]);
+			entity.setContentType(CONTENT_TYPES[i]);
+			entities[i] = entity;
+			mimeTypes[i] = ClientHelper.getContentType(entity);
+		}
+	}
+
+	@Benchmark
+	public void getContentType(Blackhole bh) {
+		for (HttpEntity entity : entities) {
+			bh.consume(ClientHelper.getContentType(entity));
+		}
+	}
+
+	@Benchmark
+	public void getContentTypeWithEncoding(Blackhole bh) {
+		for (HttpEntity entity : entities) {
+			bh.consume(ClientHelper.getContentType(entity, true));
+		}
+	}
+
+	@Benchmark
+	public void isXmlContentType(Blackhole bh) {
+		for (String type : mimeTypes) {
+			bh.consume(ClientHelper.isXmlContentType(type));
+		}
+	}
+}
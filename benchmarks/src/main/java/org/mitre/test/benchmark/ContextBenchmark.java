@@ -0,0 +1,37 @@
+package org.mitre.test.benchmark;
+
+import org.mitre.test.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving paths relative to the baseURL.
+ *
+ * Date: 10/16/26 7:40 PM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBenchmark {
+
+	@Param({"root.xml", "/vital_signs", "vital_signs/4f37e9a12a1002000400008b"})
+	String relativePath;
+
+	private Context context;
+
+	@Setup
+	public void setup() {
+		context = SyntheticTests.getLoader().getContext();
+	}
+
+	@Benchmark
+	public URI getBaseURL() throws URISyntaxException {
+		return context.getBaseURL(relativePath);
+	}
+}
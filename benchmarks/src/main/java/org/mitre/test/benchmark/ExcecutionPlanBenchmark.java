@@ -0,0 +1,51 @@
+package org.mitre.test.benchmark;
+
+import org.mitre.test.ExcecutionPlan;
+import org.mitre.test.TestUnit;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the execution plan that orders prerequisite tests
+ * before the tests that require them for large synthetic test graphs.
+ *
+ * Date: 10/16/26 7:25 PM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExcecutionPlanBenchmark {
+
+	@Param({"100", "1000", "5000"})
+	int size;
+
+	@Param({"RANDOM", "LAYERED"})
+	SyntheticTests.Shape shape;
+
+	private List<TestUnit> tests;
+	private PrintStream out;
+
+	@Setup
+	public void setup() {
+		tests = SyntheticTests.load(size, shape, 42);
+		// plan logs every test it checks and adds
+		out = System.out;
+		System.setOut(SyntheticTests.getNullPrintStream());
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	@Benchmark
+	public List<TestUnit> createPlan() {
+		return new ExcecutionPlan(tests.iterator()).getList();
+	}
+}
@@ -0,0 +1,59 @@
+package org.mitre.test.benchmark;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.mitre.test.impl.AbstractReporter;
+import org.mitre.test.impl.HtmlReporter;
+import org.mitre.test.impl.TextReporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating the summary report of the text and HTML reporters for thousands
+ * of executed tests. Output is discarded so only formatting of the report is measured.
+ *
+ * Date: 10/16/26 8:05 PM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReporterBenchmark {
+
+	@Param({"1000", "5000"})
+	int size;
+
+	@Param({"text", "html"})
+	String format;
+
+	private AbstractReporter reporter;
+	private PrintStream out;
+	private Level level;
+
+	@Setup
+	public void setup() {
+		SyntheticTests.setOutcomes(SyntheticTests.load(size, SyntheticTests.Shape.RANDOM, 42), 7);
+		reporter = "html".equals(format) ? new HtmlReporter() : new TextReporter();
+		out = System.out;
+		System.setOut(SyntheticTests.getNullPrintStream());
+		// HTML summary logs a warning for each failed test
+		Logger root = Logger.getRootLogger();
+		level = root.getLevel();
+		root.setLevel(Level.ERROR);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(out);
+		Logger.getRootLogger().setLevel(level);
+	}
+
+	@Benchmark
+	public int generateSummary() {
+		return reporter.generateSummary();
+	}
+}
@@ -0,0 +1,219 @@
+package org.mitre.test.benchmark;
+
+import org.apache.commons.lang.StringUtils;
+import org.mitre.test.Loader;
+import org.mitre.test.TestUnit;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Builds large graphs of synthetic tests for the benchmarks. The execution plan and
+ * the loader look up tests by class so every synthetic test is a dynamic proxy
+ * of {@link TestUnit} defined in its own class loader to get a distinct class.
+ *
+ * Date: 10/16/26 7:10 PM
+ */
+public final class SyntheticTests {
+
+	/**
+	 * Shape of the dependency graph
+	 */
+	public enum Shape {
+		/**
+		 * each test depends on up to 3 tests picked at random from tests created before it
+		 */
+		RANDOM,
+		/**
+		 * tests in layers of 32 where each test depends on 2 tests in the layer above
+		 */
+		LAYERED
+	}
+
+	private static final int LAYER_WIDTH = 32;
+
+	private static final PrintStream NULL_OUT = new PrintStream(new OutputStream() {
+		public void write(int b) {
+			// discard
+		}
+
+		public void write(byte[] b, int off, int len) {
+			// discard
+		}
+	});
+
+	private static int graphCount;
+
+	private SyntheticTests() {
+		// utility class
+	}
+
+	/**
+	 * Get loader initialized from testConfig.xml unless -DconfigFile is set.
+	 * Must run from the top-level directory where the config and schemas are found.
+	 *
+	 * @return Loader
+	 */
+	public static Loader getLoader() {
+		if (StringUtils.isBlank(System.getProperty("configFile"))) {
+			System.setProperty("configFile", "testConfig.xml");
+		}
+		return Loader.getInstance();
+	}
+
+	/**
+	 * Get print stream that discards its output. Used to replace System.out
+	 * so the benchmarks measure formatting of the output and not the console.
+	 *
+	 * @return PrintStream
+	 */
+	public static PrintStream getNullPrintStream() {
+		return NULL_OUT;
+	}
+
+	/**
+	 * Create graph of synthetic tests and load them into the loader. Test ids are
+	 * shuffled so the sorted order of the tests differs from the dependency order.
+	 *
+	 * @param size number of tests
+	 * @param shape shape of the dependency graph
+	 * @param seed random seed
+	 * @return tests in sorted order
+	 */
+	public static synchronized List<TestUnit> load(int size, Shape shape, long seed) {
+		final Random random = new Random(seed);
+		final String prefix = "G" + (++graphCount) + ".";
+		final List<Integer> order = new ArrayList<Integer>(size);
+		for (int i = 0; i < size; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, random);
+		final List<Class<? extends TestUnit>> classes = new ArrayList<Class<? extends TestUnit>>(size);
+		final Loader loader = getLoader();
+		final SortedSet<TestUnit> tests = new TreeSet<TestUnit>();
+		for (int i = 0; i < size; i++) {
+			List<Class<? extends TestUnit>> depends = new ArrayList<Class<? extends TestUnit>>(3);
+			if (shape == Shape.LAYERED) {
+				if (i >= LAYER_WIDTH) {
+					int layerStart = (i / LAYER_WIDTH - 1) * LAYER_WIDTH;
+					depends.add(classes.get(layerStart + random.nextInt(LAYER_WIDTH)));
+					Class<? extends TestUnit> other = classes.get(layerStart + random.nextInt(LAYER_WIDTH));
+					if (!depends.contains(other)) depends.add(other);
+				}
+			} else if (i != 0) {
+				for (int n = random.nextInt(4); n > 0; n--) {
+					Class<? extends TestUnit> other = classes.get(random.nextInt(i));
+					if (!depends.contains(other)) depends.add(other);
+				}
+			}
+			TestUnit test = create(String.format("%s%06d", prefix, order.get(i)), depends);
+			classes.add(test.getClass());
+			loader.load(test);
+			tests.add(test);
+		}
+		return new ArrayList<TestUnit>(tests);
+	}
+
+	/**
+	 * Set status, warnings and prerequisites on tests as if they were executed.
+	 * Most tests pass and the rest fail, are skipped or have warnings.
+	 *
+	 * @param tests tests to update
+	 * @param seed random seed
+	 */
+	public static void setOutcomes(List<TestUnit> tests, long seed) {
+		final Random random = new Random(seed);
+		final Loader loader = getLoader();
+		for (TestUnit test : tests) {
+			for (Class<? extends TestUnit> aClass : test.getDependencyClasses()) {
+				test.addDependency(loader.getTest(aClass));
+			}
+			int outcome = random.nextInt(20);
+			if (outcome < 14) {
+				test.setStatus(TestUnit.StatusEnumType.SUCCESS, null);
+			} else if (outcome < 16) {
+				test.setStatus(TestUnit.StatusEnumType.SUCCESS, null);
+				test.addWarning("Expected content-type for root.xml is application/xml but was text/xml");
+				test.addWarning("Section <vital_signs> has document with <unknown> content-type");
+			} else if (outcome < 18) {
+				test.setStatus(TestUnit.StatusEnumType.FAILED, "Expected 200 HTTP status code but was: 404");
+			} else if (outcome < 19) {
+				test.setStatus(TestUnit.StatusEnumType.SKIPPED, "Prerequisite test failed");
+			} else {
+				test.setStatus(TestUnit.StatusEnumType.PREREQ_FAILED, "Prerequisite test failed");
+			}
+		}
+	}
+
+	private static TestUnit create(String id, List<Class<? extends TestUnit>> depends) {
+		// new class loader for each test so each proxy has its own class
+		ClassLoader classLoader = new ClassLoader(TestUnit.class.getClassLoader()) {
+		};
+		return (TestUnit) Proxy.newProxyInstance(classLoader, new Class<?>[]{TestUnit.class},
+				new SyntheticTest(id, depends));
+	}
+
+	/**
+	 * Behavior of a synthetic test which never executes
+	 */
+	private static class SyntheticTest implements InvocationHandler {
+
+		private final String id;
+		private final String name;
+		private final boolean required;
+		private final List<Class<? extends TestUnit>> dependencyClasses;
+		private final Set<TestUnit> dependencies = new LinkedHashSet<TestUnit>();
+		private final Set<String> warnings = new LinkedHashSet<String>();
+		private TestUnit.StatusEnumType status;
+		private String statusDescription;
+
+		SyntheticTest(String id, List<Class<? extends TestUnit>> dependencyClasses) {
+			this.id = id;
+			this.name = "Synthetic test " + id + " with " + dependencyClasses.size() + " prerequisites";
+			this.required = id.hashCode() % 3 != 0;
+			this.dependencyClasses = Collections.unmodifiableList(dependencyClasses);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			final String methodName = method.getName();
+			if ("getId".equals(methodName) || "toString".equals(methodName)) {
+				return id;
+			} else if ("getDependencyClasses".equals(methodName)) {
+				return dependencyClasses;
+			} else if ("getProperties".equals(methodName)) {
+				return Collections.emptyList();
+			} else if ("compareTo".equals(methodName)) {
+				return id.compareTo(((TestUnit) args[0]).getId());
+			} else if ("hashCode".equals(methodName)) {
+				return id.hashCode();
+			} else if ("equals".equals(methodName)) {
+				return proxy == args[0];
+			} else if ("addDependency".equals(methodName)) {
+				dependencies.add((TestUnit) args[0]);
+			} else if ("getDependencies".equals(methodName)) {
+				return dependencies;
+			} else if ("addWarning".equals(methodName)) {
+				return warnings.add((String) args[0]);
+			} else if ("getWarnings".equals(methodName)) {
+				return warnings;
+			} else if ("setStatus".equals(methodName)) {
+				status = (TestUnit.StatusEnumType) args[0];
+				statusDescription = (String) args[1];
+			} else if ("getStatus".equals(methodName)) {
+				return status;
+			} else if ("getStatusDescription".equals(methodName)) {
+				return statusDescription;
+			} else if ("getName".equals(methodName)) {
+				return name;
+			} else if ("isRequired".equals(methodName)) {
+				return required;
+			}
+			// execute, cleanup and setProperty do nothing
+			return null;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package org.mitre.test.benchmark;
+
+import org.apache.commons.io.IOUtils;
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.mitre.rhex.server.MockRhexServer;
+import org.mitre.rhex.server.SyntheticDataset;
+import org.mitre.test.BaseXmlTest;
+import org.mitre.test.Context;
+import org.mitre.test.TestException;
+import org.mitre.test.TestUnit;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the DOM for root.xml and section Atom feeds with and without
+ * validation against the XML Schemas. Payloads are fetched once from the embedded
+ * mock server with a record having the given number of sections and documents in
+ * each section.
+ *
+ * Date: 10/16/26 7:50 PM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlParserBenchmark {
+
+	private static final String ROOT_SCHEMA_LOCATION = "schemas/root.xsd";
+
+	@Param({"10", "100", "1000"})
+	int size;
+
+	private Context context;
+	private ParserTest test;
+	private ByteArrayOutputStream rootXml;
+	private ByteArrayOutputStream feed;
+
+	@Setup
+	public void setup() throws IOException, JDOMException {
+		context = SyntheticTests.getLoader().getContext();
+		test = new ParserTest();
+		MockRhexServer server = new MockRhexServer(new SyntheticDataset(1, size, size));
+		server.start(0);
+		try {
+			URI baseURL = server.getBaseURL("1");
+			rootXml = fetch(URI.create(baseURL + "/root.xml"));
+			feed = fetch(URI.create(baseURL + "/vital_signs"));
+		} finally {
+			server.stop();
+		}
+		// benchmark only valid payloads
+		validateRootXml();
+		validateAtom();
+		if (test.getXmlErrors() != 0) {
+			throw new IllegalStateException("payloads have XML errors: " + test.getWarnings());
+		}
+	}
+
+	@Benchmark
+	public Document parseRootXml() throws IOException, JDOMException {
+		return test.getDefaultDocument(context, rootXml);
+	}
+
+	@Benchmark
+	public Document validateRootXml() throws IOException, JDOMException {
+		return test.getValidatingParser(context, rootXml, "<root",
+				TestUnit.NAMESPACE_HDATA_SCHEMAS_2009_06_CORE, ROOT_SCHEMA_LOCATION);
+	}
+
+	@Benchmark
+	public Document parseAtom() throws IOException, JDOMException {
+		return test.getDefaultDocument(context, feed);
+	}
+
+	@Benchmark
+	public Document validateAtom() throws IOException, JDOMException {
+		return test.getValidatingAtom(context, feed);
+	}
+
+	private static ByteArrayOutputStream fetch(URI uri) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		InputStream is = uri.toURL().openStream();
+		try {
+			IOUtils.copy(is, bos);
+		} finally {
+			is.close();
+		}
+		return bos;
+	}
+
+	/**
+	 * Test that is never executed exposing the parsers of BaseXmlTest
+	 */
+	private static class ParserTest extends BaseXmlTest {
+
+		@Override
+		protected Document getDefaultDocument(Context context, ByteArrayOutputStream bos)
+				throws JDOMException, IOException {
+			return super.getDefaultDocument(context, bos);
+		}
+
+		@Override
+		protected Document getValidatingParser(Context context, ByteArrayOutputStream bos, String rootElement,
+											   String namespaceUri, String namespaceLocation)
+				throws IOException, JDOMException {
+			return super.getValidatingParser(context, bos, rootElement, namespaceUri, namespaceLocation);
+		}
+
+		@Override
+		protected Document getValidatingAtom(Context context, ByteArrayOutputStream bos)
+				throws IOException, JDOMException {
+			return super.getValidatingAtom(context, bos);
+		}
+
+		int getXmlErrors() {
+			return xmlErrors;
+		}
+
+		public String getId() {
+			return "benchmark.parser";
+		}
+
+		public boolean isRequired() {
+			return false;
+		}
+
+		public List<Class<? extends TestUnit>> getDependencyClasses() {
+			return Collections.emptyList();
+		}
+
+		public void execute() throws TestException {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -15,8 +15,8 @@ import org.mitre.test.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -46,14 +46,14 @@ public class BaseSectionFromRootXml extends BaseXmlTest {
 	private final List<String> sectionList = new ArrayList<String>();
 
 	/**
-	 * Map of each section ATOM feed by section path
+	 * Map of compact index of each section ATOM feed by section path in section order
 	 */
-	private final Map<String,Document> documentMap = new HashMap<String, Document>();
+	private final Map<String,FeedIndex> feedIndexMap = new LinkedHashMap<String, FeedIndex>();
 
-	private boolean keepSectionDocs;
+	private boolean keepSectionIndex;
 
-	// property
-	public static final String PROP_KEEP_SECTION_DOM_BOOL = "keepSectionDocs";
+	// properties
+	public static final String PROP_KEEP_SECTION_INDEX_BOOL = "keepSectionIndex";
 
 	public BaseSectionFromRootXml() {
 		// forces BaseUrlRootXml test to keep its Document object after it executes
@@ -128,7 +128,7 @@ public class BaseSectionFromRootXml extends BaseXmlTest {
 			return;
 		}
 
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		// TODO possibly move sections to Context for dependent tests for documents ??
 		//final List<String> sectionList = context.getSectionList();
 		try {
@@ -173,13 +173,13 @@ public class BaseSectionFromRootXml extends BaseXmlTest {
 			if (code != 200 || log.isDebugEnabled()) {
 				dumpResponse(req, response, code != 200);
 			}
-			return validateContent(code, path, context, response);
+			return validateContent(code, path, baseURL, context, response);
 		} finally {
 			client.getConnectionManager().shutdown();
 		}
 	}
 
-	private boolean validateContent(int code, String path, Context context, HttpResponse response)
+	private boolean validateContent(int code, String path, URI baseURL, Context context, HttpResponse response)
 			throws TestException, IOException, JDOMException {
 
 		if (code != 200) {
@@ -202,8 +202,6 @@ public class BaseSectionFromRootXml extends BaseXmlTest {
 		// minimum length expected is 43 bytes or a negative number if unknown
 		// assertTrue(len < 0 || len >= 66, "Expecting valid XML document for baseURL/root.xml; returned length was " + len);
 		if (len > 43) {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			entity.writeTo(bos);
 			/*
 			expecting:
 
@@ -212,46 +210,120 @@ public class BaseSectionFromRootXml extends BaseXmlTest {
 			 ...
 			 </feed>
 			 */
-			Document doc = getValidatingAtom(context, bos);
-			// assertTrue(xmlErrors == 0, "Content has errors in ATOM feed"); // leave as warning for now
-			final Element root = doc.getRootElement();
-			assertEquals(NAMESPACE_W3_ATOM_2005, root.getNamespace().getURI());
-			if (keepSectionDocs) {
-				documentMap.put(path, doc);
+			// validate feed in a single streaming pass without building a DOM
+			final FeedIndex.Builder builder = keepSectionIndex ? new FeedIndex.Builder() : null;
+			final InputStream is = entity.getContent();
+			final AtomFeedHandler feed;
+			try {
+				feed = parseAtomFeed(context, is, builder, true);
+			} finally {
+				is.close();
 			}
+			assertEquals(NAMESPACE_W3_ATOM_2005, feed.getRootNamespace());
+			log.debug("section {} has {} entries", path, feed.getEntryCount());
+			if (!checkPages(context, path, baseURL, feed.getNextHref(), builder)) return false;
+			if (builder != null) feedIndexMap.put(path, builder.build());
 		} else log.warn("section content length=" + len + ", expecting len > 43 bytes");
 
 		return true;
 	}
 
+	/**
+	 * Validate remaining pages of a paged section feed (RFC 5005) following
+	 * <tt>rel="next"</tt> links. Pages are fetched lazily with optional prefetch
+	 * (<tt>feed.prefetch</tt> property) and only the compact index of each page
+	 * is retained.
+	 *
+	 * @param firstPage URL of first page
+	 * @param nextHref next link of first page, null if feed is not paged
+	 * @param builder Feed index builder to add page entries, null if not indexed
+	 * @return true if all pages were retrieved, false if test failed
+	 */
+	private boolean checkPages(Context context, String path, URI firstPage, String nextHref,
+							   FeedIndex.Builder builder) throws TestException {
+		if (nextHref == null) return true;
+		final URI next;
+		try {
+			next = firstPage.resolve(new URI(nextHref));
+		} catch (URISyntaxException e) {
+			addLogWarning("Invalid feed next link: " + e.getMessage());
+			return true;
+		}
+		if (next.equals(firstPage)) {
+			addLogWarning("Feed next link refers to previous page: " + next);
+			return true;
+		}
+		final AtomFeedPager pager = new AtomFeedPager(context, next,
+				context.getInt("feed.prefetch", AtomFeedPager.DEFAULT_PREFETCH),
+				Collections.singleton(firstPage));
+		int pages = 1;
+		try {
+			while (pager.hasNext()) {
+				final AtomFeedPager.Page page = pager.next();
+				pages++;
+				System.out.println("GET URL=" + page.getUri()); // next page
+				for (String warning : page.getWarnings()) {
+					addLogWarning(warning);
+				}
+				xmlErrors += page.getXmlErrors();
+				if (page.getError() != null) {
+					throw new TestException(page.getError());
+				}
+				final int code = page.getStatusCode();
+				if (code != 200) {
+					System.out.println(page.getStatusLine());
+					setStatus(StatusEnumType.FAILED, "Unexpected HTTP response: " + code);
+					return false;
+				}
+				final FeedIndex index = page.getIndex();
+				if (index == null) {
+					log.info("no BODY in response for section: " + path);
+					addWarning("encountered non-body response to section request");
+					continue;
+				}
+				final String contentType = page.getContentType();
+				if (!MIME_APPLICATION_ATOM_XML.equals(contentType)) {
+					addLogWarning("Expected " + MIME_APPLICATION_ATOM_XML + " content-type for section but was: " + contentType);
+				}
+				assertEquals(NAMESPACE_W3_ATOM_2005, page.getRootNamespace());
+				if (builder != null) builder.add(index);
+			}
+		} finally {
+			pager.close();
+		}
+		log.debug("section {} has {} pages", path, pages);
+		return true;
+	}
+
 	/**
 	 * Set property on this test.
 	 *
 	 * @param key
 	 * @param value
 	 * @exception ClassCastException if target type does not match expected type typically indicated
-	 * as ending of the property name constant (e.g. PROP_KEEP_SECTION_DOM_BOOL)
+	 * as ending of the property name constant (e.g. PROP_KEEP_SECTION_INDEX_BOOL)
 	 */
 	public void setProperty(String key, Object value) {
-		if (PROP_KEEP_SECTION_DOM_BOOL.equals(key))
-			keepSectionDocs = (Boolean)value;
+		if (PROP_KEEP_SECTION_INDEX_BOOL.equals(key))
+			keepSectionIndex = (Boolean)value;
 		else super.setProperty(key, value);
 	}
 
 	public void cleanup() {
 		super.cleanup();
-		if (!keepSectionDocs || getStatus() != StatusEnumType.SUCCESS) {
-			documentMap.clear();
+		if (!keepSectionIndex || getStatus() != StatusEnumType.SUCCESS) {
+			feedIndexMap.clear();
 		}
 	}
 
 	/**
-	 * Get Map of section ATOM feeds by section path as DOM objects
+	 * Get Map of compact section ATOM feed indexes by section path in
+	 * section order. Only populated if <tt>keepSectionIndex</tt> property is set.
 	 * @return Map
 	 */
 	@NonNull
-	public Map<String, Document> getDocumentMap() {
-		return documentMap;
+	public Map<String, FeedIndex> getFeedIndexMap() {
+		return feedIndexMap;
 	}
 
 	/**
@@ -10,6 +10,7 @@ import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +59,7 @@ public class BaseUrlGetTest extends BaseXmlTest {
 
 	public void execute() throws TestException {
 		// http://hc.apache.org/httpcomponents-client-ga/tutorial/html/fundamentals.html
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
         HttpGet req = null;
         HttpResponse response = null;
@@ -71,6 +72,10 @@ public class BaseUrlGetTest extends BaseXmlTest {
 			} else {
 				req.removeHeaders("Accept");
 			}
+			if (!MIME_APPLICATION_ATOM_XML.equals(acceptHeader)) {
+				// handling of other Accept headers is checked on the response of the server as is
+				ResponseCache.setNoCache(req);
+			}
 			if (log.isDebugEnabled()) {
 				System.out.println("\nURL: " + req.getURI());
 				// dump request headers
@@ -5,6 +5,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,7 +49,7 @@ public class BaseUrlNotFoundTest extends BaseTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		//final String baseURL = context.getString("invalidBaseURL");
 		URI baseURL = context.getPropertyAsURI("invalidBaseURL");
 		// test pre-conditions
@@ -63,6 +64,7 @@ public class BaseUrlNotFoundTest extends BaseTest {
 		try {
 			HttpGet req = new HttpGet(baseURL);
 			req.setHeader("Accept", MIME_APPLICATION_ATOM_XML);
+			ResponseCache.setNoCache(req);
 			HttpResponse response = context.executeRequest(client, req);
 			int code = response.getStatusLine().getStatusCode();
 			if (code == 404) {
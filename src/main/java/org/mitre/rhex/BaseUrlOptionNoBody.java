@@ -73,9 +73,12 @@ public class BaseUrlOptionNoBody extends BaseTest {
 		}
 
 		final HttpEntity entity = response.getEntity();
-		if (entity != null) {
+		// HttpClient creates an entity for every 200 response so an empty entity is no body
+		if (entity != null && entity.getContentLength() != 0) {
 			// response SHOULD NOT include an HTTP body so entity should be null
 			setStatus(StatusEnumType.FAILED, "Response includes a HTTP body");
+		} else {
+			setStatus(StatusEnumType.SUCCESS);
 		}
 	}
 
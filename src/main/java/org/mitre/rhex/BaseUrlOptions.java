@@ -58,7 +58,7 @@ public class BaseUrlOptions extends BaseTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			URI baseURL = context.getBaseURL();
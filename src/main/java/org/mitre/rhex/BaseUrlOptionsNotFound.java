@@ -5,6 +5,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpOptions;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,7 +56,7 @@ public class BaseUrlOptionsNotFound extends BaseTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		URI baseURL = context.getPropertyAsURI("invalidBaseURL");
 		// test pre-conditions
 		if (baseURL == null) {
@@ -68,6 +69,7 @@ public class BaseUrlOptionsNotFound extends BaseTest {
 		HttpClient client = context.getHttpClient();
 		try {
 			HttpOptions req = new HttpOptions(baseURL);
+			ResponseCache.setNoCache(req);
 			HttpResponse response = context.executeRequest(client, req);
 			int code = response.getStatusLine().getStatusCode();
             boolean dumpBody = false;
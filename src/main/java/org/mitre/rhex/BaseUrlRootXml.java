@@ -65,7 +65,7 @@ public class BaseUrlRootXml extends BaseXmlTest {
 
 	public void execute() throws TestException {
 		// http://hc.apache.org/httpcomponents-client-ga/tutorial/html/fundamentals.html
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			URI baseURL = context.getBaseURL("root.xml");
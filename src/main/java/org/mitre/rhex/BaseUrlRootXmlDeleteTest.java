@@ -6,6 +6,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpDelete;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,11 +49,12 @@ public class BaseUrlRootXmlDeleteTest extends BaseTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			URI baseURL = context.getBaseURL("root.xml");
 			HttpDelete req = new HttpDelete(baseURL);
+			ResponseCache.setNoCache(req);
 			if (log.isDebugEnabled()) {
 				System.out.println("\nDELETE URL: " + req.getURI());
 			}
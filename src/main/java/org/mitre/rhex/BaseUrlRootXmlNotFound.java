@@ -5,6 +5,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,7 +55,7 @@ public class BaseUrlRootXmlNotFound extends BaseTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		String baseURL = context.getString("invalidBaseURL");
 		// test pre-conditions
 		if (baseURL == null) {
@@ -78,6 +79,7 @@ public class BaseUrlRootXmlNotFound extends BaseTest {
 		try {
 			HttpGet req = new HttpGet(uri);
 			req.setHeader("Accept", MIME_APPLICATION_XML);
+			ResponseCache.setNoCache(req);
 			if (log.isDebugEnabled()) {
 				System.out.println("\nGET URL: " + req.getURI());
 			}
@@ -6,6 +6,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,7 +49,7 @@ public class BaseUrlRootXmlPost extends BaseXmlTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			URI baseURL = context.getBaseURL("root.xml");
@@ -130,6 +131,7 @@ public class BaseUrlRootXmlPost extends BaseXmlTest {
 			*/
 
 			HttpPost httppost = new HttpPost(baseURL);
+			ResponseCache.setNoCache(httppost);
 			HttpResponse response = context.executeRequest(client, httppost);
 			int code = response.getStatusLine().getStatusCode();
 			if (code != 405 || log.isDebugEnabled()) {
@@ -134,7 +134,7 @@ public class CreateDuplicateSection extends BaseXmlTest {
 			return;
 		}
 
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		final HttpClient client = context.getHttpClient();
 		try {
 			URI baseUrl = context.getBaseURL();
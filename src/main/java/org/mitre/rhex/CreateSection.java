@@ -151,7 +151,7 @@ public class CreateSection extends BaseXmlTest {
 			return;
 		}
 
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		final HttpClient client = context.getHttpClient();
 		try {
 			sectionPath = Long.toHexString(System.currentTimeMillis());
@@ -7,6 +7,7 @@ import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -88,6 +89,7 @@ public class DocNotFoundDelete extends DocumentNotFound {
 		HttpDelete req = new HttpDelete(baseURL);
 		//req.setHeader("Accept", MIME_APPLICATION_JSON);
 		req.setHeader("Accept", "application/json, application/xml");
+		ResponseCache.setNoCache(req);
 		return req;
 	}
 
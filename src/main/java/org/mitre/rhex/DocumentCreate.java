@@ -114,7 +114,7 @@ public class DocumentCreate extends BaseXmlTest {
 		 </root>
 		 */
 
-        final Context context = Loader.getInstance().getContext();
+        final Context context = getContext();
         sectionPath = context.getString("updateDocument.section");
 		if (StringUtils.isBlank(sectionPath)) {
 			// check pre-conditions and setup
@@ -207,7 +207,10 @@ public class DocumentCreate extends BaseXmlTest {
 
 			// NOTE: verify document is added to the section ATOM feed in another test
 			// retrieve & store section ATOM feed for follow-on tests
-			setDocument(getSectionAtomDocument(context, baseUrl));
+			if (keepDocument)
+				setDocument(getSectionAtomDocument(context, baseUrl));
+			else
+				checkSectionAtomFeed(context, baseUrl, null); // no dependent test requires the DOM
 
 			setStatus(StatusEnumType.SUCCESS);
 			setResponse(response);
@@ -121,7 +121,7 @@ public class DocumentCreateCheck extends BaseXmlTest {
 	}
 
 	protected void sendRequest(String sectionPath, URI documentURL) throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		final HttpClient client = context.getHttpClient();
 		try {
 			URI baseUrl = context.getBaseURL(sectionPath);
@@ -83,7 +83,7 @@ public class DocumentDelete extends BaseTest {
 			setStatus(StatusEnumType.SKIPPED, "Failed to retrieve prerequisite test results: 6.4.2.2");
 			return;
 		}
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
             boolean debugEnabled = log.isDebugEnabled();
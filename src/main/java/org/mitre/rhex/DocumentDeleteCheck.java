@@ -5,6 +5,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,11 +85,12 @@ public class DocumentDeleteCheck extends BaseTest {
 			setStatus(StatusEnumType.SKIPPED, "Failed to retrieve prerequisite test results: 6.4.2.2");
 			return;
 		}
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			HttpGet req = new HttpGet(documentURL);
 			req.setHeader("Accept", MIME_APPLICATION_XML);
+			ResponseCache.setNoCache(req);
 			HttpResponse response = context.executeRequest(client, req);
             int code = response.getStatusLine().getStatusCode();
             boolean dump = false;
@@ -66,7 +66,7 @@ public class DocumentGet extends BaseXmlTest {
 
     @Override
     public void execute() throws TestException {
-        final Context context = Loader.getInstance().getContext();
+        final Context context = getContext();
         documentURL = context.getPropertyAsURI("document.url");
         if (documentURL == null) {
             // check pre-conditions and setup
@@ -9,6 +9,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,7 +80,7 @@ public class DocumentNotFound extends BaseTest {
 			return;
 		}
 
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			String section = getTargetSection(sectionList);
@@ -134,6 +135,7 @@ public class DocumentNotFound extends BaseTest {
 	protected HttpRequestBase createRequest(URI baseURL) {
 		HttpGet req = new HttpGet(baseURL);
 		req.setHeader("Accept", "application/json, application/xml");
+		ResponseCache.setNoCache(req);
 		return req;
 	}
 
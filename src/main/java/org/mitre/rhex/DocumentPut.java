@@ -90,7 +90,7 @@ public class DocumentPut extends BaseTest {
 			setStatus(StatusEnumType.SKIPPED, "Failed to retrieve prerequisite test results");
 			return;
 		}
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		String documentSection = context.getString("updateDocument.section");
         if (StringUtils.isBlank(documentSection)) {
 			// check pre-conditions and setup
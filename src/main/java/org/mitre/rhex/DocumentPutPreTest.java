@@ -85,7 +85,7 @@ public class DocumentPutPreTest extends BaseXmlTest {
 	}
 
 	public void execute() throws TestException {
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		final URI baseURL = context.getPropertyAsURI("updateDocumentUrl");
 		if (baseURL == null) {
 			// check pre-conditions and setup
@@ -120,7 +120,7 @@ public class DocumentUpdate extends BaseXmlTest {
 			System.out.println("URL=" + baseURL);
 		}
 
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			HttpPut request = createRequest(baseURL, xmlContent);
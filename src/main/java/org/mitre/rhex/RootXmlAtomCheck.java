@@ -122,7 +122,7 @@ public class RootXmlAtomCheck extends BaseTest {
 			return;
 		}
 
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		final URI baseURI = context.getBaseURL(); // e.g. https://hdata.server.com/records/1547
 		String baseUrl = baseURI.toASCIIString();
 		// if (!baseUrl.endsWith("/")) baseUrl += '/'; // e.g. https://hdata.server.com/records/1547/
@@ -7,6 +7,7 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.mitre.test.*;
+import org.mitre.test.http.ResponseCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,7 +81,7 @@ public class SectionNotFound extends BaseXmlTest {
 			return;
 		}
 		*/
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		HttpClient client = context.getHttpClient();
 		try {
 			URI baseURL = context.getBaseURL("notfound");
@@ -90,6 +91,7 @@ public class SectionNotFound extends BaseXmlTest {
 				System.out.println("GET URL: " + baseURL);
 			}
 			req.setHeader("Accept", "application/atom+xml");
+			ResponseCache.setNoCache(req);
 			HttpResponse response = context.executeRequest(client, req);
 			int code = response.getStatusLine().getStatusCode();
 			if (code != 404 || log.isDebugEnabled()) {
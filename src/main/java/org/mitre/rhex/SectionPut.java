@@ -69,7 +69,7 @@ public class SectionPut extends BaseTest {
 			setStatus(StatusEnumType.SKIPPED, "Failed to retrieve prerequisite test results");
 			return;
 		}
-		final Context context = Loader.getInstance().getContext();
+		final Context context = getContext();
 		String section = context.getString("updateDocument.section"); // e.g. "vital_signs"
 		if (StringUtils.isBlank(section)) {
 			// check pre-conditions and setup
@@ -11,13 +11,16 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
 import org.mitre.test.ClientHelper;
 import org.mitre.test.Context;
-import org.mitre.test.HttpRequestChecker;
+import org.mitre.test.AsyncHttpRequestChecker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,6 +28,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * MITRE RHEX Patient Data Server HTTP request security handler
@@ -33,11 +37,18 @@ import java.util.List;
  * @author Jason Mathews, MITRE Corp.
  * Date: 3/30/12 12:51 PM
  */
-public class RhexHttpSecurityChecker implements HttpRequestChecker {
+public class RhexHttpSecurityChecker implements AsyncHttpRequestChecker {
 
 	private static final Logger log = LoggerFactory.getLogger(RhexHttpSecurityChecker.class);
 
-	private HttpContext localContext;
+	private volatile HttpContext localContext;
+	private volatile URI loginURL;
+
+	/**
+	 * held while logging in such that concurrent requests rejected
+	 * by the server renew the session only once
+	 */
+	private final Object loginLock = new Object();
 
 	/**
 	 * Setups and initializes the HttpRequestChecker
@@ -59,7 +70,28 @@ public class RhexHttpSecurityChecker implements HttpRequestChecker {
         if (StringUtils.isBlank(loginEmail) || StringUtils.isBlank(loginPassword)) {
 			throw new IllegalArgumentException("loginEmail and loginPassword properties are empty or missing");
         }
+		loginURL = uri;
+
+		// reuse session of a previous run if still accepted by the server
+		final SessionStore store = SessionStore.getInstance(context);
+		if (store != null) {
+			final SessionStore.Session session = store.get(uri, loginEmail);
+			if (session != null) {
+				final HttpContext sessionContext = session.newHttpContext();
+				if (SessionStore.isValid(context, sessionContext)) {
+					log.debug("restored stored session: {}", loginEmail);
+					this.localContext = sessionContext;
+					return;
+				}
+				log.debug("stored session rejected: {}", loginEmail);
+				store.remove(uri, loginEmail);
+			}
+		}
+
+		login(context, uri, loginEmail, loginPassword, store);
+	}
 
+	private void login(Context context, URI uri, String loginEmail, String loginPassword, SessionStore store) {
 		log.debug("POST auth URL: {}", uri);
 		HttpPost httppost = new HttpPost(uri);
 		httppost.setHeader("Cache-Control", "no-cache");
@@ -68,18 +100,15 @@ public class RhexHttpSecurityChecker implements HttpRequestChecker {
 		formParams.add(new BasicNameValuePair("id", loginPassword));
 		final HttpResponse response;
 		HttpClient client = null;
-		HttpContext httpContext = localContext;
+		// Create a local instance of cookie store
+		final CookieStore cookieStore = new BasicCookieStore();
+		// Create local HTTP context
+		final HttpContext httpContext = new BasicHttpContext();
+		// Bind custom cookie store to the local context
+		httpContext.setAttribute(ClientContext.COOKIE_STORE, cookieStore);
 		try {
 			httppost.setEntity(new UrlEncodedFormEntity(formParams));
 			client = context.getHttpClient();
-			if (httpContext == null) {
-				// Create a local instance of cookie store
-				CookieStore cookieStore = new BasicCookieStore();
-				// Create local HTTP context
-				httpContext = new BasicHttpContext();
-				// Bind custom cookie store to the local context
-				httpContext.setAttribute(ClientContext.COOKIE_STORE, cookieStore);
-			}
 			response = client.execute(httppost, httpContext);
 			/*
 			 <form method='post' action='/auth/developer/callback' noValidate='noValidate'>
@@ -107,6 +136,9 @@ public class RhexHttpSecurityChecker implements HttpRequestChecker {
 			if (cookie != null) {
 				log.debug("XXX: set local context");
 				this.localContext = httpContext;
+				if (store != null) {
+					store.put(uri, loginEmail, cookieStore, null);
+				}
 			}
 			else log.error("Expected Set-Cookie header in response");
 			if (log.isDebugEnabled()) {
@@ -179,7 +211,71 @@ public class RhexHttpSecurityChecker implements HttpRequestChecker {
 	public HttpResponse executeRequest(Context context, HttpClient client, HttpUriRequest req)
 			throws IOException
 	{
-		return client.execute(req, localContext);
+		final HttpContext userContext = localContext;
+		if (userContext == null) {
+			return client.execute(req);
+		}
+		// HttpClient keeps the request state in the context so each request needs its own
+		HttpContext requestContext = new BasicHttpContext(userContext);
+		HttpResponse response = client.execute(req, requestContext);
+		if (!SessionRenewal.isRejected(response, requestContext, loginURL)) {
+			return response;
+		}
+		log.info("session rejected by {} {}", req.getMethod(), req.getURI());
+		final boolean replay = SessionRenewal.isReplayable(req);
+		if (replay) {
+			EntityUtils.consume(response.getEntity());
+		}
+		renew(context, userContext);
+		final HttpContext renewedContext = localContext;
+		if (!replay || renewedContext == userContext) {
+			// the test gets the rejected response but later requests use the new session
+			return response;
+		}
+		SessionRenewal.reset(req);
+		requestContext = new BasicHttpContext(renewedContext);
+		return client.execute(req, requestContext);
+	}
+
+	/**
+	 * Execute request with the session of the current user without blocking.
+	 * The user is resolved on the calling thread. A rejected session is not
+	 * renewed here since that would block an I/O thread with the login requests,
+	 * the next blocking request of the user renews it.
+	 *
+	 * @param context   Application context
+	 * @param client   the started HttpAsyncClient, must never be null
+	 * @param req   the request to execute, must never be null
+	 * @param callback   callback notified when the request completes, may be null
+	 *
+	 * @return  future of the response to the request
+	 */
+	@NonNull
+	public Future<HttpResponse> executeRequestAsync(Context context, HttpAsyncClient client,
+													HttpUriRequest req, FutureCallback<HttpResponse> callback)
+	{
+		final HttpContext userContext = localContext;
+		if (userContext == null) {
+			return client.execute(req, callback);
+		}
+		return client.execute(req, new BasicHttpContext(userContext), callback);
+	}
+
+	/**
+	 * Login again unless another request has already renewed the rejected session
+	 *
+	 * @param context   Application context
+	 * @param rejected  HTTP context of the rejected session
+	 */
+	private void renew(Context context, HttpContext rejected) {
+		synchronized (loginLock) {
+			if (localContext != rejected) return;
+			final String loginEmail = context.getString("loginEmail");
+			log.info("renew session: {}", loginEmail);
+			final SessionStore store = SessionStore.getInstance(context);
+			if (store != null) store.remove(loginURL, loginEmail);
+			login(context, loginURL, loginEmail, context.getString("loginPassword"), store);
+		}
 	}
 
 }
\ No newline at end of file
@@ -13,15 +13,17 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.params.ClientPNames;
 import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.client.AbstractHttpClient;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.mitre.test.ClientHelper;
 import org.mitre.test.Context;
-import org.mitre.test.HttpRequestChecker;
+import org.mitre.test.AsyncHttpRequestChecker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +36,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 /**
@@ -43,13 +47,25 @@ import java.util.regex.Pattern;
  * @author Jason Mathews, MITRE Corp.
  * Date: 3/30/12 12:51 PM
  */
-public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
+public class RhexOmniAuthOIDCSecurityChecker implements AsyncHttpRequestChecker {
 
 	private static final Logger log = LoggerFactory.getLogger(RhexOmniAuthOIDCSecurityChecker.class);
 
-	private HttpContext localContext;
-    private String currentUser;
-    private final Map<String, HttpContext> contexts = new HashMap<String,HttpContext>();
+    /**
+     * HTTP context with the cookie store of each authenticated user by email.
+     * Contexts are never modified once added and each request executes with a child
+     * context of the user such that tests of different users can run concurrently.
+     */
+    private final Map<String, HttpContext> contexts = new ConcurrentHashMap<String, HttpContext>();
+
+    /**
+     * held while a user logs in since the login sets context properties. Requests
+     * rejected by the server at the same time renew the session of a user only once.
+     */
+    private final Object loginLock = new Object();
+
+    private volatile String defaultUser;
+    private volatile URI loginURL;
 
     /**
 	 * Setups and initializes the HttpRequestChecker
@@ -66,16 +82,30 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
         if (StringUtils.isBlank(loginEmail) || StringUtils.isBlank(loginPassword)) {
             throw new IllegalArgumentException("email and password properties are empty or missing for defaultUser");
         }
+        loginURL = context.getPropertyAsURI("loginURL");
 
         setUser(context, Context.DEFAULT_USER, loginEmail, loginPassword);
+        if (contexts.containsKey(loginEmail)) {
+            defaultUser = loginEmail;
+        }
 	}
 
+    /**
+     * Get user of the current thread which is the user set on the context
+     * with <tt>Context.setUser()</tt> if authenticated otherwise the default user.
+     *
+     * @param context   Application context, never null
+     * @return email address of the user or null if not authenticated
+     */
     @Override
     public String getCurrentUser(Context context) {
-        return currentUser;
+        final String userEmail = context.getUserEmail();
+        return userEmail != null && contexts.containsKey(userEmail) ? userEmail : defaultUser;
     }
 
     /**
+     * Authenticate user unless already authenticated. The user context becomes
+     * active for the thread when set on the context with <tt>Context.setUser()</tt>.
      *
      * @param context
      * @param userId
@@ -86,21 +116,18 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
      */
     @Override
     public void setUser(Context context, String userId, String userEmail, String userPassword) {
-        if (currentUser != null && currentUser.equals(userEmail)) {
-            log.debug("same user context: no change"); // XXX
-            return; // user is already active and context is set
+        if (contexts.containsKey(userEmail)) {
+            return; // user is already authenticated
         }
-        HttpContext httpContext = contexts.get(userEmail);
-        if (httpContext != null) {
-            //localContext = contexts.get(userEmail);
-            //if (localContext != null) {
-            log.debug("switch user context: {}", userEmail);
-            currentUser = userEmail;
-            localContext = httpContext;
-            // log.info("local user context: " + localContext.getAttribute("user"));
-            return;
+        synchronized (loginLock) {
+            // user may have logged in while waiting for the lock
+            if (!contexts.containsKey(userEmail)) {
+                login(context, userId, userEmail, userPassword);
+            }
         }
+    }
 
+    private void login(Context context, String userId, String userEmail, String userPassword) {
         log.info("set user context: " + userEmail);
 
         final URI uri = context.getPropertyAsURI("loginURL");
@@ -108,6 +135,25 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
             throw new IllegalArgumentException("loginURL property not defined");
         }
 
+        // reuse session of a previous run if still accepted by the server
+        final SessionStore store = SessionStore.getInstance(context);
+        if (store != null) {
+            final SessionStore.Session session = store.get(uri, userEmail);
+            if (session != null) {
+                final HttpContext httpContext = session.newHttpContext();
+                if (SessionStore.isValid(context, httpContext)) {
+                    log.info("restored stored session: {}", userEmail);
+                    for (Map.Entry<String, String> entry : session.getProperties().entrySet()) {
+                        context.setProperty(userId + "." + entry.getKey(), entry.getValue());
+                    }
+                    contexts.put(userEmail, httpContext);
+                    return;
+                }
+                log.debug("stored session rejected: {}", userEmail);
+                store.remove(uri, userEmail);
+            }
+        }
+
         /*
         Step 1:
 
@@ -125,7 +171,7 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
         // Create a local instance of cookie store
         CookieStore cookieStore = new BasicCookieStore();
         // Create local HTTP context
-        httpContext = new BasicHttpContext();
+        final HttpContext httpContext = new BasicHttpContext();
         // Bind custom cookie store to the local context
         httpContext.setAttribute(ClientContext.COOKIE_STORE, cookieStore);
         //}
@@ -359,12 +405,14 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
             }
             if (success) {
                 log.info("XXX: authentication successful: {}", userEmail);
-                saveUriParameters(context, postRedirect, userId);
-                saveUriParameters(context, getRedirect, userId);
-                currentUser = userEmail;
-                this.localContext = httpContext;
+                final Map<String, String> properties = new HashMap<String, String>();
+                saveUriParameters(context, postRedirect, userId, properties);
+                saveUriParameters(context, getRedirect, userId, properties);
                 // httpContext.setAttribute("user", userEmail);
                 contexts.put(userEmail, httpContext); // save context
+                if (store != null) {
+                    store.put(uri, userEmail, cookieStore, properties);
+                }
             }
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
@@ -374,7 +422,7 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
         }
     }
 
-    private void saveUriParameters(Context context, URI uri, String userId) {
+    private void saveUriParameters(Context context, URI uri, String userId, Map<String, String> properties) {
         String query = uri.getQuery();
         if (userId != null && query != null) {
             // if (debug) System.out.println("XXX: params");
@@ -386,6 +434,7 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
                 if ("client_id".equals(name) || "nonce".equals(name) || "code".equals(name)) {
                     // save client id + nonce in configuration properties
                     context.setProperty(userId + "." + name, value);
+                    properties.put(name, value);
                 }
                 /*
                 else if ("request".equals(name)) {
@@ -434,7 +483,83 @@ public class RhexOmniAuthOIDCSecurityChecker implements HttpRequestChecker {
 	public HttpResponse executeRequest(Context context, HttpClient client, HttpUriRequest req)
 			throws IOException
 	{
-		return client.execute(req, localContext);
+		final String userEmail = getCurrentUser(context);
+		final HttpContext userContext = userEmail == null ? null : contexts.get(userEmail);
+		if (userContext == null) {
+			return client.execute(req);
+		}
+		// HttpClient keeps the request state in the context so each request needs its own
+		HttpContext requestContext = new BasicHttpContext(userContext);
+		HttpResponse response = client.execute(req, requestContext);
+		if (!SessionRenewal.isRejected(response, requestContext, loginURL)) {
+			return response;
+		}
+		log.info("session of {} rejected by {} {}", new Object[]{userEmail, req.getMethod(), req.getURI()});
+		final boolean replay = SessionRenewal.isReplayable(req);
+		if (replay) {
+			EntityUtils.consume(response.getEntity());
+		}
+		renew(context, userEmail, userContext);
+		final HttpContext renewedContext = contexts.get(userEmail);
+		if (!replay || renewedContext == userContext) {
+			// the test gets the rejected response but later requests use the new session
+			return response;
+		}
+		SessionRenewal.reset(req);
+		requestContext = new BasicHttpContext(renewedContext);
+		return client.execute(req, requestContext);
+	}
+
+	/**
+	 * Execute request with the session of the current user without blocking.
+	 * The user is resolved on the calling thread. A rejected session is not
+	 * renewed here since that would block an I/O thread with the login requests,
+	 * the next blocking request of the user renews it.
+	 *
+	 * @param context   Application context
+	 * @param client   the started HttpAsyncClient, must never be null
+	 * @param req   the request to execute, must never be null
+	 * @param callback   callback notified when the request completes, may be null
+	 *
+	 * @return  future of the response to the request
+	 */
+	@NonNull
+	public Future<HttpResponse> executeRequestAsync(Context context, HttpAsyncClient client,
+													HttpUriRequest req, FutureCallback<HttpResponse> callback)
+	{
+		final String userEmail = getCurrentUser(context);
+		final HttpContext userContext = userEmail == null ? null : contexts.get(userEmail);
+		if (userContext == null) {
+			return client.execute(req, callback);
+		}
+		return client.execute(req, new BasicHttpContext(userContext), callback);
+	}
+
+	/**
+	 * Login user again unless another request has already renewed the rejected session
+	 *
+	 * @param context   Application context
+	 * @param userEmail User email
+	 * @param rejected  HTTP context of the rejected session
+	 */
+	private void renew(Context context, String userEmail, HttpContext rejected) {
+		synchronized (loginLock) {
+			if (contexts.get(userEmail) != rejected) return;
+			log.info("renew session: {}", userEmail);
+			final String userId = context.getUser();
+			final SessionStore store = SessionStore.getInstance(context);
+			if (store != null && loginURL != null) store.remove(loginURL, userEmail);
+			contexts.remove(userEmail);
+			try {
+				login(context, userId, userEmail, context.getUserProperty(userId, "password"));
+			} catch (IllegalArgumentException e) {
+				log.warn("failed to renew session", e);
+			}
+			if (!contexts.containsKey(userEmail)) {
+				// keep rejected session rather than execute requests as another user
+				contexts.put(userEmail, rejected);
+			}
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package org.mitre.rhex.security;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.net.URI;
+
+/**
+ * Helpers for the security checkers to detect responses of requests whose session
+ * was rejected by the server such as after the session cookie expired in the middle
+ * of a run, and to replay those requests once the user has logged in again.
+ *
+ * Date: 10/17/26 1:20 AM
+ */
+public final class SessionRenewal {
+
+	private SessionRenewal() {
+		// static helpers only
+	}
+
+	/**
+	 * Check if the server rejected the session of a request. The session is rejected
+	 * if the server responds with 401 Unauthorized or redirects to the login URL or
+	 * a sign in page whether or not the client followed the redirect.
+	 *
+	 * @param response Response of the request
+	 * @param requestContext HTTP context the request was executed with
+	 * @param loginURL Login URL of the server, may be null
+	 * @return true if the session was rejected
+	 */
+	public static boolean isRejected(HttpResponse response, HttpContext requestContext, URI loginURL) {
+		final int code = response.getStatusLine().getStatusCode();
+		if (code == 401) return true;
+		if (code >= 300 && code < 400) {
+			final Header location = response.getFirstHeader("Location");
+			return location != null && isLoginPath(getPath(location.getValue()), loginURL);
+		}
+		// redirect followed by the client ends with the request of the login page
+		final Object request = requestContext.getAttribute(ExecutionContext.HTTP_REQUEST);
+		return request instanceof HttpRequest
+				&& isLoginPath(getPath(((HttpRequest) request).getRequestLine().getUri()), loginURL);
+	}
+
+	/**
+	 * Check if request can be sent again after the user has logged in again.
+	 * Only idempotent requests are replayed and only if any request body can be
+	 * sent again, so a POST that may have had side effects is never repeated.
+	 *
+	 * @param request HTTP request
+	 * @return true if request is replayable
+	 */
+	public static boolean isReplayable(HttpUriRequest request) {
+		final String method = request.getMethod();
+		if (!"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method)
+				&& !"PUT".equals(method) && !"DELETE".equals(method)) {
+			return false;
+		}
+		if (request instanceof HttpEntityEnclosingRequest) {
+			final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			if (entity != null && !entity.isRepeatable()) return false;
+		}
+		return !request.isAborted() && request instanceof HttpRequestBase;
+	}
+
+	/**
+	 * Prepare executed request to be sent again
+	 *
+	 * @param request request for which {@link #isReplayable} returned true
+	 */
+	public static void reset(HttpUriRequest request) {
+		((HttpRequestBase) request).reset();
+	}
+
+	private static boolean isLoginPath(String path, URI loginURL) {
+		if (path == null) return false;
+		if (loginURL != null && path.equals(loginURL.getPath())) return true;
+		// sign in pages of Devise-based servers and identity providers
+		return path.endsWith("/sign_in") || path.endsWith("/sign_up");
+	}
+
+	@CheckForNull
+	private static String getPath(String uri) {
+		if (StringUtils.isBlank(uri)) return null;
+		try {
+			return URI.create(uri.trim()).getPath();
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package org.mitre.rhex.security;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * On-disk store of authenticated sessions such that the security checkers can reuse
+ * the session cookies of a previous run rather than login again. Sessions are keyed by
+ * login URL and user email and expire with their cookies or after a maximum age
+ * for cookies without an expiry date.
+ * <p/>
+ * The store is enabled with the <tt>session.file</tt> configuration property.
+ * The file holds live session cookies so is only readable by its owner.
+ *
+ * Date: 10/17/26 12:30 AM
+ */
+public class SessionStore {
+
+	private static final Logger log = LoggerFactory.getLogger(SessionStore.class);
+
+	/**
+	 * default maximum age of a session in seconds
+	 */
+	public static final int DEFAULT_MAX_AGE = 3600;
+
+	private static final Map<File, SessionStore> stores = new HashMap<File, SessionStore>();
+
+	private final File file;
+	private final long maxAge;
+
+	private HashMap<String, Session> sessions;
+	private long lastModified;
+
+	/**
+	 * Create store backed by given file
+	 *
+	 * @param file File of the store, created when the first session is saved
+	 * @param maxAge Maximum age of a session in seconds
+	 */
+	public SessionStore(File file, int maxAge) {
+		this.file = file;
+		this.maxAge = maxAge * 1000L;
+	}
+
+	/**
+	 * Get store configured with the <tt>session.file</tt> and <tt>session.maxAge</tt>
+	 * (seconds) properties. Contexts configured with the same file share one store.
+	 *
+	 * @param context Application context
+	 * @return store or null if not configured
+	 */
+	@CheckForNull
+	public static SessionStore getInstance(Context context) {
+		final String fileName = context.getString("session.file");
+		if (StringUtils.isBlank(fileName)) return null;
+		final File file = new File(fileName).getAbsoluteFile();
+		synchronized (stores) {
+			SessionStore store = stores.get(file);
+			if (store == null) {
+				store = new SessionStore(file, context.getInt("session.maxAge", DEFAULT_MAX_AGE));
+				stores.put(file, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Get unexpired session of given user
+	 *
+	 * @param loginURL Login URL of the server
+	 * @param email User email
+	 * @return session or null if none is stored or has expired
+	 */
+	@CheckForNull
+	public synchronized Session get(URI loginURL, String email) {
+		load();
+		final String key = getKey(loginURL, email);
+		final Session session = sessions.get(key);
+		if (session == null) return null;
+		if (session.isExpired()) {
+			log.debug("stored session expired: {}", email);
+			sessions.remove(key);
+			save();
+			return null;
+		}
+		return session;
+	}
+
+	/**
+	 * Save session of given user replacing any previous session
+	 *
+	 * @param loginURL Login URL of the server
+	 * @param email User email
+	 * @param cookieStore Cookies of the authenticated session
+	 * @param properties Properties obtained by the login to restore with the session, may be null
+	 */
+	public synchronized void put(URI loginURL, String email, CookieStore cookieStore,
+								 Map<String, String> properties) {
+		load();
+		final Session session = new Session(cookieStore.getCookies(), properties,
+				System.currentTimeMillis() + maxAge);
+		if (session.isExpired()) {
+			log.debug("session not stored, no persistent cookies: {}", email);
+			return;
+		}
+		sessions.put(getKey(loginURL, email), session);
+		save();
+	}
+
+	/**
+	 * Remove session of given user such as after it is rejected by the server
+	 *
+	 * @param loginURL Login URL of the server
+	 * @param email User email
+	 */
+	public synchronized void remove(URI loginURL, String email) {
+		load();
+		if (sessions.remove(getKey(loginURL, email)) != null) save();
+	}
+
+	/**
+	 * Check if the server accepts the session by a GET of the baseURL. The session
+	 * is rejected if the server responds with 401 Unauthorized or a redirect such as
+	 * to its login page, other responses are left to the tests to check.
+	 *
+	 * @param context Application context
+	 * @param httpContext HTTP context with the cookies of the session
+	 * @return true if session is accepted
+	 */
+	public static boolean isValid(Context context, HttpContext httpContext) {
+		final HttpClient client = context.getHttpClient();
+		try {
+			client.getParams().setParameter(ClientPNames.HANDLE_REDIRECTS, false);
+			final HttpGet req = new HttpGet(context.getBaseURL());
+			req.setHeader("Accept", "application/atom+xml");
+			final HttpResponse response = client.execute(req, httpContext);
+			EntityUtils.consume(response.getEntity());
+			final int code = response.getStatusLine().getStatusCode();
+			log.debug("stored session check status={}", code);
+			return code != 401 && (code < 300 || code >= 400);
+		} catch (IOException e) {
+			log.debug("", e);
+			return false;
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+	}
+
+	private static String getKey(URI loginURL, String email) {
+		return loginURL.toASCIIString() + '\n' + email;
+	}
+
+	/**
+	 * Load sessions if not loaded or file was changed by another process.
+	 * Sessions are stored as properties with the fields of each cookie
+	 * so the format does not depend on the HttpClient cookie classes.
+	 */
+	private void load() {
+		final long modified = file.lastModified();
+		if (sessions != null && modified == lastModified) return;
+		sessions = new HashMap<String, Session>();
+		lastModified = modified;
+		if (modified == 0) return; // not found
+		final Properties props = new Properties();
+		InputStream is = null;
+		try {
+			is = new BufferedInputStream(new FileInputStream(file));
+			props.load(is);
+		} catch (IOException e) {
+			log.warn("Failed to read session store " + file, e);
+			return;
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+		for (int i = 0; ; i++) {
+			final String prefix = "session." + i + ".";
+			final String key = props.getProperty(prefix + "key");
+			if (key == null) break;
+			try {
+				sessions.put(key, Session.load(props, prefix));
+			} catch (NumberFormatException e) {
+				log.warn("Invalid session {} in session store {}", i, file);
+			}
+		}
+	}
+
+	/**
+	 * Write sessions to temporary file and rename it such that
+	 * other processes never read a partially written store
+	 */
+	private void save() {
+		final File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			log.warn("Failed to create directory of session store {}", file);
+			return;
+		}
+		final File temp = new File(dir, file.getName() + ".tmp");
+		final Properties props = new Properties();
+		int i = 0;
+		for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+			final String prefix = "session." + i++ + ".";
+			props.setProperty(prefix + "key", entry.getKey());
+			entry.getValue().store(props, prefix);
+		}
+		OutputStream os = null;
+		try {
+			// restrict access before any session is written
+			if (temp.createNewFile() || temp.isFile()) {
+				temp.setReadable(false, false);
+				temp.setWritable(false, false);
+				temp.setReadable(true, true);
+				temp.setWritable(true, true);
+			}
+			os = new BufferedOutputStream(new FileOutputStream(temp));
+			props.store(os, "authenticated sessions");
+			os.close();
+			os = null;
+			if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+				log.warn("Failed to write session store {}", file);
+			}
+			lastModified = file.lastModified();
+		} catch (IOException e) {
+			log.warn("Failed to write session store " + file, e);
+		} finally {
+			IOUtils.closeQuietly(os);
+		}
+	}
+
+	/**
+	 * Cookies of an authenticated session with the properties obtained by the login
+	 */
+	public static final class Session {
+
+		private final List<Cookie> cookies = new ArrayList<Cookie>();
+		private final Map<String, String> properties = new HashMap<String, String>();
+		private final long expires;
+
+		Session(List<Cookie> cookies, Map<String, String> properties, long expires) {
+			long time = expires;
+			for (Cookie cookie : cookies) {
+				this.cookies.add(cookie);
+				final Date expiry = cookie.getExpiryDate();
+				if (expiry != null && expiry.getTime() < time) time = expiry.getTime();
+			}
+			if (properties != null) this.properties.putAll(properties);
+			this.expires = time;
+		}
+
+		/**
+		 * Rebuild session from properties written by {@link #store}
+		 *
+		 * @exception NumberFormatException if a stored time is invalid
+		 */
+		static Session load(Properties props, String prefix) {
+			final List<Cookie> cookies = new ArrayList<Cookie>();
+			for (int i = 0; ; i++) {
+				final String cookiePrefix = prefix + "cookie." + i + ".";
+				final String name = props.getProperty(cookiePrefix + "name");
+				if (name == null) break;
+				final BasicClientCookie cookie = new BasicClientCookie(name, props.getProperty(cookiePrefix + "value"));
+				cookie.setDomain(props.getProperty(cookiePrefix + "domain"));
+				cookie.setPath(props.getProperty(cookiePrefix + "path"));
+				final String expiry = props.getProperty(cookiePrefix + "expiry");
+				if (expiry != null) cookie.setExpiryDate(new Date(Long.parseLong(expiry)));
+				cookie.setSecure(Boolean.parseBoolean(props.getProperty(cookiePrefix + "secure")));
+				cookies.add(cookie);
+			}
+			final Map<String, String> properties = new HashMap<String, String>();
+			final String propertyPrefix = prefix + "property.";
+			for (String key : props.stringPropertyNames()) {
+				if (key.startsWith(propertyPrefix)) {
+					properties.put(key.substring(propertyPrefix.length()), props.getProperty(key));
+				}
+			}
+			return new Session(cookies, properties, Long.parseLong(props.getProperty(prefix + "expires")));
+		}
+
+		/**
+		 * Write cookie fields and login properties of this session as properties
+		 */
+		void store(Properties props, String prefix) {
+			props.setProperty(prefix + "expires", Long.toString(expires));
+			for (int i = 0; i < cookies.size(); i++) {
+				final Cookie cookie = cookies.get(i);
+				final String cookiePrefix = prefix + "cookie." + i + ".";
+				props.setProperty(cookiePrefix + "name", cookie.getName());
+				if (cookie.getValue() != null) props.setProperty(cookiePrefix + "value", cookie.getValue());
+				if (cookie.getDomain() != null) props.setProperty(cookiePrefix + "domain", cookie.getDomain());
+				if (cookie.getPath() != null) props.setProperty(cookiePrefix + "path", cookie.getPath());
+				final Date expiry = cookie.getExpiryDate();
+				if (expiry != null) props.setProperty(cookiePrefix + "expiry", Long.toString(expiry.getTime()));
+				props.setProperty(cookiePrefix + "secure", Boolean.toString(cookie.isSecure()));
+			}
+			for (Map.Entry<String, String> entry : properties.entrySet()) {
+				if (entry.getValue() != null) props.setProperty(prefix + "property." + entry.getKey(), entry.getValue());
+			}
+		}
+
+		boolean isExpired() {
+			return cookies.isEmpty() || expires <= System.currentTimeMillis();
+		}
+
+		/**
+		 * Create HTTP context with a new cookie store holding the session cookies
+		 * @return HTTP context
+		 */
+		@NonNull
+		public HttpContext newHttpContext() {
+			final CookieStore cookieStore = new BasicCookieStore();
+			for (Cookie cookie : cookies) {
+				cookieStore.addCookie(cookie);
+			}
+			final HttpContext httpContext = new BasicHttpContext();
+			httpContext.setAttribute(ClientContext.COOKIE_STORE, cookieStore);
+			return httpContext;
+		}
+
+		/**
+		 * Get properties obtained by the login
+		 * @return read-only map, empty if none
+		 */
+		@NonNull
+		public Map<String, String> getProperties() {
+			return Collections.unmodifiableMap(properties);
+		}
+	}
+}
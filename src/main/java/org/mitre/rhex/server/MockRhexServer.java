@@ -0,0 +1,878 @@
+package org.mitre.rhex.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for an hData RESTful server (RHEx) built on the JDK HTTP server
+ * that serves a {@link SyntheticDataset} so the tests can be run offline and at high
+ * volume without a live server, e.g. as the target of benchmarks.
+ * <P>
+ * Records are served at <tt>/records/{id}</tt> with the following resources:
+ * <ul>
+ *  <li>baseURL: GET Atom feed of sections, OPTIONS with X-hdata-* headers, POST to create section
+ *  <li>baseURL/root.xml: GET root document, POST, PUT and DELETE not allowed
+ *  <li>baseURL/{section}: GET Atom feed of documents (paged if page size is set), POST to create document
+ *  <li>baseURL/{section}/{id}: GET document as XML or JSON, PUT to update and DELETE
+ * </ul>
+ * If sessions are enabled the records require the session cookie set by a POST to
+ * <tt>/auth/developer/callback</tt> as with the RhexHttpSecurityChecker.
+ *
+ * <pre>
+ *   MockRhexServer server = new MockRhexServer(new SyntheticDataset(1, 1000, 10));
+ *   server.start(0);
+ *   try {
+ *       URI baseURL = server.getBaseURL("1");
+ *       ...
+ *   } finally {
+ *       server.stop();
+ *   }
+ * </pre>
+ *
+ * Response headers and body are written separately so the JVM should be started with
+ * <tt>-Dsun.net.httpserver.nodelay=true</tt> otherwise each response waits for the
+ * delayed ACK of the client. {@link org.mitre.test.Loader#main} sets it if not defined.
+ *
+ * Date: 10/16/26 4:45 PM
+ */
+public class MockRhexServer {
+
+	private static final Logger log = LoggerFactory.getLogger(MockRhexServer.class);
+
+	public static final String RECORDS_PATH = "/records/";
+
+	/**
+	 * path of the login URL if sessions are enabled
+	 */
+	public static final String LOGIN_PATH = "/auth/developer/callback";
+
+	private static final String SESSION_COOKIE = "_session_id";
+
+	public static final int DEFAULT_THREADS = 16;
+
+	/**
+	 * default number of entries per page of a section feed, 0 for unpaged feeds
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 0;
+
+	public static final String NAMESPACE_HDATA_CORE = "http://projecthdata.org/hdata/schemas/2009/06/core";
+	public static final String NAMESPACE_ATOM = "http://www.w3.org/2005/Atom";
+
+	private static final String MIME_ATOM = "application/atom+xml";
+	private static final String MIME_XML = "application/xml";
+	private static final String MIME_TEXT_XML = "text/xml";
+	private static final String MIME_JSON = "application/json";
+	private static final String MIME_FORM = "application/x-www-form-urlencoded";
+
+	/**
+	 * media types accepted for XML content (i.e. Atom feeds and root.xml)
+	 */
+	private static final String[] XML_TYPES = { MIME_ATOM, MIME_XML, MIME_TEXT_XML };
+
+	/**
+	 * media types of document representations in order of preference
+	 */
+	private static final String[] DOCUMENT_TYPES = { MIME_XML, MIME_TEXT_XML, MIME_JSON };
+
+	private static final String SECURITY_MECHANISM = "http://projecthdata.org/hdata/security/none";
+	private static final String HCP = "http://projecthdata.org/hdata/hcp/greencda";
+
+	private static final ThreadLocal<SimpleDateFormat> atomDateFormat = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			return format;
+		}
+	};
+
+	private static final SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+
+	static {
+		parserFactory.setNamespaceAware(true);
+	}
+
+	private final SyntheticDataset dataset;
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	private int threads = DEFAULT_THREADS;
+	private volatile long delay;
+	private volatile int sessionRequests;
+
+	/**
+	 * requests left of each session
+	 */
+	private final Map<String, AtomicInteger> sessions = new ConcurrentHashMap<String, AtomicInteger>();
+	private final AtomicInteger loginCount = new AtomicInteger();
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger activeRequests = new AtomicInteger();
+	private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public MockRhexServer(SyntheticDataset dataset) {
+		this.dataset = dataset;
+	}
+
+	@NonNull
+	public SyntheticDataset getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Set number of entries per page of section feeds where each page has a
+	 * <tt>rel="next"</tt> link to the next page. Must be set before the server is started.
+	 *
+	 * @param pageSize entries per page, 0 to serve each section feed as a single document
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = Math.max(0, pageSize);
+	}
+
+	/**
+	 * Set number of threads handling requests. Must be set before the server is started.
+	 * @param threads number of threads, at least 1
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Set time each request is delayed before it is handled to simulate the
+	 * service time of a real server.
+	 *
+	 * @param delay delay in milliseconds, 0 for none
+	 */
+	public void setDelay(long delay) {
+		this.delay = Math.max(0, delay);
+	}
+
+	/**
+	 * Require a session for requests of records. A session is created by a POST to
+	 * {@link #LOGIN_PATH} and expires after the given number of requests after which
+	 * its requests are rejected with 401 Unauthorized until the client logs in again.
+	 *
+	 * @param requests requests accepted per session, 0 to not require a session
+	 */
+	public void setSessionRequests(int requests) {
+		sessionRequests = Math.max(0, requests);
+	}
+
+	/**
+	 * @return number of sessions created by a login
+	 */
+	public int getLoginCount() {
+		return loginCount.get();
+	}
+
+	/**
+	 * @return number of requests received since the server was created
+	 */
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return maximum number of requests handled at the same time
+	 */
+	public int getMaxActiveRequests() {
+		return maxActiveRequests.get();
+	}
+
+	/**
+	 * Start server on loopback interface.
+	 *
+	 * @param port port number or 0 to use any free port
+	 * @exception IOException if server socket cannot be bound
+	 * @exception IllegalStateException if server is already started
+	 */
+	public synchronized void start(int port) throws IOException {
+		if (server != null) throw new IllegalStateException("server already started");
+		final HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 256);
+		httpServer.createContext(RECORDS_PATH, new RecordHandler());
+		httpServer.createContext(LOGIN_PATH, new LoginHandler());
+		final AtomicInteger count = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "mock-rhex-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		httpServer.setExecutor(executor);
+		httpServer.start();
+		server = httpServer;
+		log.info("Mock RHEx server started on port {}", getPort());
+	}
+
+	/**
+	 * Stop server if started. Requests in progress are aborted.
+	 */
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			server = null;
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
+	}
+
+	/**
+	 * @return port the server is listening on
+	 * @exception IllegalStateException if server is not started
+	 */
+	public synchronized int getPort() {
+		if (server == null) throw new IllegalStateException("server not started");
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @param recordId Record id
+	 * @return baseURL of record with given id
+	 * @exception IllegalStateException if server is not started
+	 */
+	@NonNull
+	public URI getBaseURL(String recordId) {
+		return URI.create("http://127.0.0.1:" + getPort() + RECORDS_PATH + recordId);
+	}
+
+	/**
+	 * Set the configuration properties of the default tests to target the first record
+	 * of this server: baseURL, invalidBaseURL, updateDocumentUrl, updateDocument/section,
+	 * updateDocument/file, document/url and document/content. Other properties are left unchanged.
+	 *
+	 * @param config Configuration to update
+	 * @exception IllegalStateException if server is not started
+	 */
+	public void configure(Configuration config) {
+		configure(config, dataset.getRecords().iterator().next().getId());
+	}
+
+	/**
+	 * Set the configuration properties of the default tests to target the record
+	 * with given id as with {@link #configure(Configuration)}.
+	 *
+	 * @param config Configuration to update
+	 * @param recordId Record id
+	 * @exception IllegalArgumentException if record not found
+	 * @exception IllegalStateException if server is not started
+	 */
+	public void configure(Configuration config, String recordId) {
+		final SyntheticDataset.Record record = dataset.getRecord(recordId);
+		if (record == null) throw new IllegalArgumentException("Record not found: " + recordId);
+		final String baseURL = getBaseURL(record.getId()).toASCIIString();
+		config.setProperty("baseURL", baseURL);
+		config.setProperty("invalidBaseURL", getBaseURL("NotValid").toASCIIString());
+		final SyntheticDataset.Section section = record.getSection("vital_signs");
+		config.setProperty("updateDocument.section", section.getPath());
+		config.setProperty("updateDocument.file", "data/vitalSign.xml");
+		final List<String> ids = section.getDocumentIds();
+		if (!ids.isEmpty()) {
+			final String id = ids.get(ids.size() - 1);
+			final String url = baseURL + "/" + section.getPath() + "/" + id;
+			config.setProperty("updateDocumentUrl", url);
+			config.setProperty("document.url", url);
+			config.setProperty("document.content", id);
+		}
+	}
+
+	/**
+	 * Create server with dataset and page size from the <tt>mock.*</tt> configuration
+	 * properties: records, sections, documents, pageSize and threads.
+	 *
+	 * @param config Configuration
+	 * @return new server, not started
+	 */
+	@NonNull
+	public static MockRhexServer create(Configuration config) {
+		final SyntheticDataset dataset = new SyntheticDataset(config.getInt("mock.records", 1),
+				config.getInt("mock.sections", 100), config.getInt("mock.documents", 10));
+		final MockRhexServer server = new MockRhexServer(dataset);
+		server.setPageSize(config.getInt("mock.pageSize", DEFAULT_PAGE_SIZE));
+		server.setThreads(config.getInt("mock.threads", DEFAULT_THREADS));
+		return server;
+	}
+
+	private class RecordHandler implements HttpHandler {
+
+		public void handle(HttpExchange exchange) throws IOException {
+			requestCount.incrementAndGet();
+			final int active = activeRequests.incrementAndGet();
+			int max;
+			do {
+				max = maxActiveRequests.get();
+			} while (active > max && !maxActiveRequests.compareAndSet(max, active));
+			try {
+				if (delay > 0) {
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				// read request body before response so connection can be kept alive
+				final byte[] body = IOUtils.toByteArray(exchange.getRequestBody());
+				final int code = sessionRequests > 0 && !useSession(exchange)
+						? sendError(exchange, 401, "Session expired")
+						: dispatch(exchange, body);
+				if (log.isDebugEnabled()) {
+					log.debug("{} {} {}", new Object[]{ exchange.getRequestMethod(), exchange.getRequestURI(), code });
+				}
+			} catch (RuntimeException e) {
+				log.warn("Failed to handle " + exchange.getRequestURI(), e);
+				sendError(exchange, 500, e.toString());
+			} finally {
+				exchange.close();
+				activeRequests.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Creates a new session for any POST
+	 */
+	private class LoginHandler implements HttpHandler {
+
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				IOUtils.toByteArray(exchange.getRequestBody());
+				if (!"POST".equals(exchange.getRequestMethod())) {
+					sendNotAllowed(exchange, exchange.getRequestMethod(), "POST");
+					return;
+				}
+				final String session = "s" + loginCount.incrementAndGet();
+				sessions.put(session, new AtomicInteger(sessionRequests));
+				exchange.getResponseHeaders().set("Set-Cookie", SESSION_COOKIE + "=" + session + "; path=/");
+				exchange.getResponseHeaders().set("Location", "/");
+				exchange.sendResponseHeaders(302, -1);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Count request against its session
+	 * @return true if the request has a session that has not expired
+	 */
+	private boolean useSession(HttpExchange exchange) {
+		final List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+		if (cookies == null) return false;
+		for (String header : cookies) {
+			for (String cookie : StringUtils.split(header, ';')) {
+				final String[] pair = StringUtils.split(cookie.trim(), "=", 2);
+				if (pair.length == 2 && SESSION_COOKIE.equals(pair[0])) {
+					final AtomicInteger left = sessions.get(pair[1]);
+					return left != null && left.getAndDecrement() > 0;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Handle request and send response.
+	 * @return HTTP status code of response
+	 */
+	private int dispatch(HttpExchange exchange, byte[] body) throws IOException {
+		// path is /records/{id}[/][{section}|root.xml][/{documentId}]
+		final String path = exchange.getRequestURI().getRawPath().substring(RECORDS_PATH.length());
+		final String[] parts = StringUtils.splitPreserveAllTokens(path, '/');
+		final SyntheticDataset.Record record = dataset.getRecord(decode(parts[0]));
+		if (record == null || parts.length > 3) {
+			return sendError(exchange, 404, "Not found");
+		}
+		final String method = exchange.getRequestMethod();
+		if (parts.length == 1 || parts.length == 2 && parts[1].length() == 0) {
+			return handleBaseURL(exchange, method, record, body);
+		}
+		final String sectionPath = decode(parts[1]);
+		if (parts.length == 2 && "root.xml".equals(sectionPath)) {
+			if ("GET".equals(method)) return sendRootXml(exchange, record);
+			return sendNotAllowed(exchange, method, "GET, OPTIONS");
+		}
+		final SyntheticDataset.Section section = record.getSection(sectionPath);
+		if (section == null) {
+			return sendError(exchange, 404, "Section not found");
+		}
+		if (parts.length == 2 || parts[2].length() == 0) {
+			return handleSection(exchange, method, section, body);
+		}
+		return handleDocument(exchange, method, section, decode(parts[2]), body);
+	}
+
+	private int handleBaseURL(HttpExchange exchange, String method, SyntheticDataset.Record record, byte[] body)
+			throws IOException {
+		if ("GET".equals(method)) {
+			if (!accepts(exchange, XML_TYPES)) {
+				return sendError(exchange, 406, "Not acceptable");
+			}
+			return sendBaseFeed(exchange, record);
+		} else if ("OPTIONS".equals(method)) {
+			final Headers headers = exchange.getResponseHeaders();
+			headers.set("Allow", "GET, POST, OPTIONS");
+			headers.set("X-hdata-security", SECURITY_MECHANISM);
+			headers.set("X-hdata-hcp", HCP);
+			headers.set("X-hdata-extensions", StringUtils.join(record.getExtensions().values(), ' '));
+			exchange.sendResponseHeaders(200, -1);
+			return 200;
+		} else if ("POST".equals(method)) {
+			return createSection(exchange, record, body);
+		}
+		return sendNotAllowed(exchange, method, "GET, POST, OPTIONS");
+	}
+
+	private int handleSection(HttpExchange exchange, String method, SyntheticDataset.Section section, byte[] body)
+			throws IOException {
+		if ("GET".equals(method)) {
+			if (!accepts(exchange, XML_TYPES)) {
+				return sendError(exchange, 406, "Not acceptable");
+			}
+			return sendSectionFeed(exchange, section);
+		} else if ("POST".equals(method)) {
+			if (getRootElement(exchange, body) == null) {
+				return sendError(exchange, 400, "Expected well-formed XML document");
+			}
+			final String id = section.createDocument(body);
+			exchange.getResponseHeaders().set("Location", getDocumentUrl(exchange, section, id));
+			exchange.sendResponseHeaders(201, -1);
+			return 201;
+		}
+		return sendNotAllowed(exchange, method, "GET, POST, OPTIONS");
+	}
+
+	private int handleDocument(HttpExchange exchange, String method, SyntheticDataset.Section section,
+							   String id, byte[] body) throws IOException {
+		if ("GET".equals(method)) {
+			final String type = getDocumentType(exchange, section.hasJson(id));
+			final byte[] content = MIME_JSON.equals(type) ? section.getJson(id) : section.getXml(id);
+			if (content == null) return sendError(exchange, 404, "Document not found");
+			if (type == null) return sendError(exchange, 406, "Not acceptable");
+			return send(exchange, 200, type, section.getLastModified(), content);
+		} else if ("PUT".equals(method)) {
+			final byte[] current = section.getXml(id);
+			if (current == null) {
+				// documents cannot be created with PUT
+				return sendError(exchange, 404, "Document not found");
+			}
+			final String root = getRootElement(exchange, body);
+			if (root == null || !root.equals(getRootElement(current))) {
+				return sendError(exchange, 400, "Expected well-formed XML document with same root element");
+			}
+			if (!section.updateDocument(id, body)) {
+				return sendError(exchange, 404, "Document not found"); // deleted concurrently
+			}
+			exchange.sendResponseHeaders(200, -1);
+			return 200;
+		} else if ("DELETE".equals(method)) {
+			if (!section.deleteDocument(id)) {
+				return sendError(exchange, 404, "Document not found");
+			}
+			exchange.sendResponseHeaders(204, -1);
+			return 204;
+		}
+		if (section.getXml(id) == null) {
+			return sendError(exchange, 404, "Document not found");
+		}
+		return sendNotAllowed(exchange, method, "GET, PUT, DELETE, OPTIONS");
+	}
+
+	/**
+	 * Create section from form parameters: path, name (optional) and extensionId
+	 */
+	private int createSection(HttpExchange exchange, SyntheticDataset.Record record, byte[] body) throws IOException {
+		if (!MIME_FORM.equals(getContentType(exchange))) {
+			return sendError(exchange, 400, "Expected " + MIME_FORM + " content");
+		}
+		final Map<String, String> params = new HashMap<String, String>();
+		for (String param : StringUtils.split(new String(body, "US-ASCII"), '&')) {
+			final int ind = param.indexOf('=');
+			if (ind > 0) {
+				// parameter names are case-insensitive: extensionId or extensionID
+				params.put(decode(param.substring(0, ind)).toLowerCase(Locale.ENGLISH), decode(param.substring(ind + 1)));
+			}
+		}
+		final String path = StringUtils.trimToNull(params.get("path"));
+		final String extensionId = StringUtils.trimToNull(params.get("extensionid"));
+		if (path == null || extensionId == null || "root.xml".equals(path)) {
+			return sendError(exchange, 400, "Expected path and extensionId parameters");
+		}
+		final SyntheticDataset.Section section;
+		try {
+			section = record.createSection(path, StringUtils.trimToNull(params.get("name")), extensionId);
+		} catch (IllegalArgumentException e) {
+			return sendError(exchange, 400, e.getMessage());
+		}
+		if (section == null) {
+			return sendError(exchange, 409, "Section already exists: " + path);
+		}
+		exchange.getResponseHeaders().set("Location", getRecordUrl(exchange, record) + "/" + encode(path));
+		exchange.sendResponseHeaders(201, -1);
+		return 201;
+	}
+
+	private int sendRootXml(HttpExchange exchange, SyntheticDataset.Record record) throws IOException {
+		final StringBuilder buf = new StringBuilder(256);
+		final String created = formatDate(dataset.getCreated());
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<root xmlns=\"").append(NAMESPACE_HDATA_CORE).append("\">\n")
+				.append(" <id>").append(record.getId()).append("</id>\n")
+				.append(" <version>1.0</version>\n")
+				.append(" <created>").append(created).append("</created>\n")
+				.append(" <lastModified>").append(formatDate(record.getLastModified())).append("</lastModified>\n")
+				.append(" <extensions>\n");
+		for (Map.Entry<String, String> entry : record.getExtensions().entrySet()) {
+			buf.append("  <extension extensionId=\"").append(entry.getKey()).append("\">")
+					.append(StringEscapeUtils.escapeXml(entry.getValue())).append("</extension>\n");
+		}
+		buf.append(" </extensions>\n <sections>\n");
+		for (SyntheticDataset.Section section : record.getSections()) {
+			buf.append("  <section path=\"").append(StringEscapeUtils.escapeXml(section.getPath())).append('"');
+			if (section.getName() != null) {
+				buf.append(" name=\"").append(StringEscapeUtils.escapeXml(section.getName())).append('"');
+			}
+			buf.append(" extensionId=\"").append(section.getExtensionId()).append("\"/>\n");
+		}
+		buf.append(" </sections>\n</root>\n");
+		return send(exchange, 200, MIME_XML, record.getLastModified(), SyntheticDataset.toBytes(buf.toString()));
+	}
+
+	/**
+	 * Send Atom feed with an entry for each section of the record
+	 */
+	private int sendBaseFeed(HttpExchange exchange, SyntheticDataset.Record record) throws IOException {
+		final String recordUrl = getRecordUrl(exchange, record);
+		final String updated = formatDate(record.getLastModified());
+		final StringBuilder buf = new StringBuilder(256);
+		startFeed(buf, recordUrl, "Record " + record.getId(), updated);
+		for (SyntheticDataset.Section section : record.getSections()) {
+			final String path = StringEscapeUtils.escapeXml(section.getPath());
+			buf.append(" <entry>\n  <id>").append(path).append("</id>\n  <title>")
+					.append(section.getName() == null ? path : StringEscapeUtils.escapeXml(section.getName()))
+					.append("</title>\n  <updated>").append(updated).append("</updated>\n  <link href=\"")
+					.append(recordUrl).append('/').append(StringEscapeUtils.escapeXml(encode(section.getPath())))
+					.append("\" type=\"").append(MIME_ATOM).append("\"/>\n </entry>\n");
+		}
+		buf.append("</feed>\n");
+		return send(exchange, 200, MIME_ATOM, record.getLastModified(), SyntheticDataset.toBytes(buf.toString()));
+	}
+
+	/**
+	 * Send Atom feed with an entry for each document in the section with links
+	 * to the XML and, for generated documents, JSON representation. If feeds are
+	 * paged then the <tt>page</tt> query parameter selects the page starting at 1.
+	 */
+	private int sendSectionFeed(HttpExchange exchange, SyntheticDataset.Section section) throws IOException {
+		final long lastModified = section.getLastModified();
+		final List<String> ids = section.getDocumentIds();
+		int start = 0, end = ids.size(), page = 1;
+		if (pageSize > 0) {
+			final String query = exchange.getRequestURI().getRawQuery();
+			if (query != null && query.startsWith("page=")) {
+				try {
+					page = Integer.parseInt(query.substring(5));
+				} catch (NumberFormatException e) {
+					page = 0;
+				}
+			}
+			start = (page - 1) * pageSize;
+			if (page < 1 || page > 1 && start >= ids.size()) {
+				return sendError(exchange, 404, "Page not found");
+			}
+			end = Math.min(ids.size(), start + pageSize);
+		}
+		final String sectionUrl = getRecordUrl(exchange, section.getRecord()) + "/" + encode(section.getPath());
+		final String updated = formatDate(lastModified);
+		final StringBuilder buf = new StringBuilder(256 + 320 * (end - start));
+		startFeed(buf, sectionUrl, section.getPath(), updated);
+		if (end < ids.size()) {
+			buf.append(" <link rel=\"next\" href=\"").append(sectionUrl).append("?page=").append(page + 1).append("\"/>\n");
+		}
+		for (int i = start; i < end; i++) {
+			final String id = ids.get(i);
+			final String href = sectionUrl + "/" + id;
+			buf.append(" <entry>\n  <id>").append(id).append("</id>\n  <title>").append(id)
+					.append("</title>\n  <updated>").append(updated).append("</updated>\n  <link href=\"")
+					.append(href).append("\" type=\"").append(MIME_XML).append("\"/>\n");
+			if (section.hasJson(id)) {
+				buf.append("  <link href=\"").append(href).append("\" type=\"").append(MIME_JSON).append("\"/>\n");
+			}
+			buf.append(" </entry>\n");
+		}
+		buf.append("</feed>\n");
+		return send(exchange, 200, MIME_ATOM, lastModified, SyntheticDataset.toBytes(buf.toString()));
+	}
+
+	private static void startFeed(StringBuilder buf, String id, String title, String updated) {
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed xmlns=\"").append(NAMESPACE_ATOM).append("\">\n")
+				.append(" <id>").append(StringEscapeUtils.escapeXml(id)).append("</id>\n")
+				.append(" <title>").append(StringEscapeUtils.escapeXml(title)).append("</title>\n")
+				.append(" <updated>").append(updated).append("</updated>\n");
+	}
+
+	private static int send(HttpExchange exchange, int code, String contentType, long lastModified, byte[] body)
+			throws IOException {
+		final Headers headers = exchange.getResponseHeaders();
+		headers.set("Last-Modified", DateUtils.formatDate(new Date(lastModified)));
+		if (code == 200 && isNotModified(exchange, lastModified)) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return 304;
+		}
+		headers.set("Content-Type", contentType + "; charset=UTF-8");
+		exchange.sendResponseHeaders(code, body.length);
+		final OutputStream os = exchange.getResponseBody();
+		os.write(body);
+		os.close();
+		return code;
+	}
+
+	/**
+	 * Check conditional GET with If-Modified-Since header (one second precision)
+	 */
+	private static boolean isNotModified(HttpExchange exchange, long lastModified) {
+		final String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+		if (since == null) return false;
+		try {
+			return lastModified / 1000 <= DateUtils.parseDate(since).getTime() / 1000;
+		} catch (DateParseException e) {
+			return false;
+		}
+	}
+
+	private static int sendError(HttpExchange exchange, int code, String message) throws IOException {
+		final byte[] body = SyntheticDataset.toBytes(message + "\n");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(code, body.length);
+		final OutputStream os = exchange.getResponseBody();
+		os.write(body);
+		os.close();
+		return code;
+	}
+
+	private static int sendNotAllowed(HttpExchange exchange, String method, String allow) throws IOException {
+		exchange.getResponseHeaders().set("Allow", allow);
+		if ("OPTIONS".equals(method)) {
+			exchange.sendResponseHeaders(200, -1);
+			return 200;
+		}
+		return sendError(exchange, 405, "Method not allowed");
+	}
+
+	/**
+	 * @return true if request has no Accept header or accepts any of the given media types
+	 */
+	private static boolean accepts(HttpExchange exchange, String[] types) {
+		final List<String> accept = getAcceptTypes(exchange);
+		if (accept == null) return true;
+		for (String type : accept) {
+			if (type.equals("*/*")) return true;
+			for (String t : types) {
+				if (type.equals(t) || type.endsWith("/*") && t.startsWith(type.substring(0, type.length() - 1)))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Select media type of document representation from first acceptable type in the Accept header.
+	 * @return media type or null if none acceptable
+	 */
+	@CheckForNull
+	private static String getDocumentType(HttpExchange exchange, boolean hasJson) {
+		final List<String> accept = getAcceptTypes(exchange);
+		if (accept == null) return MIME_XML;
+		for (String type : accept) {
+			if (type.equals("*/*") || type.equals("application/*")) return MIME_XML;
+			if (type.equals("text/*")) return MIME_TEXT_XML;
+			for (String t : DOCUMENT_TYPES) {
+				if (t.equals(type) && (hasJson || !MIME_JSON.equals(t))) return t;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return media types in Accept header without parameters excluding those with q=0
+	 * 	or null if request has no Accept header
+	 */
+	@CheckForNull
+	private static List<String> getAcceptTypes(HttpExchange exchange) {
+		final String header = exchange.getRequestHeaders().getFirst("Accept");
+		if (header == null) return null;
+		final List<String> types = new ArrayList<String>();
+		for (String range : StringUtils.split(header, ',')) {
+			final String[] params = StringUtils.split(range, ';');
+			if (params.length == 0) continue;
+			boolean excluded = false;
+			for (int i = 1; i < params.length; i++) {
+				final String param = params[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						if (Double.parseDouble(param.substring(2)) == 0) excluded = true;
+					} catch (NumberFormatException e) {
+						// ignore invalid quality value
+					}
+				}
+			}
+			if (!excluded) types.add(params[0].trim().toLowerCase(Locale.ENGLISH));
+		}
+		return types;
+	}
+
+	@CheckForNull
+	private static String getContentType(HttpExchange exchange) {
+		String type = exchange.getRequestHeaders().getFirst("Content-Type");
+		if (type == null) return null;
+		final int ind = type.indexOf(';');
+		if (ind >= 0) type = type.substring(0, ind);
+		return type.trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Get root element of XML request content.
+	 * @return root element as {namespace}name or null if content is not a well-formed XML document
+	 */
+	@CheckForNull
+	private static String getRootElement(HttpExchange exchange, byte[] body) {
+		final String type = getContentType(exchange);
+		if (type == null || !type.equals(MIME_XML) && !type.equals(MIME_TEXT_XML) && !type.endsWith("+xml")) {
+			return null;
+		}
+		return getRootElement(body);
+	}
+
+	@CheckForNull
+	private static String getRootElement(byte[] xml) {
+		final String[] root = new String[1];
+		try {
+			parserFactory.newSAXParser().parse(new ByteArrayInputStream(xml), new DefaultHandler() {
+				@Override
+				public void startElement(String uri, String localName, String qName, Attributes atts) {
+					if (root[0] == null) root[0] = "{" + uri + "}" + localName;
+				}
+			});
+		} catch (SAXException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+		return root[0];
+	}
+
+	/**
+	 * Get URL of record as seen by the client using the Host header of the request.
+	 */
+	@NonNull
+	private static String getRecordUrl(HttpExchange exchange, SyntheticDataset.Record record) {
+		String host = exchange.getRequestHeaders().getFirst("Host");
+		if (host == null) host = "127.0.0.1:" + exchange.getLocalAddress().getPort();
+		return "http://" + host + RECORDS_PATH + record.getId();
+	}
+
+	@NonNull
+	private static String getDocumentUrl(HttpExchange exchange, SyntheticDataset.Section section, String id) {
+		return getRecordUrl(exchange, section.getRecord()) + "/" + encode(section.getPath()) + "/" + id;
+	}
+
+	private static String formatDate(long time) {
+		return atomDateFormat.get().format(new Date(time));
+	}
+
+	private static String decode(String s) {
+		try {
+			return URLDecoder.decode(s, "UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // UTF-8 is always supported
+		} catch (IllegalArgumentException e) {
+			return s; // bad escape sequence
+		}
+	}
+
+	private static String encode(String path) {
+		try {
+			return new URI(null, null, path, null).getRawPath();
+		} catch (URISyntaxException e) {
+			return path;
+		}
+	}
+
+	/**
+	 * Run mock server until stopped and optionally write a configuration file
+	 * targeting the server that can be used with {@link org.mitre.test.Loader}.
+	 * <pre>
+	 * Usage: MockRhexServer [-port=N] [-records=N] [-sections=N] [-documents=N] [-pageSize=N] [-threads=N] [-config=file]
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException, ConfigurationException {
+		int port = 3000;
+		File configFile = null;
+		final XMLConfiguration config = new XMLConfiguration();
+		for (String arg : args) {
+			final int ind = arg.indexOf('=');
+			if (!arg.startsWith("-") || ind == -1) {
+				System.err.println("Usage: MockRhexServer [-port=N] [-records=N] [-sections=N] [-documents=N] [-pageSize=N] [-threads=N] [-config=file]");
+				System.exit(1);
+			}
+			final String name = arg.substring(1, ind);
+			final String value = arg.substring(ind + 1);
+			if ("port".equals(name)) port = Integer.parseInt(value);
+			else if ("config".equals(name)) configFile = new File(value);
+			else config.setProperty("mock." + name, value);
+		}
+		final MockRhexServer server = create(config);
+		server.start(port);
+		System.out.println("Mock RHEx server baseURL: " + server.getBaseURL("1"));
+		if (configFile != null) {
+			final XMLConfiguration testConfig = new XMLConfiguration();
+			testConfig.setRootElementName("configuration");
+			server.configure(testConfig);
+			testConfig.save(configFile);
+			System.out.println("Configuration: " + configFile);
+		}
+	}
+}
@@ -0,0 +1,424 @@
+package org.mitre.rhex.server;
+
+import com.google.gson.JsonObject;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.lang.StringEscapeUtils;
+
+import java.io.UnsupportedEncodingException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Synthetic hData records served by {@link MockRhexServer}. Each record has the
+ * standard sections (c32, vital_signs, medications, etc.) followed by generated
+ * sections up to the requested number of sections, each with the requested number
+ * of generated documents.
+ * <P>
+ * Generated documents are not held in memory but created from their record, section
+ * and document number when requested so very large datasets cost little memory.
+ * Only documents created or updated by clients are stored. Document ids are 24 hex
+ * digits (record number, section number and document number) like those of the
+ * hData reference server.
+ *
+ * Date: 10/16/26 4:10 PM
+ */
+public class SyntheticDataset {
+
+	public static final String DOCUMENT_NAMESPACE = "urn:hl7-org:greencda:c32";
+
+	/**
+	 * standard sections in order each with its own extension
+	 */
+	static final String[][] STANDARD_SECTIONS = {
+			{ "c32", "c32" },
+			{ "vital_signs", "vital-sign" },
+			{ "medications", "medication" },
+			{ "allergies", "allergy" },
+			{ "results", "result" },
+			{ "conditions", "condition" },
+			{ "encounters", "encounter" },
+			{ "immunizations", "immunization" },
+	};
+
+	public static final String EXTENSION_PREFIX = "http://projecthdata.org/extension/";
+
+	/**
+	 * extension of generated sections
+	 */
+	private static final String ENTRY_EXTENSION = "entry";
+
+	/**
+	 * first document number of documents created by clients
+	 */
+	private static final long CREATED_DOCUMENT = 0x80000000L;
+
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	/**
+	 * effectiveTime of first generated document: 2010-06-27 04:00:00 +0000
+	 */
+	private static final long EFFECTIVE_TIME = 1277611200000L;
+
+	private static final ThreadLocal<SimpleDateFormat> effectiveTimeFormat = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss Z", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			return format;
+		}
+	};
+
+	private final Map<String, Record> records;
+	private final long created = System.currentTimeMillis();
+
+	/**
+	 * Create dataset with one record, the standard sections and 10 documents per section.
+	 */
+	public SyntheticDataset() {
+		this(1, STANDARD_SECTIONS.length, 10);
+	}
+
+	/**
+	 * Create dataset with records numbered from 1.
+	 *
+	 * @param records number of records
+	 * @param sections number of sections in each record, at least the standard sections are created
+	 * @param documents number of documents in each section
+	 * @exception IllegalArgumentException if records is less than 1 or documents is negative
+	 */
+	public SyntheticDataset(int records, int sections, int documents) {
+		if (records < 1) throw new IllegalArgumentException("records must be greater than 0");
+		if (documents < 0) throw new IllegalArgumentException("documents cannot be negative");
+		final Map<String, Record> map = new LinkedHashMap<String, Record>();
+		for (int i = 1; i <= records; i++) {
+			Record record = new Record(i, Math.max(sections, STANDARD_SECTIONS.length), documents);
+			map.put(record.getId(), record);
+		}
+		this.records = Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * @param id Record id
+	 * @return record or null if not found
+	 */
+	@CheckForNull
+	public Record getRecord(String id) {
+		return records.get(id);
+	}
+
+	@NonNull
+	public Collection<Record> getRecords() {
+		return records.values();
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * A patient record with its extensions and sections. Sections may be added by clients.
+	 */
+	public class Record {
+
+		private final int number;
+		private final String id;
+		private final Map<String, String> extensions = new LinkedHashMap<String, String>();
+		private final Map<String, Section> sections = new LinkedHashMap<String, Section>();
+		private long lastModified = created;
+
+		Record(int number, int sectionCount, int documents) {
+			this.number = number;
+			this.id = Integer.toString(number);
+			for (String[] standard : STANDARD_SECTIONS) {
+				final String extensionId = Integer.toString(extensions.size() + 1);
+				extensions.put(extensionId, EXTENSION_PREFIX + standard[1]);
+				addSection(standard[0], null, extensionId, documents);
+			}
+			final String entryExtension = Integer.toString(extensions.size() + 1);
+			extensions.put(entryExtension, EXTENSION_PREFIX + ENTRY_EXTENSION);
+			for (int i = STANDARD_SECTIONS.length; i < sectionCount; i++) {
+				addSection(String.format("section_%04d", i), null, entryExtension, documents);
+			}
+		}
+
+		@NonNull
+		public String getId() {
+			return id;
+		}
+
+		public synchronized long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return map of extension ids to extension URIs in order
+		 */
+		@NonNull
+		public synchronized Map<String, String> getExtensions() {
+			return new LinkedHashMap<String, String>(extensions);
+		}
+
+		/**
+		 * @return snapshot of the sections of this record in order
+		 */
+		@NonNull
+		public synchronized List<Section> getSections() {
+			return new ArrayList<Section>(sections.values());
+		}
+
+		/**
+		 * @param path Section path
+		 * @return section or null if not found
+		 */
+		@CheckForNull
+		public synchronized Section getSection(String path) {
+			return sections.get(path);
+		}
+
+		/**
+		 * Create an empty section. A path collides with an existing section if it is
+		 * already the path of a section or the URI of an extension of this record.
+		 *
+		 * @param path Section path
+		 * @param name Optional section name
+		 * @param extensionId id of extension of the section
+		 * @return new section or null if path collides with existing section
+		 * @exception IllegalArgumentException if extensionId is not an extension of this record
+		 */
+		@CheckForNull
+		public synchronized Section createSection(String path, String name, String extensionId) {
+			if (!extensions.containsKey(extensionId)) {
+				throw new IllegalArgumentException("Unknown extensionId " + extensionId);
+			}
+			if (sections.containsKey(path) || extensions.containsValue(path)) {
+				return null;
+			}
+			lastModified = System.currentTimeMillis();
+			return addSection(path, name, extensionId, 0);
+		}
+
+		private Section addSection(String path, String name, String extensionId, int documents) {
+			Section section = new Section(this, sections.size(), path, name, extensionId, documents);
+			sections.put(path, section);
+			return section;
+		}
+	}
+
+	/**
+	 * Section of a record holding generated documents and documents created or updated by clients.
+	 */
+	public class Section {
+
+		private final Record record;
+		private final String path;
+		private final String name;
+		private final String extensionId;
+		private final int generated;
+		private final String idPrefix;
+
+		/**
+		 * generated documents that were deleted
+		 */
+		private final BitSet deleted = new BitSet();
+		/**
+		 * documents created by clients and generated documents that were updated
+		 */
+		private final Map<String, byte[]> stored = new HashMap<String, byte[]>();
+		/**
+		 * ids of documents created by clients in order of creation
+		 */
+		private final List<String> createdIds = new ArrayList<String>();
+		private long nextDocument = CREATED_DOCUMENT;
+		private long lastModified = created;
+
+		Section(Record record, int number, String path, String name, String extensionId, int generated) {
+			this.record = record;
+			this.path = path;
+			this.name = name;
+			this.extensionId = extensionId;
+			this.generated = generated;
+			idPrefix = String.format("%08x%08x", record.number, number);
+		}
+
+		@NonNull
+		public Record getRecord() {
+			return record;
+		}
+
+		@NonNull
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return section name or null if none
+		 */
+		@CheckForNull
+		public String getName() {
+			return name;
+		}
+
+		@NonNull
+		public String getExtensionId() {
+			return extensionId;
+		}
+
+		public synchronized long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return snapshot of the ids of documents in this section, most recently created first
+		 */
+		@NonNull
+		public synchronized List<String> getDocumentIds() {
+			final List<String> ids = new ArrayList<String>(createdIds.size() + generated);
+			for (int i = createdIds.size() - 1; i >= 0; i--) {
+				ids.add(createdIds.get(i));
+			}
+			for (int i = deleted.nextClearBit(0); i < generated; i = deleted.nextClearBit(i + 1)) {
+				ids.add(getGeneratedId(i));
+			}
+			return ids;
+		}
+
+		/**
+		 * @param id Document id
+		 * @return XML content of document or null if not found
+		 */
+		@CheckForNull
+		public synchronized byte[] getXml(String id) {
+			byte[] xml = stored.get(id);
+			if (xml == null) {
+				final int doc = getGeneratedNumber(id);
+				if (doc != -1) xml = toBytes(createXml(id, doc));
+			}
+			return xml;
+		}
+
+		/**
+		 * Get JSON representation of document. Only generated documents that have not
+		 * been updated have a JSON representation.
+		 *
+		 * @param id Document id
+		 * @return JSON content of document or null if document not found or has no JSON representation
+		 */
+		@CheckForNull
+		public synchronized byte[] getJson(String id) {
+			if (stored.containsKey(id)) return null;
+			final int doc = getGeneratedNumber(id);
+			return doc == -1 ? null : toBytes(createJson(id, doc));
+		}
+
+		/**
+		 * @param id Document id
+		 * @return true if document exists and has a JSON representation
+		 */
+		public synchronized boolean hasJson(String id) {
+			return !stored.containsKey(id) && getGeneratedNumber(id) != -1;
+		}
+
+		/**
+		 * Create new document.
+		 * @param xml XML content
+		 * @return id of new document
+		 */
+		@NonNull
+		public synchronized String createDocument(byte[] xml) {
+			final String id = idPrefix + String.format("%08x", nextDocument++);
+			stored.put(id, xml);
+			createdIds.add(id);
+			lastModified = System.currentTimeMillis();
+			return id;
+		}
+
+		/**
+		 * Replace content of existing document.
+		 * @param id Document id
+		 * @param xml new XML content
+		 * @return true if updated, false if document not found
+		 */
+		public synchronized boolean updateDocument(String id, byte[] xml) {
+			if (!stored.containsKey(id) && getGeneratedNumber(id) == -1) return false;
+			stored.put(id, xml);
+			lastModified = System.currentTimeMillis();
+			return true;
+		}
+
+		/**
+		 * @param id Document id
+		 * @return true if deleted, false if document not found
+		 */
+		public synchronized boolean deleteDocument(String id) {
+			final int doc = getGeneratedNumber(id);
+			if (doc != -1) {
+				deleted.set(doc);
+				stored.remove(id);
+			} else if (stored.remove(id) != null) {
+				createdIds.remove(id);
+			} else {
+				return false;
+			}
+			lastModified = System.currentTimeMillis();
+			return true;
+		}
+
+		@NonNull
+		private String getGeneratedId(int doc) {
+			return idPrefix + String.format("%08x", doc);
+		}
+
+		/**
+		 * @return number of the existing generated document with given id otherwise -1
+		 */
+		private int getGeneratedNumber(String id) {
+			if (id == null || id.length() != 24 || !id.startsWith(idPrefix)) return -1;
+			final long doc;
+			try {
+				doc = Long.parseLong(id.substring(16), 16);
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+			return doc < generated && !deleted.get((int) doc) ? (int) doc : -1;
+		}
+
+		private String getEffectiveTime(int doc) {
+			return effectiveTimeFormat.get().format(new Date(EFFECTIVE_TIME + doc * HOUR));
+		}
+
+		private String createXml(String id, int doc) {
+			return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<entry xmlns=\"" + DOCUMENT_NAMESPACE + "\">\n" +
+					"  <id>" + id + "</id>\n" +
+					"  <code code=\"" + (60621009 + doc) + "\" codeSystem=\"2.16.840.1.113883.6.96\"/>\n" +
+					"  <status>completed</status>\n" +
+					"  <effectiveTime>" + getEffectiveTime(doc) + "</effectiveTime>\n" +
+					"  <description>" + StringEscapeUtils.escapeXml(path) + " document " + doc + "</description>\n" +
+					"</entry>\n";
+		}
+
+		private String createJson(String id, int doc) {
+			JsonObject json = new JsonObject();
+			json.addProperty("id", id);
+			json.addProperty("code", Integer.toString(60621009 + doc));
+			json.addProperty("status", "completed");
+			json.addProperty("effectiveTime", getEffectiveTime(doc));
+			json.addProperty("description", path + " document " + doc);
+			return json.toString();
+		}
+
+		@Override
+		public String toString() {
+			return "Section[" + record.id + "/" + path + "]";
+		}
+	}
+
+	static byte[] toBytes(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e); // UTF-8 is always supported
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.util.concurrent.Future;
+
+/**
+ * HttpRequestChecker that can also execute requests with the non-blocking
+ * HttpAsyncClient applying the same server specific handling such as the
+ * session cookies of the authenticated user.
+ *
+ * Date: 10/17/26 4:10 AM
+ */
+public interface AsyncHttpRequestChecker extends HttpRequestChecker {
+
+	/**
+	 * Wrap <tt>HttpAsyncClient.execute()</tt> to pre-test HTTP requests for
+	 * any server specific implementation handling such as authentication.
+	 * Must not block the calling thread.
+	 *
+	 * @param context   Application context, never null
+	 * @param client   the started HttpAsyncClient, never null
+	 * @param request   the request to execute, never null
+	 * @param callback   callback notified when the request completes, may be null
+	 *
+	 * @return  future of the response to the request
+	 */
+	@NonNull
+	Future<HttpResponse> executeRequestAsync(Context context, HttpAsyncClient client,
+											 HttpUriRequest request, FutureCallback<HttpResponse> callback);
+}
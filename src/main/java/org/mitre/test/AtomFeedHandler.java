@@ -0,0 +1,177 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SAX handler that reads an Atom feed in a single streaming pass without
+ * building a DOM. The root element and the feed's <tt>rel="next"</tt> link
+ * (if the feed is paged) are recorded and for each entry the entry id and the
+ * href and type of each of its links are reported to an optional {@link Listener}
+ * as soon as the entry ends, so memory use is independent of the size of the feed.
+ *
+ * <pre>
+ *  &lt;feed xmlns="http://www.w3.org/2005/Atom"&gt;
+ *    &lt;entry&gt;
+ *      &lt;id&gt;id:3:vital_signs&lt;/id&gt;
+ *      &lt;link href="http://rhex.mitre.org:3000/records/3/vital_signs" type="application/xml"/&gt;
+ *    &lt;/entry&gt;
+ *  &lt;/feed&gt;
+ * </pre>
+ *
+ * Date: 10/16/26 1:10 PM
+ */
+public class AtomFeedHandler extends DefaultHandler {
+
+	/**
+	 * Receives entries as they are parsed
+	 */
+	public interface Listener {
+		/**
+		 * Called at the end of each entry in the feed.
+		 *
+		 * @param id Entry id or null if entry has no id
+		 * @param hrefs href of each entry link with non-blank href in document order
+		 * @param types type attribute of each link, null if not present
+		 */
+		void entry(@CheckForNull String id, String[] hrefs, String[] types);
+	}
+
+	private static final String ATOM_NS = TestUnit.NAMESPACE_W3_ATOM_2005;
+
+	private static final String[] EMPTY = new String[0];
+
+	private final Listener listener;
+
+	private String rootNamespace;
+	private String rootName;
+	private int entryCount;
+	private String nextHref;
+
+	private int depth;
+	private boolean inEntry;
+	private boolean inEntryId;
+	private final StringBuilder text = new StringBuilder();
+	private String entryId;
+	private final List<String> hrefs = new ArrayList<String>();
+	private final List<String> types = new ArrayList<String>();
+
+	public AtomFeedHandler() {
+		this(null);
+	}
+
+	public AtomFeedHandler(Listener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public void startDocument() throws SAXException {
+		rootNamespace = null;
+		rootName = null;
+		entryCount = 0;
+		nextHref = null;
+		depth = 0;
+		inEntry = false;
+		inEntryId = false;
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+		depth++;
+		if (depth == 1) {
+			rootNamespace = uri;
+			rootName = localName;
+		} else if (depth == 2) {
+			if (ATOM_NS.equals(uri) && isFeed()) {
+				if ("entry".equals(localName)) {
+					inEntry = true;
+					entryId = null;
+					hrefs.clear();
+					types.clear();
+				} else if ("link".equals(localName) && nextHref == null
+						&& "next".equals(atts.getValue("", "rel"))) {
+					// paged feed: http://tools.ietf.org/html/rfc5005#section-3
+					String href = atts.getValue("", "href");
+					if (href != null && href.trim().length() != 0) nextHref = href.trim();
+				}
+			}
+		} else if (depth == 3 && inEntry && ATOM_NS.equals(uri)) {
+			if ("id".equals(localName)) {
+				inEntryId = true;
+				text.setLength(0);
+			} else if ("link".equals(localName)) {
+				String href = atts.getValue("", "href");
+				if (href != null && href.trim().length() != 0) {
+					hrefs.add(href);
+					types.add(atts.getValue("", "type"));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void characters(char[] ch, int start, int length) throws SAXException {
+		if (inEntryId) text.append(ch, start, length);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException {
+		if (inEntryId && depth == 3) {
+			inEntryId = false;
+			entryId = text.toString().trim();
+		} else if (inEntry && depth == 2) {
+			inEntry = false;
+			entryCount++;
+			if (listener != null) {
+				listener.entry(entryId,
+						hrefs.isEmpty() ? EMPTY : hrefs.toArray(new String[hrefs.size()]),
+						types.isEmpty() ? EMPTY : types.toArray(new String[types.size()]));
+			}
+		}
+		depth--;
+	}
+
+	/**
+	 * @return true if root element is an Atom feed
+	 */
+	public boolean isFeed() {
+		return ATOM_NS.equals(rootNamespace) && "feed".equals(rootName);
+	}
+
+	/**
+	 * @return namespace URI of root element, empty string if none,
+	 * 			null if document has not been parsed
+	 */
+	@CheckForNull
+	public String getRootNamespace() {
+		return rootNamespace;
+	}
+
+	/**
+	 * @return local name of root element, null if document has not been parsed
+	 */
+	@CheckForNull
+	public String getRootName() {
+		return rootName;
+	}
+
+	/**
+	 * @return href of the feed link with rel="next" if feed is paged otherwise null
+	 */
+	@CheckForNull
+	public String getNextHref() {
+		return nextHref;
+	}
+
+	/**
+	 * @return number of entries in the feed
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+}
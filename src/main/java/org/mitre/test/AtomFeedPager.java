@@ -0,0 +1,386 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Iterates over the pages of a paged Atom feed following the feed's <tt>rel="next"</tt>
+ * links (RFC 5005) lazily one page at a time. Each page is fetched, validated against
+ * the Atom XML Schema and indexed in a single streaming pass so only the compact
+ * {@link FeedIndex} of each page is held in memory. With a prefetch depth greater
+ * than zero following pages are fetched in a background thread while the caller
+ * processes the current page, at most <em>prefetch</em> pages ahead.
+ *
+ * <pre>
+ *   AtomFeedPager pager = new AtomFeedPager(context, nextUri, 1);
+ *   try {
+ *       while (pager.hasNext()) {
+ *           AtomFeedPager.Page page = pager.next();
+ *           ...
+ *       }
+ *   } finally {
+ *       pager.close();
+ *   }
+ * </pre>
+ *
+ * Date: 10/16/26 3:05 PM
+ */
+public class AtomFeedPager implements Iterator<AtomFeedPager.Page> {
+
+	private static final Logger log = LoggerFactory.getLogger(AtomFeedPager.class);
+
+	public static final int DEFAULT_PREFETCH = 1;
+
+	private static final String ACCEPT = "application/atom+xml, application/xml, text/xml";
+
+	/**
+	 * marker for end of pages
+	 */
+	private static final Page END = new Page(null);
+
+	private final Context context;
+	private final int prefetch;
+
+	/**
+	 * page URLs already fetched to detect next links that loop back
+	 */
+	private final Set<URI> visited = new HashSet<URI>();
+
+	// synchronous mode
+	private URI nextUri;
+
+	// prefetch mode
+	private final BlockingQueue<Page> queue;
+	private final Semaphore permits;
+	private final Thread producer;
+	private volatile boolean closed;
+
+	private Page peeked;
+	private boolean finished;
+
+	/**
+	 * Create pager starting with given page.
+	 *
+	 * @param context Application context
+	 * @param start URL of first page to fetch
+	 * @param prefetch number of pages to fetch ahead in background, 0 to fetch
+	 *                 each page only when requested
+	 */
+	public AtomFeedPager(Context context, URI start, int prefetch) {
+		this(context, start, prefetch, Collections.<URI>emptySet());
+	}
+
+	/**
+	 * Create pager starting with given page.
+	 *
+	 * @param context Application context
+	 * @param start URL of first page to fetch
+	 * @param prefetch number of pages to fetch ahead in background, 0 to fetch
+	 *                 each page only when requested
+	 * @param visited URLs of pages already fetched by the caller (e.g. the first page)
+	 *                so a next link back to any of them ends the iteration
+	 */
+	public AtomFeedPager(Context context, URI start, int prefetch, Collection<URI> visited) {
+		this.context = context;
+		this.visited.addAll(visited);
+		this.prefetch = Math.max(0, prefetch);
+		if (this.prefetch == 0) {
+			nextUri = start;
+			queue = null;
+			permits = null;
+			producer = null;
+		} else {
+			queue = new LinkedBlockingQueue<Page>();
+			permits = new Semaphore(this.prefetch);
+			producer = new Thread(new Producer(start), "feed-pager");
+			producer.setDaemon(true);
+			producer.start();
+		}
+	}
+
+	public boolean hasNext() {
+		if (peeked != null) return true;
+		if (finished) return false;
+		Page page;
+		if (queue == null) {
+			if (nextUri == null) {
+				finished = true;
+				return false;
+			}
+			page = fetch(nextUri);
+			nextUri = page.next;
+		} else {
+			try {
+				page = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				finished = true;
+				return false;
+			}
+			// allow producer to fetch another page ahead
+			permits.release();
+		}
+		if (page == END) {
+			finished = true;
+			return false;
+		}
+		peeked = page;
+		return true;
+	}
+
+	@NonNull
+	public Page next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		Page page = peeked;
+		peeked = null;
+		return page;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stop fetching pages. Pages not yet returned are discarded.
+	 */
+	public void close() {
+		closed = true;
+		finished = true;
+		peeked = null;
+		if (producer != null) producer.interrupt();
+	}
+
+	private class Producer implements Runnable {
+
+		private final URI start;
+
+		/**
+		 * user bound on the thread that created the pager, null if default user
+		 */
+		private final String user;
+
+		/**
+		 * test bound on the thread that created the pager to record latencies of pages
+		 */
+		private final String testId;
+
+		Producer(URI start) {
+			this.start = start;
+			user = context.getBoundUser();
+			testId = LatencyRecorder.getBoundTest();
+		}
+
+		public void run() {
+			URI uri = start;
+			LatencyRecorder.bindTest(testId);
+			try {
+				if (user != null && !context.setUser(user)) {
+					final Page page = new Page(uri);
+					page.error = new IOException("Failed to set user " + user + " to fetch feed pages");
+					queue.put(page);
+					return;
+				}
+				while (uri != null && !closed) {
+					permits.acquire();
+					if (closed) break;
+					Page page = fetch(uri);
+					queue.put(page);
+					uri = page.next;
+				}
+			} catch (InterruptedException e) {
+				// closed
+			} finally {
+				if (user != null) context.resetUser();
+				LatencyRecorder.bindTest(null);
+				queue.offer(END);
+			}
+		}
+	}
+
+	/**
+	 * Fetch page, validate and index it. Any failure is recorded in the page
+	 * in which case the page has no next page.
+	 */
+	@NonNull
+	private Page fetch(URI uri) {
+		final Page page = new Page(uri);
+		synchronized (visited) {
+			visited.add(uri);
+		}
+		final HttpClient client = context.getHttpClient();
+		try {
+			log.debug("GET feed page {}", uri);
+			HttpGet req = new HttpGet(uri);
+			req.setHeader("Accept", ACCEPT);
+			HttpResponse response = context.executeRequest(client, req);
+			page.statusCode = response.getStatusLine().getStatusCode();
+			page.statusLine = String.valueOf(response.getStatusLine());
+			final HttpEntity entity = response.getEntity();
+			if (page.statusCode != 200 || entity == null) {
+				if (entity != null) EntityUtils.consume(entity);
+				return page;
+			}
+			page.contentType = ClientHelper.getContentType(entity);
+			final SchemaRegistry registry = context.getSchemaRegistry();
+			final FeedIndex.Builder builder = new FeedIndex.Builder();
+			final AtomFeedHandler handler = new AtomFeedHandler(builder);
+			final InputStream is = entity.getContent();
+			try {
+				registry.parse(is, page, registry.getSchema(BaseXmlTest.ATOM_SCHEMA_LOCATION),
+						TestUnit.NAMESPACE_W3_ATOM_2005, "feed", handler);
+			} finally {
+				is.close();
+			}
+			page.rootNamespace = handler.getRootNamespace();
+			page.index = builder.build();
+			final String href = handler.getNextHref();
+			if (href != null) {
+				URI next = uri.resolve(new URI(href));
+				synchronized (visited) {
+					if (visited.contains(next)) {
+						page.addWarning("Feed next link refers to previous page: " + next);
+						next = null;
+					}
+				}
+				page.next = next;
+			}
+		} catch (IOException e) {
+			page.error = e;
+		} catch (SAXException e) {
+			page.error = e;
+		} catch (URISyntaxException e) {
+			page.addWarning("Invalid feed next link: " + e.getMessage());
+		} catch (RuntimeException e) {
+			page.error = e;
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+		return page;
+	}
+
+	/**
+	 * Result of fetching a single feed page. Validation errors are collected in
+	 * the page so the caller can add them to its test results in page order.
+	 */
+	public static final class Page implements ErrorHandler {
+
+		private final URI uri;
+		private int statusCode;
+		private String statusLine;
+		private String contentType;
+		private String rootNamespace;
+		private FeedIndex index;
+		private URI next;
+		private final Set<String> warnings = new LinkedHashSet<String>();
+		private int xmlErrors;
+		private Exception error;
+
+		Page(URI uri) {
+			this.uri = uri;
+		}
+
+		public URI getUri() {
+			return uri;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+
+		public String getStatusLine() {
+			return statusLine;
+		}
+
+		/**
+		 * @return content type of response or null if none
+		 */
+		@CheckForNull
+		public String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * @return namespace of root element or null if page has no XML content
+		 */
+		@CheckForNull
+		public String getRootNamespace() {
+			return rootNamespace;
+		}
+
+		/**
+		 * @return index of the entries on this page or null if page has no XML content
+		 */
+		@CheckForNull
+		public FeedIndex getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return URL of next page or null if this is the last page
+		 */
+		@CheckForNull
+		public URI getNext() {
+			return next;
+		}
+
+		/**
+		 * Get validation errors and other warnings for this page in order of occurrence
+		 * @return set of warnings, never null
+		 */
+		@NonNull
+		public Set<String> getWarnings() {
+			return warnings;
+		}
+
+		public int getXmlErrors() {
+			return xmlErrors;
+		}
+
+		/**
+		 * @return exception that prevented the page from being fetched or parsed, null if none
+		 */
+		@CheckForNull
+		public Exception getError() {
+			return error;
+		}
+
+		void addWarning(String msg) {
+			if (msg != null) warnings.add(msg);
+		}
+
+		public void warning(SAXParseException exception) throws SAXException {
+			log.trace("WARN: {}", exception.getMessage());
+		}
+
+		public void error(SAXParseException exception) throws SAXException {
+			xmlErrors++;
+			addWarning(exception.getMessage());
+		}
+
+		public void fatalError(SAXParseException exception) throws SAXException {
+			xmlErrors++;
+			addWarning(exception.getMessage());
+		}
+	}
+}
@@ -37,6 +37,8 @@ public abstract class BaseTest implements TestUnit {
 	
 	private List<Tuple> properties;
 
+	private Context context;
+
 	public BaseTest() {
 		log = LoggerFactory.getLogger(getClass());
 	}
@@ -66,6 +68,20 @@ public abstract class BaseTest implements TestUnit {
 		return depends;
 	}
 
+	public void setContext(Context context) {
+		this.context = context;
+	}
+
+	/**
+	 * Get Context this test is executed with
+	 * @return Context of the Loader that loaded this test otherwise
+	 * 			that of the singleton Loader instance
+	 */
+	@NonNull
+	public Context getContext() {
+		return context != null ? context : Loader.getInstance().getContext();
+	}
+
 	@CheckForNull
 	public TestUnit getDependency(Class<? extends TestUnit> testClass) {
 		for (TestUnit test : depends) {
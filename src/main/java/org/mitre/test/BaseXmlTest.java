@@ -1,6 +1,7 @@
 package org.mitre.test;
 
 import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -14,10 +15,12 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
+import javax.xml.validation.Schema;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.SimpleDateFormat;
@@ -39,6 +42,8 @@ public abstract class BaseXmlTest extends BaseTest implements ErrorHandler {
 	// property
 	public static final String PROP_KEEP_DOCUMENT_BOOL = "keepDocument";
 
+	protected static final String ATOM_SCHEMA_LOCATION = "schemas/atom.xsd";
+
 	// private int xmlWarnings;
 	protected int xmlErrors;
 	protected boolean fatalXmlError;
@@ -91,13 +96,14 @@ public abstract class BaseXmlTest extends BaseTest implements ErrorHandler {
 	}
 
 	/**
-	 * Get DOM from byte-array using validating parser if able to rewrite XML
-	 * with target namespace schema location and schema location otherwise
-     * builds DOM from a non-validating parser.
+	 * Get DOM from byte-array validating it against the compiled XML Schema at the
+	 * target schema location if the root element is in the target namespace otherwise
+	 * builds DOM from a non-validating parser. Schemas are compiled once and shared
+	 * through the {@link SchemaRegistry}.
 	 *
 	 * @param context Context
 	 * @param bos <code>ByteArrayOutputStream</code> to read from
-	 * @param rootElement Expected root element in XML document with start tag '<' but no end tag (e.g. "<feed")
+	 * @param rootElement Expected root element in XML document with or without start tag '<' (e.g. "<feed")
 	 * @param namespaceUri Target namespace URI
 	 * @param namespaceLocation Local location for XML Schema file
 	 * @return <code>Document</code> resultant Document object
@@ -110,61 +116,24 @@ public abstract class BaseXmlTest extends BaseTest implements ErrorHandler {
 										   String namespaceUri, String namespaceLocation)
 			throws IOException, JDOMException
 	{
-		String content = bos.toString("UTF-8");
 		if (log.isDebugEnabled()) {
-			System.out.println("Content:\n" + content); // debug
+			System.out.println("Content:\n" + bos.toString("UTF-8")); // debug
 		}
-		int ind = content.indexOf(rootElement); // find starting position of the root element (e.g. "<feed")
-		if (ind >= 0) {
-			int endp = content.indexOf('>', ind + 5);
-			if (endp > ind) {
-				//boolean changed = false;
-				// rewrite XML and add schema location to XML document to force schema validation against target ATOM XSD
-				// insert xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" xsi:schemaLocation="http://www.w3.org/2005/Atom file:/C:/xml/atom.xsd"
-				//if (endp > ind) {
-				// String xml = content.substring(ind, endp);
-				// System.out.println();
-				StringBuilder buf = new StringBuilder();
-				if (ind > 0) buf.append(content.substring(0, ind));
-				buf.append(rootElement);
-				if (!content.substring(ind, endp).contains("xmlns:xsi=")) {
-					// changed = true;
-					buf.append(" xmlns:xsi=\"").append(NAMESPACE_W3_XMLSchema_INSTANCE).append("\"\n");
-				}
-				if (content.contains(namespaceUri)) {
-					final File file = new File(namespaceLocation);
-					if (file.exists()) {
-						//changed = true;
-						buf.append(" xsi:schemaLocation=\"").append(namespaceUri).append(' ').
-								append(file.toURI().toASCIIString()).append("\"\n");
-						buf.append(content.substring(ind + 5));
-						content = buf.toString();
-						// System.out.println(content);
-						log.trace("Use validating XML parser");
-						return context.getValidatingBuilder(this).build(new ByteArrayInputStream(content.getBytes("UTF-8")));
-					}
-				} // otherwise target namespace URI not found in document
-
-				/*
-				if (changed) {
-					buf.append(content.substring(ind + 5));
-					content = buf.toString();
-					System.out.println(content);
-					log.debug("Use validating XML parser");
-					return context.getValidatingBuilder(this).build(new ByteArrayInputStream(content.getBytes("UTF-8")));
-				//} else {
-					// return context.getValidatingBuilder(this).build(new ByteArrayInputStream(bos.toByteArray()));
-				}
-				*/
-			}
+		final SchemaRegistry registry = context.getSchemaRegistry();
+		final Schema schema = registry.getSchema(namespaceLocation);
+		if (schema == null) {
+			// schema file not found or not valid
+			return getDefaultDocument(context, bos);
 		}
-		return getDefaultDocument(context, bos);
+		// validate against target XSD if root element (e.g. "<feed") is in the target namespace
+		final String rootName = rootElement.startsWith("<") ? rootElement.substring(1) : rootElement;
+		return registry.build(new ByteArrayInputStream(bos.toByteArray()), this, schema, namespaceUri, rootName);
 	}
 
 	protected Document getValidatingAtom(Context context, ByteArrayOutputStream bos)
 			throws IOException, JDOMException
 	{
-		return getValidatingParser(context, bos, "<feed", NAMESPACE_W3_ATOM_2005, "schemas/atom.xsd");
+		return getValidatingParser(context, bos, "<feed", NAMESPACE_W3_ATOM_2005, ATOM_SCHEMA_LOCATION);
 	}
 
 	@CheckForNull
@@ -244,7 +213,66 @@ public abstract class BaseXmlTest extends BaseTest implements ErrorHandler {
 		}
 	}
 
+	@CheckForNull
 	protected Document getSectionAtomDocument(Context context, URI sectionPathUri) {
+		return readSectionAtomFeed(context, sectionPathUri, null);
+	}
+
+	/**
+	 * Fetch section ATOM feed and check it is a well-formed Atom feed in a single
+	 * streaming pass without building a DOM.
+	 *
+	 * @param context Context
+	 * @param sectionPathUri Section URL
+	 * @param listener Listener to receive feed entries as parsed, may be null
+	 * @return true if section feed was retrieved and is an Atom feed
+	 */
+	protected boolean checkSectionAtomFeed(Context context, URI sectionPathUri,
+										   @CheckForNull AtomFeedHandler.Listener listener) {
+		final AtomFeedHandler handler = new AtomFeedHandler(listener);
+		readSectionAtomFeed(context, sectionPathUri, handler);
+		return handler.isFeed();
+	}
+
+	/**
+	 * Parse Atom feed from input stream in a single streaming pass with constant memory
+	 * validating against the Atom XML Schema if <em>validate</em> is true. Parse and
+	 * validation errors are reported to this test as an ErrorHandler.
+	 *
+	 * @param context Context
+	 * @param in Input stream to read from
+	 * @param listener Listener to receive feed entries as parsed, may be null
+	 * @param validate true to validate against Atom XML Schema
+	 * @return handler with root element details and entry count
+	 *
+	 * @exception JDOMException when errors occur in parsing
+	 * @exception IOException when an I/O error prevents a document
+	 *         from being fully parsed.
+	 */
+	@NonNull
+	protected AtomFeedHandler parseAtomFeed(Context context, InputStream in,
+											@CheckForNull AtomFeedHandler.Listener listener, boolean validate)
+			throws IOException, JDOMException
+	{
+		final SchemaRegistry registry = context.getSchemaRegistry();
+		final AtomFeedHandler handler = new AtomFeedHandler(listener);
+		try {
+			registry.parse(in, this, validate ? registry.getSchema(ATOM_SCHEMA_LOCATION) : null,
+					NAMESPACE_W3_ATOM_2005, "feed", handler);
+		} catch (SAXException e) {
+			throw new JDOMException(e.getMessage(), e);
+		}
+		return handler;
+	}
+
+	/**
+	 * Fetch section ATOM feed and build DOM if handler is null otherwise stream
+	 * feed to the handler.
+	 *
+	 * @return Document if built otherwise null
+	 */
+	@CheckForNull
+	private Document readSectionAtomFeed(Context context, URI sectionPathUri, @CheckForNull AtomFeedHandler handler) {
 		final HttpClient client = context.getHttpClient();
 		try {
 			if (log.isDebugEnabled()) {
@@ -292,11 +320,22 @@ public abstract class BaseXmlTest extends BaseTest implements ErrorHandler {
 			  </entry>
 			  ...
 			 */
+			if (handler != null) {
+				final InputStream is = entity.getContent();
+				try {
+					context.getSchemaRegistry().parse(is, this, null, NAMESPACE_W3_ATOM_2005, "feed", handler);
+				} finally {
+					is.close();
+				}
+				return null;
+			}
 			ByteArrayOutputStream bos = new ByteArrayOutputStream();
 			entity.writeTo(bos);
 			return getDefaultDocument(context, bos);
 		} catch (IOException e) {
 			log.warn("", e);
+		} catch (SAXException e) {
+			log.warn("", e);
 		} catch (JDOMException e) {
 			log.warn("", e);
 		} finally {
@@ -8,7 +8,6 @@ import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.util.EntityUtils;
-import org.mitre.rhex.security.RhexMitreOidcSecurityChecker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
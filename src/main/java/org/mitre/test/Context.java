@@ -9,8 +9,21 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.params.ConnRoutePNames;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.jdom.input.SAXBuilder;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.DefaultHttpAsyncClient;
+import org.apache.http.impl.nio.conn.PoolingClientAsyncConnectionManager;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.conn.ClientAsyncConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.HttpClientPool;
+import org.mitre.test.http.LatencyRecorder;
+import org.mitre.test.http.RequestCoalescer;
+import org.mitre.test.http.RequestLimiter;
+import org.mitre.test.http.ResponseCache;
 import org.mitre.test.impl.TextReporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,7 +34,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 /**
  * Application context handles configuration and general house keeping.
@@ -37,7 +53,21 @@ public class Context {
 
     public static final String DEFAULT_USER = "defaultUser";
 
-    private SAXBuilder builder, validatingBuilder;
+    /**
+     * SAXBuilders are not thread-safe so each thread executing tests gets its own instance
+     */
+    private final ThreadLocal<SAXBuilder> builders = new ThreadLocal<SAXBuilder>();
+    private final ThreadLocal<SAXBuilder> validatingBuilders = new ThreadLocal<SAXBuilder>();
+
+    /**
+     * compiled XML schemas shared by all threads
+     */
+    private final SchemaRegistry schemaRegistry;
+
+    /**
+     * context whose connection pool and compiled schemas are shared with this context, null if none
+     */
+    private final Context parent;
 
     private Reporter reporter;
 
@@ -67,6 +97,42 @@ public class Context {
 
 	private HttpHost proxy;
 
+	/**
+	 * shared pool of keep-alive connections used by all clients from getHttpClient(),
+	 * created on first use and closed with close()
+	 */
+	private HttpClientPool clientPool;
+
+	/**
+	 * cache of GET responses revalidated with conditional requests,
+	 * created on first use unless disabled with the <tt>http.cache</tt> property
+	 */
+	private ResponseCache responseCache;
+
+	/**
+	 * merges identical GET requests in flight, created on first use unless
+	 * disabled with the <tt>http.coalesce</tt> property
+	 */
+	private RequestCoalescer requestCoalescer;
+
+	/**
+	 * admission control of requests per host, null if not configured
+	 */
+	private RequestLimiter requestLimiter;
+	private boolean requestLimiterLoaded;
+
+	/**
+	 * latency of HTTP exchanges, created on first use unless disabled
+	 * with the <tt>http.latency</tt> property
+	 */
+	private LatencyRecorder latencyRecorder;
+
+	/**
+	 * non-blocking HTTP client shared by all async requests,
+	 * started on first use and shut down with close()
+	 */
+	private HttpAsyncClient asyncClient;
+
 	// security info
 	// root.xml contents ?
 
@@ -78,11 +144,60 @@ public class Context {
 	 */
 	private HttpRequestChecker httpRequestChecker;
 
+	/**
+	 * key of httpRequestChecker borrowed from the parent context, null if not borrowed
+	 */
+	private String checkerKey;
+
+	/**
+	 * authenticated HttpRequestCheckers not in use by any child context indexed by
+	 * checker class and login properties, only used if no parent context
+	 */
+	private final Map<String, LinkedList<HttpRequestChecker>> idleCheckers =
+			new HashMap<String, LinkedList<HttpRequestChecker>>();
+
+	public Context() {
+		schemaRegistry = new SchemaRegistry();
+		parent = null;
+	}
+
+	/**
+	 * Create context that shares the pool of HTTP connections, the compiled XML schemas
+	 * and the authenticated HttpRequestCheckers of the parent context. The configuration
+	 * must be loaded with {@link #load(XMLConfiguration)}.
+	 *
+	 * @param parent Parent context
+	 */
+	Context(Context parent) {
+		this.parent = parent;
+		schemaRegistry = parent.schemaRegistry;
+	}
+
+	/**
+	 * Create context for another record in fan-out mode that shares the pool
+	 * of HTTP connections and the compiled XML schemas of the parent context.
+	 *
+	 * @param parent Parent context
+	 * @param config Configuration for this context
+	 * @throws IllegalArgumentException if any required configuration element is invalid or missing
+	 * @throws IllegalStateException if authentication fails
+	 */
+	Context(Context parent, XMLConfiguration config) {
+		this(parent);
+		load(config);
+	}
+
 	private String baseUrlString; // cached copy of baseURL.toASCIIString()
 
-    private final Map<String, UserInfo> userMap = new HashMap<String, UserInfo>();
+    private final Map<String, UserInfo> userMap = new ConcurrentHashMap<String, UserInfo>();
     private String currentUser;
 
+    /**
+     * user bound to the test executing on the current thread such that tests
+     * running as different users can execute concurrently
+     */
+    private final ThreadLocal<UserInfo> boundUser = new ThreadLocal<UserInfo>();
+
     @NonNull
 	public URI getBaseURL() {
 		return baseURL;
@@ -154,22 +269,88 @@ public class Context {
 		// load optional HttpRequestChecker for HTTP request handling
 		final String httpRequestCheckerClass = config.getString("HttpRequestChecker");
 		if (StringUtils.isNotBlank(httpRequestCheckerClass)) {
-			try {
-				Class httpClass = Class.forName(httpRequestCheckerClass);
-				httpRequestChecker = (HttpRequestChecker) httpClass.newInstance();
-				httpRequestChecker.setup(this);
-                if (httpRequestChecker.getCurrentUser(this) != null)
-                    currentUser = DEFAULT_USER;
-			} catch (ClassNotFoundException e) {
-				throw new IllegalArgumentException(e);
-			} catch (InstantiationException e) {
-				throw new IllegalArgumentException(e);
-			} catch (IllegalAccessException e) {
-				throw new IllegalArgumentException(e);
+			if (parent != null) {
+				// reuse session authenticated by a previous context with the same login
+				final String key = getCheckerKey(httpRequestCheckerClass);
+				httpRequestChecker = parent.borrowChecker(key);
+				if (httpRequestChecker != null) {
+					log.debug("reuse authenticated {}", httpRequestCheckerClass);
+				}
+				checkerKey = key;
 			}
+			if (httpRequestChecker == null) {
+				try {
+					Class httpClass = Class.forName(httpRequestCheckerClass);
+					HttpRequestChecker checker = (HttpRequestChecker) httpClass.newInstance();
+					checker.setup(this);
+					httpRequestChecker = checker;
+				} catch (ClassNotFoundException e) {
+					throw new IllegalArgumentException(e);
+				} catch (InstantiationException e) {
+					throw new IllegalArgumentException(e);
+				} catch (IllegalAccessException e) {
+					throw new IllegalArgumentException(e);
+				}
+			}
+			if (httpRequestChecker.getCurrentUser(this) != null)
+				currentUser = DEFAULT_USER;
 		}
 	}
 
+	/**
+	 * Get key of HttpRequestChecker sessions that can be shared between contexts
+	 * which is the checker class, the server, and the login properties.
+	 */
+	private String getCheckerKey(String httpRequestCheckerClass) {
+		final StringBuilder sb = new StringBuilder(httpRequestCheckerClass);
+		sb.append('\n').append(baseURL.getScheme()).append("://").append(baseURL.getRawAuthority());
+		for (String key : new String[]{"loginURL", "loginEmail", "loginPassword",
+				DEFAULT_USER + ".email", DEFAULT_USER + ".password"}) {
+			sb.append('\n').append(StringUtils.defaultString(getString(key)));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Take an idle HttpRequestChecker with given key from the root context
+	 * @return checker or null if none is idle
+	 */
+	@CheckForNull
+	private HttpRequestChecker borrowChecker(String key) {
+		if (parent != null) return parent.borrowChecker(key);
+		synchronized (idleCheckers) {
+			final LinkedList<HttpRequestChecker> idle = idleCheckers.get(key);
+			return idle == null || idle.isEmpty() ? null : idle.removeFirst();
+		}
+	}
+
+	/**
+	 * Return HttpRequestChecker to the root context to be reused by another context
+	 */
+	private void releaseChecker(String key, HttpRequestChecker checker) {
+		if (parent != null) {
+			parent.releaseChecker(key, checker);
+			return;
+		}
+		synchronized (idleCheckers) {
+			LinkedList<HttpRequestChecker> idle = idleCheckers.get(key);
+			if (idle == null) {
+				idle = new LinkedList<HttpRequestChecker>();
+				idleCheckers.put(key, idle);
+			}
+			idle.addFirst(checker);
+		}
+	}
+
+	/**
+	 * Get configuration loaded by {@link #load(XMLConfiguration)}
+	 * @return configuration or null if not loaded
+	 */
+	@CheckForNull
+	XMLConfiguration getConfiguration() {
+		return config;
+	}
+
 	/**
 	 * Get a string associated with the given configuration key.
 	 * @param key The configuration key
@@ -180,6 +361,23 @@ public class Context {
 		return config != null ? config.getString(key) : null;
 	}
 
+	/**
+	 * Get an integer associated with the given configuration key.
+	 * @param key The configuration key
+	 * @param defaultValue The default value if property not found or not a valid integer
+	 * @return The associated integer value if key is found otherwise defaultValue as provided
+	 */
+	public int getInt(String key, int defaultValue) {
+		String value = StringUtils.trimToNull(getString(key));
+		if (value == null) return defaultValue;
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			log.warn("property {} has invalid integer value: {}", key, value);
+			return defaultValue;
+		}
+	}
+
 	/**
 	 * Get user property which is stored as username . property name in configuration.
 	 * @param user  The username alias, never null
@@ -253,6 +451,7 @@ public class Context {
 	}
 
 	public SAXBuilder getBuilder(ErrorHandler errorHandler) {
+		SAXBuilder builder = builders.get();
 		if (builder == null) {
 			builder = new SAXBuilder(false);
 			builder.setFeature(VALIDATION_FEATURE, false); // [false]
@@ -264,12 +463,14 @@ public class Context {
 			builder.setFeature("http://xml.org/sax/features/external-parameter-entities", false); // TRUE
 			// http://xml.org/sax/features/namespace-prefixes [false]
 			// builder.setFeature("http://xml.org/sax/features/namespaces", true); [true]
+			builders.set(builder);
 		}
 		builder.setErrorHandler(errorHandler);
 		return builder;
 	}
 
 	public SAXBuilder getValidatingBuilder(ErrorHandler errorHandler) {
+		SAXBuilder validatingBuilder = validatingBuilders.get();
 		if (validatingBuilder == null) {
 			validatingBuilder = new SAXBuilder(true);
 			validatingBuilder.setFeature(VALIDATION_FEATURE, true);
@@ -277,13 +478,31 @@ public class Context {
 			validatingBuilder.setFeature(SCHEMA_VALIDATION_FEATURE, true);
 			validatingBuilder.setFeature(LOAD_DTD_GRAMMAR, false);
 			validatingBuilder.setFeature(LOAD_EXTERNAL_DTD, false);
+			validatingBuilders.set(validatingBuilder);
 		}
 		validatingBuilder.setErrorHandler(errorHandler);
 		return validatingBuilder;
 	}
 
+	/**
+	 * Get registry of compiled XML schemas used to validate documents
+	 * @return schema registry, never null
+	 */
+	@NonNull
+	public SchemaRegistry getSchemaRegistry() {
+		return schemaRegistry;
+	}
+
+	/**
+	 * Get new HttpClient backed by the shared connection pool. Callers must
+	 * call <tt>client.getConnectionManager().shutdown()</tt> when done which
+	 * releases any connections still held by the client but leaves the pool open.
+	 *
+	 * @return HttpClient, never null
+	 */
+	@NonNull
 	public HttpClient getHttpClient() {
-		HttpClient client = new DefaultHttpClient();
+		HttpClient client = getHttpClientPool().newClient();
 		if (proxy != null) {
 			// System.out.println("XXX: use HTTP proxy");
 			client.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
@@ -291,9 +510,67 @@ public class Context {
 		return client;
 	}
 
+	/**
+	 * Get the shared connection pool creating it on first use. Pool limits are set
+	 * with <tt>http.maxTotal</tt>, <tt>http.maxPerRoute</tt>, <tt>http.idleTimeout</tt>
+	 * and <tt>http.keepAlive</tt> (seconds) configuration properties.
+	 *
+	 * @return connection pool, never null
+	 */
+	@NonNull
+	public synchronized HttpClientPool getHttpClientPool() {
+		if (parent != null) {
+			return parent.getHttpClientPool();
+		}
+		if (clientPool == null) {
+			clientPool = new HttpClientPool(
+					getInt("http.maxTotal", HttpClientPool.DEFAULT_MAX_TOTAL),
+					getInt("http.maxPerRoute", HttpClientPool.DEFAULT_MAX_PER_ROUTE),
+					getInt("http.idleTimeout", HttpClientPool.DEFAULT_IDLE_TIMEOUT),
+					getInt("http.keepAlive", HttpClientPool.DEFAULT_KEEP_ALIVE));
+		}
+		return clientPool;
+	}
+
+	/**
+	 * Release shared resources such as pooled HTTP connections. Called once
+	 * after all tests have been executed. A new pool is created if another
+	 * HttpClient is requested after the context is closed. The pool of a
+	 * parent context is left open and an authenticated HttpRequestChecker
+	 * is returned to the parent context for reuse.
+	 */
+	public synchronized void close() {
+		if (responseCache != null) {
+			responseCache.clear();
+		}
+		if (asyncClient != null) {
+			try {
+				asyncClient.shutdown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			asyncClient = null;
+		}
+		if (clientPool != null) {
+			clientPool.close();
+			clientPool = null;
+		}
+		if (checkerKey != null) {
+			if (httpRequestChecker != null) {
+				releaseChecker(checkerKey, httpRequestChecker);
+				httpRequestChecker = null;
+			}
+			checkerKey = null;
+		}
+	}
+
 	/**
 	 * Wrap <tt>HttpClient.execute()</tt> to pre/post-test HTTP requests for any
 	 * server specific implementation handling such as authentication.
+	 * GET requests are revalidated against the response cache if enabled and identical
+	 * GET requests in flight are merged into one call (see {@link ResponseCache}
+	 * and {@link RequestCoalescer}). The time until the response headers are
+	 * received is recorded by the {@link LatencyRecorder}.
 	 *
 	 * @param client   the HttpClient, must never be null
 	 * @param request   the request to execute, must never be null
@@ -302,7 +579,261 @@ public class Context {
 	 * @throws IOException in case of a problem or the connection was aborted
 	 * @throws ClientProtocolException in case of an http protocol error
 	 */
-	public HttpResponse executeRequest(HttpClient client, HttpRequestBase request)
+	public HttpResponse executeRequest(final HttpClient client, final HttpRequestBase request)
+			throws IOException
+	{
+		if (request == null) {
+			return execute(client, null);
+		}
+		final LatencyRecorder recorder = getLatencyRecorder();
+		if (recorder == null) {
+			return executeShared(client, request);
+		}
+		final String key = LatencyRecorder.getKey(baseURL, request.getMethod(), request.getURI());
+		final long start = LatencyRecorder.getStartTime();
+		try {
+			return executeShared(client, request);
+		} finally {
+			recorder.record(key, System.nanoTime() - start);
+		}
+	}
+
+	private HttpResponse executeShared(final HttpClient client, final HttpRequestBase request)
+			throws IOException
+	{
+		if (ResponseCache.isCacheable(request)) {
+			final String key = ResponseCache.getKey(request.getURI().toString(), request, getUserEmail());
+			final RequestCoalescer coalescer = getRequestCoalescer();
+			if (coalescer == null) {
+				return executeCached(client, request, key);
+			}
+			return coalescer.execute(key, new RequestCoalescer.Execution() {
+				public HttpResponse execute() throws IOException {
+					return executeCached(client, request, key);
+				}
+			});
+		}
+		final ResponseCache cache = getResponseCache();
+		try {
+			return execute(client, request);
+		} finally {
+			if (cache != null && ResponseCache.isWrite(request)) {
+				cache.invalidate(request.getURI().toString());
+			}
+		}
+	}
+
+	private HttpResponse executeCached(HttpClient client, HttpRequestBase request, String key)
+			throws IOException
+	{
+		final ResponseCache cache = getResponseCache();
+		if (cache == null) {
+			return execute(client, request);
+		}
+		final ResponseCache.Entry entry = cache.prepare(key, request);
+		final HttpResponse response;
+		try {
+			response = execute(client, request);
+		} finally {
+			if (entry != null) ResponseCache.unprepare(request);
+		}
+		return cache.update(key, entry, response);
+	}
+
+	/**
+	 * Execute request with the non-blocking HTTP client such that many requests can be
+	 * in flight without a thread for each request. The HttpRequestChecker applies
+	 * its server specific handling such as the session of the active user if it
+	 * implements {@link AsyncHttpRequestChecker}, otherwise the request is executed
+	 * with the blocking executeRequest and the returned future is already done.
+	 * Requests are admitted by the request limiter but bypass the response cache
+	 * and request coalescing. The response body is buffered in memory.
+	 *
+	 * @param request   the request to execute, must never be null
+	 * @param callback   callback notified when the request completes, may be null
+	 * @return  future of the response to the request
+	 * @throws IOException if the async client cannot be started or the thread is
+	 *          interrupted while waiting for admission
+	 */
+	@NonNull
+	public Future<HttpResponse> executeRequestAsync(final HttpRequestBase request,
+													final FutureCallback<HttpResponse> callback)
+			throws IOException
+	{
+		if (httpRequestChecker != null && !(httpRequestChecker instanceof AsyncHttpRequestChecker)) {
+			// no non-blocking support so execute with the blocking client
+			final BasicFuture<HttpResponse> future = new BasicFuture<HttpResponse>(callback);
+			final HttpClient client = getHttpClient();
+			try {
+				final HttpResponse response = executeRequest(client, request);
+				final HttpEntity entity = response.getEntity();
+				if (entity != null) {
+					final ByteArrayEntity buffered = new ByteArrayEntity(EntityUtils.toByteArray(entity));
+					buffered.setContentType(entity.getContentType());
+					buffered.setContentEncoding(entity.getContentEncoding());
+					response.setEntity(buffered);
+				}
+				future.completed(response);
+			} catch (IOException e) {
+				future.failed(e);
+			} finally {
+				client.getConnectionManager().shutdown();
+			}
+			return future;
+		}
+		final HttpAsyncClient client = getHttpAsyncClient();
+		if (proxy != null) {
+			request.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
+		}
+		final RequestLimiter limiter = getRequestLimiter();
+		final RequestLimiter.Permit permit = limiter == null ? null
+				: limiter.acquire(String.valueOf(request.getURI().getAuthority()));
+		final ResponseCache cache = ResponseCache.isWrite(request) ? getResponseCache() : null;
+		final LatencyRecorder recorder = getLatencyRecorder();
+		final String key = LatencyRecorder.getKey(baseURL, request.getMethod(), request.getURI());
+		final long start = LatencyRecorder.getStartTime();
+		final FutureCallback<HttpResponse> done = new FutureCallback<HttpResponse>() {
+			private void release(HttpResponse response) {
+				if (recorder != null) recorder.record(key, System.nanoTime() - start);
+				if (permit != null) limiter.release(permit, response);
+				if (cache != null) cache.invalidate(request.getURI().toString());
+			}
+
+			public void completed(HttpResponse response) {
+				release(response);
+				if (callback != null) callback.completed(response);
+			}
+
+			public void failed(Exception e) {
+				release(null);
+				if (callback != null) callback.failed(e);
+			}
+
+			public void cancelled() {
+				release(null);
+				if (callback != null) callback.cancelled();
+			}
+		};
+		try {
+			if (httpRequestChecker != null) {
+				return ((AsyncHttpRequestChecker) httpRequestChecker).executeRequestAsync(this, client, request, done);
+			}
+			return client.execute(request, done);
+		} catch (RuntimeException e) {
+			// request was not dispatched so done is never called
+			if (permit != null) limiter.release(permit, null);
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the shared non-blocking HTTP client starting it on first use. The number
+	 * of I/O threads is set with the <tt>http.asyncThreads</tt> property (default 2)
+	 * and the number of connections per host with <tt>http.asyncMaxPerRoute</tt>
+	 * (default 100).
+	 *
+	 * @return started HttpAsyncClient, never null
+	 * @throws IOException if the I/O reactor cannot be created
+	 */
+	@NonNull
+	public synchronized HttpAsyncClient getHttpAsyncClient() throws IOException {
+		if (parent != null) {
+			return parent.getHttpAsyncClient();
+		}
+		if (asyncClient == null) {
+			final IOReactorConfig reactorConfig = new IOReactorConfig();
+			reactorConfig.setIoThreadCount(Math.max(1, getInt("http.asyncThreads", 2)));
+			reactorConfig.setTcpNoDelay(true);
+			final DefaultHttpAsyncClient client = new DefaultHttpAsyncClient(reactorConfig);
+			final int maxPerRoute = Math.max(1, getInt("http.asyncMaxPerRoute", 100));
+			final ClientAsyncConnectionManager manager = client.getConnectionManager();
+			if (manager instanceof PoolingClientAsyncConnectionManager) {
+				((PoolingClientAsyncConnectionManager) manager).setDefaultMaxPerRoute(maxPerRoute);
+				((PoolingClientAsyncConnectionManager) manager).setMaxTotal(Math.max(maxPerRoute,
+						getInt("http.maxTotal", HttpClientPool.DEFAULT_MAX_TOTAL)));
+			}
+			client.start();
+			asyncClient = client;
+		}
+		return asyncClient;
+	}
+
+	/**
+	 * Get request coalescer used by executeRequest to merge identical GET requests
+	 * in flight. Enabled unless the <tt>http.coalesce</tt> property is false.
+	 *
+	 * @return request coalescer or null if disabled
+	 */
+	@CheckForNull
+	public synchronized RequestCoalescer getRequestCoalescer() {
+		if (requestCoalescer == null && !"false".equalsIgnoreCase(StringUtils.trim(getString("http.coalesce")))) {
+			requestCoalescer = new RequestCoalescer();
+		}
+		return requestCoalescer;
+	}
+
+	/**
+	 * Get recorder of the latency of HTTP exchanges. Enabled unless the
+	 * <tt>http.latency</tt> property is false. Contexts of a parent share
+	 * the recorder of the parent.
+	 *
+	 * @return latency recorder or null if disabled
+	 */
+	@CheckForNull
+	public synchronized LatencyRecorder getLatencyRecorder() {
+		if (parent != null) {
+			return parent.getLatencyRecorder();
+		}
+		if (latencyRecorder == null && !"false".equalsIgnoreCase(StringUtils.trim(getString("http.latency")))) {
+			latencyRecorder = new LatencyRecorder();
+		}
+		return latencyRecorder;
+	}
+
+	/**
+	 * Get response cache used by executeRequest. The cache is enabled unless
+	 * the <tt>http.cache</tt> property is false and holds at most
+	 * <tt>http.cacheEntries</tt> responses. Tests that check the response of the
+	 * server as is mark their requests with {@link ResponseCache#setNoCache}.
+	 *
+	 * @return response cache or null if disabled
+	 */
+	@CheckForNull
+	public synchronized ResponseCache getResponseCache() {
+		if (responseCache == null && !"false".equalsIgnoreCase(StringUtils.trim(getString("http.cache")))) {
+			responseCache = new ResponseCache(Math.max(1, getInt("http.cacheEntries", ResponseCache.DEFAULT_MAX_ENTRIES)));
+		}
+		return responseCache;
+	}
+
+	private HttpResponse execute(HttpClient client, HttpRequestBase request)
+			throws IOException
+	{
+		final RequestLimiter limiter = request == null ? null : getRequestLimiter();
+		if (limiter == null) {
+			return executeChecked(client, request);
+		}
+		final RequestLimiter.Permit permit = limiter.acquire(String.valueOf(request.getURI().getAuthority()));
+		final HttpResponse response;
+		try {
+			response = executeChecked(client, request);
+		} catch (IOException e) {
+			limiter.release(permit, null);
+			throw e;
+		} catch (RuntimeException e) {
+			limiter.release(permit, null);
+			throw e;
+		}
+		// request stays in flight until its body is transferred
+		final Runnable release = limiter.releaseOnConsume(permit, response);
+		if (!HttpClientPool.runOnRelease(client, release)) {
+			// body may never be consumed and the client cannot tell when it is abandoned
+			release.run();
+		}
+		return response;
+	}
+
+	private HttpResponse executeChecked(HttpClient client, HttpRequestBase request)
 			throws IOException
 	{
 		if (httpRequestChecker != null) {
@@ -312,16 +843,83 @@ public class Context {
 		}
 	}
 
+	/**
+	 * Get admission control of requests per host. Configured with the
+	 * <tt>limit.maxPerHost</tt> (requests in flight), <tt>limit.rate</tt> (requests
+	 * per second), <tt>limit.burst</tt> and <tt>limit.adaptive</tt> properties.
+	 * Contexts of a parent with a limiter share the limiter of the parent.
+	 *
+	 * @return request limiter or null if no limit is configured
+	 */
+	@CheckForNull
+	public synchronized RequestLimiter getRequestLimiter() {
+		if (!requestLimiterLoaded) {
+			requestLimiterLoaded = true;
+			requestLimiter = parent != null ? parent.getRequestLimiter() : null;
+			if (requestLimiter == null) {
+				final int maxPerHost = getInt("limit.maxPerHost", 0);
+				double rate = 0;
+				final String rateValue = StringUtils.trimToNull(getString("limit.rate"));
+				if (rateValue != null) {
+					try {
+						rate = Double.parseDouble(rateValue);
+					} catch (NumberFormatException e) {
+						log.warn("property limit.rate has invalid value: {}", rateValue);
+					}
+				}
+				final boolean adaptive = "true".equalsIgnoreCase(StringUtils.trim(getString("limit.adaptive")));
+				if (maxPerHost > 0 || rate > 0 || adaptive) {
+					requestLimiter = new RequestLimiter(maxPerHost, rate,
+							getInt("limit.burst", Math.max(1, (int) Math.ceil(rate))), adaptive);
+					log.info("request limits maxPerHost={} rate={} adaptive={}", new Object[]{maxPerHost, rate, adaptive});
+				}
+			}
+		}
+		return requestLimiter;
+	}
+
     /**
      * Get current active user identity if applicable
      * @return user id (e.g. defaultUser) associated with active user context
-     *          if applicable otherwise null
+     *          of the current thread if applicable otherwise null
      */
     public String getUser() {
-        return currentUser;
+        final UserInfo userInfo = boundUser.get();
+        return userInfo != null ? userInfo.id : currentUser;
+    }
+
+    /**
+     * Get email of the user set with {@link #setUser(String)} on the current thread
+     * for the HttpRequestChecker to select the session of that user.
+     * @return user email or null if the default user context is active
+     */
+    @CheckForNull
+    public String getUserEmail() {
+        final UserInfo userInfo = boundUser.get();
+        return userInfo != null ? userInfo.email : null;
+    }
+
+    /**
+     * Get user set with {@link #setUser(String)} on the current thread such that
+     * work handed off to other threads can execute as the same user
+     * @return user id or null if the default user context is active
+     */
+    @CheckForNull
+    public String getBoundUser() {
+        final UserInfo userInfo = boundUser.get();
+        return userInfo != null ? userInfo.id : null;
+    }
+
+    /**
+     * Restore the default user context on the current thread
+     */
+    public void resetUser() {
+        boundUser.remove();
     }
 
     /**
+     * Set user context of the current thread. Other threads keep their own user
+     * context so tests executing as different users do not interfere.
      *
      * @param userId
      * @return true if successful sets user context, false otherwise
@@ -340,16 +938,19 @@ public class Context {
                     log.warn("user " + userId + " password not found in config");
                     return false;
                 }
-                userInfo = new UserInfo(userEmail, password);
+                userInfo = new UserInfo(userId, userEmail, password);
                 userMap.put(userId, userInfo);
             }
+            final UserInfo previous = boundUser.get();
             try {
-                //? currentUser = null; // null or keep last value ??
+                // checker logs in the user if not already authenticated
                 httpRequestChecker.setUser(this, userId, userInfo.email, userInfo.password);
+                boundUser.set(userInfo);
                 if (userInfo.email.equals(httpRequestChecker.getCurrentUser(this))) {
-                    currentUser = userId;
                     return true;
                 }
+                // keep previous user context
+                boundUser.set(previous);
 			} catch(IllegalStateException e) {
 				log.warn("failed to set user", e);
 				return false;
@@ -375,9 +976,11 @@ public class Context {
     }
 
 	private static class UserInfo {
+        private final String id;
         private final String email;
         private final String password;
-        public UserInfo(String email, String password) {
+        public UserInfo(String id, String email, String password) {
+            this.id = id;
             this.email = email;
             this.password = password;
         }
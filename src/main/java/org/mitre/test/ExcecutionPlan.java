@@ -4,12 +4,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import org.mitre.test.TestUnit.StatusEnumType;
+import org.mitre.test.http.LatencyRecorder;
 
 /**
  * Creates Execution plan and orders tests depending which tests are depending
  * on each other. Prerequisite tests ordered first and executed before the
  * tests that require them.
+ * <P>
+ * Tests are ordered by a depth-first traversal of the prerequisites in linear time
+ * with respect to the number of tests and dependencies. A test is skipped if any of
+ * its prerequisites is not loaded, cannot be added or if the tests form a dependency
+ * cycle in which case all tests in the cycle are skipped.
  *
  * @author Jason Mathews, MITRE Corp.
  * Date: 2/20/12 11:04 AM
@@ -18,15 +29,44 @@ public class ExcecutionPlan {
 
 	private static final Logger log = LoggerFactory.getLogger(ExcecutionPlan.class);
 
-	private final LinkedList<TestUnit> list = new LinkedList<TestUnit>();
-	private final Set<Class<? extends TestUnit>> visited = new HashSet<Class<? extends TestUnit>>();
-	private final Loader loader = Loader.getInstance();
+	/**
+	 * state of a test class visited while building the plan
+	 */
+	private enum Mark {
+		/** prerequisites of test are being added */
+		VISITING,
+		/** test added to the plan */
+		ADDED,
+		/** test skipped */
+		SKIPPED
+	}
+
+	private final List<TestUnit> list = new ArrayList<TestUnit>();
+	private final Map<Class<? extends TestUnit>, Mark> visited = new HashMap<Class<? extends TestUnit>, Mark>();
+	private final Loader loader;
 
+	/**
+	 * Create execution plan for tests of the singleton Loader
+	 * @param it tests to execute
+	 */
 	public ExcecutionPlan(Iterator<TestUnit> it) {
+		this(Loader.getInstance(), it);
+	}
+
+	/**
+	 * Create execution plan for tests of the given Loader which are
+	 * executed with its Context.
+	 *
+	 * @param loader Loader of the tests
+	 * @param it tests to execute
+	 */
+	public ExcecutionPlan(Loader loader, Iterator<TestUnit> it) {
+		this.loader = loader;
 		while (it.hasNext()) {
 			TestUnit test = it.next();
 			add(test);
 		}
+		log.debug("Plan: {} tests ordered, {} skipped", list.size(), visited.size() - list.size());
 	}
 
 	/**
@@ -37,224 +77,366 @@ public class ExcecutionPlan {
 		return Collections.unmodifiableList(list);
 	}
 
-	private int add(TestUnit test) {
-		final Class<? extends TestUnit> aClass = test.getClass();
-		System.out.println("Check: " + aClass.getName());
-		if (!visited.add(aClass)) {
-			log.trace("Test already visited: " + aClass.getName());
-			return indexOf(test);
-		}
-		List<Class<? extends TestUnit>> depends = test.getDependencyClasses();
-		assert(depends != null);
+	/**
+	 * Test on the traversal stack with the index of its next prerequisite to add
+	 */
+	private static final class Frame {
+		final TestUnit test;
+		final List<Class<? extends TestUnit>> depends;
+		int next;
 
-		// validate deferred properties are only on declared dependent test classes
-		for(Tuple prop : test.getProperties()) {
-			if (!depends.contains(prop.testClass)) {
-				log.warn("Test {} sets property {} on non-dependent class <{}>",
-					new Object[]{ aClass.getName(), prop.key, prop.testClass.getName()});
-				test.setStatus(StatusEnumType.SKIPPED, "Cannot set property on non-dependent class <" + prop.testClass.getName() + ">");
-				return -1;
-			}
+		Frame(TestUnit test, List<Class<? extends TestUnit>> depends) {
+			this.test = test;
+			this.depends = depends;
 		}
+	}
 
-		if (depends.isEmpty()) {
-			// 1) add independent test to tail of list
-			log.trace("Add last: " + aClass.getName());
-			// if test has dependent properties but no dependencies then warn an issue
-			//if (!test.getProperties().isEmpty()) {
-				//log.warn("Test " + aClass.getName() + " has dependent properties but no dependencies");
-			//}
-			list.addLast(test);
-			// System.out.printf("Add[%d]: %s%n", list.size() - 1, aClass.getName()); // debug
-			return list.size() - 1; // return index in list
+	/**
+	 * Add test to the plan after all of its prerequisites, adding any prerequisites
+	 * not already visited first.
+	 *
+	 * @param test Test to add
+	 * @return true if test was added, false if skipped
+	 */
+	private boolean add(TestUnit test) {
+		final Class<? extends TestUnit> aClass = test.getClass();
+		if (visited.containsKey(aClass)) {
+			log.trace("Test already visited: {}", aClass.getName());
+			return visited.get(aClass) == Mark.ADDED;
 		}
-
-		if (depends.size() == 1) {
-			// 2) only one dependency to check
-			Class<? extends TestUnit> dependClass = depends.get(0);
-			TestUnit other = loader.getTest(dependClass);
-			if (other == null) {
-				log.error("Dependency class <" + dependClass.getName() + "> not loaded. Skip test "+ aClass.getName());
-				test.setStatus(StatusEnumType.SKIPPED, "Dependency class <" + dependClass.getName() + "> not loaded");
-				return -1;
-			}
-			test.addDependency(other);
-			int idx = add(other);
-			if (idx == -1) {
-				log.error("Failed to add dependency class: " + dependClass.getName());
-				test.setStatus(StatusEnumType.SKIPPED, "Failed to add dependency class: " + dependClass.getName());
-				return -1;
-			}
-			// TODO: review if dependency (Prerequsite) same as require the test's input results to remain
-			// other.setKeepContent(true); // set flag to keep content in case dependency needs to use it
-			for (Tuple prop : test.getProperties()) {
-				// this is verified earlier that can only set properties that test is dependent on
-				// so should not to be tested again.
-				assert(prop.testClass == other.getClass());
-				try {
-					other.setProperty(prop.key, prop.value);
-				} catch(IllegalArgumentException e) {
-					// setting property on one class and dependent on another - invalid test
-					final String msg = "Failed to set property on dependent test: " + prop.testClass;
-					System.out.println("ERROR: " + msg);
-					log.debug("", e);
-					test.setStatus(StatusEnumType.SKIPPED, msg);
-					return -1;
+		final List<Frame> stack = new ArrayList<Frame>();
+		push(stack, test);
+		while (!stack.isEmpty()) {
+			final Frame frame = stack.get(stack.size() - 1);
+			final TestUnit current = frame.test;
+			if (frame.next == frame.depends.size()) {
+				// all prerequisites added
+				stack.remove(stack.size() - 1);
+				if (setProperties(current)) {
+					list.add(current);
+					visited.put(current.getClass(), Mark.ADDED);
+					log.trace("Add[{}]: {}", list.size() - 1, current.getClass().getName());
 				}
+				continue;
 			}
-            //list.add(++idx, test);
-            list.addLast(test);
-            idx = list.size() - 1; // last index in list
-			System.out.printf("Add[%d]: %s%n", idx, aClass.getName());
-            return idx; // added successfully
-		}
-
-		// 3) multiple dependencies
-		// add test after all dependencies
-		int idx = -1;
-		boolean updateIndex = false;
-		TestUnit dependsOnTest = null;
-		// List<TestUnit> otherTests = new ArrayList<TestUnit>(depends.size());
-		for (Class<? extends TestUnit> dependClass : depends) {
-			TestUnit other = loader.getTest(dependClass);
+			final Class<? extends TestUnit> dependClass = frame.depends.get(frame.next++);
+			final TestUnit other = loader.getTest(dependClass);
 			if (other == null) {
-				log.error("Dependency class <" + dependClass.getName() + "> not loaded. Skip test "+ aClass.getName());
-				test.setStatus(StatusEnumType.SKIPPED, "Dependency class <" + dependClass.getName() + "> not loaded");
-				return -1;
+				log.error("Dependency class <" + dependClass.getName() + "> not loaded. Skip test " + current.getClass().getName());
+				skip(stack, "Dependency class <" + dependClass.getName() + "> not loaded");
+				continue;
 			}
-			test.addDependency(other);
-			int index = add(other);
-			if (index == -1) {
-				final String msg = "Failed to add dependency class: " + dependClass.getName();
-				log.error(msg);
-				test.setStatus(StatusEnumType.SKIPPED, msg);
-				return -1;
+			final Mark mark = visited.get(other.getClass());
+			if (mark == Mark.VISITING) {
+				skipCycle(stack, other);
+				continue;
 			}
-			if (index > idx) {
-				idx = index; // get largest index in list
-				dependsOnTest = other;
-			} else {
-				updateIndex = true; // index of last element may have moved due to add()
+			current.addDependency(other);
+			if (mark == null) {
+				if (!push(stack, other)) {
+					skipDependency(stack, dependClass);
+				}
+			} else if (mark == Mark.SKIPPED) {
+				skipDependency(stack, dependClass);
 			}
-			// otherTests.add(other);
+			// otherwise prerequisite already added
 		}
+		return visited.get(aClass) == Mark.ADDED;
+	}
 
-		// get index of last dependency -- index could have changed due to side-effects of recursive adds
-		if (dependsOnTest != null && updateIndex) {
-			idx = indexOf(dependsOnTest);
-			if (idx == -1) {
-				// should never happen
-				final String msg = "Failed to add in order with respect to dependency class " + dependsOnTest.getClass().getName();
-				System.out.println("ERROR: " + msg);
-				test.setStatus(StatusEnumType.SKIPPED, msg);
-				return -1;
+	/**
+	 * Push test on the stack if its deferred properties are valid
+	 * otherwise the test is skipped.
+	 *
+	 * @return false if test was skipped
+	 */
+	private boolean push(List<Frame> stack, TestUnit test) {
+		final Class<? extends TestUnit> aClass = test.getClass();
+		final List<Class<? extends TestUnit>> depends = test.getDependencyClasses();
+		assert(depends != null);
+		// validate deferred properties are only on declared dependent test classes
+		for(Tuple prop : test.getProperties()) {
+			if (!depends.contains(prop.testClass)) {
+				log.warn("Test {} sets property {} on non-dependent class <{}>",
+					new Object[]{ aClass.getName(), prop.key, prop.testClass.getName()});
+				test.setStatus(StatusEnumType.SKIPPED, "Cannot set property on non-dependent class <" + prop.testClass.getName() + ">");
+				visited.put(aClass, Mark.SKIPPED);
+				return false;
 			}
-		} else if (idx == -1) {
-			final String msg = "Failed to add test with respect to its dependencies";
-			System.out.println("ERROR: " + msg);
-			test.setStatus(StatusEnumType.SKIPPED, msg);
-			return -1; // ???
 		}
+		visited.put(aClass, Mark.VISITING);
+		stack.add(new Frame(test, depends));
+		return true;
+	}
 
-		// System.out.println("XXX: props = " + test.getProperties());
+	/**
+	 * Set deferred properties of test on its prerequisite tests.
+	 *
+	 * @return false if a property could not be set in which case the test is skipped
+	 */
+	private boolean setProperties(TestUnit test) {
 		for (Tuple prop : test.getProperties()) {
+			// this is verified earlier that can only set properties that test is dependent on
 			TestUnit other = loader.getTest(prop.testClass);
-			//boolean setFlag = false;
 			if (other != null)
 				try {
 					other.setProperty(prop.key, prop.value);
-					//setFlag = true;
 					continue;
 				} catch(IllegalArgumentException e) {
 					log.debug("", e);
 				}
-			//if (!setFlag) {
 			final String msg = "Failed to set property on dependent test: " + prop.testClass;
-			System.out.println("ERROR: " + msg);
+			log.error(msg);
 			test.setStatus(StatusEnumType.SKIPPED, msg);
-			return -1;
-			//}
+			visited.put(test.getClass(), Mark.SKIPPED);
+			return false;
 		}
+		return true;
+	}
 
-		list.add(++idx, test);
-		System.out.printf("Add[%d]: %s%n", idx, aClass.getName());
+	/**
+	 * Skip test on top of the stack and each test below it that requires it.
+	 */
+	private void skip(List<Frame> stack, String msg) {
+		final Frame frame = stack.remove(stack.size() - 1);
+		frame.test.setStatus(StatusEnumType.SKIPPED, msg);
+		visited.put(frame.test.getClass(), Mark.SKIPPED);
+		unwind(stack, frame.test.getClass());
+	}
 
-		return idx;
+	private void skipDependency(List<Frame> stack, Class<? extends TestUnit> dependClass) {
+		final String msg = "Failed to add dependency class: " + dependClass.getName();
+		log.error(msg);
+		skip(stack, msg);
+	}
+
+	/**
+	 * Skip all tests in the dependency cycle from the given test to the top of the stack
+	 * then skip the tests below the cycle that require them.
+	 */
+	private void skipCycle(List<Frame> stack, TestUnit first) {
+		int start = stack.size() - 1;
+		while (stack.get(start).test.getClass() != first.getClass()) {
+			start--;
+		}
+		final StringBuilder buf = new StringBuilder("Dependency cycle: ");
+		for (int i = start; i < stack.size(); i++) {
+			buf.append(stack.get(i).test.getId()).append(" -> ");
+		}
+		final String msg = buf.append(first.getId()).toString();
+		log.error(msg);
+		while (stack.size() > start) {
+			Frame frame = stack.remove(stack.size() - 1);
+			frame.test.setStatus(StatusEnumType.SKIPPED, msg);
+			visited.put(frame.test.getClass(), Mark.SKIPPED);
+		}
+		unwind(stack, first.getClass());
 	}
 
-	private int indexOf(TestUnit test) {
-		int idx = 0;
-		for (TestUnit aTest : list) {
-			if (aTest == test) return idx;
-			idx++;
+	/**
+	 * Skip remaining tests on the stack since each one requires the test above it.
+	 */
+	private void unwind(List<Frame> stack, Class<? extends TestUnit> skipped) {
+		while (!stack.isEmpty()) {
+			final Frame frame = stack.remove(stack.size() - 1);
+			final String msg = "Failed to add dependency class: " + skipped.getName();
+			log.error(msg);
+			frame.test.setStatus(StatusEnumType.SKIPPED, msg);
+			visited.put(frame.test.getClass(), Mark.SKIPPED);
+			skipped = frame.test.getClass();
 		}
-		return -1; // not found
 	}
 
 	public void execute() {
         //SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-        final Context context = Loader.getInstance().getContext();
+        final Context context = loader.getContext();
         final Reporter reporter = context.getReporter();
         assert(reporter != null);
         reporter.executeStart();
-		OUTER: for(TestUnit test : list) {
+		for(TestUnit test : list) {
             reporter.startTest(test);
-			// assert status == null for all new tests
-			final StatusEnumType status = test.getStatus();
-			if (status != null) log.warn("XXX: assertion failed: expected status to be null at start but was: " + status);
-			// by the method of ordering tests by this ExecutionPlan all prerequisite tests are guaranteed
-			// to be run first so we need to first check if any prerequisite test failed in which case we
-			// cancel running this test and flag it PREREQ FAILED or SKIPPED
-			for (TestUnit aTest: test.getDependencies()) {
-				final StatusEnumType aTestStatus = aTest.getStatus();
-				if (aTestStatus == StatusEnumType.FAILED || aTestStatus ==  StatusEnumType.PREREQ_FAILED) {
-                    String msg = "Prerequisite test " + aTest.getId() + " failed";
-					test.setStatus(StatusEnumType.PREREQ_FAILED, msg);
-					// skip test because one of its prerequisite test failed
-                    reporter.stopTest(test);
-					continue OUTER;
+			executeTest(context, test);
+			reporter.stopTest(test);
+		}
+        reporter.executeStop();
+	}
+
+	/**
+	 * Execute tests using a bounded pool of worker threads. A test is scheduled
+	 * as soon as all of its prerequisite tests have completed so independent
+	 * tests overlap while dependent tests still run after the tests they require.
+	 * Output written by each test to <tt>System.out</tt> is captured and passed
+	 * to the reporter in a single <tt>startTest</tt>/<tt>stopTest</tt> block when
+	 * the test completes so the report is not interleaved.
+	 * <P>
+	 * If <tt>threads</tt> is less than 2 then tests are executed serially in plan order.
+	 *
+	 * @param threads Maximum number of tests to execute concurrently
+	 */
+	public void execute(int threads) {
+		if (threads < 2 || list.size() < 2) {
+			execute();
+			return;
+		}
+		final Context context = loader.getContext();
+		final Reporter reporter = context.getReporter();
+		assert(reporter != null);
+
+		// count of prerequisites not yet completed for each test and reverse mapping
+		// from a prerequisite to the tests that depend on it
+		final Map<TestUnit, Integer> pending = new IdentityHashMap<TestUnit, Integer>();
+		final Map<TestUnit, List<TestUnit>> dependents = new IdentityHashMap<TestUnit, List<TestUnit>>();
+		for (TestUnit test : list) {
+			pending.put(test, 0);
+		}
+		for (TestUnit test : list) {
+			int count = 0;
+			for (TestUnit aTest : test.getDependencies()) {
+				// prerequisites not in the plan have their final status already
+				if (!pending.containsKey(aTest)) continue;
+				List<TestUnit> others = dependents.get(aTest);
+				if (others == null) {
+					others = new ArrayList<TestUnit>(2);
+					dependents.put(aTest, others);
+				}
+				others.add(test);
+				count++;
+			}
+			pending.put(test, count);
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, list.size()), new ThreadFactory() {
+			private int count;
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "exec-" + (++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		final CountDownLatch done = new CountDownLatch(list.size());
+		final Object lock = new Object();
+
+		OutputCapture.install();
+		reporter.executeStart();
+		try {
+			final class Task implements Runnable {
+				private final TestUnit test;
+
+				Task(TestUnit test) {
+					this.test = test;
 				}
-                if (aTestStatus == StatusEnumType.SKIPPED) {
-                    test.setStatus(StatusEnumType.SKIPPED, "Prerequisite test " + aTest.getId() + " skipped");
-                    // skip test because one of its prerequisite test was skipped
-                    reporter.stopTest(test);
-                    continue OUTER;
-                }
-				if (aTestStatus != StatusEnumType.SUCCESS) {
-                    // should never get this situation unless test is flawed
-                    test.setStatus(StatusEnumType.SKIPPED, "Prerequisite test " + aTest.getId() + " has non-success status");
-                    log.error("XXX: wasn't expecting this situation: status=" + aTestStatus);
-                    reporter.stopTest(test);
-					continue OUTER;
+
+				public void run() {
+					String output = null;
+					try {
+						OutputCapture.begin();
+						try {
+							executeTest(context, test);
+						} finally {
+							output = OutputCapture.end();
+						}
+					} catch (Throwable e) {
+						log.error("", e);
+						if (test.getStatus() == null)
+							test.setStatus(StatusEnumType.FAILED, "Unexpected exception: " + e.toString());
+					} finally {
+						synchronized (lock) {
+							try {
+								reporter.startTest(test);
+								if (output != null && output.length() != 0)
+									OutputCapture.getOriginal().print(output);
+								reporter.stopTest(test);
+							} catch (RuntimeException e) {
+								log.error("", e);
+							}
+							// schedule dependent tests whose prerequisites have now all completed
+							List<TestUnit> others = dependents.get(test);
+							if (others != null) {
+								for (TestUnit other : others) {
+									int count = pending.get(other) - 1;
+									pending.put(other, count);
+									if (count == 0) pool.execute(new Task(other));
+								}
+							}
+						}
+						done.countDown();
+					}
 				}
 			}
 
-            // at this point all pre-requisite tests have passed (status = SUCCESS)
-            String contextUser = context.getUser();
-			try {
-				test.execute();
-			} catch (TestException e) {
-				test.setStatus(StatusEnumType.FAILED, e.getMessage());
-				log.error("", e);
-			} catch (RuntimeException e) {
-				test.setStatus(StatusEnumType.FAILED, "Unexpected exception: " + e.toString());
-				log.error("", e);
-			} finally {
-				final StatusEnumType testStatus = test.getStatus();
-				if (testStatus == null) {
-					// assert status != null after execute() called without throwing an exception
-					log.error("XXX: status for test " + test.getId() + " is undefined after execution");
-					test.setStatus(StatusEnumType.SKIPPED, "Unknown status after execution");
+			synchronized (lock) {
+				for (TestUnit test : list) {
+					if (pending.get(test) == 0) pool.execute(new Task(test));
 				}
-				test.cleanup();
-                if (contextUser != null && !contextUser.equals(context.getUser())) {
-                    log.info("restore user context={}", contextUser);
-                    context.setUser(contextUser);
-                }
-                reporter.stopTest(test);
 			}
+			done.await();
+		} catch (InterruptedException e) {
+			log.warn("execution interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+			reporter.executeStop();
+			OutputCapture.uninstall();
+		}
+	}
+
+	/**
+	 * Execute a single test unless one of its prerequisite tests did not succeed
+	 * in which case the test is flagged PREREQ_FAILED or SKIPPED and not executed.
+	 *
+	 * @param context Application context
+	 * @param test Test to execute
+	 */
+	private void executeTest(Context context, TestUnit test) {
+		// assert status == null for all new tests
+		final StatusEnumType status = test.getStatus();
+		if (status != null) log.warn("XXX: assertion failed: expected status to be null at start but was: " + status);
+		// by the method of ordering tests by this ExecutionPlan all prerequisite tests are guaranteed
+		// to be run first so we need to first check if any prerequisite test failed in which case we
+		// cancel running this test and flag it PREREQ FAILED or SKIPPED
+		for (TestUnit aTest: test.getDependencies()) {
+			final StatusEnumType aTestStatus = aTest.getStatus();
+			if (aTestStatus == StatusEnumType.FAILED || aTestStatus ==  StatusEnumType.PREREQ_FAILED) {
+				String msg = "Prerequisite test " + aTest.getId() + " failed";
+				test.setStatus(StatusEnumType.PREREQ_FAILED, msg);
+				// skip test because one of its prerequisite test failed
+				return;
+			}
+			if (aTestStatus == StatusEnumType.SKIPPED) {
+				test.setStatus(StatusEnumType.SKIPPED, "Prerequisite test " + aTest.getId() + " skipped");
+				// skip test because one of its prerequisite test was skipped
+				return;
+			}
+			if (aTestStatus != StatusEnumType.SUCCESS) {
+				// should never get this situation unless test is flawed
+				test.setStatus(StatusEnumType.SKIPPED, "Prerequisite test " + aTest.getId() + " has non-success status");
+				log.error("XXX: wasn't expecting this situation: status=" + aTestStatus);
+				return;
+			}
+		}
+
+		// at this point all pre-requisite tests have passed (status = SUCCESS)
+		LatencyRecorder.bindTest(test.getId());
+		try {
+			test.execute();
+		} catch (TestException e) {
+			test.setStatus(StatusEnumType.FAILED, e.getMessage());
+			log.error("", e);
+		} catch (RuntimeException e) {
+			test.setStatus(StatusEnumType.FAILED, "Unexpected exception: " + e.toString());
+			log.error("", e);
+		} finally {
+			final StatusEnumType testStatus = test.getStatus();
+			if (testStatus == null) {
+				// assert status != null after execute() called without throwing an exception
+				log.error("XXX: status for test " + test.getId() + " is undefined after execution");
+				test.setStatus(StatusEnumType.SKIPPED, "Unknown status after execution");
+			}
+			test.cleanup();
+			// user context set by the test is bound to this thread only
+			context.resetUser();
+			LatencyRecorder.bindTest(null);
 		}
-        reporter.executeStop();
 	}
 
 }
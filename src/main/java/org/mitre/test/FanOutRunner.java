@@ -0,0 +1,424 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.mitre.rhex.server.MockRhexServer;
+import org.mitre.test.TestUnit.StatusEnumType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the tests of a Loader against many patient records in one process. Each record
+ * is checked with its own Context and new instances of the tests in an independent
+ * execution plan, and records are checked concurrently. All records share the pool of
+ * HTTP connections and the compiled XML schemas of the Loader's context.
+ * <P>
+ * The configuration of each record is a copy of the Loader's configuration with the
+ * record's baseURL. The <tt>updateDocumentUrl</tt> and <tt>document.url</tt> properties
+ * are kept only if they refer to a document of that record so the tests that require
+ * them are skipped for other records. If the mock server is running then these are set
+ * to documents of each record on the mock server.
+ * <P>
+ * Results are kept per record and merged into one report with the outcome of
+ * each test over all records followed by the failures of each record.
+ *
+ * Date: 10/16/26 9:20 PM
+ */
+public final class FanOutRunner implements Runner {
+
+	private static final Logger log = LoggerFactory.getLogger(FanOutRunner.class);
+
+	public static final int DEFAULT_THREADS = 8;
+
+	private final Loader loader;
+	private int threads;
+	private List<URI> records = Collections.emptyList();
+
+	/**
+	 * ids of the tests in sorted order, same for all records
+	 */
+	private final List<String> testIds = new ArrayList<String>();
+	private final Map<String, Integer> testIndex = new HashMap<String, Integer>();
+
+	private final List<RecordResult> results = new ArrayList<RecordResult>();
+	private long elapsedTime;
+
+	/**
+	 * Create runner for the tests loaded in the given Loader.
+	 *
+	 * @param loader Loader with the tests and configuration to check each record with
+	 * @param threads Maximum number of records to check concurrently
+	 */
+	public FanOutRunner(Loader loader, int threads) {
+		this.loader = loader;
+		this.threads = Math.max(1, threads);
+		for (TestUnit test : loader.getSortedSet()) {
+			testIndex.put(test.getId(), testIds.size());
+			testIds.add(test.getId());
+		}
+	}
+
+	/**
+	 * Create runner with the <tt>fanout.threads</tt> property of the Loader's configuration.
+	 *
+	 * @param loader Loader with the tests and configuration to check each record with
+	 * @param spec List of records as parsed by {@link #parseRecords}
+	 * @return runner
+	 * @throws IllegalArgumentException if any record is not valid or the file of records cannot be read
+	 */
+	@NonNull
+	public static FanOutRunner create(Loader loader, @CheckForNull String spec) {
+		if (StringUtils.isBlank(spec)) throw new IllegalArgumentException("Expected list of records");
+		final Context context = loader.getContext();
+		final FanOutRunner runner = new FanOutRunner(loader, context.getInt("fanout.threads", DEFAULT_THREADS));
+		try {
+			runner.records = parseRecords(spec.trim(), context.getBaseURL());
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Failed to read records", e);
+		}
+		return runner;
+	}
+
+	/**
+	 * Set maximum number of records to check concurrently
+	 * @param threads Number of threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Check the records of the runner created with {@link #create}.
+	 */
+	public void run() {
+		run(records);
+	}
+
+	/**
+	 * Check each of the records.
+	 *
+	 * @param records baseURLs of records to check
+	 * @return results in the same order as the records
+	 */
+	@NonNull
+	public List<RecordResult> run(List<URI> records) {
+		final long startTime = System.currentTimeMillis();
+		results.clear();
+		if (records.isEmpty()) return Collections.unmodifiableList(results);
+		final ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, records.size()),
+				new ThreadFactory() {
+					private int count;
+
+					public synchronized Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "record-" + (++count));
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		final List<Future<RecordResult>> futures = new ArrayList<Future<RecordResult>>(records.size());
+		final int progress = Math.max(1, records.size() / 20);
+		OutputCapture.install();
+		try {
+			for (final URI baseURL : records) {
+				futures.add(pool.submit(new Callable<RecordResult>() {
+					public RecordResult call() {
+						return check(baseURL);
+					}
+				}));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					// check() handles test failures so should never get here
+					log.error("", e);
+					RecordResult result = new RecordResult(records.get(i), testIds.size());
+					result.error = e.getCause().toString();
+					results.add(result);
+				}
+				if ((i + 1) % progress == 0)
+					log.info("Checked {} of {} records", i + 1, records.size());
+			}
+		} catch (InterruptedException e) {
+			log.warn("fan-out interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+			OutputCapture.uninstall();
+			elapsedTime = System.currentTimeMillis() - startTime;
+		}
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Check one record with new instances of the tests. Output written by the
+	 * tests is discarded and only the outcome of each test is kept.
+	 *
+	 * @param baseURL baseURL of the record
+	 * @return result of the record, never null
+	 */
+	private RecordResult check(URI baseURL) {
+		final long startTime = System.currentTimeMillis();
+		final RecordResult result = new RecordResult(baseURL, testIds.size());
+		Loader record = null;
+		OutputCapture.begin();
+		try {
+			record = loader.newLoader(new Context(loader.getContext(), createConfiguration(baseURL)));
+			new ExcecutionPlan(record, record.getSortedSet().iterator()).execute();
+			for (TestUnit test : record.getSortedSet()) {
+				Integer index = testIndex.get(test.getId());
+				if (index != null) result.setResult(index, test);
+			}
+		} catch (RuntimeException e) {
+			log.warn("Failed to check record " + baseURL, e);
+			result.error = e.toString();
+		} finally {
+			OutputCapture.end();
+			if (record != null) record.getContext().close();
+		}
+		result.elapsedTime = System.currentTimeMillis() - startTime;
+		return result;
+	}
+
+	/**
+	 * Create configuration for the record with given baseURL.
+	 */
+	private XMLConfiguration createConfiguration(URI baseURL) {
+		final XMLConfiguration template = loader.getContext().getConfiguration();
+		if (template == null) throw new IllegalStateException("Configuration not loaded");
+		final XMLConfiguration config;
+		synchronized (template) {
+			config = (XMLConfiguration) template.clone();
+		}
+		final String url = baseURL.toASCIIString();
+		config.setProperty("baseURL", url);
+		final MockRhexServer mockServer = loader.getMockServer();
+		if (mockServer != null) {
+			String recordId = StringUtils.substringAfterLast(StringUtils.removeEnd(url, "/"), "/");
+			if (mockServer.getDataset().getRecord(recordId) != null
+					&& mockServer.getBaseURL(recordId).equals(baseURL)) {
+				mockServer.configure(config, recordId);
+				return config;
+			}
+		}
+		// drop document properties of other records
+		final String prefix = StringUtils.removeEnd(url, "/") + "/";
+		if (!StringUtils.startsWith(config.getString("updateDocumentUrl"), prefix)) {
+			config.clearProperty("updateDocumentUrl");
+		}
+		if (!StringUtils.startsWith(config.getString("document.url"), prefix)) {
+			config.clearProperty("document.url");
+			config.clearProperty("document.content");
+		}
+		return config;
+	}
+
+	/**
+	 * Get ids of the tests checked for each record
+	 * @return read-only list of test ids in sorted order
+	 */
+	@NonNull
+	public List<String> getTestIds() {
+		return Collections.unmodifiableList(testIds);
+	}
+
+	/**
+	 * Get results of last run
+	 * @return read-only list of results in the same order as the records
+	 */
+	@NonNull
+	public List<RecordResult> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * Print report of the last run with the outcome of each test over all records
+	 * followed by the failed tests of each record.
+	 *
+	 * @param out Stream to print report to
+	 * @return number of records that failed
+	 */
+	public int generateReport(PrintStream out) {
+		final int count = testIds.size();
+		final int[] passed = new int[count];
+		final int[] failed = new int[count];
+		final int[] warnings = new int[count];
+		final int[] skipped = new int[count];
+		int failedRecords = 0;
+		for (RecordResult result : results) {
+			if (!result.isPassed()) failedRecords++;
+			for (int i = 0; i < count; i++) {
+				StatusEnumType status = result.statuses[i];
+				final boolean failedRecommendation = status == StatusEnumType.FAILED && !result.isFailure(i);
+				if (status == StatusEnumType.SUCCESS) passed[i]++;
+				else if (result.isFailure(i)) failed[i]++;
+				else if (!failedRecommendation) skipped[i]++;
+				// each record counts at most once as warning
+				if (failedRecommendation || result.warnings[i] != 0) warnings[i]++;
+			}
+		}
+		out.println("\n------------------------------------------------------------------------------------");
+		out.println("\nFan-out Conformance Test Report:\n");
+		out.printf("%-12s %8s %8s %8s %8s%n", "Test", "Passed", "Failed", "Warnings", "Skipped");
+		for (int i = 0; i < count; i++) {
+			out.printf("%-12s %8d %8d %8d %8d%n", testIds.get(i), passed[i], failed[i], warnings[i], skipped[i]);
+		}
+
+		out.println("\nRecords:\n");
+		for (RecordResult result : results) {
+			if (result.error != null) {
+				out.printf("%s: *ERROR* %s%n", result.baseURL, result.error);
+			} else if (result.isPassed()) {
+				out.printf("%s: Passed (%.1f sec)%n", result.baseURL, result.elapsedTime / 1000.0);
+			} else {
+				out.printf("%s: *FAILED* (%.1f sec)%n", result.baseURL, result.elapsedTime / 1000.0);
+				for (int i = 0; i < count; i++) {
+					if (result.isFailure(i)) {
+						String reason = result.reasons[i];
+						out.printf("\t%s: %s%s%n", testIds.get(i),
+								result.statuses[i] == StatusEnumType.PREREQ_FAILED ? "Prerequsite Failed" : "*FAILED*",
+								StringUtils.isBlank(reason) ? "" : " Reason: " + reason);
+					}
+				}
+			}
+		}
+		out.printf("%nRecords checked: %d, Failures: %d, Time elapsed: %.1f sec%n",
+				results.size(), failedRecords, elapsedTime / 1000.0);
+		return failedRecords;
+	}
+
+	/**
+	 * Parse list of records to check. The list is a comma-separated list of record ids,
+	 * ranges of numeric record ids (e.g. 1..100) and baseURLs, or the name of a file prefixed
+	 * with '@' that lists one record per line. Record ids replace the last path segment of
+	 * the baseURL (e.g. records/1547 with 1..3 checks records/1, records/2 and records/3).
+	 *
+	 * @param spec list of records
+	 * @param baseURL baseURL from the configuration
+	 * @return baseURLs of records
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if any record is not valid
+	 */
+	@NonNull
+	public static List<URI> parseRecords(String spec, @CheckForNull URI baseURL) throws IOException {
+		final List<String> items = new ArrayList<String>();
+		if (spec.startsWith("@")) {
+			for (Object line : FileUtils.readLines(new File(spec.substring(1)), "UTF-8")) {
+				String item = StringUtils.trimToEmpty((String) line);
+				if (item.length() != 0 && !item.startsWith("#")) items.add(item);
+			}
+		} else {
+			for (String item : StringUtils.split(spec, ',')) {
+				item = item.trim();
+				if (item.length() != 0) items.add(item);
+			}
+		}
+		final List<URI> records = new ArrayList<URI>(items.size());
+		for (String item : items) {
+			if (item.contains("://")) {
+				records.add(URI.create(item));
+				continue;
+			}
+			if (baseURL == null) throw new IllegalArgumentException("baseURL required for record " + item);
+			final String base = StringUtils.removeEnd(baseURL.toASCIIString(), "/");
+			final String prefix = base.substring(0, base.lastIndexOf('/') + 1);
+			final int ind = item.indexOf("..");
+			if (ind > 0) {
+				int first, last;
+				try {
+					first = Integer.parseInt(item.substring(0, ind));
+					last = Integer.parseInt(item.substring(ind + 2));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid record range: " + item);
+				}
+				for (int i = first; i <= last; i++) {
+					records.add(URI.create(prefix + i));
+				}
+			} else {
+				records.add(URI.create(prefix + item));
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Outcome of each test for one record
+	 */
+	public static final class RecordResult {
+
+		private final URI baseURL;
+		private final StatusEnumType[] statuses;
+		private final String[] reasons;
+		private final boolean[] required;
+		private final int[] warnings;
+		private String error;
+		private long elapsedTime;
+
+		RecordResult(URI baseURL, int count) {
+			this.baseURL = baseURL;
+			statuses = new StatusEnumType[count];
+			reasons = new String[count];
+			required = new boolean[count];
+			warnings = new int[count];
+		}
+
+		void setResult(int index, TestUnit test) {
+			statuses[index] = test.getStatus();
+			if (statuses[index] != StatusEnumType.SUCCESS) reasons[index] = test.getStatusDescription();
+			required[index] = test.isRequired();
+			warnings[index] = test.getWarnings().size();
+		}
+
+		boolean isFailure(int index) {
+			final StatusEnumType status = statuses[index];
+			return status == StatusEnumType.PREREQ_FAILED || status == StatusEnumType.FAILED && required[index];
+		}
+
+		@NonNull
+		public URI getBaseURL() {
+			return baseURL;
+		}
+
+		/**
+		 * @return true if no required test failed and the record was checked without error
+		 */
+		public boolean isPassed() {
+			if (error != null) return false;
+			for (int i = 0; i < statuses.length; i++) {
+				if (isFailure(i)) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * @param index index of test in sorted order of tests
+		 * @return status of test, null if not executed
+		 */
+		@CheckForNull
+		public StatusEnumType getStatus(int index) {
+			return statuses[index];
+		}
+
+		/**
+		 * @return error that prevented checking the record, null if none
+		 */
+		@CheckForNull
+		public String getError() {
+			return error;
+		}
+
+		public long getElapsedTime() {
+			return elapsedTime;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact immutable index of the entries in an Atom feed retaining only the
+ * entry ids and the href and type of each entry link, which is all that tests
+ * need from a section feed, instead of the full DOM. Values are stored in
+ * parallel arrays with repeated strings (e.g. link types) shared.
+ * <P>
+ * Links for entry <em>i</em> are at indexes {@link #getLinkStart(int) getLinkStart(i)}
+ * (inclusive) to {@link #getLinkEnd(int) getLinkEnd(i)} (exclusive).
+ *
+ * Date: 10/16/26 2:15 PM
+ */
+public final class FeedIndex {
+
+	private static final String[] EMPTY = new String[0];
+
+	private final String[] entryIds;
+	/**
+	 * index of first link for each entry plus the total link count as last element
+	 */
+	private final int[] linkStart;
+	private final String[] hrefs;
+	private final String[] types;
+
+	private FeedIndex(String[] entryIds, int[] linkStart, String[] hrefs, String[] types) {
+		this.entryIds = entryIds;
+		this.linkStart = linkStart;
+		this.hrefs = hrefs;
+		this.types = types;
+	}
+
+	public int getEntryCount() {
+		return entryIds.length;
+	}
+
+	/**
+	 * @param entry Entry index
+	 * @return entry id or null if entry has no id
+	 * @exception IndexOutOfBoundsException if entry index is out of range
+	 */
+	@CheckForNull
+	public String getEntryId(int entry) {
+		return entryIds[entry];
+	}
+
+	public int getLinkStart(int entry) {
+		return linkStart[entry];
+	}
+
+	public int getLinkEnd(int entry) {
+		return linkStart[entry + 1];
+	}
+
+	/**
+	 * @return total number of links in all entries
+	 */
+	public int getLinkCount() {
+		return hrefs.length;
+	}
+
+	@NonNull
+	public String getHref(int link) {
+		return hrefs[link];
+	}
+
+	/**
+	 * @param link Link index
+	 * @return type attribute of link or null if not present
+	 */
+	@CheckForNull
+	public String getType(int link) {
+		return types[link];
+	}
+
+	@Override
+	public String toString() {
+		return "FeedIndex[entries=" + entryIds.length + ", links=" + hrefs.length + "]";
+	}
+
+	/**
+	 * Builds FeedIndex from entries as they are parsed from the feed.
+	 */
+	public static class Builder implements AtomFeedHandler.Listener {
+
+		private final Map<String, String> strings = new HashMap<String, String>();
+
+		private String[] entryIds = new String[16];
+		private int[] linkStart = new int[17];
+		private String[] hrefs = new String[16];
+		private String[] types = new String[16];
+		private int entryCount;
+		private int linkCount;
+
+		public void entry(String id, String[] entryHrefs, String[] entryTypes) {
+			if (entryCount == entryIds.length) {
+				entryIds = Arrays.copyOf(entryIds, entryCount * 2);
+				linkStart = Arrays.copyOf(linkStart, entryCount * 2 + 1);
+			}
+			final int newCount = linkCount + entryHrefs.length;
+			if (newCount > hrefs.length) {
+				final int size = Math.max(newCount, hrefs.length * 2);
+				hrefs = Arrays.copyOf(hrefs, size);
+				types = Arrays.copyOf(types, size);
+			}
+			entryIds[entryCount] = share(id);
+			for (int i = 0; i < entryHrefs.length; i++) {
+				hrefs[linkCount] = share(entryHrefs[i]);
+				types[linkCount] = share(entryTypes[i]);
+				linkCount++;
+			}
+			linkStart[++entryCount] = linkCount;
+		}
+
+		/**
+		 * Add all entries of another index (e.g. the next page of a paged feed)
+		 * @param index Feed index to add
+		 */
+		public void add(FeedIndex index) {
+			for (int i = 0; i < index.getEntryCount(); i++) {
+				final int start = index.getLinkStart(i);
+				final int end = index.getLinkEnd(i);
+				entry(index.getEntryId(i),
+						Arrays.copyOfRange(index.hrefs, start, end),
+						Arrays.copyOfRange(index.types, start, end));
+			}
+		}
+
+		private String share(String s) {
+			if (s == null) return null;
+			String value = strings.get(s);
+			if (value == null) {
+				strings.put(s, s);
+				value = s;
+			}
+			return value;
+		}
+
+		/**
+		 * Create index from entries added so far trimmed to size.
+		 * @return feed index, never null
+		 */
+		@NonNull
+		public FeedIndex build() {
+			return new FeedIndex(
+					entryCount == 0 ? EMPTY : Arrays.copyOf(entryIds, entryCount),
+					Arrays.copyOf(linkStart, entryCount + 1),
+					linkCount == 0 ? EMPTY : Arrays.copyOf(hrefs, linkCount),
+					linkCount == 0 ? EMPTY : Arrays.copyOf(types, linkCount));
+		}
+	}
+}
@@ -47,7 +47,10 @@ public interface HttpRequestChecker {
 	void setup(Context context);
 
     /**
-     * Set explicit user context by user email and password
+     * Set explicit user context by user email and password. Implementations
+     * authenticate the user if needed and use the session of the user for requests
+     * on threads where the user is set on the context (see <tt>Context.getUserEmail()</tt>).
+     * May be called concurrently for different users.
      *
      * @param context   Application context, never null
 	 * @param userId	UserId or alias, never null
@@ -60,7 +63,7 @@ public interface HttpRequestChecker {
     void setUser(Context context, String userId, String userEmail, String userPassword);
 
     /**
-     * Get current active user identity if applicable
+     * Get current active user identity of the calling thread if applicable
      * @param context   Application context, never null
      * @return email address assigned to active user context if applicable otherwise null
      */
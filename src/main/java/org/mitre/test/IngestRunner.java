@@ -0,0 +1,523 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks how fast a server absorbs a backfill of documents by POSTing every
+ * file of a directory, or a generated corpus, to the <tt>updateDocument.section</tt>
+ * section with a number of concurrent uploads.
+ * <P>
+ * Files are streamed from disk as the request body so the size of the corpus is not
+ * limited by memory. A generated corpus is made of copies of the
+ * <tt>updateDocument.file</tt> document (e.g. data/vitalSign.xml) each with a
+ * unique <tt>id</tt> element, created as they are uploaded.
+ * <P>
+ * Each upload must return 201 with a Location header of a document in the section.
+ * If verify is enabled the document at the Location is fetched as well. The report
+ * lists documents and bytes per second and the upload latency percentiles.
+ *
+ * Date: 10/17/26 9:40 AM
+ */
+public final class IngestRunner implements Runner {
+
+	private static final Logger log = LoggerFactory.getLogger(IngestRunner.class);
+
+	public static final int DEFAULT_THREADS = 8;
+
+	private static final Pattern ID_PATTERN = Pattern.compile("(<id>)\\s*[^<]*(</id>)");
+
+	private final Loader loader;
+	private final Source source;
+
+	private int threads = DEFAULT_THREADS;
+	private boolean verify = true;
+
+	private final AtomicInteger count = new AtomicInteger();
+	private final AtomicInteger errors = new AtomicInteger();
+	private final AtomicInteger invalidLocations = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private volatile String lastError;
+
+	private URI sectionURL;
+	private String notRun;
+	private long elapsedTime;
+
+	private IngestRunner(Loader loader, Source source) {
+		this.loader = loader;
+		this.source = source;
+	}
+
+	/**
+	 * Create runner that uploads every file of a directory.
+	 *
+	 * @param loader Loader with the configuration to upload the documents with
+	 * @param dir Directory of documents, subdirectories and hidden files are skipped
+	 * @param limit Maximum number of documents to upload, 0 for all
+	 * @return runner
+	 * @throws IllegalArgumentException if the directory cannot be listed
+	 */
+	@NonNull
+	public static IngestRunner forDirectory(Loader loader, File dir, int limit) {
+		final File[] files = dir.listFiles();
+		if (files == null) throw new IllegalArgumentException("Not a directory: " + dir);
+		Arrays.sort(files);
+		return new IngestRunner(loader, new FileSource(files, limit));
+	}
+
+	/**
+	 * Create runner that uploads generated copies of a template document.
+	 *
+	 * @param loader Loader with the configuration to upload the documents with
+	 * @param template Template document, the content of its first <tt>id</tt> element
+	 *                 is replaced with a unique id in each copy
+	 * @param count Number of documents
+	 * @return runner
+	 * @throws IOException if the template cannot be read
+	 */
+	@NonNull
+	public static IngestRunner forGenerated(Loader loader, File template, int count) throws IOException {
+		return new IngestRunner(loader, new GeneratedSource(FileUtils.readFileToString(template, "UTF-8"), count));
+	}
+
+	/**
+	 * Create runner with the <tt>ingest.*</tt> properties of the Loader's configuration.
+	 *
+	 * @param loader Loader with the configuration to upload the documents with
+	 * @param spec Directory of documents or number of documents to generate, null to use
+	 *             the <tt>ingest.dir</tt> or <tt>ingest.generate</tt> property
+	 * @return runner
+	 * @throws IllegalArgumentException if neither a directory nor a corpus size is given,
+	 *             the directory cannot be listed or the template cannot be read
+	 */
+	@NonNull
+	public static IngestRunner create(Loader loader, @CheckForNull String spec) {
+		final Context context = loader.getContext();
+		if (StringUtils.isBlank(spec)) spec = context.getString("ingest.dir");
+		if (StringUtils.isBlank(spec)) spec = context.getString("ingest.generate");
+		if (StringUtils.isBlank(spec))
+			throw new IllegalArgumentException("Expected directory or number of documents to generate");
+		spec = spec.trim();
+		final IngestRunner runner;
+		if (StringUtils.isNumeric(spec)) {
+			final File template = context.getPropertyAsFile("updateDocument.file");
+			if (template == null)
+				throw new IllegalArgumentException("updateDocument/file property not set");
+			try {
+				runner = forGenerated(loader, template, Integer.parseInt(spec));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Failed to read " + template, e);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number of documents: " + spec);
+			}
+		} else {
+			runner = forDirectory(loader, new File(spec), context.getInt("ingest.limit", 0));
+		}
+		runner.setThreads(context.getInt("ingest.threads", DEFAULT_THREADS));
+		runner.setVerify(!"false".equalsIgnoreCase(context.getString("ingest.verify")));
+		return runner;
+	}
+
+	/**
+	 * Set number of concurrent uploads
+	 * @param threads Number of threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Set whether the document at the Location of each upload is fetched
+	 * @param verify true to fetch each created document
+	 */
+	public void setVerify(boolean verify) {
+		this.verify = verify;
+	}
+
+	/**
+	 * Upload all documents of the source.
+	 */
+	public void run() {
+		final long startTime = System.nanoTime();
+		final XMLConfiguration template = loader.getContext().getConfiguration();
+		if (template == null) throw new IllegalStateException("Configuration not loaded");
+		final XMLConfiguration config;
+		synchronized (template) {
+			config = (XMLConfiguration) template.clone();
+		}
+		final Context context = new Context(loader.getContext(), config);
+		try {
+			final String sectionPath = context.getString("updateDocument.section");
+			if (StringUtils.isBlank(sectionPath)) {
+				notRun = "updateDocument/section property not set";
+				log.error("Ingest not run: {}", notRun);
+				return;
+			}
+			try {
+				sectionURL = context.getBaseURL(sectionPath);
+			} catch (URISyntaxException e) {
+				notRun = "Invalid section path: " + sectionPath;
+				log.error("Ingest not run: {}", notRun);
+				return;
+			}
+			log.info("Ingest into {} with {} threads", sectionURL, threads);
+			runThreads(context);
+		} catch (InterruptedException e) {
+			log.warn("ingest interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			context.close();
+			elapsedTime = System.nanoTime() - startTime;
+		}
+	}
+
+	private void runThreads(final Context context) throws InterruptedException {
+		final ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "ingest-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			for (int i = 0; i < threads; i++) {
+				pool.execute(new Runnable() {
+					public void run() {
+						Upload upload;
+						while (!Thread.currentThread().isInterrupted() && (upload = source.next()) != null) {
+							upload(context, upload);
+						}
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+			try {
+				while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+					log.info("ingest: {} documents uploaded", count.get());
+				}
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private void upload(Context context, Upload upload) {
+		String error;
+		LatencyRecorder.bindTest("ingest");
+		try {
+			error = post(context, upload);
+		} catch (IOException e) {
+			log.debug("", e);
+			error = e.toString();
+		} catch (RuntimeException e) {
+			log.debug("", e);
+			error = e.toString();
+		} finally {
+			LatencyRecorder.bindTest(null);
+		}
+		count.incrementAndGet();
+		if (error != null) {
+			errors.incrementAndGet();
+			lastError = upload.getName() + ": " + error;
+			log.debug("Failed to upload {}: {}", upload.getName(), error);
+		}
+	}
+
+	/**
+	 * Upload document and verify its Location
+	 *
+	 * @return error or null if uploaded
+	 */
+	@CheckForNull
+	private String post(Context context, Upload upload) throws IOException {
+		final HttpPost post = new HttpPost(sectionURL);
+		post.setEntity(upload.getEntity());
+		final String location;
+		final HttpClient client = context.getHttpClient();
+		try {
+			final long start = System.nanoTime();
+			final HttpResponse response = context.executeRequest(client, post);
+			EntityUtils.consume(response.getEntity());
+			latencies.record(System.nanoTime() - start);
+			final int code = response.getStatusLine().getStatusCode();
+			if (code != 201) return "Expected 201 HTTP status code but was: " + code;
+			bytes.addAndGet(upload.getLength());
+			final Header header = response.getFirstHeader("Location");
+			location = header == null ? null : StringUtils.trimToNull(header.getValue());
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+		final URI documentURL = getDocumentURL(location);
+		if (documentURL == null) {
+			invalidLocations.incrementAndGet();
+			return "Invalid Location: " + location;
+		}
+		return verify ? fetch(context, documentURL) : null;
+	}
+
+	/**
+	 * Check that the Location of the created document is a document of the section.
+	 * As in DocumentCreate the record part of the path is not compared since some
+	 * servers return the internal record id in place of the id of the baseURL.
+	 *
+	 * @param location Location header value
+	 * @return document URL or null if not a valid document URL of the section
+	 */
+	@CheckForNull
+	URI getDocumentURL(@CheckForNull String location) {
+		if (location == null) return null;
+		final URI url;
+		try {
+			url = sectionURL.resolve(new URI(location));
+		} catch (URISyntaxException e) {
+			return null;
+		}
+		if (!StringUtils.equalsIgnoreCase(url.getHost(), sectionURL.getHost())) return null;
+		// path must be .../{section}/{doc}
+		final String[] segments = StringUtils.split(StringUtils.defaultString(url.getPath()), '/');
+		final String[] sectionSegments = StringUtils.split(sectionURL.getPath(), '/');
+		if (segments.length < 2 || sectionSegments.length == 0
+				|| !segments[segments.length - 2].equals(sectionSegments[sectionSegments.length - 1])) {
+			return null;
+		}
+		return url;
+	}
+
+	@CheckForNull
+	private String fetch(Context context, URI documentURL) throws IOException {
+		final HttpGet get = new HttpGet(documentURL);
+		get.setHeader("Accept", "application/xml");
+		final HttpClient client = context.getHttpClient();
+		try {
+			final HttpResponse response = context.executeRequest(client, get);
+			final HttpEntity entity = response.getEntity();
+			EntityUtils.consume(entity);
+			final int code = response.getStatusLine().getStatusCode();
+			return code == 200 ? null : "Expected 200 HTTP status code for " + documentURL + " but was: " + code;
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+	}
+
+	/**
+	 * @return number of documents uploaded or failed
+	 */
+	public int getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return number of failed uploads
+	 */
+	public int getErrorCount() {
+		return errors.get();
+	}
+
+	/**
+	 * @return number of uploads with a missing or invalid Location header
+	 */
+	public int getInvalidLocationCount() {
+		return invalidLocations.get();
+	}
+
+	/**
+	 * @return number of bytes of the documents that were created
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Print report of the last run with the documents and bytes per second and the
+	 * upload latency percentiles.
+	 *
+	 * @param out Stream to print report to
+	 * @return number of failed uploads
+	 */
+	public int generateReport(PrintStream out) {
+		out.println("\n------------------------------------------------------------------------------------");
+		out.println("\nIngest Report:\n");
+		out.printf("%-24s %s%n", "Section:", sectionURL);
+		out.printf("%-24s %s%n", "Source:", source);
+		out.printf("%-24s %d%n", "Threads:", threads);
+		if (notRun != null) {
+			out.println("Ingest not run: " + notRun);
+			return 1;
+		}
+		final double seconds = elapsedTime / (double) TimeUnit.SECONDS.toNanos(1);
+		final int created = count.get() - errors.get();
+		out.printf("%-24s %d%n", "Documents:", count.get());
+		out.printf("%-24s %d (%d invalid Location)%n", "Errors:", errors.get(), invalidLocations.get());
+		out.printf("%-24s %.1f sec%n", "Time elapsed:", seconds);
+		out.printf("%-24s %.1f docs/sec%n", "Throughput:", seconds <= 0 ? 0.0 : created / seconds);
+		out.printf("%-24s %.1f KB/sec (%d bytes)%n", "Bandwidth:",
+				seconds <= 0 ? 0.0 : bytes.get() / 1024.0 / seconds, bytes.get());
+		final LatencyHistogram.Snapshot snapshot = latencies.getSnapshot();
+		out.printf("%-24s mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n", "Upload latency (ms):",
+				toMillis(snapshot.getMean()), toMillis(snapshot.getValueAtPercentile(50)),
+				toMillis(snapshot.getValueAtPercentile(90)), toMillis(snapshot.getValueAtPercentile(99)),
+				toMillis(snapshot.getValueAtPercentile(99.9)), toMillis(snapshot.getMax()));
+		if (lastError != null) out.println("Last error: " + lastError);
+		return errors.get();
+	}
+
+	private static double toMillis(long nanos) {
+		return LatencyRecorder.toMillis(nanos);
+	}
+
+	/**
+	 * Document to upload
+	 */
+	private interface Upload {
+		@NonNull
+		String getName();
+
+		@NonNull
+		HttpEntity getEntity();
+
+		long getLength();
+	}
+
+	/**
+	 * Documents to upload shared by the upload threads
+	 */
+	private interface Source {
+		/**
+		 * @return next document or null if all documents were taken
+		 */
+		@CheckForNull
+		Upload next();
+	}
+
+	/**
+	 * Files of a directory streamed from disk
+	 */
+	private static final class FileSource implements Source {
+
+		private final File[] files;
+		private final int limit;
+		private int index, taken;
+
+		FileSource(File[] files, int limit) {
+			this.files = files;
+			this.limit = limit;
+		}
+
+		public synchronized Upload next() {
+			if (limit > 0 && taken >= limit) return null;
+			while (index < files.length) {
+				final File file = files[index++];
+				if (file.isFile() && !file.isHidden()) {
+					taken++;
+					return new Upload() {
+						@NonNull
+						public String getName() {
+							return file.getName();
+						}
+
+						@NonNull
+						public HttpEntity getEntity() {
+							return new FileEntity(file, ContentType.APPLICATION_XML);
+						}
+
+						public long getLength() {
+							return file.length();
+						}
+					};
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return files.length == 0 ? "empty directory"
+					: files[0].getParent() + (limit > 0 ? " (at most " + limit + " files)" : "");
+		}
+	}
+
+	/**
+	 * Copies of a template document with unique ids created as they are uploaded
+	 */
+	private static final class GeneratedSource implements Source {
+
+		private final String template;
+		private final int count;
+		private final String idPrefix = Long.toHexString(System.currentTimeMillis());
+		private final AtomicInteger generated = new AtomicInteger();
+
+		GeneratedSource(String template, int count) {
+			this.template = template;
+			this.count = count;
+		}
+
+		public Upload next() {
+			final int n = generated.getAndIncrement();
+			if (n >= count) return null;
+			final String name = String.format("%s%08x", idPrefix, n);
+			final Matcher m = ID_PATTERN.matcher(template);
+			final byte[] content;
+			try {
+				content = (m.find() ? m.replaceFirst("$1" + name + "$2") : template).getBytes("UTF-8");
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return new Upload() {
+				@NonNull
+				public String getName() {
+					return name;
+				}
+
+				@NonNull
+				public HttpEntity getEntity() {
+					return new ByteArrayEntity(content, ContentType.APPLICATION_XML);
+				}
+
+				public long getLength() {
+					return content.length;
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return count + " generated documents";
+		}
+	}
+}
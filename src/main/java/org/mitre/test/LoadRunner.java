@@ -0,0 +1,585 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.lang.StringUtils;
+import org.mitre.test.TestUnit.StatusEnumType;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tests of a Loader as load scenarios to measure how the server behaves
+ * under load with the same requests, authentication and content negotiation
+ * as the conformance tests.
+ * <P>
+ * The tests are first executed once as a warm-up with their own Context so the
+ * prerequisite tests keep the documents and feeds the scenarios depend on. Each
+ * scenario run then executes a new instance of the scenario's test with the
+ * prerequisites of the warm-up. Scenarios whose test did not succeed in the
+ * warm-up are not run. The response cache and request coalescing are disabled
+ * for the runs so every request of a run is sent to the server.
+ * <P>
+ * Scenarios are picked at random in proportion to their weight. With a target
+ * arrival rate (open model) a scenario run is started at a fixed interval
+ * regardless of how many runs are in flight, up to a maximum number of
+ * concurrent runs beyond which arrivals are dropped and counted as errors.
+ * Otherwise a fixed number of virtual users (closed model) each start the next
+ * run when the previous run completes and an optional think time elapsed.
+ * <P>
+ * Latencies are corrected for coordinated omission. A run is timed from its
+ * intended start, which is the scheduled arrival in the open model and the end
+ * of the think time in the closed model, so a delayed start counts as latency.
+ * The first HTTP exchange of the run is timed from the intended start as well
+ * by the {@link LatencyRecorder} of the Context, which records the latency of
+ * the exchanges of the scenario runs for the report.
+ *
+ * Date: 10/17/26 5:00 AM
+ */
+public final class LoadRunner implements Runner {
+
+	private static final Logger log = LoggerFactory.getLogger(LoadRunner.class);
+
+	public static final String DEFAULT_SCENARIOS = "BaseUrlGetTest:4,BaseUrlRootXml:2,DocumentGet:2,DocumentTest:1";
+	public static final int DEFAULT_DURATION = 30; // seconds
+	public static final int DEFAULT_USERS = 4;
+	public static final int DEFAULT_MAX_USERS = 200;
+
+	private final Loader loader;
+	private final List<Scenario> scenarios;
+
+	private double rate;
+	private int users = DEFAULT_USERS;
+	private int maxUsers = DEFAULT_MAX_USERS;
+	private long duration = TimeUnit.SECONDS.toMillis(DEFAULT_DURATION);
+	private long thinkTime;
+
+	private final List<Scenario> active = new ArrayList<Scenario>();
+	private int totalWeight;
+	private long elapsedTime;
+
+	/**
+	 * Create runner for the given scenarios with the configuration of the Loader.
+	 *
+	 * @param loader Loader with the configuration and tests to run the scenarios with
+	 * @param scenarios Scenarios to run
+	 * @exception IllegalArgumentException if there are no scenarios
+	 */
+	public LoadRunner(Loader loader, List<Scenario> scenarios) {
+		if (scenarios.isEmpty()) throw new IllegalArgumentException("no load scenarios");
+		this.loader = loader;
+		this.scenarios = new ArrayList<Scenario>(scenarios);
+	}
+
+	/**
+	 * Create runner with the <tt>load.*</tt> properties of the Loader's configuration.
+	 *
+	 * @param loader Loader with the configuration and tests to run the scenarios with
+	 * @param spec Scenarios to run as parsed by {@link #parseScenarios}, null to use
+	 *             the <tt>load.scenarios</tt> property or the default scenarios
+	 * @return runner
+	 * @throws IllegalArgumentException if any scenario or property is not valid
+	 */
+	@NonNull
+	public static LoadRunner create(Loader loader, @CheckForNull String spec) {
+		final Context context = loader.getContext();
+		if (StringUtils.isBlank(spec)) spec = context.getString("load.scenarios");
+		if (StringUtils.isBlank(spec)) spec = DEFAULT_SCENARIOS;
+		final LoadRunner runner = new LoadRunner(loader, parseScenarios(spec));
+		final XMLConfiguration config = context.getConfiguration();
+		if (config != null) {
+			try {
+				runner.setRate(config.getDouble("load.rate", 0));
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Invalid load.rate: " + config.getString("load.rate"), e);
+			}
+		}
+		runner.setUsers(context.getInt("load.users", DEFAULT_USERS));
+		runner.setMaxUsers(context.getInt("load.maxUsers", DEFAULT_MAX_USERS));
+		runner.setDuration(context.getInt("load.duration", DEFAULT_DURATION));
+		runner.setThinkTime(context.getInt("load.thinkTime", 0));
+		return runner;
+	}
+
+	/**
+	 * Set target arrival rate of scenario runs for the open model
+	 * @param rate Runs started per second, 0 to run with virtual users
+	 */
+	public void setRate(double rate) {
+		if (rate < 0) throw new IllegalArgumentException("rate must not be negative");
+		this.rate = rate;
+	}
+
+	/**
+	 * Set number of virtual users of the closed model
+	 * @param users Number of users
+	 */
+	public void setUsers(int users) {
+		this.users = Math.max(1, users);
+	}
+
+	/**
+	 * Set maximum number of concurrent runs of the open model
+	 * @param maxUsers Maximum number of runs in flight
+	 */
+	public void setMaxUsers(int maxUsers) {
+		this.maxUsers = Math.max(1, maxUsers);
+	}
+
+	/**
+	 * Set time to start new runs
+	 * @param seconds Duration in seconds
+	 */
+	public void setDuration(int seconds) {
+		duration = TimeUnit.SECONDS.toMillis(Math.max(1, seconds));
+	}
+
+	/**
+	 * Set number of virtual users of the closed model as with {@link #setUsers}
+	 * @param threads Number of users
+	 */
+	public void setThreads(int threads) {
+		setUsers(threads);
+	}
+
+	/**
+	 * Set pause between runs of a virtual user of the closed model
+	 * @param millis Think time in milliseconds
+	 */
+	public void setThinkTime(long millis) {
+		thinkTime = Math.max(0, millis);
+	}
+
+	/**
+	 * Execute warm-up then run the scenarios for the configured duration.
+	 * The results are kept in the scenarios of this runner.
+	 */
+	public void run() {
+		final long startTime = System.currentTimeMillis();
+		Loader warmUp = null;
+		OutputCapture.install();
+		try {
+			warmUp = warmUp();
+			runPhase(warmUp);
+		} catch (InterruptedException e) {
+			log.warn("load run interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			OutputCapture.uninstall();
+			if (warmUp != null) warmUp.getContext().close();
+			elapsedTime = System.currentTimeMillis() - startTime;
+		}
+	}
+
+	/**
+	 * Run the active scenarios for the configured duration with the prerequisites of the warm-up
+	 *
+	 * @param warmUp Loader returned by {@link #warmUp}
+	 * @throws InterruptedException if interrupted while waiting for the runs to complete
+	 */
+	void runPhase(Loader warmUp) throws InterruptedException {
+		if (active.isEmpty()) {
+			log.error("No load scenario succeeded in warm-up");
+		} else if (rate > 0) {
+			runOpen(warmUp);
+		} else {
+			runClosed(warmUp);
+		}
+	}
+
+	/**
+	 * Discard the results of the scenarios
+	 */
+	void reset() {
+		for (Scenario scenario : scenarios) {
+			scenario.reset();
+		}
+	}
+
+	/**
+	 * Execute the tests once with a new Context and pick the scenarios whose test succeeded.
+	 * The Context of the returned Loader must be closed when the scenarios are done.
+	 *
+	 * @return Loader with the tests of the warm-up
+	 */
+	Loader warmUp() {
+		final XMLConfiguration template = loader.getContext().getConfiguration();
+		if (template == null) throw new IllegalStateException("Configuration not loaded");
+		final XMLConfiguration config;
+		synchronized (template) {
+			config = (XMLConfiguration) template.clone();
+		}
+		// every scenario run must reach the server so neither cache nor merge requests
+		config.setProperty("http.cache", "false");
+		config.setProperty("http.coalesce", "false");
+		final Loader warmUp = loader.newLoader(new Context(loader.getContext(), config));
+		for (Scenario scenario : scenarios) {
+			if (warmUp.getTest(scenario.testClass) == null) {
+				warmUp.load(scenario.newTest());
+			}
+		}
+		log.info("Load warm-up");
+		OutputCapture.begin();
+		try {
+			new ExcecutionPlan(warmUp, warmUp.getSortedSet().iterator()).execute();
+		} finally {
+			OutputCapture.end();
+		}
+		// only report exchanges under load
+		final LatencyRecorder recorder = warmUp.getContext().getLatencyRecorder();
+		if (recorder != null) recorder.reset();
+		active.clear();
+		totalWeight = 0;
+		for (Scenario scenario : scenarios) {
+			final TestUnit test = warmUp.getTest(scenario.testClass);
+			if (test != null && test.getStatus() == StatusEnumType.SUCCESS) {
+				active.add(scenario);
+				totalWeight += scenario.weight;
+			} else {
+				scenario.skipped = test == null ? "not loaded"
+						: test.getStatus() + (test.getStatusDescription() == null ? "" : ": " + test.getStatusDescription());
+				log.warn("Skip load scenario {}: {}", scenario.getName(), scenario.skipped);
+			}
+		}
+		return warmUp;
+	}
+
+	/**
+	 * Start runs at the target arrival rate
+	 */
+	private void runOpen(final Loader warmUp) throws InterruptedException {
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(0, maxUsers, 60, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new LoadThreadFactory("arrival-"));
+		final Random random = new Random();
+		final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		final long start = System.nanoTime();
+		final long deadline = start + TimeUnit.MILLISECONDS.toNanos(duration);
+		try {
+			for (long next = start; next - deadline < 0; next += interval) {
+				final long delay = next - System.nanoTime();
+				if (delay > 0) TimeUnit.NANOSECONDS.sleep(delay);
+				final Scenario scenario = pick(random);
+				final long arrival = next;
+				try {
+					pool.execute(new Runnable() {
+						public void run() {
+							LatencyRecorder.setIntendedStart(arrival);
+							execute(warmUp, scenario, arrival);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					scenario.dropped.incrementAndGet();
+				}
+			}
+		} finally {
+			await(pool);
+		}
+	}
+
+	/**
+	 * Run scenarios with the virtual users until the duration elapsed
+	 */
+	private void runClosed(final Loader warmUp) throws InterruptedException {
+		final ExecutorService pool = Executors.newFixedThreadPool(users, new LoadThreadFactory("user-"));
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+		try {
+			for (int i = 0; i < users; i++) {
+				pool.execute(new Runnable() {
+					public void run() {
+						final Random random = new Random();
+						try {
+							long next = System.nanoTime();
+							while (next - deadline < 0) {
+								LatencyRecorder.setIntendedStart(next);
+								execute(warmUp, pick(random), next);
+								// next run is intended to start when the user is done thinking
+								next = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(thinkTime);
+								if (thinkTime > 0) Thread.sleep(thinkTime);
+							}
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+		} finally {
+			await(pool);
+		}
+	}
+
+	/**
+	 * Wait for the runs in flight to complete
+	 */
+	private void await(ExecutorService pool) throws InterruptedException {
+		pool.shutdown();
+		try {
+			if (!pool.awaitTermination(duration + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS))
+				log.warn("load runs did not complete");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private Scenario pick(Random random) {
+		int n = random.nextInt(totalWeight);
+		for (Scenario scenario : active) {
+			n -= scenario.weight;
+			if (n < 0) return scenario;
+		}
+		return active.get(active.size() - 1);
+	}
+
+	/**
+	 * Execute new instance of the scenario's test with the prerequisites of the warm-up.
+	 * Output written by the test is discarded.
+	 *
+	 * @param start Time the run was intended to start
+	 */
+	private void execute(Loader warmUp, Scenario scenario, long start) {
+		final Context context = warmUp.getContext();
+		final TestUnit test = scenario.newTest();
+		test.setContext(context);
+		for (Class<? extends TestUnit> dependClass : test.getDependencyClasses()) {
+			final TestUnit aTest = warmUp.getTest(dependClass);
+			if (aTest != null) test.addDependency(aTest);
+		}
+		String error = null;
+		LatencyRecorder.bindTest(test.getId());
+		OutputCapture.begin();
+		try {
+			test.execute();
+			if (test.getStatus() != StatusEnumType.SUCCESS) {
+				error = String.valueOf(test.getStatus());
+				if (test.getStatusDescription() != null) error += ": " + test.getStatusDescription();
+			}
+		} catch (TestException e) {
+			error = e.getMessage();
+		} catch (RuntimeException e) {
+			log.debug("", e);
+			error = e.toString();
+		} finally {
+			final long latency = System.nanoTime() - start;
+			OutputCapture.end();
+			test.cleanup();
+			context.resetUser();
+			LatencyRecorder.bindTest(null);
+			scenario.record(latency, error);
+		}
+	}
+
+	/**
+	 * Get scenarios of this runner
+	 * @return read-only list of scenarios
+	 */
+	@NonNull
+	public List<Scenario> getScenarios() {
+		return Collections.unmodifiableList(scenarios);
+	}
+
+	/**
+	 * Print report of the last run with the throughput, error rate and latency
+	 * percentiles of each scenario.
+	 *
+	 * @param out Stream to print report to
+	 * @return number of failed scenario runs
+	 */
+	public int generateReport(PrintStream out) {
+		final double seconds = duration / 1000.0;
+		out.println("\n------------------------------------------------------------------------------------");
+		out.println("\nLoad Test Report:\n");
+		if (rate > 0)
+			out.printf("Open model: %.1f runs/sec for %.0f sec, max %d concurrent runs%n%n", rate, seconds, maxUsers);
+		else
+			out.printf("Closed model: %d users for %.0f sec, think time %d ms%n%n", users, seconds, thinkTime);
+		out.printf("%-24s %6s %8s %7s %7s %8s %8s %8s %8s %8s %8s %8s%n", "Scenario", "Weight", "Runs",
+				"Errors", "Error%", "Runs/s", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+		int runs = 0, errors = 0;
+		for (Scenario scenario : scenarios) {
+			if (scenario.skipped != null) {
+				out.printf("%-24s %6d   *SKIPPED* %s%n", scenario.getName(), scenario.weight, scenario.skipped);
+				continue;
+			}
+			final LatencyHistogram.Snapshot latencies = scenario.getSnapshot();
+			final int completed = scenario.getCount();
+			final int count = completed + scenario.dropped.get();
+			final int failed = scenario.getErrorCount();
+			runs += count;
+			errors += failed;
+			out.printf("%-24s %6d %8d %7d %6.2f%% %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", scenario.getName(),
+					scenario.weight, count, failed, count == 0 ? 0.0 : 100.0 * failed / count, completed / seconds,
+					toMillis(latencies.getMean()), toMillis(latencies.getValueAtPercentile(50)),
+					toMillis(latencies.getValueAtPercentile(90)), toMillis(latencies.getValueAtPercentile(99)),
+					toMillis(latencies.getValueAtPercentile(99.9)), toMillis(latencies.getMax()));
+		}
+		for (Scenario scenario : scenarios) {
+			if (scenario.lastError != null)
+				out.printf("%n%s: last error: %s", scenario.getName(), scenario.lastError);
+		}
+		final LatencyRecorder recorder = loader.getContext().getLatencyRecorder();
+		if (recorder != null) recorder.printSummary(out);
+		out.printf("%nRuns: %d, Errors: %d, Throughput: %.1f runs/sec, Time elapsed: %.1f sec%n",
+				runs, errors, (runs - errors) / seconds, elapsedTime / 1000.0);
+		return errors;
+	}
+
+	private static double toMillis(long nanos) {
+		return LatencyRecorder.toMillis(nanos);
+	}
+
+	/**
+	 * Parse list of load scenarios. The list is a comma-separated list of test class
+	 * names each with an optional weight (e.g. BaseUrlGetTest:4,DocumentTest:1).
+	 * Class names without a package are classes of the <tt>org.mitre.rhex</tt> package.
+	 *
+	 * @param spec list of scenarios
+	 * @return scenarios
+	 * @throws IllegalArgumentException if any scenario is not valid
+	 */
+	@NonNull
+	public static List<Scenario> parseScenarios(String spec) {
+		final List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (String item : StringUtils.split(spec, ',')) {
+			item = item.trim();
+			if (item.length() == 0) continue;
+			String name = item;
+			int weight = 1;
+			final int ind = item.indexOf(':');
+			if (ind > 0) {
+				name = item.substring(0, ind).trim();
+				try {
+					weight = Integer.parseInt(item.substring(ind + 1).trim());
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid scenario weight: " + item);
+				}
+				if (weight < 1) throw new IllegalArgumentException("Invalid scenario weight: " + item);
+			}
+			if (name.indexOf('.') == -1) name = "org.mitre.rhex." + name;
+			final Class<?> aClass;
+			try {
+				aClass = Class.forName(name);
+			} catch (ClassNotFoundException e) {
+				throw new IllegalArgumentException("Scenario test class not found: " + name);
+			}
+			if (!TestUnit.class.isAssignableFrom(aClass))
+				throw new IllegalArgumentException("Scenario class is not a TestUnit: " + name);
+			scenarios.add(new Scenario(aClass.asSubclass(TestUnit.class), weight));
+		}
+		return scenarios;
+	}
+
+	private static final class LoadThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private int count;
+
+		LoadThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public synchronized Thread newThread(Runnable r) {
+			Thread t = new Thread(r, prefix + (++count));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Test run as load scenario and the outcome of its runs
+	 */
+	public static final class Scenario {
+
+		private final Class<? extends TestUnit> testClass;
+		private final int weight;
+
+		private final AtomicInteger count = new AtomicInteger();
+		private final AtomicInteger errors = new AtomicInteger();
+		private final AtomicInteger dropped = new AtomicInteger();
+		private volatile LatencyHistogram latencies = new LatencyHistogram();
+		private volatile String lastError;
+		private String skipped;
+
+		Scenario(Class<? extends TestUnit> testClass, int weight) {
+			this.testClass = testClass;
+			this.weight = weight;
+		}
+
+		TestUnit newTest() {
+			try {
+				return testClass.newInstance();
+			} catch (InstantiationException e) {
+				throw new IllegalStateException("Failed to create test " + testClass.getName(), e);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException("Failed to create test " + testClass.getName(), e);
+			}
+		}
+
+		void reset() {
+			count.set(0);
+			errors.set(0);
+			dropped.set(0);
+			latencies = new LatencyHistogram();
+			lastError = null;
+		}
+
+		void record(long latency, @CheckForNull String error) {
+			if (error != null) {
+				errors.incrementAndGet();
+				lastError = error;
+			}
+			count.incrementAndGet();
+			latencies.record(latency);
+		}
+
+		@NonNull
+		public String getName() {
+			return testClass.getSimpleName();
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+
+		/**
+		 * @return number of completed runs
+		 */
+		public int getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return number of failed runs including dropped arrivals
+		 */
+		public int getErrorCount() {
+			return errors.get() + dropped.get();
+		}
+
+		/**
+		 * @return number of arrivals dropped because the maximum number of runs were in flight
+		 */
+		public int getDroppedCount() {
+			return dropped.get();
+		}
+
+		/**
+		 * @return reason the scenario was not run, null if it was run
+		 */
+		@CheckForNull
+		public String getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * @return latencies of completed runs corrected for coordinated omission
+		 */
+		@NonNull
+		public LatencyHistogram.Snapshot getSnapshot() {
+			return latencies.getSnapshot();
+		}
+	}
+}
@@ -8,6 +8,7 @@ import org.jdom.Document;
 import org.jdom.Element;
 
 import org.mitre.rhex.*;
+import org.mitre.rhex.server.MockRhexServer;
 import org.mitre.test.impl.HtmlReporter;
 import org.mitre.test.impl.TextReporter;
 
@@ -27,7 +28,12 @@ public final class Loader {
 
 	private static final Logger log = LoggerFactory.getLogger(Loader.class);
 
-	private final Context context = new Context();
+	/**
+	 * command-line options selecting a {@link Runner} instead of the conformance run
+	 */
+	static final String[] RUNNER_OPTIONS = { "-records", "-load", "-sweep", "-workload", "-ingest" };
+
+	private final Context context;
 
     /**
      * Hash of TestUnit instances indexed by class to allow for dependency checking
@@ -49,10 +55,46 @@ public final class Loader {
 
     private static final AtomicBoolean initialized = new AtomicBoolean();
 
+    /**
+     * embedded mock server the tests run against if started with -mock argument
+     */
+    private MockRhexServer mockServer;
+    private boolean mock;
+
+    /**
+     * profile document overriding the profileDocumentFile property, null if not set
+     */
+    private String profile;
+
     private Loader() {
-        // private constructor
+        // private constructor of singleton instance
+        context = new Context();
 	}
 
+    /**
+     * Create run-scoped Loader with its own Context and tests which is independent of
+     * the singleton instance such that runs with different configurations and reporters
+     * can execute concurrently in one process. Tests loaded by this Loader are
+     * executed with its Context.
+     *
+     * @param reporter Reporter for this run, never null
+     * @see #run(File, int, PrintStream)
+     */
+    public Loader(Reporter reporter) {
+        this(new Context());
+        setReporter(reporter);
+    }
+
+    /**
+     * Create Loader with given Context
+     *
+     * @param context Context the tests are executed with
+     */
+    Loader(Context context) {
+        this.context = context;
+        context.getReporter().setLoader(this);
+    }
+
     /**
      * Get singleton Loader instance.
      *
@@ -72,21 +114,74 @@ public final class Loader {
         return loader;
     }
 
+    /**
+     * Create Loader with a new instance of each test loaded in this Loader.
+     *
+     * @param recordContext Context of the new Loader
+     * @return new Loader
+     * @throws IllegalStateException if a test cannot be instantiated
+     */
+    Loader newLoader(Context recordContext) {
+        final Loader other = new Loader(recordContext);
+        for (TestUnit test : sortedSet) {
+            try {
+                other.load(test.getClass().newInstance());
+            } catch (InstantiationException e) {
+                throw new IllegalStateException("Failed to create test " + getClassName(test), e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Failed to create test " + getClassName(test), e);
+            }
+        }
+        return other;
+    }
+
+    /**
+     * Get embedded mock server if started with -mock argument
+     * @return mock server or null if not started
+     */
+    MockRhexServer getMockServer() {
+        return mockServer;
+    }
+
     private void init() {
         if (initialized.getAndSet(true)) {
             return;
         }
         log.debug("XXX: init Loader");
+        // load from cmd-line parameter. default=config.xml
+        String configName = System.getProperty("configFile");
+        if (StringUtils.isBlank(configName)) configName = "config.xml"; // default
+        try {
+            configure(new File(configName));
+        } catch (ConfigurationException e) {
+            log.error("", e);
+		} catch (IllegalStateException e) {
+			log.error("", e);
+        } catch (IllegalArgumentException e) {
+            log.error("", e);
+        } catch (IOException e) {
+            log.error("Failed to load assertions from profile document", e);
+        }
+    }
+
+    /**
+     * Load configuration file, start the mock server if enabled and load the tests listed
+     * in the profile document or the default tests if no profile is defined.
+     *
+     * @param configFile Configuration file
+     * @throws ConfigurationException if configuration file cannot be loaded
+     * @throws IOException if tests cannot be loaded from the profile document
+     * @throws IllegalArgumentException if any required configuration element is invalid or missing
+     * @throws IllegalStateException if authentication fails or the mock server cannot be started
+     */
+    public void configure(File configFile) throws ConfigurationException, IOException {
         final Reporter reporter = getContext().getReporter();
         reporter.startGroup("Configuration");
         try {
             XMLConfiguration config = new XMLConfiguration();
-            // load from cmd-line parameter. default=config.xml
-            String configName = System.getProperty("configFile");
-            if (StringUtils.isBlank(configName)) configName = "config.xml"; // default
-            File configFile = new File(configName);
             config.setFile(configFile);
-            config.load();
+            // config file is optional with mock server
+            if (!mock || configFile.exists()) config.load();
 
             // dump the config file to output
             System.out.println("Config: " + configFile);
@@ -106,6 +201,18 @@ public final class Loader {
             }
             System.out.println("---------------------------------------------------------------------");
 
+            if (mock) {
+                mockServer = MockRhexServer.create(config);
+                try {
+                    mockServer.start(config.getInt("mock.port", 0));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to start mock server", e);
+                }
+                mockServer.configure(config);
+                System.out.println("Mock RHEx server baseURL: " + config.getString("baseURL"));
+            }
+
+            if (profile != null) config.setProperty("profileDocumentFile", profile);
             context.load(config);
 
             String profile = context.getString("profileDocumentFile");
@@ -114,19 +221,52 @@ public final class Loader {
             } else {
                 loadDefaultTests();
             }
-        } catch (ConfigurationException e) {
-            log.error("", e);
-		} catch (IllegalStateException e) {
-			log.error("", e);
-        } catch (IllegalArgumentException e) {
-            log.error("", e);
-        } catch (IOException e) {
-            log.error("Failed to load assertions from profile document", e);
         } finally {
             reporter.endGroup();
         }
     }
 
+    /**
+     * Configure this Loader, execute all of its tests and generate the summary report.
+     * Output written by the current thread and threads started by the run is written
+     * to the given stream rather than <tt>System.out</tt> such that runs executing
+     * concurrently in one process each have their own report. Pooled connections are
+     * released and the mock server is stopped when the run completes.
+     *
+     * @param configFile Configuration file
+     * @param threads Maximum number of tests to execute concurrently, a value less than 2
+     *                executes tests serially and -1 uses the execution.threads property
+     * @param out Stream for the output of this run
+     * @return number of failed tests
+     * @throws ConfigurationException if configuration file cannot be loaded
+     * @throws IOException if tests cannot be loaded from the profile document
+     * @throws IllegalArgumentException if any required configuration element is invalid or missing
+     * @throws IllegalStateException if authentication fails or the mock server cannot be started
+     */
+    public int run(File configFile, int threads, PrintStream out) throws ConfigurationException, IOException {
+        OutputCapture.install();
+        OutputCapture.route(out);
+        try {
+            final Reporter reporter = context.getReporter();
+            reporter.setup();
+            configure(configFile);
+            if (threads == -1)
+                execute();
+            else
+                execute(threads);
+            return reporter.generateSummary();
+        } finally {
+            context.close();
+            if (mockServer != null) {
+                mockServer.stop();
+                mockServer = null;
+            }
+            System.out.flush();
+            OutputCapture.unroute();
+            OutputCapture.uninstall();
+        }
+    }
+
 	private void loadProfile(String profile) throws IOException {
         System.out.println("Profile document=" + profile);
         File file = new File(profile);
@@ -198,16 +338,26 @@ public final class Loader {
 	}
 
 	/**
-	 * Creates and executes an execution plan for all test loaded tests
-     *
-	 * @return timestamp when execution started
+	 * Creates and executes an execution plan for all test loaded tests.
+	 * Tests are executed concurrently if the <tt>execution.threads</tt>
+	 * configuration property is greater than 1.
 	 */
 	public void execute() {
+		execute(context.getInt("execution.threads", 1));
+	}
+
+	/**
+	 * Creates and executes an execution plan for all test loaded tests
+	 *
+	 * @param threads Maximum number of tests to execute concurrently,
+	 *                a value less than 2 executes tests serially
+	 */
+	public void execute(int threads) {
         Reporter reporter = getContext().getReporter();
         reporter.startGroup("Build Execution Plan");
-        ExcecutionPlan exec = new ExcecutionPlan(sortedSet.iterator());
+        ExcecutionPlan exec = new ExcecutionPlan(this, sortedSet.iterator());
         reporter.endGroup();
-		exec.execute();
+		exec.execute(threads);
 	}
 
 	public void load(TestUnit test) throws IllegalArgumentException {
@@ -232,6 +382,7 @@ public final class Loader {
 		// add to hash of test units by class
 		list.put(aClass, test);
 		sortedSet.add(test);
+		test.setContext(context);
 	}
 
 	private static String getClassName(Object o) {
@@ -251,6 +402,32 @@ public final class Loader {
 		return context;
 	}
 
+	/**
+	 * Set reporter of this Loader's tests
+	 * @param reporter Reporter, never null
+	 */
+	public void setReporter(Reporter reporter) {
+		context.setReporter(reporter);
+		reporter.setLoader(this);
+	}
+
+	/**
+	 * Run the tests against an embedded mock RHEx server started when configured
+	 * @param mock Flag to start mock server
+	 */
+	public void setMock(boolean mock) {
+		this.mock = mock;
+	}
+
+	/**
+	 * Set profile document listing the tests to load, overrides the
+	 * <tt>profileDocumentFile</tt> property of the configuration file
+	 * @param profile Profile document file, null to use configuration file
+	 */
+	public void setProfile(String profile) {
+		this.profile = profile;
+	}
+
 	public TestUnit getTest(Class<? extends TestUnit> aClass) {
 		return list.get(aClass);
 	}
@@ -267,17 +444,98 @@ public final class Loader {
         return Collections.unmodifiableSet(idSet);
     }
 
+	/**
+	 * Get option of the runner selected by a command-line argument
+	 * @param arg Argument such as <tt>-load</tt> or <tt>-load=spec</tt>
+	 * @return option without its value, null if the argument does not select a runner
+	 */
+	private static String getRunnerOption(String arg) {
+		for (String option : RUNNER_OPTIONS) {
+			if (arg.equals(option) || arg.startsWith(option + "=")) return option;
+		}
+		return null;
+	}
+
+	/**
+	 * Create runner selected by a command-line option with the configuration of the loader
+	 * @param loader Loader with the tests and configuration
+	 * @param option One of the {@link #RUNNER_OPTIONS}
+	 * @param spec Value of the option, empty to use the configuration
+	 * @return runner
+	 * @throws IllegalArgumentException if the value or a property of the runner is not valid
+	 */
+	static Runner createRunner(Loader loader, String option, String spec) {
+		if ("-records".equals(option)) return FanOutRunner.create(loader, spec);
+		if ("-load".equals(option)) return LoadRunner.create(loader, spec);
+		if ("-sweep".equals(option)) return SweepRunner.create(loader, spec);
+		if ("-workload".equals(option)) return WorkloadRunner.create(loader, spec);
+		if ("-ingest".equals(option)) return IngestRunner.create(loader, spec);
+		throw new IllegalArgumentException("Unknown option: " + option);
+	}
+
 	public static void main(String[] args) {
 
+        // the mock and run servers write response headers and body separately so without
+        // TCP_NODELAY each response waits for the client's delayed ACK. Only effective
+        // if set before the first JDK HttpServer is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
         Reporter reporter = null;
         String outFile = null;
+        int threads = -1;
+        boolean mock = false;
+        // option of the runner to use instead of the conformance run and its argument
+        String runnerOption = null;
+        String runnerSpec = null;
+        int daemonPort = -1;
         for (String arg : args) {
             if ("-html".equals(arg))
                 reporter = new HtmlReporter();
             else if (arg.startsWith("-out=")) {
                 outFile = arg.substring(5);
+            } else if ("-mock".equals(arg)) {
+                mock = true;
+            } else if ("-daemon".equals(arg)) {
+                daemonPort = RunServer.DEFAULT_PORT;
+            } else if (arg.startsWith("-daemon=")) {
+                try {
+                    daemonPort = Integer.parseInt(arg.substring(8));
+                } catch (NumberFormatException e) {
+                    log.error("Invalid daemon argument: " + arg);
+                    System.exit(1);
+                }
+            } else if (getRunnerOption(arg) != null) {
+                if (runnerOption != null) {
+                    log.error("-records, -load, -sweep, -workload and -ingest cannot be used together");
+                    System.exit(1);
+                }
+                runnerOption = getRunnerOption(arg);
+                runnerSpec = arg.length() > runnerOption.length() ? arg.substring(runnerOption.length() + 1) : "";
+            } else if (arg.startsWith("-threads=")) {
+                try {
+                    threads = Integer.parseInt(arg.substring(9));
+                } catch (NumberFormatException e) {
+                    log.error("Invalid threads argument: " + arg);
+                    System.exit(1);
+                }
             }
         }
+        if (daemonPort != -1) {
+            // each run is requested with its own config file and reporter
+            try {
+                RunServer.serve(daemonPort);
+            } catch (IOException e) {
+                log.error("Failed to start run server", e);
+                System.exit(1);
+            }
+            return;
+        }
+        if (runnerOption != null && reporter != null) {
+            log.warn("fan-out, load, sweep, workload and ingest reports are plain text: -html ignored");
+            reporter = null;
+        }
         if (reporter == null) reporter = new TextReporter();
         if (outFile != null)
             try {
@@ -290,15 +548,42 @@ public final class Loader {
         // must setup report before initializing the Loader
         // and must get Loader with false argument to bypass init check
         final Loader loader = Loader.getInstance(false);
+        loader.setMock(mock);
         Context context = loader.getContext();
-        context.setReporter(reporter);
+        loader.setReporter(reporter);
         reporter.setup();
 
-        loader.init();
+        final int failed;
+        try {
+            loader.init();
 
-		loader.execute();
+            if (runnerOption != null) {
+                // fan-out, load, sweep, workload or ingest run with its own plain text report
+                final Runner runner;
+                try {
+                    runner = createRunner(loader, runnerOption, runnerSpec);
+                } catch (IllegalArgumentException e) {
+                    log.error("Invalid " + runnerOption + " argument: " + runnerSpec, e);
+                    System.exit(1);
+                    return;
+                }
+                if (threads != -1) runner.setThreads(threads);
+                runner.run();
+                failed = runner.generateReport(System.out);
+                reporter.close();
+            } else {
+                if (threads == -1)
+                    loader.execute();
+                else
+                    loader.execute(threads);
 
-		int failed = reporter.generateSummary();
+                failed = reporter.generateSummary();
+            }
+        } finally {
+            // release pooled HTTP connections
+            context.close();
+            if (loader.mockServer != null) loader.mockServer.stop();
+        }
 
 		System.exit(failed == 0 ? 0 : 1);
 	}
@@ -0,0 +1,167 @@
+package org.mitre.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Captures output written to <tt>System.out</tt> on a per-thread basis so tests
+ * executing concurrently do not interleave their output in the report. While
+ * installed, <tt>System.out</tt> is replaced with a stream that writes to a buffer
+ * bound to the calling thread, if any, otherwise to the stream the calling thread
+ * was routed to with {@link #route(PrintStream)}, if any, otherwise to the original
+ * stream. Routes are inherited by threads created by a routed thread so all output
+ * of a run executing in the same process as other runs goes to its own stream.
+ *
+ * <pre>
+ *   OutputCapture.install();
+ *   try {
+ *       // in worker thread
+ *       OutputCapture.begin();
+ *       ... test output ...
+ *       String text = OutputCapture.end();
+ *   } finally {
+ *       OutputCapture.uninstall();
+ *   }
+ * </pre>
+ *
+ * Date: 10/16/26 9:12 AM
+ */
+public final class OutputCapture {
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<ByteArrayOutputStream>();
+
+	private static final InheritableThreadLocal<PrintStream> routes = new InheritableThreadLocal<PrintStream>();
+
+	private static PrintStream original;
+	private static PrintStream installed;
+	private static int installCount;
+
+	private OutputCapture() {
+		// static utility class
+	}
+
+	/**
+	 * Replace <tt>System.out</tt> with the capturing stream. Calls may be nested
+	 * and must be matched by an equal number of calls to {@link #uninstall()}.
+	 */
+	public static synchronized void install() {
+		if (installCount++ == 0) {
+			original = System.out;
+			try {
+				installed = new PrintStream(new RoutingOutputStream(original), true, ENCODING);
+				System.setOut(installed);
+			} catch (UnsupportedEncodingException e) {
+				// UTF-8 is always supported
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * Restore original <tt>System.out</tt> after last matching {@link #install()}.
+	 */
+	public static synchronized void uninstall() {
+		if (installCount == 0) return;
+		if (--installCount == 0) {
+			System.out.flush();
+			System.setOut(original);
+			original = null;
+			installed = null;
+		}
+	}
+
+	/**
+	 * Get the stream that output of the current thread goes to when not captured
+	 * such that output bypasses any per-thread buffer.
+	 *
+	 * @return stream the current thread is routed to, otherwise the stream that was
+	 * 			active when the capture was installed or current <tt>System.out</tt>
+	 * 			if not installed
+	 */
+	public static synchronized PrintStream getOriginal() {
+		PrintStream out = routes.get();
+		if (out != null) return out;
+		return original != null ? original : System.out;
+	}
+
+	/**
+	 * Send output of the current thread, and of threads it creates from now on,
+	 * to the given stream rather than the original stream while not captured.
+	 * Has no effect on <tt>System.out</tt> unless the capture is installed.
+	 * Routing to the capturing stream itself is the same as {@link #unroute()}.
+	 *
+	 * @param out Stream for output of the current thread
+	 */
+	public static synchronized void route(PrintStream out) {
+		if (out == installed) routes.remove();
+		else routes.set(out);
+	}
+
+	/**
+	 * Stop routing output of the current thread.
+	 */
+	public static void unroute() {
+		routes.remove();
+	}
+
+	/**
+	 * Start capturing output written by the current thread.
+	 */
+	public static void begin() {
+		buffers.set(new ByteArrayOutputStream());
+	}
+
+	/**
+	 * Stop capturing output for the current thread.
+	 *
+	 * @return output captured since {@link #begin()}, empty if nothing
+	 * 			was written or capture was not started
+	 */
+	public static String end() {
+		System.out.flush();
+		ByteArrayOutputStream bos = buffers.get();
+		buffers.remove();
+		if (bos == null) return "";
+		try {
+			return bos.toString(ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return bos.toString();
+		}
+	}
+
+	private static class RoutingOutputStream extends OutputStream {
+
+		private final PrintStream out;
+
+		RoutingOutputStream(PrintStream out) {
+			this.out = out;
+		}
+
+		private OutputStream target() {
+			OutputStream bos = buffers.get();
+			if (bos != null) return bos;
+			PrintStream route = routes.get();
+			return route != null ? route : out;
+		}
+
+		public void write(int b) throws IOException {
+			target().write(b);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			target().write(b, off, len);
+		}
+
+		public void flush() throws IOException {
+			if (buffers.get() == null) {
+				PrintStream route = routes.get();
+				(route != null ? route : out).flush();
+			}
+		}
+	}
+}
@@ -22,6 +22,12 @@ public interface Reporter {
      */
     void setup();
 
+    /**
+     * Set Loader whose tests are reported. Called when the reporter is assigned to a Loader.
+     * @param loader Loader, never null
+     */
+    void setLoader(Loader loader);
+
     /**
      * Start execution
      */
@@ -0,0 +1,294 @@
+package org.mitre.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.mitre.test.impl.HtmlReporter;
+import org.mitre.test.impl.TextReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running daemon that executes conformance runs on request such that each run
+ * avoids the JVM startup and warm-up of a new process. Compiled XML schemas, pooled
+ * HTTP connections and authenticated sessions of the security checkers are kept
+ * between runs.
+ * <p/>
+ * A run is requested with a GET or POST of <tt>/run</tt> on the loopback interface with
+ * the following parameters:
+ * <ul>
+ * <li>config - configuration file on the daemon host, default config.xml
+ * <li>profile - profile document overriding the profileDocumentFile property
+ * <li>reporter - <tt>text</tt> (default) or <tt>html</tt>
+ * <li>threads - maximum number of tests executed concurrently,
+ *      default is the execution.threads property
+ * <li>mock - <tt>true</tt> to run against an embedded mock server
+ * </ul>
+ * The report is streamed back as the tests execute and ends with an
+ * <tt>Exit status: n</tt> line with the exit status of the command-line tool:
+ * 0 if all tests passed, 1 if any test failed and 2 if the run failed.
+ * <pre>
+ *   curl -s -d config=config.xml http://127.0.0.1:8090/run
+ * </pre>
+ *
+ * Date: 10/16/26 11:40 PM
+ */
+public class RunServer {
+
+	private static final Logger log = LoggerFactory.getLogger(RunServer.class);
+
+	public static final int DEFAULT_PORT = 8090;
+
+	public static final String RUN_PATH = "/run";
+
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * parent of the context of each run that holds the compiled schemas,
+	 * connection pool and authenticated sessions shared between runs
+	 */
+	private final Context context = new Context();
+
+	private final AtomicInteger runCount = new AtomicInteger();
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private int threads = 1;
+
+	/**
+	 * Set number of runs executed concurrently, further requests wait until a run
+	 * completes. Must be set before the server is started. The HTML reporter
+	 * captures log output of the whole process so should only be used with one run
+	 * executing at a time.
+	 *
+	 * @param threads number of concurrent runs, at least 1
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Start server on loopback interface.
+	 *
+	 * @param port port number or 0 to use any free port
+	 * @exception IOException if server socket cannot be bound
+	 * @exception IllegalStateException if server is already started
+	 */
+	public synchronized void start(int port) throws IOException {
+		if (server != null) throw new IllegalStateException("server already started");
+		final HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 64);
+		httpServer.createContext(RUN_PATH, new RunHandler());
+		final AtomicInteger count = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				return new Thread(r, "run-server-" + count.incrementAndGet());
+			}
+		});
+		httpServer.setExecutor(executor);
+		httpServer.start();
+		server = httpServer;
+		log.info("Run server started on port {}", getPort());
+	}
+
+	/**
+	 * Stop server if started, wait for runs in progress to complete
+	 * and release pooled HTTP connections.
+	 */
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			server = null;
+			executor.shutdown();
+			try {
+				executor.awaitTermination(5, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+			context.close();
+		}
+	}
+
+	/**
+	 * @return port the server is listening on
+	 * @exception IllegalStateException if server is not started
+	 */
+	public synchronized int getPort() {
+		if (server == null) throw new IllegalStateException("server not started");
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Get number of runs executed since the server was created
+	 * @return number of runs
+	 */
+	public int getRunCount() {
+		return runCount.get();
+	}
+
+	/**
+	 * Execute one run writing its report to the given stream.
+	 *
+	 * @param loader Loader of the run
+	 * @param configFile Configuration file
+	 * @param threads maximum number of tests executed concurrently, -1 for the default
+	 * @param out Stream for the report
+	 * @return exit status 0 = all passed, 1 = some failed, 2 = run failed
+	 */
+	private int run(Loader loader, File configFile, int threads, PrintStream out) {
+		final int id = runCount.incrementAndGet();
+		final long startTime = System.currentTimeMillis();
+		int status = 2;
+		try {
+			status = loader.run(configFile, threads, out) == 0 ? 0 : 1;
+		} catch (ConfigurationException e) {
+			log.error("run " + id + " failed", e);
+			out.println("Run failed: " + e);
+		} catch (IOException e) {
+			log.error("run " + id + " failed", e);
+			out.println("Run failed: " + e);
+		} catch (IllegalArgumentException e) {
+			log.error("run " + id + " failed", e);
+			out.println("Run failed: " + e);
+		} catch (IllegalStateException e) {
+			log.error("run " + id + " failed", e);
+			out.println("Run failed: " + e);
+		} finally {
+			loader.getContext().getReporter().close();
+		}
+		log.info("run {} with {} finished in {} ms", new Object[]{id, configFile,
+				System.currentTimeMillis() - startTime});
+		return status;
+	}
+
+	private class RunHandler implements HttpHandler {
+
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				final String method = exchange.getRequestMethod();
+				if (!"GET".equals(method) && !"POST".equals(method)) {
+					exchange.getResponseHeaders().set("Allow", "GET, POST");
+					sendError(exchange, 405, "Method not allowed");
+					return;
+				}
+				if (!RUN_PATH.equals(exchange.getRequestURI().getPath())) {
+					sendError(exchange, 404, "Not found");
+					return;
+				}
+				final Map<String, String> params = getParameters(exchange);
+				final boolean mock = "true".equals(params.get("mock"));
+				final File configFile = new File(StringUtils.defaultIfEmpty(params.get("config"), "config.xml"));
+				if (!mock && !configFile.isFile()) {
+					sendError(exchange, 400, "Config file not found: " + configFile);
+					return;
+				}
+				final String profile = params.get("profile");
+				if (profile != null && !new File(profile).isFile()) {
+					sendError(exchange, 400, "Profile document not found: " + profile);
+					return;
+				}
+				final boolean html;
+				final String reporterType = StringUtils.defaultIfEmpty(params.get("reporter"), "text");
+				if ("html".equals(reporterType)) {
+					html = true;
+				} else if ("text".equals(reporterType)) {
+					html = false;
+				} else {
+					sendError(exchange, 400, "Invalid reporter: " + reporterType);
+					return;
+				}
+				int runThreads = -1;
+				if (params.containsKey("threads")) {
+					try {
+						runThreads = Integer.parseInt(params.get("threads"));
+					} catch (NumberFormatException e) {
+						sendError(exchange, 400, "Invalid threads: " + params.get("threads"));
+						return;
+					}
+				}
+
+				final Loader loader = new Loader(new Context(context));
+				loader.setReporter(html ? new HtmlReporter() : new TextReporter());
+				loader.setMock(mock);
+				loader.setProfile(profile);
+				exchange.getResponseHeaders().set("Content-Type",
+						(html ? "text/html" : "text/plain") + "; charset=" + ENCODING);
+				// stream report with chunked encoding
+				exchange.sendResponseHeaders(200, 0);
+				final PrintStream out = new PrintStream(exchange.getResponseBody(), true, ENCODING);
+				final int status = run(loader, configFile, runThreads, out);
+				out.println(html ? "<!-- Exit status: " + status + " -->" : "Exit status: " + status);
+				out.close();
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/**
+	 * Get parameters from the query string and form-encoded request body
+	 */
+	private static Map<String, String> getParameters(HttpExchange exchange) throws IOException {
+		final Map<String, String> params = new HashMap<String, String>();
+		final Charset charset = Charset.forName(ENCODING);
+		final String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (NameValuePair pair : URLEncodedUtils.parse(query, charset)) {
+				params.put(pair.getName(), pair.getValue());
+			}
+		}
+		if ("POST".equals(exchange.getRequestMethod())) {
+			final String body = IOUtils.toString(exchange.getRequestBody(), ENCODING);
+			for (NameValuePair pair : URLEncodedUtils.parse(body, charset)) {
+				params.put(pair.getName(), pair.getValue());
+			}
+		}
+		return params;
+	}
+
+	private static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+		final byte[] body = (message + "\n").getBytes(ENCODING);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + ENCODING);
+		exchange.sendResponseHeaders(code, body.length);
+		final OutputStream os = exchange.getResponseBody();
+		os.write(body);
+		os.close();
+	}
+
+	/**
+	 * Start run server on given port which handles requests one at a time
+	 * until the process is stopped
+	 *
+	 * @param port port number or 0 to use any free port
+	 * @exception IOException if server socket cannot be bound
+	 */
+	static void serve(int port) throws IOException {
+		final RunServer server = new RunServer();
+		server.start(port);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				server.stop();
+			}
+		});
+		System.out.printf("Run server listening on http://127.0.0.1:%d%s%n", server.getPort(), RUN_PATH);
+	}
+}
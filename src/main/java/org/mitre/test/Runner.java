@@ -0,0 +1,35 @@
+package org.mitre.test;
+
+import java.io.PrintStream;
+
+/**
+ * Run of the tests of a Loader other than the conformance run such as a fan-out
+ * over many records or a load run. Runners are created with the properties of
+ * the Loader's configuration and the argument given on the command line, and
+ * print their own plain text report.
+ *
+ * Date: 10/18/26 11:00 AM
+ */
+public interface Runner {
+
+	/**
+	 * Set concurrency of the run from the <tt>-threads</tt> argument, i.e. the
+	 * number of records checked, virtual users or uploads at the same time.
+	 *
+	 * @param threads Number of threads, at least 1
+	 */
+	void setThreads(int threads);
+
+	/**
+	 * Run to completion.
+	 */
+	void run();
+
+	/**
+	 * Print report of the last run.
+	 *
+	 * @param out Stream to print to
+	 * @return number of failures, 0 if the run succeeded
+	 */
+	int generateReport(PrintStream out);
+}
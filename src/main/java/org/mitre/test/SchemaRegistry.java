@@ -0,0 +1,327 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.*;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.ValidatorHandler;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of compiled XML Schemas. Each XSD file is loaded and compiled once
+ * into a thread-safe {@link Schema} and documents are validated in a single
+ * pass while the DOM is built using a per-thread {@link ValidatorHandler}
+ * so the original document bytes are never rewritten or parsed twice.
+ *
+ * Date: 10/16/26 11:20 AM
+ */
+public class SchemaRegistry {
+
+	private static final Logger log = LoggerFactory.getLogger(SchemaRegistry.class);
+
+	private static final String SCHEMA_FULL_CHECKING_FEATURE =
+		"http://apache.org/xml/features/validation/schema-full-checking";
+
+	private final ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<String, Schema>();
+
+	/**
+	 * schema locations that failed to compile so errors are only reported once
+	 */
+	private final Set<String> failed = Collections.synchronizedSet(new HashSet<String>());
+
+	/**
+	 * SAXBuilders are not thread-safe so each thread gets its own builder
+	 * with its own validating filter
+	 */
+	private final ThreadLocal<SAXBuilder> builders = new ThreadLocal<SAXBuilder>();
+
+	/**
+	 * Per-thread validating filters for streaming parse without a DOM
+	 */
+	private final ThreadLocal<ValidatingFilter> readers = new ThreadLocal<ValidatingFilter>();
+
+	/**
+	 * Get compiled schema for the XSD file at given location
+	 *
+	 * @param location Local location for XML Schema file (e.g. schemas/atom.xsd)
+	 * @return compiled schema or null if file does not exist or fails to compile
+	 */
+	@CheckForNull
+	public Schema getSchema(String location) {
+		final File file = new File(location);
+		String key;
+		try {
+			key = file.getCanonicalPath();
+		} catch (IOException e) {
+			key = file.getAbsolutePath();
+		}
+		Schema schema = schemas.get(key);
+		if (schema != null) return schema;
+		if (!file.isFile() || failed.contains(key)) return null;
+		synchronized (this) {
+			// SchemaFactory is not thread-safe
+			schema = schemas.get(key);
+			if (schema == null) {
+				try {
+					final long start = System.currentTimeMillis();
+					schema = newSchemaFactory().newSchema(file);
+					schemas.put(key, schema);
+					log.debug("compiled schema {} in {} ms", location, System.currentTimeMillis() - start);
+				} catch (SAXException e) {
+					failed.add(key);
+					log.error("failed to compile schema " + location, e);
+				}
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Build DOM from input stream and validate it against the compiled schema
+	 * if the root element matches the target name and namespace otherwise the
+	 * document is only checked for well-formedness. Validation errors are
+	 * reported to the error handler.
+	 *
+	 * @param in Input stream to read from
+	 * @param errorHandler Handler for parse and validation errors
+	 * @param schema Compiled schema
+	 * @param namespaceUri Target namespace URI
+	 * @param rootName Expected local name of root element (e.g. feed)
+	 * @return <code>Document</code> resultant Document object
+	 *
+	 * @exception JDOMException when errors occur in parsing
+	 * @exception IOException when an I/O error prevents a document
+	 *         from being fully parsed.
+	 */
+	@NonNull
+	public Document build(InputStream in, ErrorHandler errorHandler, Schema schema,
+						  String namespaceUri, String rootName)
+			throws JDOMException, IOException
+	{
+		SAXBuilder builder = builders.get();
+		if (builder == null) {
+			builder = new SAXBuilder(false);
+			builder.setFeature(Context.VALIDATION_FEATURE, false);
+			builder.setFeature(Context.LOAD_DTD_GRAMMAR, false);
+			builder.setFeature(Context.LOAD_EXTERNAL_DTD, false);
+			builder.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			builder.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+			builder.setXMLFilter(new ValidatingFilter());
+			builders.set(builder);
+		}
+		final ValidatingFilter filter = (ValidatingFilter) builder.getXMLFilter();
+		filter.configure(schema, namespaceUri, rootName);
+		builder.setErrorHandler(errorHandler);
+		try {
+			return builder.build(in);
+		} finally {
+			filter.configure(null, null, null);
+			builder.setErrorHandler(null);
+		}
+	}
+
+	/**
+	 * Parse input stream in a single streaming pass reporting SAX events to the
+	 * content handler without building a DOM. Document is validated against the
+	 * compiled schema if the root element matches the target name and namespace.
+	 * Parse and validation errors are reported to the error handler.
+	 *
+	 * @param in Input stream to read from
+	 * @param errorHandler Handler for parse and validation errors
+	 * @param schema Compiled schema, null to only check for well-formedness
+	 * @param namespaceUri Target namespace URI
+	 * @param rootName Expected local name of root element (e.g. feed)
+	 * @param handler Content handler to receive the SAX events
+	 *
+	 * @exception SAXException when errors occur in parsing
+	 * @exception IOException when an I/O error prevents a document
+	 *         from being fully parsed.
+	 */
+	public void parse(InputStream in, ErrorHandler errorHandler, @CheckForNull Schema schema,
+					  String namespaceUri, String rootName, ContentHandler handler)
+			throws SAXException, IOException
+	{
+		ValidatingFilter filter = readers.get();
+		if (filter == null) {
+			final SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			factory.setValidating(false);
+			final XMLReader reader;
+			try {
+				reader = factory.newSAXParser().getXMLReader();
+			} catch (ParserConfigurationException e) {
+				throw new SAXException(e);
+			}
+			reader.setFeature(Context.LOAD_EXTERNAL_DTD, false);
+			reader.setFeature("http://xml.org/sax/features/external-general-entities", false);
+			reader.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+			filter = new ValidatingFilter();
+			filter.setParent(reader);
+			readers.set(filter);
+		}
+		filter.configure(schema, namespaceUri, rootName);
+		filter.setContentHandler(handler);
+		filter.setErrorHandler(errorHandler);
+		try {
+			filter.parse(new InputSource(in));
+		} finally {
+			filter.configure(null, null, null);
+			filter.setContentHandler(null);
+			filter.setErrorHandler(null);
+		}
+	}
+
+	private static SchemaFactory newSchemaFactory() {
+		SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		try {
+			factory.setFeature(SCHEMA_FULL_CHECKING_FEATURE, true);
+		} catch (SAXException e) {
+			log.debug("schema full checking not supported: {}", e.toString());
+		}
+		return factory;
+	}
+
+	/**
+	 * Filter that passes all SAX events through to the DOM builder and also
+	 * feeds them to a ValidatorHandler once the root element is found to be in
+	 * the target namespace. Events before the root element (i.e. start document and
+	 * namespace prefix mappings) are held back until the decision is made.
+	 */
+	private static class ValidatingFilter extends XMLFilterImpl {
+
+		// ValidatorHandlers are not thread-safe but can be reused for subsequent documents
+		private final Map<Schema, ValidatorHandler> validators = new HashMap<Schema, ValidatorHandler>();
+		private final List<String[]> prefixMappings = new ArrayList<String[]>();
+
+		private Schema schema;
+		private String namespaceUri;
+		private String rootName;
+
+		private Locator locator;
+		private ValidatorHandler validator;
+		private boolean rootSeen;
+
+		void configure(Schema schema, String namespaceUri, String rootName) {
+			this.schema = schema;
+			this.namespaceUri = namespaceUri;
+			this.rootName = rootName;
+			validator = null;
+			locator = null;
+			prefixMappings.clear();
+		}
+
+		@Override
+		public void setDocumentLocator(Locator locator) {
+			this.locator = locator;
+			super.setDocumentLocator(locator);
+		}
+
+		@Override
+		public void startDocument() throws SAXException {
+			validator = null;
+			rootSeen = false;
+			prefixMappings.clear();
+			super.startDocument();
+		}
+
+		@Override
+		public void startPrefixMapping(String prefix, String uri) throws SAXException {
+			if (validator != null) validator.startPrefixMapping(prefix, uri);
+			else if (!rootSeen) prefixMappings.add(new String[] { prefix, uri });
+			super.startPrefixMapping(prefix, uri);
+		}
+
+		@Override
+		public void endPrefixMapping(String prefix) throws SAXException {
+			if (validator != null) validator.endPrefixMapping(prefix);
+			super.endPrefixMapping(prefix);
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+			if (!rootSeen) {
+				rootSeen = true;
+				if (schema != null && uri.equals(namespaceUri) && localName.equals(rootName)) {
+					log.trace("Use validating XML parser");
+					startValidation();
+				}
+				prefixMappings.clear();
+			}
+			if (validator != null) validator.startElement(uri, localName, qName, atts);
+			super.startElement(uri, localName, qName, atts);
+		}
+
+		private void startValidation() throws SAXException {
+			ValidatorHandler handler = validators.get(schema);
+			if (handler == null) {
+				handler = schema.newValidatorHandler();
+				validators.put(schema, handler);
+			}
+			handler.setErrorHandler(getErrorHandler());
+			if (locator != null) handler.setDocumentLocator(locator);
+			handler.startDocument();
+			for (String[] mapping : prefixMappings) {
+				handler.startPrefixMapping(mapping[0], mapping[1]);
+			}
+			validator = handler;
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			if (validator != null) validator.endElement(uri, localName, qName);
+			super.endElement(uri, localName, qName);
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException {
+			if (validator != null) validator.characters(ch, start, length);
+			super.characters(ch, start, length);
+		}
+
+		@Override
+		public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+			if (validator != null) validator.ignorableWhitespace(ch, start, length);
+			super.ignorableWhitespace(ch, start, length);
+		}
+
+		@Override
+		public void processingInstruction(String target, String data) throws SAXException {
+			if (validator != null) validator.processingInstruction(target, data);
+			super.processingInstruction(target, data);
+		}
+
+		@Override
+		public void skippedEntity(String name) throws SAXException {
+			if (validator != null) validator.skippedEntity(name);
+			super.skippedEntity(name);
+		}
+
+		@Override
+		public void endDocument() throws SAXException {
+			if (validator != null) {
+				final ValidatorHandler handler = validator;
+				validator = null;
+				handler.endDocument();
+				handler.setErrorHandler(null);
+			}
+			locator = null;
+			super.endDocument();
+		}
+	}
+}
@@ -0,0 +1,425 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a load workload at increasing concurrency to find the saturation point of the
+ * server. Each step runs the scenarios of a {@link LoadRunner} with a number of virtual
+ * users (closed model) for a fixed time after one warm-up, starting with 1 user and
+ * doubling up to a maximum unless levels are given explicitly. As with the load runner
+ * the steps run without response cache and request coalescing so each step measures
+ * the requests the server actually handled.
+ * <P>
+ * The sweep stops at the knee of the throughput curve, the first step whose throughput
+ * gained less than the minimum gain over the previous step (default 10%), or when the
+ * error rate of a step exceeds the maximum error rate (default 5%). The saturation
+ * point is the last step before the knee. Results of each step are printed as a table
+ * and can be written as CSV for plotting.
+ *
+ * Date: 10/17/26 7:20 AM
+ */
+public final class SweepRunner implements Runner {
+
+	private static final Logger log = LoggerFactory.getLogger(SweepRunner.class);
+
+	public static final String DEFAULT_SCENARIOS = "BaseUrlRootXml";
+	public static final int DEFAULT_MAX_USERS = 64;
+	public static final int DEFAULT_STEP_DURATION = 20; // seconds
+	public static final double DEFAULT_MIN_GAIN = 10; // percent
+	public static final double DEFAULT_MAX_ERROR_RATE = 5; // percent
+	public static final String DEFAULT_CSV = "sweep.csv";
+
+	private final LoadRunner runner;
+	private List<Integer> levels;
+	private File csvFile;
+
+	private int stepDuration = DEFAULT_STEP_DURATION;
+	private double minGain = DEFAULT_MIN_GAIN;
+	private double maxErrorRate = DEFAULT_MAX_ERROR_RATE;
+
+	private final List<Step> steps = new ArrayList<Step>();
+	private String stopReason;
+	private int knee = -1;
+
+	/**
+	 * Create sweep of the given scenarios.
+	 *
+	 * @param loader Loader with the configuration and tests to run the scenarios with
+	 * @param scenarios Scenarios of the workload
+	 * @param levels Number of users of each step in increasing order
+	 * @exception IllegalArgumentException if there are no scenarios or levels
+	 */
+	public SweepRunner(Loader loader, List<LoadRunner.Scenario> scenarios, List<Integer> levels) {
+		if (levels.isEmpty()) throw new IllegalArgumentException("no concurrency levels");
+		runner = new LoadRunner(loader, scenarios);
+		this.levels = new ArrayList<Integer>(levels);
+	}
+
+	/**
+	 * Create sweep with the <tt>sweep.*</tt> properties of the Loader's configuration.
+	 *
+	 * @param loader Loader with the configuration and tests to run the scenarios with
+	 * @param spec Scenarios of the workload as parsed by {@link LoadRunner#parseScenarios},
+	 *             null to use the <tt>sweep.scenarios</tt> property or the default workload
+	 * @return runner
+	 * @throws IllegalArgumentException if any scenario or property is not valid
+	 */
+	@NonNull
+	public static SweepRunner create(Loader loader, @CheckForNull String spec) {
+		final Context context = loader.getContext();
+		if (StringUtils.isBlank(spec)) spec = context.getString("sweep.scenarios");
+		if (StringUtils.isBlank(spec)) spec = DEFAULT_SCENARIOS;
+		final String levels = context.getString("sweep.levels");
+		final SweepRunner sweep = new SweepRunner(loader, LoadRunner.parseScenarios(spec),
+				StringUtils.isBlank(levels) ? getLevels(context.getInt("sweep.maxUsers", DEFAULT_MAX_USERS))
+						: parseLevels(levels));
+		sweep.setStepDuration(context.getInt("sweep.stepDuration", DEFAULT_STEP_DURATION));
+		sweep.setThinkTime(context.getInt("sweep.thinkTime", 0));
+		sweep.setMinGain(getPercent(context, "sweep.minGain", DEFAULT_MIN_GAIN));
+		sweep.setMaxErrorRate(getPercent(context, "sweep.maxErrorRate", DEFAULT_MAX_ERROR_RATE));
+		sweep.setCsvFile(new File(StringUtils.defaultIfEmpty(context.getString("sweep.csv"), DEFAULT_CSV)));
+		return sweep;
+	}
+
+	private static double getPercent(Context context, String key, double defaultValue) {
+		final String value = StringUtils.trimToNull(context.getString(key));
+		if (value == null) return defaultValue;
+		try {
+			return Double.parseDouble(StringUtils.removeEnd(value, "%"));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + key + ": " + value);
+		}
+	}
+
+	/**
+	 * Get levels doubling from 1 user up to the maximum
+	 *
+	 * @param maxUsers Maximum number of users
+	 * @return levels 1, 2, 4 ... maxUsers
+	 */
+	@NonNull
+	public static List<Integer> getLevels(int maxUsers) {
+		final List<Integer> levels = new ArrayList<Integer>();
+		int users = 1;
+		for (; users < maxUsers; users <<= 1) {
+			levels.add(users);
+		}
+		levels.add(Math.max(1, maxUsers));
+		return levels;
+	}
+
+	/**
+	 * Parse comma-separated list of levels (e.g. 1,2,4,8,16)
+	 *
+	 * @param spec list of levels
+	 * @return levels
+	 * @throws IllegalArgumentException if any level is not a positive number or levels are not increasing
+	 */
+	@NonNull
+	public static List<Integer> parseLevels(String spec) {
+		final List<Integer> levels = new ArrayList<Integer>();
+		for (String item : StringUtils.split(spec, ',')) {
+			item = item.trim();
+			if (item.length() == 0) continue;
+			final int users;
+			try {
+				users = Integer.parseInt(item);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid concurrency level: " + item);
+			}
+			if (users < 1 || !levels.isEmpty() && users <= levels.get(levels.size() - 1))
+				throw new IllegalArgumentException("Concurrency levels must be positive and increasing: " + spec);
+			levels.add(users);
+		}
+		return levels;
+	}
+
+	/**
+	 * Set time each step runs
+	 * @param seconds Duration in seconds
+	 */
+	public void setStepDuration(int seconds) {
+		stepDuration = Math.max(1, seconds);
+	}
+
+	/**
+	 * Set pause between runs of a virtual user
+	 * @param millis Think time in milliseconds
+	 */
+	public void setThinkTime(long millis) {
+		runner.setThinkTime(millis);
+	}
+
+	/**
+	 * Set throughput gain over the previous step below which the knee is detected
+	 * @param percent Minimum gain in percent
+	 */
+	public void setMinGain(double percent) {
+		minGain = percent;
+	}
+
+	/**
+	 * Set error rate of a step above which the sweep stops
+	 * @param percent Maximum error rate in percent
+	 */
+	public void setMaxErrorRate(double percent) {
+		maxErrorRate = percent;
+	}
+
+	/**
+	 * Sweep 1, 2, 4 ... virtual users up to the given maximum instead of the
+	 * configured levels.
+	 * @param threads Maximum number of users
+	 */
+	public void setThreads(int threads) {
+		levels = getLevels(threads);
+	}
+
+	/**
+	 * Set file the results of each step are written to as CSV after the sweep
+	 * @param file CSV file, null to not write the results
+	 */
+	public void setCsvFile(@CheckForNull File file) {
+		csvFile = file;
+	}
+
+	/**
+	 * Execute warm-up then run the steps until the knee is detected, the error rate
+	 * threshold is crossed or all levels are run. The results of the steps are kept
+	 * in this runner and written to the CSV file if set.
+	 */
+	public void run() {
+		steps.clear();
+		knee = -1;
+		stopReason = null;
+		Loader warmUp = null;
+		OutputCapture.install();
+		try {
+			warmUp = runner.warmUp();
+			runner.setDuration(stepDuration);
+			final LatencyRecorder recorder = warmUp.getContext().getLatencyRecorder();
+			for (int users : levels) {
+				runner.setUsers(users);
+				runner.reset();
+				if (recorder != null) recorder.reset();
+				log.info("Sweep step: {} users", users);
+				final long start = System.nanoTime();
+				runner.runPhase(warmUp);
+				final Step step = new Step(users, runner.getScenarios(), System.nanoTime() - start);
+				steps.add(step);
+				if (step.count == 0) {
+					stopReason = "no runs completed";
+					break;
+				}
+				if (step.getErrorRate() > maxErrorRate) {
+					stopReason = String.format(Locale.US, "error rate %.2f%% exceeds %.2f%%", step.getErrorRate(), maxErrorRate);
+					break;
+				}
+				if (steps.size() > 1) {
+					final Step previous = steps.get(steps.size() - 2);
+					final double gain = previous.getThroughput() <= 0 ? 0
+							: 100.0 * (step.getThroughput() / previous.getThroughput() - 1);
+					if (gain < minGain) {
+						knee = previous.users;
+						stopReason = String.format(Locale.US, "throughput gain %.1f%% below %.1f%%", gain, minGain);
+						break;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			log.warn("sweep interrupted");
+			stopReason = "interrupted";
+			Thread.currentThread().interrupt();
+		} finally {
+			OutputCapture.uninstall();
+			if (warmUp != null) warmUp.getContext().close();
+		}
+		if (csvFile != null) {
+			try {
+				writeCsv(csvFile);
+				log.info("Sweep results written to {}", csvFile);
+			} catch (IOException e) {
+				log.error("Failed to write " + csvFile, e);
+			}
+		}
+	}
+
+	/**
+	 * Get saturation point of the last sweep
+	 * @return number of users of the last step before the knee, -1 if no knee was detected
+	 */
+	public int getKnee() {
+		return knee;
+	}
+
+	/**
+	 * Get results of the last sweep
+	 * @return read-only list of steps
+	 */
+	@NonNull
+	public List<Step> getSteps() {
+		return Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * Print table of the throughput and latency of each step of the last sweep.
+	 *
+	 * @param out Stream to print report to
+	 * @return 1 if the workload failed at the lowest concurrency otherwise 0
+	 */
+	public int generateReport(PrintStream out) {
+		out.println("\n------------------------------------------------------------------------------------");
+		out.println("\nConcurrency Sweep Report:\n");
+		out.printf("%-24s %s%n", "Scenarios:", getScenarioNames());
+		out.printf("%-24s %d sec%n%n", "Step duration:", stepDuration);
+		out.printf("%6s %8s %7s %7s %9s %8s %8s %8s %8s %8s %8s%n", "Users", "Runs", "Errors", "Error%",
+				"Runs/s", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+		for (Step step : steps) {
+			final LatencyHistogram.Snapshot latencies = step.latencies;
+			out.printf("%6d %8d %7d %6.2f%% %9.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f%s%n", step.users, step.count,
+					step.errors, step.getErrorRate(), step.getThroughput(), toMillis(latencies.getMean()),
+					toMillis(latencies.getValueAtPercentile(50)), toMillis(latencies.getValueAtPercentile(90)),
+					toMillis(latencies.getValueAtPercentile(99)), toMillis(latencies.getValueAtPercentile(99.9)),
+					toMillis(latencies.getMax()), step.users == knee ? "  <- knee" : "");
+		}
+		out.println();
+		if (stopReason != null) out.println("Stopped: " + stopReason);
+		if (knee > 0) {
+			out.printf("Saturation point: %d users%n", knee);
+		} else {
+			out.println("Saturation point: not reached");
+		}
+		return steps.isEmpty() || steps.get(0).count == 0 || steps.get(0).getErrorRate() > maxErrorRate ? 1 : 0;
+	}
+
+	/**
+	 * Write results of the last sweep as CSV with one row per step and a header row.
+	 * Latencies are in milliseconds.
+	 *
+	 * @param out Stream to write to
+	 */
+	public void writeCsv(PrintStream out) {
+		out.println("users,runs,errors,error_rate,throughput,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,knee");
+		for (Step step : steps) {
+			final LatencyHistogram.Snapshot latencies = step.latencies;
+			out.printf(Locale.US, "%d,%d,%d,%.4f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%b%n", step.users, step.count,
+					step.errors, step.getErrorRate() / 100.0, step.getThroughput(), toMillis(latencies.getMean()),
+					toMillis(latencies.getValueAtPercentile(50)), toMillis(latencies.getValueAtPercentile(90)),
+					toMillis(latencies.getValueAtPercentile(99)), toMillis(latencies.getValueAtPercentile(99.9)),
+					toMillis(latencies.getMax()), step.users == knee);
+		}
+	}
+
+	/**
+	 * Write results of the last sweep as CSV file
+	 *
+	 * @param file CSV file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeCsv(File file) throws IOException {
+		PrintStream out = null;
+		try {
+			out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+			writeCsv(out);
+			if (out.checkError()) throw new IOException("Failed to write " + file);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	private String getScenarioNames() {
+		final StringBuilder buf = new StringBuilder();
+		for (LoadRunner.Scenario scenario : runner.getScenarios()) {
+			if (buf.length() != 0) buf.append(", ");
+			buf.append(scenario.getName()).append(':').append(scenario.getWeight());
+			if (scenario.getSkipped() != null) buf.append(" (skipped)");
+		}
+		return buf.toString();
+	}
+
+	private static double toMillis(long nanos) {
+		return LatencyRecorder.toMillis(nanos);
+	}
+
+	/**
+	 * Throughput and latency of the runs of one concurrency level
+	 */
+	public static final class Step {
+
+		private final int users;
+		private final int count;
+		private final int errors;
+		private final long elapsedTime;
+		private final LatencyHistogram.Snapshot latencies;
+
+		Step(int users, List<LoadRunner.Scenario> scenarios, long elapsedTime) {
+			this.users = users;
+			this.elapsedTime = elapsedTime;
+			int count = 0, errors = 0;
+			LatencyHistogram.Snapshot latencies = new LatencyHistogram().getSnapshot();
+			for (LoadRunner.Scenario scenario : scenarios) {
+				count += scenario.getCount();
+				errors += scenario.getErrorCount();
+				latencies = latencies.merge(scenario.getSnapshot());
+			}
+			this.count = count;
+			this.errors = errors;
+			this.latencies = latencies;
+		}
+
+		public int getUsers() {
+			return users;
+		}
+
+		/**
+		 * @return number of completed runs
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		public int getErrorCount() {
+			return errors;
+		}
+
+		/**
+		 * @return percent of runs that failed
+		 */
+		public double getErrorRate() {
+			return count == 0 ? 0 : 100.0 * errors / count;
+		}
+
+		/**
+		 * @return successful runs per second
+		 */
+		public double getThroughput() {
+			final double seconds = elapsedTime / (double) TimeUnit.SECONDS.toNanos(1);
+			return seconds <= 0 ? 0 : (count - errors) / seconds;
+		}
+
+		/**
+		 * @return latencies of the runs
+		 */
+		@NonNull
+		public LatencyHistogram.Snapshot getLatencies() {
+			return latencies;
+		}
+	}
+}
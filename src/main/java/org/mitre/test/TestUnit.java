@@ -127,6 +127,15 @@ public interface TestUnit extends Comparable<TestUnit> {
 	 */
 	void setProperty(String key, Object value);
 
+	/**
+	 * Set Context this test is executed with. Called when the test is loaded
+	 * by a {@link Loader} such that tests of different Loaders can execute
+	 * concurrently with their own configuration, reporter and HTTP clients.
+	 *
+	 * @param context Context of the Loader, never null
+	 */
+	void setContext(Context context);
+
 	/**
 	 * Get list of deferred properties for this test that will be set on the
 	 * named classes only if all prerequisite tests for this test are also loaded.
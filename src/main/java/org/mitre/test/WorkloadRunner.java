@@ -0,0 +1,757 @@
+package org.mitre.test;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.*;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a mix of reads and writes against the documents of one section to measure
+ * write latency under read load. Operations are picked at random in proportion to
+ * their weight by a number of virtual users (closed model) for a fixed time:
+ * <ul>
+ *  <li>feed: GET the section Atom feed
+ *  <li>read: GET a document listed in the feed or created by the workload
+ *  <li>create: POST the <tt>updateDocument.file</tt> document to the section
+ *  <li>update: PUT the document to a document created by the workload
+ *  <li>delete: DELETE a document created by the workload
+ * </ul>
+ * Documents that were listed in the feed before the run are only read. Created
+ * documents are tracked so updates and deletes hit live documents: a document is
+ * claimed by one writer at a time and is not read while it is updated or deleted.
+ * If no created document is available an update or delete creates a document
+ * instead. Documents created by the workload that are left at the end are deleted.
+ * <P>
+ * Operations run without response cache and request coalescing so every read is
+ * sent to the server as it would be by independent clients.
+ * <P>
+ * Throughput and latency percentiles are reported for each operation type. As in
+ * the closed model of the {@link LoadRunner} an operation is timed from the end of
+ * the think time so a delayed start counts as latency.
+ *
+ * Date: 10/17/26 8:30 AM
+ */
+public final class WorkloadRunner implements Runner {
+
+	private static final Logger log = LoggerFactory.getLogger(WorkloadRunner.class);
+
+	/**
+	 * default mix of 80% reads and 20% writes
+	 */
+	public static final String DEFAULT_MIX = "feed:20,read:60,create:8,update:6,delete:6";
+	public static final int DEFAULT_DURATION = 30; // seconds
+	public static final int DEFAULT_USERS = 4;
+
+	/**
+	 * maximum number of documents listed in the section feed that are read
+	 */
+	private static final int MAX_FEED_DOCUMENTS = 1000;
+
+	private static final String ACCEPT_FEED = "application/atom+xml, application/xml, text/xml";
+	private static final String ACCEPT_DOCUMENT = "application/xml";
+
+	/**
+	 * Type of operation of the workload
+	 */
+	public enum Operation {
+		FEED, READ, CREATE, UPDATE, DELETE;
+
+		public boolean isWrite() {
+			return this == CREATE || this == UPDATE || this == DELETE;
+		}
+
+		@NonNull
+		public String getName() {
+			return name().toLowerCase(Locale.ENGLISH);
+		}
+	}
+
+	private final Loader loader;
+	private final Map<Operation, Stats> stats = new EnumMap<Operation, Stats>(Operation.class);
+	private final int totalWeight;
+
+	private int users = DEFAULT_USERS;
+	private long duration = TimeUnit.SECONDS.toMillis(DEFAULT_DURATION);
+	private long thinkTime;
+
+	/**
+	 * documents that are read: listed in the feed and created by the workload
+	 */
+	private final List<Document> documents = new ArrayList<Document>();
+	/**
+	 * live documents created by the workload
+	 */
+	private final List<Document> created = new ArrayList<Document>();
+
+	private Context context;
+	private String sectionPath;
+	private URI sectionURL;
+	private byte[] content;
+
+	private String notRun;
+	private int cleaned, cleanupErrors;
+	private long elapsedTime;
+
+	/**
+	 * Create runner with the given mix of operations and the configuration of the Loader.
+	 *
+	 * @param loader Loader with the configuration to run the workload with
+	 * @param mix Weight of each operation, operations not in the map are not run
+	 * @exception IllegalArgumentException if no operation has a positive weight
+	 */
+	public WorkloadRunner(Loader loader, Map<Operation, Integer> mix) {
+		this.loader = loader;
+		int total = 0;
+		for (Operation op : Operation.values()) {
+			final Integer weight = mix.get(op);
+			final int w = weight == null ? 0 : Math.max(0, weight);
+			stats.put(op, new Stats(op, w));
+			total += w;
+		}
+		if (total == 0) throw new IllegalArgumentException("no workload operations");
+		totalWeight = total;
+	}
+
+	/**
+	 * Create runner with the <tt>workload.*</tt> properties of the Loader's configuration.
+	 *
+	 * @param loader Loader with the configuration to run the workload with
+	 * @param spec Mix of operations as parsed by {@link #parseMix}, null to use
+	 *             the <tt>workload.mix</tt> property or the default mix
+	 * @return runner
+	 * @throws IllegalArgumentException if the mix is not valid
+	 */
+	@NonNull
+	public static WorkloadRunner create(Loader loader, @CheckForNull String spec) {
+		final Context context = loader.getContext();
+		if (StringUtils.isBlank(spec)) spec = context.getString("workload.mix");
+		if (StringUtils.isBlank(spec)) spec = DEFAULT_MIX;
+		final WorkloadRunner runner = new WorkloadRunner(loader, parseMix(spec));
+		runner.setUsers(context.getInt("workload.users", DEFAULT_USERS));
+		runner.setDuration(context.getInt("workload.duration", DEFAULT_DURATION));
+		runner.setThinkTime(context.getInt("workload.thinkTime", 0));
+		return runner;
+	}
+
+	/**
+	 * Parse mix of operations. The mix is a comma-separated list of operation names
+	 * (feed, read, create, update, delete) each with an optional weight
+	 * (e.g. read:80,create:10,update:5,delete:5).
+	 *
+	 * @param spec mix of operations
+	 * @return weight of each operation in the mix
+	 * @throws IllegalArgumentException if any operation or weight is not valid
+	 */
+	@NonNull
+	public static Map<Operation, Integer> parseMix(String spec) {
+		final Map<Operation, Integer> mix = new EnumMap<Operation, Integer>(Operation.class);
+		for (String item : StringUtils.split(spec, ',')) {
+			item = item.trim();
+			if (item.length() == 0) continue;
+			String name = item;
+			int weight = 1;
+			final int ind = item.indexOf(':');
+			if (ind > 0) {
+				name = item.substring(0, ind).trim();
+				try {
+					weight = Integer.parseInt(item.substring(ind + 1).trim());
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid operation weight: " + item);
+				}
+				if (weight < 0) throw new IllegalArgumentException("Invalid operation weight: " + item);
+			}
+			final Operation op;
+			try {
+				op = Operation.valueOf(name.toUpperCase(Locale.ENGLISH));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown workload operation: " + name);
+			}
+			mix.put(op, weight);
+		}
+		return mix;
+	}
+
+	/**
+	 * Set number of virtual users
+	 * @param users Number of users
+	 */
+	public void setUsers(int users) {
+		this.users = Math.max(1, users);
+	}
+
+	/**
+	 * Set time to start new operations
+	 * @param seconds Duration in seconds
+	 */
+	public void setDuration(int seconds) {
+		duration = TimeUnit.SECONDS.toMillis(Math.max(1, seconds));
+	}
+
+	/**
+	 * Set number of virtual users as with {@link #setUsers}
+	 * @param threads Number of users
+	 */
+	public void setThreads(int threads) {
+		setUsers(threads);
+	}
+
+	/**
+	 * Set pause between operations of a virtual user
+	 * @param millis Think time in milliseconds
+	 */
+	public void setThinkTime(long millis) {
+		thinkTime = Math.max(0, millis);
+	}
+
+	/**
+	 * Run the workload for the configured duration then delete the documents it created.
+	 * The workload is not run if the section feed or the document to create cannot be read.
+	 */
+	public void run() {
+		final long startTime = System.currentTimeMillis();
+		final XMLConfiguration template = loader.getContext().getConfiguration();
+		if (template == null) throw new IllegalStateException("Configuration not loaded");
+		final XMLConfiguration config;
+		synchronized (template) {
+			config = (XMLConfiguration) template.clone();
+		}
+		// every operation must reach the server so neither cache nor merge requests
+		config.setProperty("http.cache", "false");
+		config.setProperty("http.coalesce", "false");
+		context = new Context(loader.getContext(), config);
+		try {
+			notRun = prepare();
+			if (notRun != null) {
+				log.error("Workload not run: {}", notRun);
+				return;
+			}
+			final LatencyRecorder recorder = context.getLatencyRecorder();
+			if (recorder != null) recorder.reset();
+			runUsers();
+		} catch (InterruptedException e) {
+			log.warn("workload interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				cleanup();
+			} finally {
+				context.close();
+				elapsedTime = System.currentTimeMillis() - startTime;
+			}
+		}
+	}
+
+	/**
+	 * Read the document to create and the documents listed in the section feed
+	 *
+	 * @return reason the workload cannot be run, null if ready
+	 */
+	@CheckForNull
+	private String prepare() {
+		documents.clear();
+		created.clear();
+		cleaned = cleanupErrors = 0;
+		for (Stats s : stats.values()) s.reset();
+		sectionPath = context.getString("updateDocument.section");
+		if (StringUtils.isBlank(sectionPath)) return "updateDocument/section property not set";
+		final File file = context.getPropertyAsFile("updateDocument.file");
+		if (file == null) return "updateDocument/file property not set";
+		try {
+			content = FileUtils.readFileToByteArray(file);
+			sectionURL = context.getBaseURL(sectionPath);
+		} catch (IOException e) {
+			return "Failed to read " + file + ": " + e;
+		} catch (URISyntaxException e) {
+			return "Invalid section path: " + sectionPath;
+		}
+		final AtomFeedPager pager = new AtomFeedPager(context, sectionURL, 0);
+		try {
+			while (pager.hasNext() && documents.size() < MAX_FEED_DOCUMENTS) {
+				final AtomFeedPager.Page page = pager.next();
+				if (page.getError() != null) return "Failed to get section feed: " + page.getError();
+				if (page.getStatusCode() != 200) return "Failed to get section feed: " + page.getStatusLine();
+				final FeedIndex index = page.getIndex();
+				if (index != null) addDocuments(page.getUri(), index);
+			}
+		} finally {
+			pager.close();
+		}
+		log.info("Workload on {} with {} documents", sectionURL, documents.size());
+		return null;
+	}
+
+	/**
+	 * Add the first XML link of each entry in the feed page to the documents that are read
+	 */
+	private void addDocuments(URI pageURL, FeedIndex index) {
+		for (int i = 0; i < index.getEntryCount() && documents.size() < MAX_FEED_DOCUMENTS; i++) {
+			for (int j = index.getLinkStart(i); j < index.getLinkEnd(i); j++) {
+				final String type = index.getType(j);
+				if (type != null && !type.contains("xml")) continue;
+				try {
+					documents.add(new Document(pageURL.resolve(new URI(index.getHref(j))), false));
+				} catch (URISyntaxException e) {
+					log.debug("Invalid document link: {}", index.getHref(j));
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Run operations with the virtual users until the duration elapsed
+	 */
+	private void runUsers() throws InterruptedException {
+		final ExecutorService pool = Executors.newFixedThreadPool(users, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "workload-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+		try {
+			for (int i = 0; i < users; i++) {
+				pool.execute(new Runnable() {
+					public void run() {
+						final Random random = new Random();
+						try {
+							long next = System.nanoTime();
+							while (next - deadline < 0) {
+								execute(pick(random), random, next);
+								// next operation is intended to start when the user is done thinking
+								next = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(thinkTime);
+								if (thinkTime > 0) Thread.sleep(thinkTime);
+							}
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+			try {
+				if (!pool.awaitTermination(duration + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS))
+					log.warn("workload operations did not complete");
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private Operation pick(Random random) {
+		int n = random.nextInt(totalWeight);
+		for (Stats s : stats.values()) {
+			n -= s.weight;
+			if (n < 0) return s.op;
+		}
+		return Operation.FEED;
+	}
+
+	/**
+	 * Execute one operation. Updates and deletes claim a live document created by the
+	 * workload and fall back to a create if none is available.
+	 *
+	 * @param start Time the operation was intended to start
+	 */
+	private void execute(Operation op, Random random, long start) {
+		Document doc = null;
+		if (op == Operation.READ) {
+			doc = claim(documents, random, false);
+			if (doc == null) op = Operation.FEED;
+		} else if (op == Operation.UPDATE || op == Operation.DELETE) {
+			doc = claim(created, random, true);
+			if (doc == null) op = Operation.CREATE;
+		}
+		String error;
+		LatencyRecorder.setIntendedStart(start);
+		LatencyRecorder.bindTest(op.getName());
+		try {
+			error = execute(op, doc);
+		} catch (IOException e) {
+			log.debug("", e);
+			error = e.toString();
+		} catch (RuntimeException e) {
+			log.debug("", e);
+			error = e.toString();
+		} finally {
+			LatencyRecorder.bindTest(null);
+		}
+		stats.get(op).record(System.nanoTime() - start, error);
+	}
+
+	@CheckForNull
+	private String execute(Operation op, @CheckForNull Document doc) throws IOException {
+		switch (op) {
+			case FEED:
+				return get(sectionURL, ACCEPT_FEED);
+			case READ:
+				try {
+					return get(doc.url, ACCEPT_DOCUMENT);
+				} finally {
+					doc.releaseRead();
+				}
+			case CREATE:
+				return create();
+			case UPDATE:
+				try {
+					final HttpPut put = new HttpPut(doc.url);
+					put.setEntity(new ByteArrayEntity(content, ContentType.APPLICATION_XML));
+					return getError(put, 200, send(put).getStatusLine().getStatusCode());
+				} finally {
+					doc.releaseWrite();
+				}
+			case DELETE:
+				return delete(doc);
+		}
+		throw new IllegalArgumentException("Unknown operation: " + op);
+	}
+
+	@CheckForNull
+	private String get(URI url, String accept) throws IOException {
+		final HttpGet get = new HttpGet(url);
+		get.setHeader("Accept", accept);
+		return getError(get, 200, send(get).getStatusLine().getStatusCode());
+	}
+
+	/**
+	 * Create document and add it to the live documents
+	 */
+	@CheckForNull
+	private String create() throws IOException {
+		final HttpPost post = new HttpPost(sectionURL);
+		post.setEntity(new ByteArrayEntity(content, ContentType.APPLICATION_XML));
+		final HttpResponse response = send(post);
+		final int code = response.getStatusLine().getStatusCode();
+		if (code != 201) return getError(post, 201, code);
+		final Header header = response.getFirstHeader("Location");
+		final String location = header == null ? null : StringUtils.trimToNull(header.getValue());
+		if (location == null) return "Expected Location header in response";
+		// same workaround as DocumentCreate for servers returning the record id in place of the baseURL
+		final int ind = location.lastIndexOf('/');
+		final URI url;
+		try {
+			url = ind >= 0 ? context.getBaseURL(sectionPath + location.substring(ind)) : new URI(location);
+		} catch (URISyntaxException e) {
+			return "Invalid Location header: " + location;
+		}
+		final Document doc = new Document(url, true);
+		synchronized (this) {
+			created.add(doc);
+			documents.add(doc);
+		}
+		return null;
+	}
+
+	/**
+	 * Delete claimed document. The document is only kept for clean-up if the delete fails.
+	 */
+	@CheckForNull
+	private String delete(Document doc) throws IOException {
+		synchronized (this) {
+			created.remove(doc);
+			documents.remove(doc);
+		}
+		boolean deleted = false;
+		try {
+			final HttpDelete request = new HttpDelete(doc.url);
+			final int code = send(request).getStatusLine().getStatusCode();
+			deleted = code == 204 || code == 404 || code == 410;
+			return getError(request, 204, code);
+		} finally {
+			if (!deleted) {
+				doc.releaseWrite();
+				synchronized (this) {
+					created.add(doc);
+					documents.add(doc);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Execute request and release its connection
+	 *
+	 * @param request Request to execute
+	 * @return response without content
+	 */
+	@NonNull
+	private HttpResponse send(HttpRequestBase request) throws IOException {
+		final HttpClient client = context.getHttpClient();
+		try {
+			final HttpResponse response = context.executeRequest(client, request);
+			EntityUtils.consume(response.getEntity());
+			return response;
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+	}
+
+	@CheckForNull
+	private static String getError(HttpRequestBase request, int expected, int code) {
+		return code == expected ? null
+				: request.getMethod() + ": expected " + expected + " HTTP status code but was: " + code;
+	}
+
+	/**
+	 * Pick random document from the list and claim it
+	 *
+	 * @param list Documents to pick from
+	 * @param exclusive true to claim for a write, false for a read
+	 * @return claimed document or null if none could be claimed
+	 */
+	@CheckForNull
+	private Document claim(List<Document> list, Random random, boolean exclusive) {
+		synchronized (this) {
+			final int size = list.size();
+			if (size == 0) return null;
+			final int first = random.nextInt(size);
+			// documents claimed by other writers are skipped
+			for (int i = 0; i < size; i++) {
+				final Document doc = list.get((first + i) % size);
+				if (exclusive ? doc.acquireWrite() : doc.acquireRead()) return doc;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Delete the documents created by the workload that are left
+	 */
+	private void cleanup() {
+		final List<Document> left;
+		synchronized (this) {
+			left = new ArrayList<Document>(created);
+			created.clear();
+			documents.clear();
+		}
+		if (left.isEmpty()) return;
+		log.info("Delete {} documents created by workload", left.size());
+		for (Document doc : left) {
+			try {
+				final int code = send(new HttpDelete(doc.url)).getStatusLine().getStatusCode();
+				if (code == 204 || code == 404 || code == 410) {
+					cleaned++;
+					continue;
+				}
+				log.warn("Failed to delete {}: {}", doc.url, code);
+			} catch (IOException e) {
+				log.warn("Failed to delete " + doc.url, e);
+			}
+			cleanupErrors++;
+		}
+	}
+
+	/**
+	 * Get statistics of an operation type of the last run
+	 *
+	 * @param op Operation type
+	 * @return statistics
+	 */
+	@NonNull
+	public Stats getStats(Operation op) {
+		return stats.get(op);
+	}
+
+	/**
+	 * @return number of documents created by the workload deleted at the end of the last run
+	 */
+	public int getCleanedCount() {
+		return cleaned;
+	}
+
+	/**
+	 * @return number of documents created by the workload that could not be deleted
+	 */
+	public int getCleanupErrorCount() {
+		return cleanupErrors;
+	}
+
+	/**
+	 * Print report of the last run with the throughput, error rate and latency
+	 * percentiles of each operation type.
+	 *
+	 * @param out Stream to print report to
+	 * @return number of failed operations and documents that could not be deleted
+	 */
+	public int generateReport(PrintStream out) {
+		final double seconds = duration / 1000.0;
+		out.println("\n------------------------------------------------------------------------------------");
+		out.println("\nWorkload Report:\n");
+		out.printf("Section: %s%n", sectionURL);
+		out.printf("%d users for %.0f sec, think time %d ms%n%n", users, seconds, thinkTime);
+		if (notRun != null) {
+			out.println("Workload not run: " + notRun);
+			return 1;
+		}
+		out.printf("%-8s %6s %8s %7s %7s %8s %8s %8s %8s %8s %8s %8s%n", "Op", "Weight", "Count",
+				"Errors", "Error%", "Ops/s", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms");
+		int reads = 0, writes = 0, errors = 0;
+		for (Stats s : stats.values()) {
+			final LatencyHistogram.Snapshot latencies = s.getSnapshot();
+			final int count = s.getCount();
+			final int failed = s.getErrorCount();
+			if (s.op.isWrite()) writes += count;
+			else reads += count;
+			errors += failed;
+			out.printf("%-8s %6d %8d %7d %6.2f%% %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f %8.1f%n", s.op.getName(),
+					s.weight, count, failed, count == 0 ? 0.0 : 100.0 * failed / count, (count - failed) / seconds,
+					toMillis(latencies.getMean()), toMillis(latencies.getValueAtPercentile(50)),
+					toMillis(latencies.getValueAtPercentile(90)), toMillis(latencies.getValueAtPercentile(99)),
+					toMillis(latencies.getValueAtPercentile(99.9)), toMillis(latencies.getMax()));
+		}
+		for (Stats s : stats.values()) {
+			if (s.lastError != null)
+				out.printf("%n%s: last error: %s", s.op.getName(), s.lastError);
+		}
+		final int total = reads + writes;
+		out.printf("%nReads: %d, Writes: %d (%.0f%% writes), Errors: %d, Throughput: %.1f ops/sec, Time elapsed: %.1f sec%n",
+				reads, writes, total == 0 ? 0.0 : 100.0 * writes / total, errors, total / seconds, elapsedTime / 1000.0);
+		out.printf("Clean-up: %d documents deleted, %d failed%n", cleaned, cleanupErrors);
+		return errors + cleanupErrors;
+	}
+
+	private static double toMillis(long nanos) {
+		return LatencyRecorder.toMillis(nanos);
+	}
+
+	/**
+	 * Document read or written by the workload. A document is claimed by any number
+	 * of readers or by one writer.
+	 */
+	private static final class Document {
+
+		final URI url;
+		final boolean created;
+		/**
+		 * number of readers, -1 if claimed by a writer
+		 */
+		private final AtomicInteger claims = new AtomicInteger();
+
+		Document(URI url, boolean created) {
+			this.url = url;
+			this.created = created;
+		}
+
+		boolean acquireRead() {
+			for (;;) {
+				final int n = claims.get();
+				if (n < 0) return false;
+				if (claims.compareAndSet(n, n + 1)) return true;
+			}
+		}
+
+		void releaseRead() {
+			claims.decrementAndGet();
+		}
+
+		boolean acquireWrite() {
+			return created && claims.compareAndSet(0, -1);
+		}
+
+		void releaseWrite() {
+			claims.set(0);
+		}
+	}
+
+	/**
+	 * Outcome of the operations of one type
+	 */
+	public static final class Stats {
+
+		private final Operation op;
+		private final int weight;
+
+		private final AtomicInteger count = new AtomicInteger();
+		private final AtomicInteger errors = new AtomicInteger();
+		private volatile LatencyHistogram latencies = new LatencyHistogram();
+		private volatile String lastError;
+
+		Stats(Operation op, int weight) {
+			this.op = op;
+			this.weight = weight;
+		}
+
+		void reset() {
+			count.set(0);
+			errors.set(0);
+			latencies = new LatencyHistogram();
+			lastError = null;
+		}
+
+		void record(long latency, @CheckForNull String error) {
+			if (error != null) {
+				errors.incrementAndGet();
+				lastError = error;
+			}
+			count.incrementAndGet();
+			latencies.record(latency);
+		}
+
+		@NonNull
+		public Operation getOperation() {
+			return op;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+
+		/**
+		 * @return number of completed operations
+		 */
+		public int getCount() {
+			return count.get();
+		}
+
+		/**
+		 * @return number of failed operations
+		 */
+		public int getErrorCount() {
+			return errors.get();
+		}
+
+		/**
+		 * @return last error or null if no operation failed
+		 */
+		@CheckForNull
+		public String getLastError() {
+			return lastError;
+		}
+
+		/**
+		 * @return latencies of completed operations
+		 */
+		@NonNull
+		public LatencyHistogram.Snapshot getSnapshot() {
+			return latencies.getSnapshot();
+		}
+	}
+}
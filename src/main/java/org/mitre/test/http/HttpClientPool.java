@@ -0,0 +1,310 @@
+package org.mitre.test.http;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide pool of persistent (keep-alive) HTTP connections shared by all
+ * HttpClient instances created through {@link org.mitre.test.Context#getHttpClient()}
+ * so requests to the same host reuse open TCP and TLS connections rather than
+ * paying for a new handshake on every request.
+ * <P>
+ * Tests release their client with <tt>client.getConnectionManager().shutdown()</tt>
+ * so each client gets a light-weight view of the shared pool where shutdown only
+ * returns connections still leased by that client; the pool itself is closed once
+ * by calling {@link #close()}.
+ *
+ * Date: 10/16/26 10:05 AM
+ */
+public class HttpClientPool {
+
+	private static final Logger log = LoggerFactory.getLogger(HttpClientPool.class);
+
+	public static final int DEFAULT_MAX_TOTAL = 50;
+	public static final int DEFAULT_MAX_PER_ROUTE = 10;
+	public static final int DEFAULT_IDLE_TIMEOUT = 30; // seconds
+	public static final int DEFAULT_KEEP_ALIVE = 30; // seconds
+
+	private final PoolingClientConnectionManager manager;
+	private final ConnectionKeepAliveStrategy keepAliveStrategy;
+	private final IdleConnectionMonitor monitor;
+
+	private volatile boolean closed;
+
+	public HttpClientPool() {
+		this(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_IDLE_TIMEOUT, DEFAULT_KEEP_ALIVE);
+	}
+
+	/**
+	 * Create connection pool.
+	 *
+	 * @param maxTotal Maximum number of connections in the pool
+	 * @param maxPerRoute Maximum number of connections per route (host)
+	 * @param idleTimeout Time in seconds after which idle connections are closed,
+	 *                    a value &lt;= 0 disables idle eviction
+	 * @param keepAlive Time in seconds to keep connections alive if server does not
+	 *                  specify a timeout with the Keep-Alive response header
+	 * @exception IllegalArgumentException if maxTotal or maxPerRoute is less than 1
+	 */
+	public HttpClientPool(int maxTotal, int maxPerRoute, int idleTimeout, int keepAlive) {
+		if (maxTotal < 1 || maxPerRoute < 1)
+			throw new IllegalArgumentException("maxTotal and maxPerRoute must be positive");
+		final SchemeRegistry schemeRegistry = SchemeRegistryFactory.createDefault();
+		manager = new PoolingClientConnectionManager(schemeRegistry);
+		manager.setMaxTotal(maxTotal);
+		manager.setDefaultMaxPerRoute(Math.min(maxPerRoute, maxTotal));
+		keepAliveStrategy = new KeepAliveStrategy(keepAlive * 1000L);
+		if (idleTimeout > 0) {
+			monitor = new IdleConnectionMonitor(manager, idleTimeout);
+			monitor.start();
+		} else monitor = null;
+		log.debug("connection pool maxTotal={} maxPerRoute={}", maxTotal, manager.getDefaultMaxPerRoute());
+	}
+
+	/**
+	 * Create new HttpClient backed by the shared connection pool. Client parameters
+	 * and strategies can be changed without affecting other clients. Calling
+	 * <tt>getConnectionManager().shutdown()</tt> on the returned client only
+	 * releases connections leased by that client.
+	 *
+	 * @return new HttpClient
+	 * @exception IllegalStateException if the pool is closed
+	 */
+	@NonNull
+	public DefaultHttpClient newClient() {
+		if (closed) throw new IllegalStateException("connection pool is closed");
+		DefaultHttpClient client = new DefaultHttpClient(new ClientView(manager));
+		client.setKeepAliveStrategy(keepAliveStrategy);
+		return client;
+	}
+
+	/**
+	 * Run task when the client is shut down or no longer holds any connection,
+	 * such as to release resources held for a response whose body may never be
+	 * consumed.
+	 *
+	 * @param client HttpClient
+	 * @param task Task to run, may run more than once
+	 * @return false if the client is not backed by a pool in which case the task is not run
+	 */
+	public static boolean runOnRelease(HttpClient client, Runnable task) {
+		final ClientConnectionManager manager = client.getConnectionManager();
+		if (!(manager instanceof ClientView)) return false;
+		((ClientView) manager).addReleaseTask(task);
+		return true;
+	}
+
+	/**
+	 * Get statistics for connections in the pool
+	 * @return total pool statistics
+	 */
+	@NonNull
+	public PoolStats getTotalStats() {
+		return manager.getTotalStats();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Closes all pooled connections and stops the idle connection monitor.
+	 * Calling close more than once has no effect.
+	 */
+	public synchronized void close() {
+		if (closed) return;
+		closed = true;
+		if (monitor != null) monitor.shutdown();
+		log.debug("close connection pool: {}", manager.getTotalStats());
+		manager.shutdown();
+	}
+
+	/**
+	 * Keep-alive strategy that honors the server Keep-Alive timeout parameter
+	 * otherwise keeps connections alive for a fixed time.
+	 */
+	private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+		private final long defaultDuration;
+
+		KeepAliveStrategy(long defaultDuration) {
+			this.defaultDuration = defaultDuration;
+		}
+
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			// e.g. Keep-Alive: timeout=5, max=100
+			HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+			while (it.hasNext()) {
+				HeaderElement he = it.nextElement();
+				String value = he.getValue();
+				if (value != null && "timeout".equalsIgnoreCase(he.getName())) {
+					try {
+						return Long.parseLong(value) * 1000;
+					} catch (NumberFormatException ignore) {
+						// use default
+					}
+				}
+			}
+			return defaultDuration;
+		}
+	}
+
+	/**
+	 * Per-client view of the shared connection manager. Shutdown aborts connections
+	 * still leased by this client (e.g. response body was never consumed) and leaves
+	 * the pool open. Connections fully consumed were already returned to the pool in
+	 * which case aborting them has no effect. Release tasks run once the client
+	 * no longer leases any connection or on shutdown.
+	 */
+	private static class ClientView implements ClientConnectionManager {
+
+		private final ClientConnectionManager manager;
+		private final List<ManagedClientConnection> leased = new ArrayList<ManagedClientConnection>(2);
+		// guarded by leased
+		private final List<Runnable> releaseTasks = new ArrayList<Runnable>(2);
+
+		ClientView(ClientConnectionManager manager) {
+			this.manager = manager;
+		}
+
+		public SchemeRegistry getSchemeRegistry() {
+			return manager.getSchemeRegistry();
+		}
+
+		public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+			final ClientConnectionRequest request = manager.requestConnection(route, state);
+			return new ClientConnectionRequest() {
+				public ManagedClientConnection getConnection(long timeout, TimeUnit tunit)
+						throws InterruptedException, ConnectionPoolTimeoutException {
+					ManagedClientConnection conn = request.getConnection(timeout, tunit);
+					synchronized (leased) {
+						leased.add(conn);
+					}
+					return conn;
+				}
+
+				public void abortRequest() {
+					request.abortRequest();
+				}
+			};
+		}
+
+		public void releaseConnection(ManagedClientConnection conn, long validDuration, TimeUnit timeUnit) {
+			final Runnable[] tasks;
+			synchronized (leased) {
+				leased.remove(conn);
+				tasks = leased.isEmpty() ? takeReleaseTasks() : null;
+			}
+			manager.releaseConnection(conn, validDuration, timeUnit);
+			if (tasks != null) runAll(tasks);
+		}
+
+		void addReleaseTask(Runnable task) {
+			synchronized (leased) {
+				releaseTasks.add(task);
+			}
+		}
+
+		// must hold lock on leased
+		private Runnable[] takeReleaseTasks() {
+			final Runnable[] tasks = releaseTasks.toArray(new Runnable[releaseTasks.size()]);
+			releaseTasks.clear();
+			return tasks;
+		}
+
+		private static void runAll(Runnable[] tasks) {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+		}
+
+		public void closeIdleConnections(long idletime, TimeUnit tunit) {
+			manager.closeIdleConnections(idletime, tunit);
+		}
+
+		public void closeExpiredConnections() {
+			manager.closeExpiredConnections();
+		}
+
+		public void shutdown() {
+			final ManagedClientConnection[] conns;
+			final Runnable[] tasks;
+			synchronized (leased) {
+				conns = leased.toArray(new ManagedClientConnection[leased.size()]);
+				leased.clear();
+				tasks = takeReleaseTasks();
+			}
+			for (ManagedClientConnection conn : conns) {
+				try {
+					// no-op if connection was already released back to the pool
+					conn.abortConnection();
+				} catch (Exception e) {
+					log.trace("", e);
+				}
+			}
+			runAll(tasks);
+		}
+	}
+
+	/**
+	 * Background thread that evicts expired and idle connections from the pool.
+	 */
+	private static class IdleConnectionMonitor extends Thread {
+
+		private final ClientConnectionManager manager;
+		private final int idleTimeout;
+		private volatile boolean shutdown;
+
+		IdleConnectionMonitor(ClientConnectionManager manager, int idleTimeout) {
+			super("idle-connection-monitor");
+			setDaemon(true);
+			this.manager = manager;
+			this.idleTimeout = idleTimeout;
+		}
+
+		public void run() {
+			final long interval = Math.max(1000L, Math.min(5000L, idleTimeout * 1000L));
+			try {
+				while (!shutdown) {
+					synchronized (this) {
+						wait(interval);
+					}
+					manager.closeExpiredConnections();
+					manager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+				}
+			} catch (InterruptedException e) {
+				// terminate
+			}
+		}
+
+		public void shutdown() {
+			shutdown = true;
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package org.mitre.test.http;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Histogram of latencies with log-linear buckets in the manner of HdrHistogram.
+ * Latencies are counted in microseconds with exact buckets below 128 µs and 64
+ * buckets for each power of two above that so every percentile is within 1.6%
+ * of the recorded value, up to about two hours.
+ * <P>
+ * Recording is lock-free: each thread records to one of several stripes selected
+ * by its thread id so threads rarely update the same counters, and the stripes are
+ * merged when a {@link Snapshot} is taken.
+ *
+ * Date: 10/17/26 6:00 AM
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BITS = 7;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF_COUNT = SUB_COUNT >> 1;
+	private static final int MAX_SHIFT = 26;
+	static final int BUCKETS = SUB_COUNT + MAX_SHIFT * HALF_COUNT;
+
+	private static final int STRIPES;
+
+	static {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 16) stripes <<= 1;
+		STRIPES = stripes;
+	}
+
+	private final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<Stripe>(STRIPES);
+
+	/**
+	 * Record latency
+	 *
+	 * @param nanos Latency in nanoseconds, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		final Stripe stripe = getStripe();
+		if (nanos < 0) nanos = 0;
+		stripe.counts.incrementAndGet(getIndex(TimeUnit.NANOSECONDS.toMicros(nanos)));
+		stripe.total.addAndGet(nanos);
+		long max;
+		while (nanos > (max = stripe.max.get()) && !stripe.max.compareAndSet(max, nanos)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Record latency corrected for coordinated omission. If the latency is longer
+	 * than the interval at which requests were expected then the requests that were
+	 * not sent while waiting are recorded as well with linearly decreasing latencies.
+	 *
+	 * @param nanos Latency in nanoseconds
+	 * @param expectedInterval Expected interval between requests in nanoseconds, 0 for none
+	 */
+	public void record(long nanos, long expectedInterval) {
+		record(nanos);
+		if (expectedInterval <= 0) return;
+		for (long missing = nanos - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+			record(missing);
+		}
+	}
+
+	/**
+	 * Merge the stripes of all threads
+	 * @return snapshot of the recorded latencies
+	 */
+	@NonNull
+	public Snapshot getSnapshot() {
+		final long[] counts = new long[BUCKETS];
+		long total = 0, max = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			final Stripe stripe = stripes.get(i);
+			if (stripe == null) continue;
+			for (int j = 0; j < BUCKETS; j++) {
+				counts[j] += stripe.counts.get(j);
+			}
+			total += stripe.total.get();
+			max = Math.max(max, stripe.max.get());
+		}
+		return new Snapshot(counts, total, max);
+	}
+
+	private Stripe getStripe() {
+		final int index = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+		Stripe stripe = stripes.get(index);
+		if (stripe == null) {
+			stripes.compareAndSet(index, null, new Stripe());
+			stripe = stripes.get(index);
+		}
+		return stripe;
+	}
+
+	static int getIndex(long micros) {
+		if (micros < SUB_COUNT) return (int) micros;
+		final int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BITS - 1);
+		if (shift > MAX_SHIFT) return BUCKETS - 1;
+		return SUB_COUNT + (shift - 1) * HALF_COUNT + (int) (micros >> shift) - HALF_COUNT;
+	}
+
+	/**
+	 * Get highest latency counted in bucket
+	 * @return latency in microseconds
+	 */
+	static long getHighestValue(int index) {
+		if (index < SUB_COUNT) return index;
+		final int shift = (index - SUB_COUNT) / HALF_COUNT + 1;
+		final long sub = (index - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	private static final class Stripe {
+		final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+		final AtomicLong total = new AtomicLong();
+		final AtomicLong max = new AtomicLong();
+	}
+
+	/**
+	 * Latencies recorded up to the time the snapshot was taken
+	 */
+	public static final class Snapshot {
+
+		private final long[] counts;
+		private final long count;
+		private final long total;
+		private final long max;
+
+		Snapshot(long[] counts, long total, long max) {
+			this.counts = counts;
+			long count = 0;
+			for (long c : counts) count += c;
+			this.count = count;
+			this.total = total;
+			this.max = max;
+		}
+
+		/**
+		 * Combine with the latencies of another snapshot
+		 *
+		 * @param other Snapshot to combine with
+		 * @return snapshot with the latencies of both snapshots
+		 */
+		@NonNull
+		public Snapshot merge(Snapshot other) {
+			final long[] merged = counts.clone();
+			for (int i = 0; i < merged.length; i++) {
+				merged[i] += other.counts[i];
+			}
+			return new Snapshot(merged, total + other.total, Math.max(max, other.max));
+		}
+
+		/**
+		 * @return number of recorded latencies
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return mean latency in nanoseconds, 0 if none recorded
+		 */
+		public long getMean() {
+			return count == 0 ? 0 : total / count;
+		}
+
+		/**
+		 * @return highest latency in nanoseconds, 0 if none recorded
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Get latency at or below which the given percent of latencies are
+		 *
+		 * @param percent Percentile between 0 and 100
+		 * @return latency in nanoseconds, 0 if none recorded
+		 */
+		public long getValueAtPercentile(double percent) {
+			if (count == 0) return 0;
+			final long rank = Math.max(1, (long) Math.ceil(Math.min(100, percent) / 100.0 * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(max, TimeUnit.MICROSECONDS.toNanos(getHighestValue(i) + 1) - 1);
+				}
+			}
+			return max;
+		}
+	}
+}
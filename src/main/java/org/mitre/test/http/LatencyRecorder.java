@@ -0,0 +1,189 @@
+package org.mitre.test.http;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Records the latency of HTTP exchanges in a {@link LatencyHistogram} for each test,
+ * HTTP method and URL template. URLs of the record under test are normalized to a
+ * template such as <tt>/records/{id}/{section}/{doc}</tt> so exchanges of many
+ * sections and documents are counted together.
+ * <P>
+ * The test executing on a thread is bound with {@link #bindTest}. In load mode latencies
+ * are corrected for coordinated omission: a run started later than intended with
+ * {@link #setIntendedStart} counts that delay in the latency of its first exchange.
+ *
+ * Date: 10/17/26 6:20 AM
+ */
+public class LatencyRecorder {
+
+	private static final Pattern ID_PATTERN = Pattern.compile("\\d+|[0-9a-fA-F-]{16,}");
+
+	private static final ThreadLocal<String> boundTest = new ThreadLocal<String>();
+	private static final ThreadLocal<Long> intendedStart = new ThreadLocal<Long>();
+
+	private final ConcurrentMap<String, LatencyHistogram> histograms =
+			new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * Bind test executing on the current thread
+	 * @param testId Id of the test, null to unbind
+	 */
+	public static void bindTest(@CheckForNull String testId) {
+		if (testId == null) boundTest.remove();
+		else boundTest.set(testId);
+	}
+
+	/**
+	 * Get test executing on the current thread such that threads working for
+	 * the test can bind it as well
+	 * @return Id of the test, null if not bound
+	 */
+	@CheckForNull
+	public static String getBoundTest() {
+		return boundTest.get();
+	}
+
+	/**
+	 * Set time the next exchange on the current thread was intended to start
+	 * @param nanoTime Time as returned by <tt>System.nanoTime()</tt>
+	 */
+	public static void setIntendedStart(long nanoTime) {
+		intendedStart.set(nanoTime);
+	}
+
+	/**
+	 * Get start time of an exchange on the current thread which is the intended start
+	 * time if set otherwise the current time. The intended start time is cleared.
+	 *
+	 * @return time as returned by <tt>System.nanoTime()</tt>
+	 */
+	public static long getStartTime() {
+		final long now = System.nanoTime();
+		final Long start = intendedStart.get();
+		if (start == null) return now;
+		intendedStart.remove();
+		return Math.min(start, now);
+	}
+
+	/**
+	 * Get key of exchange with the test bound to the current thread
+	 *
+	 * @param baseURL baseURL of the record under test, null if not known
+	 * @param method HTTP method
+	 * @param uri URL of request
+	 * @return key
+	 */
+	@NonNull
+	public static String getKey(@CheckForNull URI baseURL, String method, URI uri) {
+		final String testId = boundTest.get();
+		return (testId == null ? "-" : testId) + ' ' + method + ' ' + getTemplate(baseURL, uri);
+	}
+
+	/**
+	 * Normalize URL to a template. Paths of the record at the baseURL are
+	 * <tt>/records/{id}</tt> followed by <tt>{section}</tt> and <tt>{doc}</tt>
+	 * segments except for files such as <tt>root.xml</tt>. In other paths
+	 * numeric and long hexadecimal segments are replaced with <tt>{id}</tt>.
+	 *
+	 * @param baseURL baseURL of the record under test, null if not known
+	 * @param uri URL
+	 * @return path template
+	 */
+	@NonNull
+	public static String getTemplate(@CheckForNull URI baseURL, URI uri) {
+		final String path = StringUtils.defaultIfEmpty(uri.getRawPath(), "/");
+		final String basePath = baseURL == null ? "" : StringUtils.removeEnd(baseURL.getRawPath(), "/");
+		final StringBuilder buf = new StringBuilder();
+		if (basePath.length() != 0 && (path.equals(basePath) || path.startsWith(basePath + "/"))
+				&& StringUtils.equals(uri.getRawAuthority(), baseURL.getRawAuthority())) {
+			buf.append(basePath.substring(0, basePath.lastIndexOf('/') + 1)).append("{id}");
+			final String[] segments = StringUtils.split(path.substring(basePath.length()), '/');
+			for (int i = 0; i < segments.length; i++) {
+				buf.append('/');
+				if (segments.length == 1 && segments[0].indexOf('.') != -1) buf.append(segments[0]);
+				else if (i == 0 || i < segments.length - 1) buf.append("{section}");
+				else buf.append("{doc}");
+			}
+			return buf.toString();
+		}
+		for (String segment : StringUtils.split(path, '/')) {
+			buf.append('/').append(ID_PATTERN.matcher(segment).matches() ? "{id}" : segment);
+		}
+		if (buf.length() == 0 || path.endsWith("/")) buf.append('/');
+		return buf.toString();
+	}
+
+	/**
+	 * Record latency of exchange
+	 *
+	 * @param key Key of the exchange as returned by {@link #getKey}
+	 * @param nanos Latency in nanoseconds
+	 */
+	public void record(String key, long nanos) {
+		LatencyHistogram histogram = histograms.get(key);
+		if (histogram == null) {
+			final LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = histograms.putIfAbsent(key, newHistogram);
+			if (histogram == null) histogram = newHistogram;
+		}
+		histogram.record(nanos);
+	}
+
+	/**
+	 * Get snapshots of the latencies of each key
+	 * @return snapshots sorted by key
+	 */
+	@NonNull
+	public SortedMap<String, LatencyHistogram.Snapshot> getSnapshots() {
+		final SortedMap<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<String, LatencyHistogram.Snapshot>();
+		for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+			snapshots.put(entry.getKey(), entry.getValue().getSnapshot());
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Discard recorded latencies
+	 */
+	public void reset() {
+		histograms.clear();
+	}
+
+	/**
+	 * Print table with the latency percentiles of each key
+	 * @param out Stream to print to
+	 */
+	public void printSummary(PrintStream out) {
+		final SortedMap<String, LatencyHistogram.Snapshot> snapshots = getSnapshots();
+		if (snapshots.isEmpty()) return;
+		out.println("\nHTTP latency (ms):");
+		out.printf("%-56s %7s %8s %8s %8s %8s %8s%n", "Exchange", "Count", "p50", "p90", "p99", "p99.9", "Max");
+		for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+			final LatencyHistogram.Snapshot snapshot = entry.getValue();
+			out.printf("%-56s %7d %8.1f %8.1f %8.1f %8.1f %8.1f%n", entry.getKey(), snapshot.getCount(),
+					toMillis(snapshot.getValueAtPercentile(50)), toMillis(snapshot.getValueAtPercentile(90)),
+					toMillis(snapshot.getValueAtPercentile(99)), toMillis(snapshot.getValueAtPercentile(99.9)),
+					toMillis(snapshot.getMax()));
+		}
+	}
+
+	/**
+	 * Convert nanoseconds to fractional milliseconds
+	 * @param nanos time in nanoseconds
+	 * @return time in milliseconds
+	 */
+	public static double toMillis(long nanos) {
+		return nanos / 1e6;
+	}
+}
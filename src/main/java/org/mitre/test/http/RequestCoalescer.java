@@ -0,0 +1,148 @@
+package org.mitre.test.http;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.http.HttpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges identical safe requests that are in flight at the same time into one
+ * network call. The first caller executes the request, callers with the same key
+ * arriving before its response is received wait for that response. The response
+ * is only buffered if another caller is waiting in which case every caller gets
+ * its own copy that can be read independently, otherwise the first caller gets the
+ * response as is with its body streamed from the connection. Bodies larger than
+ * {@link ResponseCache#MAX_BODY_SIZE} are never buffered and the waiting callers
+ * execute their own request instead.
+ * <P>
+ * Requests are identical if they have the same key as returned by
+ * {@link ResponseCache#getKey} which includes the URL, user and Accept headers
+ * so requests negotiating different content types are executed separately.
+ *
+ * Date: 10/17/26 2:50 AM
+ */
+public class RequestCoalescer {
+
+	private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+	/**
+	 * Request execution shared by coalesced callers
+	 */
+	public interface Execution {
+		@NonNull
+		HttpResponse execute() throws IOException;
+	}
+
+	private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+	private final AtomicInteger coalescedCount = new AtomicInteger();
+
+	/**
+	 * Execute request unless an identical request is in flight in which case
+	 * wait for its response.
+	 *
+	 * @param key Request key
+	 * @param execution Execution of the request
+	 * @return response or copy of a shared response
+	 * @throws IOException if the request failed or the thread was interrupted while waiting
+	 */
+	@NonNull
+	public HttpResponse execute(String key, Execution execution) throws IOException {
+		final Flight flight = new Flight();
+		final Flight current = flights.putIfAbsent(key, flight);
+		if (current != null) {
+			if (current.join()) {
+				coalescedCount.incrementAndGet();
+				log.trace("coalesced request: {}", key);
+				final ResponseCache.Entry response = current.await();
+				if (response != null) return response.newResponse();
+				log.trace("response too large to share: {}", key);
+			}
+			// response of the request in flight is streamed to its caller only
+			return execution.execute();
+		}
+		try {
+			final HttpResponse response = execution.execute();
+			if (!flight.close()) {
+				// no other caller is waiting so leave the body streaming
+				return response;
+			}
+			final ResponseCache.Entry entry = ResponseCache.Entry.buffer(response);
+			flight.response = entry;
+			return entry != null ? entry.newResponse() : response;
+		} catch (IOException e) {
+			flight.error = e;
+			throw e;
+		} catch (RuntimeException e) {
+			flight.error = new IOException(e.toString(), e);
+			throw e;
+		} finally {
+			flights.remove(key, flight);
+			flight.done.countDown();
+		}
+	}
+
+	/**
+	 * Get number of requests that waited for the response of
+	 * an identical request in flight
+	 * @return number of coalesced requests
+	 */
+	public int getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	private static class Flight {
+
+		final CountDownLatch done = new CountDownLatch(1);
+		// written before the latch is released so visible to waiting callers
+		ResponseCache.Entry response;
+		IOException error;
+
+		private int waiters;
+		private boolean closed;
+
+		/**
+		 * Wait for the response of this flight unless it is already
+		 * streamed to the first caller
+		 * @return true if joined
+		 */
+		synchronized boolean join() {
+			if (closed) return false;
+			waiters++;
+			return true;
+		}
+
+		/**
+		 * Close flight to callers arriving after the response is received
+		 * @return true if any caller is waiting for the response
+		 */
+		synchronized boolean close() {
+			closed = true;
+			return waiters != 0;
+		}
+
+		/**
+		 * @return shared response or null if the body was too large to share
+		 */
+		@CheckForNull
+		ResponseCache.Entry await() throws IOException {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted waiting for coalesced request");
+			}
+			if (response != null || error == null) return response;
+			// each caller gets its own exception with the stack trace of the failed request as cause
+			throw new IOException(error.getMessage(), error);
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package org.mitre.test.http;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control of HTTP requests per host such that a run with many concurrent
+ * tests does not overload the server. Requests to a host are limited to a maximum
+ * number in flight and to a rate with a token bucket that allows short bursts.
+ * <P>
+ * With adaptive backoff a host that responds 429 Too Many Requests or 503 Service
+ * Unavailable, or with a latency spike of several times its average latency, gets
+ * half the request rate and no new requests until the Retry-After time or a pause
+ * that doubles with each consecutive overload response. The rate recovers with each
+ * successful response.
+ *
+ * Date: 10/17/26 3:30 AM
+ */
+public class RequestLimiter {
+
+	private static final Logger log = LoggerFactory.getLogger(RequestLimiter.class);
+
+	/**
+	 * latency this many times the average latency of a host is a spike
+	 */
+	private static final int LATENCY_SPIKE = 4;
+
+	/**
+	 * number of responses before latency spikes are detected
+	 */
+	private static final int LATENCY_SAMPLES = 20;
+
+	private static final long MIN_PAUSE = TimeUnit.MILLISECONDS.toNanos(500);
+	private static final long MAX_PAUSE = TimeUnit.SECONDS.toNanos(30);
+	private static final double MIN_RATE_FACTOR = 1 / 16.0;
+
+	private final int maxPerHost;
+	private final double rate;
+	private final int burst;
+	private final boolean adaptive;
+
+	private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<String, Host>();
+
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger waitCount = new AtomicInteger();
+	private final AtomicInteger backoffCount = new AtomicInteger();
+	private final AtomicLong totalWait = new AtomicLong();
+	private final AtomicLong maxWait = new AtomicLong();
+
+	/**
+	 * Create limiter.
+	 *
+	 * @param maxPerHost Maximum number of requests in flight per host, 0 for no limit
+	 * @param rate Maximum number of requests per second per host, 0 for no limit
+	 * @param burst Number of requests that can be sent at once before the rate applies
+	 * @param adaptive true to back off when a host is overloaded
+	 * @exception IllegalArgumentException if any argument is negative
+	 */
+	public RequestLimiter(int maxPerHost, double rate, int burst, boolean adaptive) {
+		if (maxPerHost < 0 || rate < 0 || burst < 0)
+			throw new IllegalArgumentException("limits must not be negative");
+		this.maxPerHost = maxPerHost;
+		this.rate = rate;
+		this.burst = Math.max(1, burst);
+		this.adaptive = adaptive;
+	}
+
+	/**
+	 * Wait until a request to the given host is admitted. Every admitted request
+	 * must be completed with {@link #release} or {@link #releaseOnConsume}.
+	 *
+	 * @param host Host and port of the request
+	 * @return permit of the request
+	 * @throws InterruptedIOException if the thread is interrupted while waiting
+	 */
+	@NonNull
+	public Permit acquire(String host) throws InterruptedIOException {
+		Host state = hosts.get(host);
+		if (state == null) {
+			final Host newState = new Host(host);
+			state = hosts.putIfAbsent(host, newState);
+			if (state == null) state = newState;
+		}
+		final long start = System.nanoTime();
+		try {
+			if (state.inFlight != null) state.inFlight.acquire();
+			try {
+				long delay;
+				while ((delay = state.reserve()) > 0) {
+					TimeUnit.NANOSECONDS.sleep(delay);
+				}
+			} catch (InterruptedException e) {
+				if (state.inFlight != null) state.inFlight.release();
+				throw e;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting for admission to " + host);
+		}
+		final long now = System.nanoTime();
+		final long wait = now - start;
+		requestCount.incrementAndGet();
+		if (wait > TimeUnit.MILLISECONDS.toNanos(1)) {
+			waitCount.incrementAndGet();
+			totalWait.addAndGet(wait);
+			long max;
+			while (wait > (max = maxWait.get()) && !maxWait.compareAndSet(max, wait)) {
+				// retry
+			}
+		}
+		return new Permit(state, now);
+	}
+
+	/**
+	 * Complete request admitted by {@link #acquire}
+	 *
+	 * @param permit Permit of the request
+	 * @param response Response of the request or null if the request failed
+	 */
+	public void release(Permit permit, HttpResponse response) {
+		final Host state = permit.host;
+		if (state.inFlight != null) state.inFlight.release();
+		if (adaptive && response != null) {
+			final long latency = System.nanoTime() - permit.start;
+			final int code = response.getStatusLine().getStatusCode();
+			if (code == 429 || code == 503) {
+				state.backoff(getRetryAfter(response), code);
+				backoffCount.incrementAndGet();
+			} else if (state.isSpike(latency)) {
+				state.backoff(-1, code);
+				backoffCount.incrementAndGet();
+			} else {
+				state.recover();
+			}
+		}
+	}
+
+	/**
+	 * Complete request admitted by {@link #acquire} once the body of its response is
+	 * read to the end or closed such that the transfer of the body counts as in flight
+	 * and its latency includes the body. The permit is released at once if the response
+	 * has no streamed body.
+	 *
+	 * @param permit Permit of the request
+	 * @param response Response of the request, its entity is replaced by one that
+	 *                 releases the permit
+	 * @return task that releases the permit if not already released, e.g. when the
+	 *          response is abandoned without reading its body
+	 */
+	@NonNull
+	public Runnable releaseOnConsume(final Permit permit, final HttpResponse response) {
+		final AtomicBoolean released = new AtomicBoolean();
+		final Runnable release = new Runnable() {
+			public void run() {
+				if (released.compareAndSet(false, true)) release(permit, response);
+			}
+		};
+		final HttpEntity entity = response.getEntity();
+		if (entity == null || !entity.isStreaming()) {
+			release.run();
+			return release;
+		}
+		final EofSensorWatcher watcher = new EofSensorWatcher() {
+			public boolean eofDetected(InputStream wrapped) {
+				release.run();
+				return true;
+			}
+
+			public boolean streamClosed(InputStream wrapped) {
+				release.run();
+				return true;
+			}
+
+			public boolean streamAbort(InputStream wrapped) {
+				release.run();
+				return true;
+			}
+		};
+		response.setEntity(new HttpEntityWrapper(entity) {
+			@Override
+			public InputStream getContent() throws IOException {
+				return new EofSensorInputStream(super.getContent(), watcher);
+			}
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				try {
+					super.writeTo(out);
+				} finally {
+					release.run();
+				}
+			}
+		});
+		return release;
+	}
+
+	/**
+	 * Get number of admitted requests
+	 * @return number of requests
+	 */
+	public int getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * Get number of requests that had to wait for admission
+	 * @return number of delayed requests
+	 */
+	public int getWaitCount() {
+		return waitCount.get();
+	}
+
+	/**
+	 * Get total time requests waited for admission
+	 * @return time in milliseconds
+	 */
+	public long getTotalWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalWait.get());
+	}
+
+	/**
+	 * Get longest time a request waited for admission
+	 * @return time in milliseconds
+	 */
+	public long getMaxWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWait.get());
+	}
+
+	/**
+	 * Get number of times a host was found overloaded
+	 * @return number of backoffs
+	 */
+	public int getBackoffCount() {
+		return backoffCount.get();
+	}
+
+	/**
+	 * Get one line summary of the admission wait times
+	 * @return summary
+	 */
+	@NonNull
+	public String getSummary() {
+		return String.format("%d requests, %d delayed, waited %d ms (max %d ms), %d backoffs",
+				getRequestCount(), getWaitCount(), getTotalWaitMillis(), getMaxWaitMillis(), getBackoffCount());
+	}
+
+	/**
+	 * Get Retry-After delay in seconds of response
+	 * @return delay or -1 if not present or not in seconds
+	 */
+	private static long getRetryAfter(HttpResponse response) {
+		final Header header = response.getFirstHeader("Retry-After");
+		if (header != null) {
+			try {
+				return Long.parseLong(header.getValue().trim());
+			} catch (NumberFormatException e) {
+				// HTTP-date is not supported
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Admission of a request in flight
+	 */
+	public static final class Permit {
+		private final Host host;
+		private final long start;
+
+		Permit(Host host, long start) {
+			this.host = host;
+			this.start = start;
+		}
+	}
+
+	private final class Host {
+
+		private final String name;
+		final Semaphore inFlight;
+
+		// token bucket and backoff state guarded by this
+		private double tokens = burst;
+		private long refillTime = System.nanoTime();
+		private double rateFactor = 1;
+		private long pauseUntil;
+		private long pause;
+		private double averageLatency;
+		private int samples;
+
+		Host(String name) {
+			this.name = name;
+			inFlight = maxPerHost > 0 ? new Semaphore(maxPerHost, true) : null;
+		}
+
+		/**
+		 * Take a token if available
+		 * @return 0 if admitted otherwise the time to wait in nanoseconds
+		 */
+		synchronized long reserve() {
+			final long now = System.nanoTime();
+			if (pauseUntil - now > 0) return pauseUntil - now;
+			if (rate <= 0) return 0;
+			final double currentRate = rate * rateFactor;
+			tokens = Math.min(burst, tokens + (now - refillTime) * currentRate / 1e9);
+			refillTime = now;
+			if (tokens >= 1) {
+				tokens--;
+				return 0;
+			}
+			return Math.max(1, (long) ((1 - tokens) * 1e9 / currentRate));
+		}
+
+		synchronized boolean isSpike(long latency) {
+			final boolean spike = samples >= LATENCY_SAMPLES && latency > LATENCY_SPIKE * averageLatency;
+			if (!spike) {
+				// moving average of latency without the spikes
+				samples++;
+				averageLatency += (latency - averageLatency) / Math.min(samples, LATENCY_SAMPLES);
+			}
+			return spike;
+		}
+
+		synchronized void backoff(long retryAfter, int code) {
+			pause = retryAfter >= 0 ? Math.min(MAX_PAUSE, TimeUnit.SECONDS.toNanos(retryAfter))
+					: Math.min(MAX_PAUSE, Math.max(MIN_PAUSE, pause * 2));
+			pauseUntil = System.nanoTime() + pause;
+			rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor / 2);
+			log.info("backoff {} for {} ms after status {}, rate factor {}", new Object[]{name,
+					TimeUnit.NANOSECONDS.toMillis(pause), code, rateFactor});
+		}
+
+		synchronized void recover() {
+			pause = 0;
+			if (rateFactor < 1) rateFactor = Math.min(1, rateFactor + MIN_RATE_FACTOR);
+		}
+	}
+}
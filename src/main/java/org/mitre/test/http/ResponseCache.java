@@ -0,0 +1,379 @@
+package org.mitre.test.http;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.http.*;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process cache of GET responses such that documents fetched by several tests
+ * such as root.xml and section feeds are transferred once. Only responses with an
+ * ETag or Last-Modified header are stored and every later request is still sent to
+ * the server as a conditional request with If-None-Match or If-Modified-Since,
+ * so a cached body is only used if the server answers 304 Not Modified.
+ * <P>
+ * Any other request such as POST, PUT or DELETE invalidates cached responses of
+ * the same URL, of URLs below it and of its parent URLs. Requests are never cached
+ * if the request has a <tt>Cache-Control: no-cache</tt> or <tt>no-store</tt> header,
+ * its own conditional or Range headers, or is marked with {@link #setNoCache}
+ * such as by tests that check the raw server behavior.
+ *
+ * Date: 10/17/26 2:05 AM
+ */
+public class ResponseCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+	public static final int DEFAULT_MAX_ENTRIES = 500;
+
+	/**
+	 * request parameter to bypass the cache
+	 */
+	public static final String NO_CACHE = "org.mitre.test.http.noCache";
+
+	/**
+	 * maximum size of a cached or coalesced body
+	 */
+	static final int MAX_BODY_SIZE = 1 << 20;
+
+	private final Map<String, Entry> entries;
+
+	private final AtomicInteger hitCount = new AtomicInteger();
+	private final AtomicInteger missCount = new AtomicInteger();
+
+	public ResponseCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create cache.
+	 *
+	 * @param maxEntries Maximum number of cached responses, least recently used
+	 *                   responses are removed first
+	 * @exception IllegalArgumentException if maxEntries is less than 1
+	 */
+	public ResponseCache(final int maxEntries) {
+		if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be positive");
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Mark request to bypass the cache such that the response is that of
+	 * the server as is.
+	 *
+	 * @param request HTTP request
+	 */
+	public static void setNoCache(HttpRequest request) {
+		request.getParams().setBooleanParameter(NO_CACHE, true);
+	}
+
+	/**
+	 * Check if response to the request can be cached
+	 *
+	 * @param request HTTP request
+	 * @return true if GET request that is not excluded from caching
+	 */
+	public static boolean isCacheable(HttpRequest request) {
+		if (!"GET".equals(request.getRequestLine().getMethod())) return false;
+		final HttpParams params = request.getParams();
+		if (params != null && params.getBooleanParameter(NO_CACHE, false)) return false;
+		if (request.containsHeader("If-None-Match") || request.containsHeader("If-Modified-Since")
+				|| request.containsHeader("If-Match") || request.containsHeader("If-Unmodified-Since")
+				|| request.containsHeader("If-Range") || request.containsHeader("Range")) {
+			return false;
+		}
+		for (Header header : request.getHeaders("Cache-Control")) {
+			final String value = header.getValue();
+			if (value != null && (value.contains("no-cache") || value.contains("no-store"))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check if request may change resources on the server
+	 *
+	 * @param request HTTP request
+	 * @return true if not a GET, HEAD, OPTIONS or TRACE request
+	 */
+	public static boolean isWrite(HttpRequest request) {
+		final String method = request.getRequestLine().getMethod();
+		return !"GET".equals(method) && !"HEAD".equals(method)
+				&& !"OPTIONS".equals(method) && !"TRACE".equals(method);
+	}
+
+	/**
+	 * Get key of cached response. Cached responses are separate by user
+	 * and the accepted content type.
+	 *
+	 * @param url URL of GET request
+	 * @param request HTTP request
+	 * @param user Identity of the active user or null
+	 * @return cache key
+	 */
+	@NonNull
+	public static String getKey(String url, HttpRequest request, String user) {
+		final StringBuilder buf = new StringBuilder(url);
+		buf.append('\n');
+		if (user != null) buf.append(user);
+		for (Header header : request.getHeaders("Accept")) {
+			buf.append('\n').append(header.getValue());
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Prepare request for sending to the server by adding the validators of the
+	 * cached response as conditional request headers.
+	 *
+	 * @param key cache key
+	 * @param request HTTP request
+	 * @return cached response or null if none
+	 */
+	@CheckForNull
+	public Entry prepare(String key, HttpRequest request) {
+		final Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry != null) {
+			if (entry.etag != null) request.setHeader("If-None-Match", entry.etag);
+			if (entry.lastModified != null) request.setHeader("If-Modified-Since", entry.lastModified);
+		}
+		return entry;
+	}
+
+	/**
+	 * Remove the conditional headers added by {@link #prepare} such that the
+	 * request is left as created by the caller.
+	 *
+	 * @param request HTTP request
+	 */
+	public static void unprepare(HttpRequest request) {
+		request.removeHeaders("If-None-Match");
+		request.removeHeaders("If-Modified-Since");
+	}
+
+	/**
+	 * Handle response to request prepared with {@link #prepare}. Returns the cached
+	 * response if not modified otherwise caches and returns the new response.
+	 *
+	 * @param key cache key
+	 * @param entry cached response returned by prepare
+	 * @param response response of the server
+	 * @return response for the caller
+	 * @throws IOException if the response body cannot be read
+	 */
+	@NonNull
+	public HttpResponse update(String key, Entry entry, HttpResponse response)
+			throws IOException {
+		final int code = response.getStatusLine().getStatusCode();
+		if (code == 304 && entry != null) {
+			EntityUtils.consume(response.getEntity());
+			hitCount.incrementAndGet();
+			log.trace("not modified: {}", key);
+			return entry.newResponse();
+		}
+		missCount.incrementAndGet();
+		final Entry newEntry = code == 200 ? Entry.create(response) : null;
+		synchronized (entries) {
+			if (newEntry != null) entries.put(key, newEntry);
+			else if (entry != null) entries.remove(key);
+		}
+		return newEntry != null ? newEntry.newResponse() : response;
+	}
+
+	/**
+	 * Remove cached responses of URLs that are the same as, below or parent
+	 * of the given URL.
+	 *
+	 * @param url URL of request that may have changed resources on the server
+	 */
+	public void invalidate(String url) {
+		synchronized (entries) {
+			for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); ) {
+				final String key = it.next();
+				final String cachedUrl = key.substring(0, key.indexOf('\n'));
+				if (cachedUrl.startsWith(url) || url.startsWith(cachedUrl)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Get number of requests answered with a cached response after the server
+	 * responded 304 Not Modified
+	 * @return number of cache hits
+	 */
+	public int getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Get number of cacheable requests for which the server sent the response body
+	 * @return number of cache misses
+	 */
+	public int getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Cached or buffered response. Entries are never modified once created.
+	 */
+	public static final class Entry {
+
+		private final StatusLine statusLine;
+		private final Header[] headers;
+		private final byte[] body;
+		private final Header contentType;
+		private final Header contentEncoding;
+		private final String etag;
+		private final String lastModified;
+
+		private Entry(StatusLine statusLine, Header[] headers, byte[] body,
+					  Header contentType, Header contentEncoding) {
+			this.statusLine = statusLine;
+			this.headers = headers;
+			this.body = body;
+			this.contentType = contentType;
+			this.contentEncoding = contentEncoding;
+			this.etag = getValue(headers, "ETag");
+			this.lastModified = getValue(headers, "Last-Modified");
+		}
+
+		/**
+		 * Create entry buffering the body of the response. Returns null if the
+		 * response has no validators or must not be stored.
+		 */
+		@CheckForNull
+		static Entry create(HttpResponse response) throws IOException {
+			final Header[] headers = response.getAllHeaders();
+			if (getValue(headers, "ETag") == null && getValue(headers, "Last-Modified") == null) {
+				return null;
+			}
+			for (Header header : response.getHeaders("Cache-Control")) {
+				final String value = header.getValue();
+				if (value != null && value.contains("no-store")) return null;
+			}
+			final HttpEntity entity = response.getEntity();
+			if (entity == null) return null;
+			final byte[] body = readBody(response);
+			if (body == null) return null;
+			return new Entry(response.getStatusLine(), headers, body,
+					entity.getContentType(), entity.getContentEncoding());
+		}
+
+		/**
+		 * Create entry buffering the body of any response. Returns null if the body
+		 * is larger than MAX_BODY_SIZE in which case the response still streams
+		 * the whole body.
+		 */
+		@CheckForNull
+		static Entry buffer(HttpResponse response) throws IOException {
+			final HttpEntity entity = response.getEntity();
+			if (entity == null) {
+				return new Entry(response.getStatusLine(), response.getAllHeaders(), null, null, null);
+			}
+			final byte[] body = readBody(response);
+			if (body == null) return null;
+			return new Entry(response.getStatusLine(), response.getAllHeaders(), body,
+					entity.getContentType(), entity.getContentEncoding());
+		}
+
+		/**
+		 * Read body of the response if not larger than MAX_BODY_SIZE. If larger the
+		 * entity of the response is replaced by one that streams the bytes already
+		 * read followed by the rest of the body.
+		 *
+		 * @return body or null if too large
+		 */
+		@CheckForNull
+		private static byte[] readBody(HttpResponse response) throws IOException {
+			final HttpEntity entity = response.getEntity();
+			final long length = entity.getContentLength();
+			if (length > MAX_BODY_SIZE) return null;
+			final InputStream is = entity.getContent();
+			if (is == null) return new byte[0];
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(length > 0 ? (int) length : 4096);
+			final byte[] buf = new byte[8192];
+			try {
+				int n;
+				while (bos.size() <= MAX_BODY_SIZE && (n = is.read(buf)) != -1) {
+					bos.write(buf, 0, n);
+				}
+			} catch (IOException e) {
+				is.close();
+				throw e;
+			}
+			if (bos.size() <= MAX_BODY_SIZE) {
+				is.close();
+				return bos.toByteArray();
+			}
+			final InputStreamEntity rest = new InputStreamEntity(
+					new SequenceInputStream(new ByteArrayInputStream(bos.toByteArray()), is), -1);
+			rest.setContentType(entity.getContentType());
+			rest.setContentEncoding(entity.getContentEncoding());
+			rest.setChunked(entity.isChunked());
+			response.setEntity(rest);
+			return null;
+		}
+
+		/**
+		 * Create new response with the cached status, headers and body
+		 */
+		@NonNull
+		HttpResponse newResponse() {
+			final HttpResponse response = new BasicHttpResponse(statusLine);
+			response.setHeaders(headers);
+			if (body != null) response.setEntity(newEntity());
+			return response;
+		}
+
+		private HttpEntity newEntity() {
+			final ByteArrayEntity entity = new ByteArrayEntity(body);
+			entity.setContentType(contentType);
+			entity.setContentEncoding(contentEncoding);
+			return entity;
+		}
+
+		@CheckForNull
+		private static String getValue(Header[] headers, String name) {
+			for (Header header : headers) {
+				if (name.equalsIgnoreCase(header.getName())) return header.getValue();
+			}
+			return null;
+		}
+	}
+}
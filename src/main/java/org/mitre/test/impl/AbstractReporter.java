@@ -1,5 +1,7 @@
 package org.mitre.test.impl;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.mitre.test.Loader;
 import org.mitre.test.Reporter;
 
 import java.io.FileOutputStream;
@@ -20,6 +22,21 @@ public abstract class AbstractReporter implements Reporter {
 
     protected PrintStream outputStream, origSysOut;
 
+    protected Loader loader;
+
+    public void setLoader(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Get Loader whose tests are reported
+     * @return Loader assigned to this reporter otherwise the singleton Loader instance
+     */
+    @NonNull
+    protected Loader getLoader() {
+        return loader != null ? loader : Loader.getInstance();
+    }
+
     public long getStartTime() {
         return startTime;
     }
@@ -2,6 +2,9 @@ package org.mitre.test.impl;
 
 import org.mitre.test.Loader;
 import org.mitre.test.TestUnit;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+import org.mitre.test.http.RequestLimiter;
 
 import org.slf4j.LoggerFactory;
 
@@ -20,7 +23,9 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 
 /**
  * HTML output report writer.
@@ -105,7 +110,7 @@ public class HtmlReporter extends AbstractReporter {
     public void executeStart() {
         assert(!inPreBlock);
         startTime = System.currentTimeMillis();
-        final Loader loader = Loader.getInstance();
+        final Loader loader = getLoader();
         System.out.println("<hr><h2><a name='exec'>Execution</a></h2>");
         System.out.printf("<h2>Exec Tests (%d) on %s</h2>%n", loader.getCount(), new Date(startTime));
         //System.out.println("<pre>");
@@ -177,7 +182,7 @@ public class HtmlReporter extends AbstractReporter {
                 //System.out.println("<BR>XXX: " + endp);
                 if (endp > ind) {
                     String name = desc.substring(ind+5, endp);
-                    if (Loader.getInstance().getIdSet().contains(name)) {
+                    if (getLoader().getIdSet().contains(name)) {
                         desc = String.format("%s <a href='#%s'>%s</a>%s",
                                 desc.substring(0,ind+5), name, name,
                                 desc.substring(endp));
@@ -205,7 +210,7 @@ public class HtmlReporter extends AbstractReporter {
         System.out.println("<HR>");
         System.out.println("<h2><a name='summary'>Conformance Test Report</a></h2>");
         System.out.println("<table>");
-        final Loader loader = Loader.getInstance();
+        final Loader loader = getLoader();
         Set<TestUnit> tests = loader.getSortedSet();
         for (TestUnit test : tests) {
             TestUnit.StatusEnumType status = test.getStatus();
@@ -321,7 +326,31 @@ public class HtmlReporter extends AbstractReporter {
         System.out.printf("<tr><td>Passed:<td>%d%n", successCount);
         System.out.printf("<tr><td>Failures:<td>%d<tr><td>Warnings:<td>%d", failed, warningCount);
         System.out.printf("<tr><td>Time elapsed:<td>%.1f sec%n", elapsedTime / 1000.0);
-        System.out.println("</table></blockquote><P>Return to <a href='#toc'>Table of Contents</a>");
+        final RequestLimiter limiter = getLoader().getContext().getRequestLimiter();
+        if (limiter != null) {
+            System.out.printf("<tr><td>Request admission:<td>%s%n", escapeHtml(limiter.getSummary()));
+        }
+        System.out.println("</table></blockquote>");
+        final LatencyRecorder recorder = getLoader().getContext().getLatencyRecorder();
+        final SortedMap<String, LatencyHistogram.Snapshot> latencies = recorder == null
+                ? null : recorder.getSnapshots();
+        if (latencies != null && !latencies.isEmpty()) {
+            System.out.println("<h3>HTTP Latency</h3>\n<blockquote><table border='1' cellpadding='2'>");
+            System.out.println("<tr><th>Exchange<th>Count<th>p50 ms<th>p90 ms<th>p99 ms<th>p99.9 ms<th>Max ms");
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : latencies.entrySet()) {
+                final LatencyHistogram.Snapshot snapshot = entry.getValue();
+                System.out.printf("<tr><td>%s<td align='right'>%d<td align='right'>%.1f<td align='right'>%.1f" +
+                        "<td align='right'>%.1f<td align='right'>%.1f<td align='right'>%.1f%n",
+                        escapeHtml(entry.getKey()), snapshot.getCount(),
+                        LatencyRecorder.toMillis(snapshot.getValueAtPercentile(50)),
+                        LatencyRecorder.toMillis(snapshot.getValueAtPercentile(90)),
+                        LatencyRecorder.toMillis(snapshot.getValueAtPercentile(99)),
+                        LatencyRecorder.toMillis(snapshot.getValueAtPercentile(99.9)),
+                        LatencyRecorder.toMillis(snapshot.getMax()));
+            }
+            System.out.println("</table></blockquote>");
+        }
+        System.out.println("<P>Return to <a href='#toc'>Table of Contents</a>");
 
         System.out.println("</body>");
         System.out.println("</html>");
@@ -7,6 +7,8 @@ import org.apache.commons.lang.StringUtils;
 
 import org.mitre.test.Loader;
 import org.mitre.test.TestUnit;
+import org.mitre.test.http.LatencyRecorder;
+import org.mitre.test.http.RequestLimiter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,7 +38,7 @@ public class TextReporter extends AbstractReporter {
     @Override
     public void executeStart() {
         startTime = System.currentTimeMillis();
-        final Loader loader = Loader.getInstance();
+        final Loader loader = getLoader();
         System.out.println("\nExecution:");
         System.out.printf("%nExec Tests (%d) on %s%n", loader.getCount(), new Date(startTime));
     }
@@ -91,7 +93,7 @@ public class TextReporter extends AbstractReporter {
         int failed = 0;
         int testsRun = 0;
         int warningCount = 0 ;
-        final Loader loader = Loader.getInstance();
+        final Loader loader = getLoader();
         for (TestUnit test : loader.getSortedSet()) {
             TestUnit.StatusEnumType status = test.getStatus();
             if (status == null) {
@@ -165,6 +167,14 @@ public class TextReporter extends AbstractReporter {
 
         System.out.printf("Tests run: %d, Failures: %d, Warnings: %d, Time elapsed: %.1f sec%n",
                 testsRun, failed, warningCount, elapsedTime / 1000.0);
+        final RequestLimiter limiter = loader.getContext().getRequestLimiter();
+        if (limiter != null) {
+            System.out.println("Request admission: " + limiter.getSummary());
+        }
+        final LatencyRecorder recorder = loader.getContext().getLatencyRecorder();
+        if (recorder != null) {
+            recorder.printSummary(System.out);
+        }
 
         if (outputStream != null) {
             System.setOut(origSysOut);
@@ -0,0 +1,43 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.mitre.rhex.server.MockRhexServer;
+import org.mitre.rhex.server.SyntheticDataset;
+
+import java.io.IOException;
+
+/**
+ * Base of tests running against an embedded mock RHEx server. The server is
+ * stopped and the Context of the loader closed after each test.
+ *
+ * Date: 10/18/26 10:20 AM
+ */
+public abstract class MockServerTestCase extends TestCase {
+
+	protected MockRhexServer server;
+	protected Loader loader;
+
+	/**
+	 * Start server with the dataset and create a loader without tests whose
+	 * Context targets the first record of the server.
+	 *
+	 * @param dataset Dataset served
+	 * @throws IOException if the server cannot be started
+	 */
+	protected void startServer(SyntheticDataset dataset) throws IOException {
+		server = new MockRhexServer(dataset);
+		server.start(0);
+		XMLConfiguration config = new XMLConfiguration();
+		server.configure(config);
+		Context context = new Context();
+		context.load(config);
+		loader = new Loader(context);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (loader != null) loader.getContext().close();
+		if (server != null) server.stop();
+	}
+}
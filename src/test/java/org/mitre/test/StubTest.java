@@ -277,6 +277,70 @@ public abstract class StubTest extends BaseTest {
 		}
 	}
 
+	static class TestCycleA extends StubTest {
+
+		@Override
+		public boolean isRequired() {
+			return true;
+		}
+
+		@NonNull
+		@Override
+		public List<Class<? extends TestUnit>> getDependencyClasses() {
+			return Collections.<Class<? extends TestUnit>> singletonList(TestCycleB.class); // 1.0.11
+		}
+
+		@NonNull
+		@Override
+		public String getId() {
+			return "1.0.10";
+		}
+	}
+
+	static class TestCycleB extends StubTest {
+
+		@Override
+		public boolean isRequired() {
+			return true;
+		}
+
+		@NonNull
+		@Override
+		public List<Class<? extends TestUnit>> getDependencyClasses() {
+			// cycle back to TestCycleA
+			List<Class<? extends TestUnit>> depends = new ArrayList<Class<? extends TestUnit>>(2);
+			depends.add(Test1.class); // 1.0.1
+			depends.add(TestCycleA.class); // 1.0.10
+			return depends;
+		}
+
+		@NonNull
+		@Override
+		public String getId() {
+			return "1.0.11";
+		}
+	}
+
+	static class TestCycleC extends StubTest {
+
+		@Override
+		public boolean isRequired() {
+			return true;
+		}
+
+		@NonNull
+		@Override
+		public List<Class<? extends TestUnit>> getDependencyClasses() {
+			return Collections.<Class<? extends TestUnit>> singletonList(TestCycleA.class); // 1.0.10
+		}
+
+		@NonNull
+		@Override
+		public String getId() {
+			return "1.0.12";
+		}
+	}
+
 	static class TestXml extends BaseXmlTest {
 
 		@Override
@@ -286,7 +350,7 @@ public abstract class StubTest extends BaseTest {
 
 		@Override
 		public void execute() throws TestException {
-			Context context = Loader.getInstance().getContext();
+			Context context = getContext();
 			try {
 				ByteArrayOutputStream bos = new ByteArrayOutputStream();
 				IOUtils.copy(new FileReader("data/test.atom"), bos);
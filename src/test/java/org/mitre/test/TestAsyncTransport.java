@@ -0,0 +1,153 @@
+package org.mitre.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.util.EntityUtils;
+import org.mitre.rhex.security.RhexHttpSecurityChecker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Date: 10/17/26 4:30 AM
+ */
+public class TestAsyncTransport extends TestCase {
+
+	private static final int REQUESTS = 50;
+
+	private HttpServer server;
+	private String url;
+	private Context root;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/auth/developer/callback", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				exchange.getResponseHeaders().set("Set-Cookie", "_session_id=s1; path=/");
+				exchange.getResponseHeaders().set("Location", "/");
+				exchange.sendResponseHeaders(302, -1);
+				exchange.close();
+			}
+		});
+		server.createContext("/records/1", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				final String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+				final boolean valid = cookie != null && cookie.contains("_session_id=s1");
+				final byte[] body = "<feed/>".getBytes("UTF-8");
+				exchange.sendResponseHeaders(valid ? 200 : 401, body.length);
+				final OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort();
+		root = new Context();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		root.close();
+		server.stop(0);
+	}
+
+	public void testSession() throws Exception {
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", url + "/records/1");
+		config.setProperty("HttpRequestChecker", RhexHttpSecurityChecker.class.getName());
+		config.setProperty("loginURL", url + "/auth/developer/callback");
+		config.setProperty("loginEmail", "test@example.com");
+		config.setProperty("loginPassword", "test");
+		config.setProperty("limit.maxPerHost", "4");
+		final Context context = new Context(root, config);
+		try {
+			final AtomicInteger completed = new AtomicInteger();
+			final CountDownLatch done = new CountDownLatch(REQUESTS);
+			final List<Future<HttpResponse>> results = new ArrayList<Future<HttpResponse>>();
+			for (int i = 0; i < REQUESTS; i++) {
+				results.add(context.executeRequestAsync(new HttpGet(context.getBaseURL()),
+						new FutureCallback<HttpResponse>() {
+							public void completed(HttpResponse response) {
+								completed.incrementAndGet();
+								done.countDown();
+							}
+
+							public void failed(Exception e) {
+								done.countDown();
+							}
+
+							public void cancelled() {
+								done.countDown();
+							}
+						}));
+			}
+			for (Future<HttpResponse> result : results) {
+				final HttpResponse response = result.get(10, TimeUnit.SECONDS);
+				// every request carries the session cookie
+				assertEquals(200, response.getStatusLine().getStatusCode());
+				assertEquals("<feed/>", EntityUtils.toString(response.getEntity()));
+			}
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			assertEquals(REQUESTS, completed.get());
+			assertEquals(REQUESTS, context.getRequestLimiter().getRequestCount());
+		} finally {
+			context.close();
+		}
+		// child contexts share the async client of the root
+		assertSame(root.getHttpAsyncClient(), context.getHttpAsyncClient());
+	}
+
+	public void testDispatchFailure() throws Exception {
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", url + "/records/1");
+		config.setProperty("HttpRequestChecker", FailingChecker.class.getName());
+		config.setProperty("limit.maxPerHost", "1");
+		final Context context = new Context(root, config);
+		try {
+			// permit of a request that was never sent is released so the next one is not blocked
+			for (int i = 0; i < 2; i++) {
+				try {
+					context.executeRequestAsync(new HttpGet(context.getBaseURL()), null);
+					fail("expected IllegalStateException");
+				} catch (IllegalStateException e) {
+					// expected
+				}
+			}
+		} finally {
+			context.close();
+		}
+	}
+
+	public static class FailingChecker extends TestContext.StubChecker implements AsyncHttpRequestChecker {
+
+		public Future<HttpResponse> executeRequestAsync(Context context, HttpAsyncClient client,
+														HttpUriRequest request, FutureCallback<HttpResponse> callback) {
+			throw new IllegalStateException("I/O reactor shut down");
+		}
+	}
+
+	public void testNoChecker() throws Exception {
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", url + "/records/1");
+		final Context context = new Context(root, config);
+		final HttpResponse response = context.executeRequestAsync(new HttpGet(context.getBaseURL()), null)
+				.get(10, TimeUnit.SECONDS);
+		assertEquals(401, response.getStatusLine().getStatusCode());
+	}
+}
@@ -0,0 +1,86 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Date: 10/16/26 1:40 PM
+ */
+public class TestAtomFeedHandler extends TestCase implements ErrorHandler, AtomFeedHandler.Listener {
+
+	private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+
+	private final SchemaRegistry registry = new SchemaRegistry();
+	private final List<String> ids = new ArrayList<String>();
+	private final List<String> links = new ArrayList<String>();
+	private int errors;
+
+	public void testStreamingFeed() throws IOException, SAXException {
+		AtomFeedHandler handler = new AtomFeedHandler(this);
+		InputStream is = new FileInputStream("data/test.atom");
+		try {
+			registry.parse(is, this, registry.getSchema("schemas/atom.xsd"), ATOM_NS, "feed", handler);
+		} finally {
+			is.close();
+		}
+		assertTrue(handler.isFeed());
+		assertEquals(4, handler.getEntryCount());
+		assertEquals(Arrays.asList("id:3:c32", "id:3:allergies", "id:3:medications", "id:3:vital_signs"), ids);
+		// feed-level links are not entry links
+		assertEquals(5, links.size());
+		assertEquals("http://rhex.mitre.org:3000/records/3/c32 null", links.get(0));
+		assertEquals("http://rhex.mitre.org:3000/records/3/vital_signs application/json", links.get(4));
+		assertEquals(0, errors);
+	}
+
+	public void testInvalidFeed() throws IOException, SAXException {
+		AtomFeedHandler handler = new AtomFeedHandler(this);
+		String xml = "<feed xmlns='" + ATOM_NS + "'><entry><id>1</id><link href='a'/><bogus/></entry></feed>";
+		registry.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), this,
+				registry.getSchema("schemas/atom.xsd"), ATOM_NS, "feed", handler);
+		assertTrue(handler.isFeed());
+		assertEquals(1, handler.getEntryCount());
+		assertEquals(Arrays.asList("1"), ids);
+		assertTrue(errors > 0);
+	}
+
+	public void testNotFeed() throws IOException, SAXException {
+		AtomFeedHandler handler = new AtomFeedHandler(this);
+		String xml = "<root xmlns='urn:other'><entry><id>1</id></entry></root>";
+		registry.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")), this, null, ATOM_NS, "feed", handler);
+		assertFalse(handler.isFeed());
+		assertEquals("urn:other", handler.getRootNamespace());
+		assertEquals(0, handler.getEntryCount());
+		assertTrue(ids.isEmpty());
+	}
+
+	public void entry(String id, String[] hrefs, String[] types) {
+		ids.add(id);
+		for (int i = 0; i < hrefs.length; i++) {
+			links.add(hrefs[i] + " " + types[i]);
+		}
+	}
+
+	public void warning(SAXParseException exception) throws SAXException {
+		System.out.println("Warning: " + exception);
+	}
+
+	public void error(SAXParseException exception) throws SAXException {
+		System.out.println("Error: " + exception.getMessage());
+		errors++;
+	}
+
+	public void fatalError(SAXParseException exception) throws SAXException {
+		fail(exception.toString());
+	}
+}
@@ -0,0 +1,185 @@
+package org.mitre.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Date: 10/16/26 3:40 PM
+ */
+public class TestAtomFeedPager extends TestCase {
+
+	private static final int PAGES = 5;
+
+	private final Context context = Loader.getInstance().getContext();
+	private HttpServer server;
+	private URI baseUri;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/feed", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				// /feed?page=N
+				String query = exchange.getRequestURI().getQuery();
+				int page = query == null ? 1 : Integer.parseInt(query.substring(5));
+				StringBuilder buf = new StringBuilder();
+				buf.append("<feed xmlns='http://www.w3.org/2005/Atom'><id>feed</id><title>feed</title>")
+						.append("<updated>2012-04-01T00:00:00Z</updated>");
+				if (page < PAGES) buf.append("<link rel='next' href='feed?page=").append(page + 1).append("'/>");
+				else if (page == 99) buf.append("<link rel='next' href='feed?page=99'/>"); // loop
+				buf.append("<entry><id>").append(page).append("</id><title>t</title>")
+						.append("<updated>2012-04-01T00:00:00Z</updated>")
+						.append("<link href='doc/").append(page).append("' type='application/xml'/></entry></feed>");
+				byte[] body = buf.toString().getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type", "application/atom+xml");
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream os = exchange.getResponseBody();
+				os.write(body);
+				os.close();
+			}
+		});
+		server.start();
+		baseUri = new URI("http://127.0.0.1:" + server.getAddress().getPort() + "/feed");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop(0);
+	}
+
+	public void testSynchronous() {
+		checkPages(0);
+	}
+
+	public void testPrefetch() {
+		checkPages(1);
+		checkPages(3);
+	}
+
+	private void checkPages(int prefetch) {
+		AtomFeedPager pager = new AtomFeedPager(context, baseUri, prefetch);
+		List<String> ids = new ArrayList<String>();
+		try {
+			while (pager.hasNext()) {
+				AtomFeedPager.Page page = pager.next();
+				assertNull(page.getError());
+				assertEquals(200, page.getStatusCode());
+				assertEquals("application/atom+xml", page.getContentType());
+				assertEquals(0, page.getXmlErrors());
+				FeedIndex index = page.getIndex();
+				assertNotNull(index);
+				assertEquals(1, index.getEntryCount());
+				ids.add(index.getEntryId(0));
+			}
+		} finally {
+			pager.close();
+		}
+		assertEquals(Arrays.asList("1", "2", "3", "4", "5"), ids);
+		assertFalse(pager.hasNext());
+	}
+
+	public void testLoop() {
+		URI start = baseUri.resolve("feed?page=99");
+		AtomFeedPager pager = new AtomFeedPager(context, start, 1, Collections.<URI>emptySet());
+		try {
+			assertTrue(pager.hasNext());
+			AtomFeedPager.Page page = pager.next();
+			assertNull(page.getNext());
+			assertEquals(1, page.getWarnings().size());
+			assertFalse(pager.hasNext());
+		} finally {
+			pager.close();
+		}
+	}
+
+	public void testPrefetchUser() {
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", baseUri.toString());
+		config.setProperty("HttpRequestChecker", RecordingChecker.class.getName());
+		for (String user : new String[] { Context.DEFAULT_USER, "user1" }) {
+			config.setProperty(user + ".email", user + "@example.com");
+			config.setProperty(user + ".password", "secret");
+		}
+		final Context userContext = new Context(new Context(), config);
+		RecordingChecker.emails.clear();
+		assertTrue(userContext.setUser("user1"));
+		// pages fetched ahead in the background run as the user of the caller
+		AtomFeedPager pager = new AtomFeedPager(userContext, baseUri, 2);
+		int pages = 0;
+		try {
+			while (pager.hasNext()) {
+				assertNull(pager.next().getError());
+				pages++;
+			}
+		} finally {
+			pager.close();
+			userContext.resetUser();
+			userContext.close();
+		}
+		assertEquals(PAGES, pages);
+		assertEquals(Collections.singleton("user1@example.com"), RecordingChecker.emails);
+	}
+
+	public void testPrefetchTestId() {
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", baseUri.toString());
+		final Context testContext = new Context(new Context(), config);
+		LatencyRecorder.bindTest("6.4.1.1");
+		// latency of pages fetched ahead in the background is recorded for the test of the caller
+		AtomFeedPager pager = new AtomFeedPager(testContext, baseUri, 2);
+		try {
+			while (pager.hasNext()) {
+				assertNull(pager.next().getError());
+			}
+		} finally {
+			pager.close();
+			LatencyRecorder.bindTest(null);
+		}
+		final LatencyRecorder recorder = testContext.getLatencyRecorder();
+		testContext.close();
+		assertNotNull(recorder);
+		final Map<String, LatencyHistogram.Snapshot> snapshots = recorder.getSnapshots();
+		assertEquals(1, snapshots.size());
+		final Map.Entry<String, LatencyHistogram.Snapshot> entry = snapshots.entrySet().iterator().next();
+		assertTrue(entry.getKey(), entry.getKey().startsWith("6.4.1.1 GET "));
+		assertEquals(PAGES, entry.getValue().getCount());
+	}
+
+	public static class RecordingChecker extends TestContext.UserStubChecker {
+
+		static final Set<String> emails = Collections.synchronizedSet(new HashSet<String>());
+
+		public HttpResponse executeRequest(Context context, HttpClient client, HttpUriRequest request)
+				throws IOException {
+			emails.add(String.valueOf(context.getUserEmail()));
+			return super.executeRequest(context, client, request);
+		}
+	}
+
+	public void testClose() {
+		AtomFeedPager pager = new AtomFeedPager(context, baseUri, 2);
+		assertTrue(pager.hasNext());
+		pager.close();
+		assertFalse(pager.hasNext());
+	}
+}
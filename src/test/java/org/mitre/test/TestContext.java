@@ -1,11 +1,15 @@
 package org.mitre.test;
 
 import junit.framework.TestCase;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
 import org.mitre.test.Context;
 import org.mitre.test.Loader;
+import org.mitre.test.http.HttpClientPool;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -14,6 +18,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * User: MATHEWS
@@ -89,6 +100,129 @@ public class TestContext extends TestCase implements ErrorHandler {
 		}
 	}
 
+	public void testHttpClientPool() {
+		final HttpClientPool pool = context.getHttpClientPool();
+		assertSame(pool, context.getHttpClientPool());
+		final HttpClient client1 = context.getHttpClient();
+		final HttpClient client2 = context.getHttpClient();
+		assertNotSame(client1, client2);
+		// shutdown of one client must not close the shared pool
+		client1.getConnectionManager().shutdown();
+		assertFalse(pool.isClosed());
+		client2.getConnectionManager().shutdown();
+		assertEquals(0, pool.getTotalStats().getLeased());
+
+		context.close();
+		assertTrue(pool.isClosed());
+		// pool is re-created on demand after close
+		final HttpClientPool pool2 = context.getHttpClientPool();
+		assertNotSame(pool, pool2);
+		assertFalse(pool2.isClosed());
+	}
+
+	public void testSharedSessions() {
+		final Context root = new Context();
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", "http://localhost:3000/records/1");
+		config.setProperty("HttpRequestChecker", StubChecker.class.getName());
+		config.setProperty("loginEmail", "user@example.com");
+		final int setupCount = StubChecker.setupCount.get();
+		final Context first = new Context(root, config);
+		assertEquals(setupCount + 1, StubChecker.setupCount.get());
+		first.close();
+		// authenticated checker is reused by the next context with the same login
+		final Context second = new Context(root, (XMLConfiguration) config.clone());
+		assertEquals(setupCount + 1, StubChecker.setupCount.get());
+		// but not while in use
+		final Context third = new Context(root, (XMLConfiguration) config.clone());
+		assertEquals(setupCount + 2, StubChecker.setupCount.get());
+		config.setProperty("loginEmail", "other@example.com");
+		second.close();
+		new Context(root, config).close();
+		assertEquals(setupCount + 3, StubChecker.setupCount.get());
+		third.close();
+		root.close();
+	}
+
+	public void testUserContextPerThread() throws Exception {
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", "http://localhost:3000/records/1");
+		config.setProperty("HttpRequestChecker", UserStubChecker.class.getName());
+		final String[] users = { Context.DEFAULT_USER, "user1", "user2" };
+		for (String user : users) {
+			config.setProperty(user + ".email", user + "@example.com");
+			config.setProperty(user + ".password", "secret");
+		}
+		final Context userContext = new Context(new Context(), config);
+		assertEquals(Context.DEFAULT_USER, userContext.getUser());
+		final CyclicBarrier barrier = new CyclicBarrier(users.length);
+		final ExecutorService pool = Executors.newFixedThreadPool(users.length);
+		try {
+			final List<Future<String>> results = new ArrayList<Future<String>>();
+			for (final String user : users) {
+				results.add(pool.submit(new Callable<String>() {
+					public String call() throws Exception {
+						assertTrue(userContext.setUser(user));
+						// all threads have switched users before any checks its own
+						barrier.await(10, TimeUnit.SECONDS);
+						assertEquals(user, userContext.getUser());
+						final String email = userContext.getUserEmail();
+						userContext.resetUser();
+						return email;
+					}
+				}));
+			}
+			for (int i = 0; i < users.length; i++) {
+				assertEquals(users[i] + "@example.com", results.get(i).get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(Context.DEFAULT_USER, userContext.getUser());
+		assertFalse(userContext.setUser("unknown"));
+		userContext.close();
+	}
+
+	public static class UserStubChecker extends StubChecker {
+
+		private final Set<String> users = Collections.synchronizedSet(new HashSet<String>());
+
+		public void setup(Context context) {
+			setUser(context, Context.DEFAULT_USER, context.getUserProperty(Context.DEFAULT_USER, "email"), null);
+		}
+
+		public void setUser(Context context, String userId, String userEmail, String userPassword) {
+			users.add(userEmail);
+		}
+
+		public String getCurrentUser(Context context) {
+			final String userEmail = context.getUserEmail();
+			return userEmail != null && users.contains(userEmail) ? userEmail : Context.DEFAULT_USER + "@example.com";
+		}
+	}
+
+	public static class StubChecker implements HttpRequestChecker {
+
+		static final AtomicInteger setupCount = new AtomicInteger();
+
+		public HttpResponse executeRequest(Context context, HttpClient client, HttpUriRequest request)
+				throws IOException {
+			return client.execute(request);
+		}
+
+		public void setup(Context context) {
+			setupCount.incrementAndGet();
+		}
+
+		public void setUser(Context context, String userId, String userEmail, String userPassword) {
+			// not implemented
+		}
+
+		public String getCurrentUser(Context context) {
+			return null;
+		}
+	}
+
 	@Override
 	public void warning(SAXParseException exception) throws SAXException {
 		System.out.println("Warning: " + exception);
@@ -0,0 +1,54 @@
+package org.mitre.test;
+
+import org.apache.commons.configuration.XMLConfiguration;
+import org.mitre.rhex.BaseSectionFromRootXml;
+import org.mitre.rhex.BaseUrlGetTest;
+import org.mitre.rhex.BaseUrlRootXml;
+import org.mitre.rhex.DocumentTest;
+import org.mitre.rhex.security.RhexHttpSecurityChecker;
+import org.mitre.rhex.server.MockRhexServer;
+import org.mitre.rhex.server.SyntheticDataset;
+
+/**
+ * Date: 10/18/26 9:15 AM
+ */
+public class TestDocumentCrawl extends MockServerTestCase {
+
+	private static final int PARALLELISM = 8;
+
+	@Override
+	protected void setUp() throws Exception {
+		startServer(new SyntheticDataset(1, 1, 4));
+		XMLConfiguration config = loader.getContext().getConfiguration();
+		config.setProperty(DocumentTest.PROP_PARALLELISM, String.valueOf(PARALLELISM));
+		config.setProperty("http.asyncThreads", "2");
+		loader.load(new BaseUrlGetTest());
+		loader.load(new BaseUrlRootXml());
+		loader.load(new BaseSectionFromRootXml());
+		loader.load(new DocumentTest());
+	}
+
+	public void testInFlight() {
+		server.setDelay(100);
+		loader.execute(1);
+		final TestUnit test = loader.getTest(DocumentTest.class);
+		assertEquals(TestUnit.StatusEnumType.SUCCESS, test.getStatus());
+		// one thread executes the test with two I/O threads yet more documents are in flight
+		assertTrue("max active " + server.getMaxActiveRequests(), server.getMaxActiveRequests() > 3);
+	}
+
+	public void testSessionExpiry() {
+		// each session accepts a few requests so it expires several times during the crawl
+		server.setSessionRequests(10);
+		XMLConfiguration config = loader.getContext().getConfiguration();
+		config.setProperty("HttpRequestChecker", RhexHttpSecurityChecker.class.getName());
+		config.setProperty("loginURL", "http://127.0.0.1:" + server.getPort() + MockRhexServer.LOGIN_PATH);
+		config.setProperty("loginEmail", "test@example.com");
+		config.setProperty("loginPassword", "test");
+		loader.getContext().load(config);
+		loader.execute(1);
+		final TestUnit test = loader.getTest(DocumentTest.class);
+		assertEquals(test.getStatusDescription(), TestUnit.StatusEnumType.SUCCESS, test.getStatus());
+		assertTrue("logins " + server.getLoginCount(), server.getLoginCount() > 2);
+	}
+}
@@ -22,6 +22,9 @@ public class TestExcecutionPlan extends TestCase {
 	private final static Test6 test6 = new Test6();
 	private final static Test7 test7 = new Test7();
 	private final static Test8 test8 = new Test8();
+	private final static TestCycleA cycleA = new TestCycleA();
+	private final static TestCycleB cycleB = new TestCycleB();
+	private final static TestCycleC cycleC = new TestCycleC();
 
 	static {
 		tests.add(test1);
@@ -33,6 +36,9 @@ public class TestExcecutionPlan extends TestCase {
 		tests.add(test6);
 		// test7 is explicitly not loaded so test8 can fail to load
 		tests.add(test8);
+		tests.add(cycleA);
+		tests.add(cycleB);
+		tests.add(cycleC);
 
         // loading
         System.out.println("Expected ERROR: Duplicate id [1.0.1] found with test TestDup1");
@@ -89,11 +95,25 @@ public class TestExcecutionPlan extends TestCase {
 		realTest(set.iterator());
 	}
 
+	public void testParallelOrder() {
+		System.out.println("\nXXX: testParallelOrder");
+		Set<TestUnit> set = new LinkedHashSet<TestUnit>(4);
+		set.add(test4);
+		set.add(test3);
+		set.add(test2);
+		set.add(test1);
+		realTest(set.iterator(), 4);
+	}
+
 	private void realTest(Iterator<TestUnit> iterator) {
+		realTest(iterator, 1);
+	}
+
+	private void realTest(Iterator<TestUnit> iterator, int threads) {
 		resetTests(TestUnit.StatusEnumType.SUCCESS);
 
 		ExcecutionPlan exec = new ExcecutionPlan(iterator);
-		exec.execute();
+		exec.execute(threads);
 		List<TestUnit> list = exec.getList();
 		assertEquals(4, list.size());
 
@@ -152,6 +172,31 @@ public class TestExcecutionPlan extends TestCase {
 		assertFalse(test3.execState);
 	}
 
+	public void testParallelFailedTest() {
+		System.out.println("\nXXX: testParallelFailedTest");
+
+		resetTests(TestUnit.StatusEnumType.FAILED);
+		test1.testStatus = TestUnit.StatusEnumType.SUCCESS;
+		Set<TestUnit> set = new LinkedHashSet<TestUnit>(5);
+		set.add(test1);
+		set.add(test2);
+		set.add(test3);
+		set.add(test4);
+		set.add(test6); // independent test skipped when plan is built
+
+		ExcecutionPlan exec = new ExcecutionPlan(set.iterator());
+		System.out.println("Expected: ERROR: test2 [1.0.2] fails");
+		exec.execute(3);
+		assertEquals(4, exec.getList().size());
+
+		assertEquals(TestUnit.StatusEnumType.SUCCESS, test1.getStatus());
+		assertEquals(TestUnit.StatusEnumType.FAILED, test2.getStatus());
+		assertEquals(TestUnit.StatusEnumType.PREREQ_FAILED, test3.getStatus());
+		assertEquals(TestUnit.StatusEnumType.PREREQ_FAILED, test4.getStatus());
+		assertEquals(TestUnit.StatusEnumType.SKIPPED, test6.getStatus());
+		assertNotNull(test1.getResponse());
+	}
+
 	public void testBadProperty() {
 		System.out.println("\nXXX: testBadProperty");
 
@@ -221,6 +266,36 @@ public class TestExcecutionPlan extends TestCase {
 		assertEquals(0, list.size());
 	}
 
+	public void testCycle() {
+		System.out.println("\nXXX: testCycle");
+		resetTests(TestUnit.StatusEnumType.SUCCESS);
+		// test1 [pre=none]
+		// cycleC [pre=cycleA]
+		// cycleA [pre=cycleB]
+		// cycleB [pre=test1, cycleA]
+		Set<TestUnit> set = new LinkedHashSet<TestUnit>(4);
+		set.add(cycleC);
+		set.add(test2);
+		set.add(cycleB);
+		System.out.println("Expected: ERROR: Dependency cycle: 1.0.10 -> 1.0.11 -> 1.0.10");
+		ExcecutionPlan exec = new ExcecutionPlan(set.iterator());
+		exec.execute();
+
+		// prerequisite of test in cycle is still added
+		List<TestUnit> list = exec.getList();
+		assertEquals(Arrays.<TestUnit>asList(test1, test2), list);
+		assertEquals(TestUnit.StatusEnumType.SUCCESS, test2.getStatus());
+
+		// all members of the cycle are reported
+		assertEquals(TestUnit.StatusEnumType.SKIPPED, cycleA.getStatus());
+		assertEquals(TestUnit.StatusEnumType.SKIPPED, cycleB.getStatus());
+		assertEquals("Dependency cycle: 1.0.10 -> 1.0.11 -> 1.0.10", cycleA.getStatusDescription());
+		assertEquals(cycleA.getStatusDescription(), cycleB.getStatusDescription());
+		// test requiring the cycle is skipped
+		assertEquals(TestUnit.StatusEnumType.SKIPPED, cycleC.getStatus());
+		assertEquals("Failed to add dependency class: " + TestCycleA.class.getName(), cycleC.getStatusDescription());
+	}
+
     public void testHtmlReporter() {
         System.out.println("\nXXX: testHtmlReporter");
         Context context = loader.getContext();
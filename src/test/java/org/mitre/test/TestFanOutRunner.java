@@ -0,0 +1,83 @@
+package org.mitre.test;
+
+import org.mitre.rhex.BaseSectionFromRootXml;
+import org.mitre.rhex.BaseUrlGetTest;
+import org.mitre.rhex.BaseUrlRootXml;
+import org.mitre.rhex.DocumentGet;
+import org.mitre.rhex.server.SyntheticDataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Date: 10/16/26 9:50 PM
+ */
+public class TestFanOutRunner extends MockServerTestCase {
+
+	@Override
+	protected void setUp() throws Exception {
+		// targets documents of first record
+		startServer(new SyntheticDataset(3, 10, 3));
+		loader.load(new BaseUrlGetTest());
+		loader.load(new BaseUrlRootXml());
+		loader.load(new BaseSectionFromRootXml());
+		loader.load(new DocumentGet());
+	}
+
+	public void testRun() {
+		FanOutRunner runner = new FanOutRunner(loader, 2);
+		List<URI> records = Arrays.asList(server.getBaseURL("1"), server.getBaseURL("2"),
+				server.getBaseURL("3"), server.getBaseURL("NotValid"));
+		List<FanOutRunner.RecordResult> results = runner.run(records);
+		assertEquals(4, results.size());
+		final List<String> ids = runner.getTestIds();
+		assertEquals(Arrays.asList("6.2.1.4", "6.3.1.1", "6.4.1.1", "6.5.1.1"), ids);
+		for (int i = 0; i < 3; i++) {
+			FanOutRunner.RecordResult result = results.get(i);
+			assertEquals(records.get(i), result.getBaseURL());
+			assertNull(result.getError());
+			assertTrue(result.isPassed());
+			assertEquals(TestUnit.StatusEnumType.SUCCESS, result.getStatus(ids.indexOf("6.4.1.1")));
+		}
+		// document of first record is only checked for that record
+		final int documentGet = ids.indexOf("6.5.1.1");
+		assertEquals(TestUnit.StatusEnumType.SUCCESS, results.get(0).getStatus(documentGet));
+		assertEquals(TestUnit.StatusEnumType.SKIPPED, results.get(1).getStatus(documentGet));
+
+		FanOutRunner.RecordResult invalid = results.get(3);
+		assertFalse(invalid.isPassed());
+		assertEquals(TestUnit.StatusEnumType.PREREQ_FAILED, invalid.getStatus(ids.indexOf("6.4.1.1")));
+
+		// tests of the template loader are not executed
+		for (TestUnit test : loader.getSortedSet()) {
+			assertNull(test.getStatus());
+		}
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(1, runner.generateReport(new PrintStream(bos)));
+		String report = bos.toString();
+		assertTrue(report.contains(server.getBaseURL("3") + ": Passed"));
+		assertTrue(report.contains(server.getBaseURL("NotValid") + ": *FAILED*"));
+		assertTrue(report.contains("Records checked: 4, Failures: 1"));
+	}
+
+	public void testParseRecords() throws IOException {
+		URI baseURL = URI.create("http://localhost:3000/records/1547");
+		assertEquals(Arrays.asList(URI.create("http://localhost:3000/records/1"),
+				URI.create("http://localhost:3000/records/2"),
+				URI.create("http://localhost:3000/records/3"),
+				URI.create("http://localhost:3000/records/abc"),
+				URI.create("http://other/records/9")),
+				FanOutRunner.parseRecords("1..3, abc,http://other/records/9", baseURL));
+		try {
+			FanOutRunner.parseRecords("1..x", baseURL);
+			fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
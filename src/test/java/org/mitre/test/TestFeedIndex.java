@@ -0,0 +1,56 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Date: 10/16/26 2:40 PM
+ */
+public class TestFeedIndex extends TestCase {
+
+	public void testBuildFromFeed() throws IOException, SAXException {
+		FeedIndex.Builder builder = new FeedIndex.Builder();
+		InputStream is = new FileInputStream("data/test.atom");
+		try {
+			new SchemaRegistry().parse(is, new DefaultHandler(), null,
+					TestUnit.NAMESPACE_W3_ATOM_2005, "feed", new AtomFeedHandler(builder));
+		} finally {
+			is.close();
+		}
+		FeedIndex index = builder.build();
+		assertEquals(4, index.getEntryCount());
+		assertEquals(5, index.getLinkCount());
+		assertEquals("id:3:c32", index.getEntryId(0));
+		assertEquals(0, index.getLinkStart(0));
+		assertEquals(1, index.getLinkEnd(0));
+		assertNull(index.getType(0));
+		// last entry has 2 links with same href
+		assertEquals(3, index.getLinkStart(3));
+		assertEquals(5, index.getLinkEnd(3));
+		assertEquals("application/xml", index.getType(3));
+		assertEquals("application/json", index.getType(4));
+		assertSame(index.getHref(3), index.getHref(4));
+		assertSame(index.getType(1), index.getType(3));
+	}
+
+	public void testGrowAndEmpty() {
+		FeedIndex.Builder builder = new FeedIndex.Builder();
+		assertEquals(0, builder.build().getEntryCount());
+		for (int i = 0; i < 100; i++) {
+			builder.entry(null, i % 2 == 0 ? new String[] { "a" + i, "b" + i } : new String[0],
+					i % 2 == 0 ? new String[] { null, "text/xml" } : new String[0]);
+		}
+		FeedIndex index = builder.build();
+		assertEquals(100, index.getEntryCount());
+		assertEquals(100, index.getLinkCount());
+		assertNull(index.getEntryId(99));
+		assertEquals("a98", index.getHref(98));
+		assertEquals(index.getLinkEnd(98), index.getLinkStart(99));
+		assertEquals(index.getLinkStart(99), index.getLinkEnd(99));
+	}
+}
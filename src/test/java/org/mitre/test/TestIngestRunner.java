@@ -0,0 +1,114 @@
+package org.mitre.test;
+
+import org.apache.commons.io.FileUtils;
+import org.mitre.rhex.server.SyntheticDataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Date: 10/17/26 10:10 AM
+ */
+public class TestIngestRunner extends MockServerTestCase {
+
+	private SyntheticDataset.Section section;
+	private File dir;
+
+	@Override
+	protected void setUp() throws Exception {
+		SyntheticDataset dataset = new SyntheticDataset(1, 5, 2);
+		startServer(dataset);
+		section = dataset.getRecords().iterator().next().getSection("vital_signs");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		if (dir != null) FileUtils.deleteDirectory(dir);
+	}
+
+	public void testGenerated() throws Exception {
+		IngestRunner runner = IngestRunner.forGenerated(loader, new File("data/vitalSign.xml"), 40);
+		runner.setThreads(4);
+		runner.run();
+		assertEquals(40, runner.getCount());
+		assertEquals(0, runner.getErrorCount());
+		assertEquals(0, runner.getInvalidLocationCount());
+		assertEquals(42, section.getDocumentIds().size());
+		// each copy has its own id
+		Set<String> contents = new HashSet<String>();
+		List<String> ids = section.getDocumentIds();
+		for (String id : ids.subList(0, 40)) {
+			contents.add(new String(section.getXml(id), "UTF-8"));
+		}
+		assertEquals(40, contents.size());
+		assertEquals(40 * new File("data/vitalSign.xml").length(), runner.getBytes(), 40 * 8);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(0, runner.generateReport(new PrintStream(bos)));
+		String report = bos.toString();
+		assertTrue(report, report.contains("40 generated documents"));
+		assertTrue(report, report.contains("docs/sec"));
+		assertTrue(report, report.contains("KB/sec"));
+	}
+
+	public void testDirectory() throws Exception {
+		dir = new File("target/ingest-test");
+		FileUtils.deleteDirectory(dir);
+		File source = new File("data/vitalSign.xml");
+		for (int i = 0; i < 3; i++) {
+			FileUtils.copyFile(source, new File(dir, "doc" + i + ".xml"));
+		}
+		// subdirectories are skipped
+		assertTrue(new File(dir, "sub").mkdir());
+		IngestRunner runner = IngestRunner.forDirectory(loader, dir, 0);
+		runner.setThreads(2);
+		runner.setVerify(false);
+		runner.run();
+		assertEquals(3, runner.getCount());
+		assertEquals(0, runner.getErrorCount());
+		assertEquals(3 * source.length(), runner.getBytes());
+		assertEquals(5, section.getDocumentIds().size());
+
+		runner = IngestRunner.forDirectory(loader, dir, 2);
+		runner.run();
+		assertEquals(2, runner.getCount());
+		assertEquals(7, section.getDocumentIds().size());
+	}
+
+	public void testLocation() throws Exception {
+		IngestRunner runner = IngestRunner.forGenerated(loader, new File("data/vitalSign.xml"), 0);
+		runner.run();
+		String baseURL = loader.getContext().getBaseURL().toASCIIString();
+		assertNotNull(runner.getDocumentURL(baseURL + "/vital_signs/4f0a"));
+		// record id of the server in place of the baseURL id
+		assertNotNull(runner.getDocumentURL(baseURL.substring(0, baseURL.lastIndexOf('/')) + "/4f73/vital_signs/4f0a"));
+		assertNull(runner.getDocumentURL(null));
+		assertNull(runner.getDocumentURL(baseURL + "/allergies/4f0a"));
+		assertNull(runner.getDocumentURL(baseURL + "/vital_signs"));
+		assertNull(runner.getDocumentURL("http://other.host/records/1/vital_signs/4f0a"));
+	}
+
+	public void testCreate() {
+		try {
+			IngestRunner.create(loader, null);
+			fail("no directory or corpus size");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			IngestRunner.create(loader, "target/no-such-dir");
+			fail("not a directory");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		IngestRunner runner = IngestRunner.create(loader, "1");
+		runner.run();
+		assertEquals(1, runner.getCount());
+		assertEquals(0, runner.getErrorCount());
+	}
+}
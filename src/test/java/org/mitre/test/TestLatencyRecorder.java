@@ -0,0 +1,129 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.mitre.test.http.LatencyHistogram;
+import org.mitre.test.http.LatencyRecorder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.*;
+
+/**
+ * Date: 10/17/26 6:50 AM
+ */
+public class TestLatencyRecorder extends TestCase {
+
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	public void testPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * MILLIS);
+		}
+		final LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1000 * MILLIS, snapshot.getMax());
+		assertEquals(500.5 * MILLIS, snapshot.getMean(), MILLIS);
+		assertEquals(500 * MILLIS, snapshot.getValueAtPercentile(50), 500 * MILLIS / 64);
+		assertEquals(990 * MILLIS, snapshot.getValueAtPercentile(99), 990 * MILLIS / 64);
+		assertEquals(999 * MILLIS, snapshot.getValueAtPercentile(99.9), 999 * MILLIS / 64);
+		assertEquals(1000 * MILLIS, snapshot.getValueAtPercentile(100));
+		// small values are exact to the microsecond
+		final LatencyHistogram small = new LatencyHistogram();
+		small.record(TimeUnit.MICROSECONDS.toNanos(42));
+		assertEquals(TimeUnit.MICROSECONDS.toNanos(42), small.getSnapshot().getValueAtPercentile(50));
+		assertEquals(0, new LatencyHistogram().getSnapshot().getValueAtPercentile(50));
+	}
+
+	public void testCoordinatedOmission() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 99; i++) {
+			histogram.record(MILLIS, 10 * MILLIS);
+		}
+		// one stall of 1 second while requests were expected every 10 ms
+		histogram.record(1000 * MILLIS, 10 * MILLIS);
+		final LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		// the 99 requests that were not sent during the stall are counted
+		assertEquals(99 + 100, snapshot.getCount());
+		// without correction p90 would be 1 ms
+		assertTrue(snapshot.getValueAtPercentile(90) > 500 * MILLIS);
+		assertEquals(1000 * MILLIS, snapshot.getMax());
+	}
+
+	public void testConcurrentRecording() throws Exception {
+		final LatencyRecorder recorder = new LatencyRecorder();
+		final ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(new Callable<Object>() {
+					public Object call() {
+						for (int j = 0; j < 10000; j++) {
+							recorder.record("1 GET /", j);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<?> result : results) result.get();
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(80000, recorder.getSnapshots().get("1 GET /").getCount());
+		recorder.reset();
+		assertTrue(recorder.getSnapshots().isEmpty());
+	}
+
+	public void testTemplate() {
+		final URI baseURL = URI.create("http://localhost:3000/records/1547");
+		assertEquals("/records/{id}", LatencyRecorder.getTemplate(baseURL, baseURL));
+		assertEquals("/records/{id}", LatencyRecorder.getTemplate(baseURL, URI.create("http://localhost:3000/records/1547/")));
+		assertEquals("/records/{id}/root.xml",
+				LatencyRecorder.getTemplate(baseURL, URI.create("http://localhost:3000/records/1547/root.xml")));
+		assertEquals("/records/{id}/{section}",
+				LatencyRecorder.getTemplate(baseURL, URI.create("http://localhost:3000/records/1547/vital_signs")));
+		assertEquals("/records/{id}/{section}/{doc}",
+				LatencyRecorder.getTemplate(baseURL, URI.create("http://localhost:3000/records/1547/vital_signs/4f0a?x=1")));
+		// other records and hosts
+		assertEquals("/records/{id}/vital_signs",
+				LatencyRecorder.getTemplate(baseURL, URI.create("http://localhost:3000/records/22/vital_signs")));
+		assertEquals("/auth/{id}/4f0a",
+				LatencyRecorder.getTemplate(baseURL, URI.create("http://other/auth/4f0a5b6c7d8e9f00aa/4f0a")));
+		assertEquals("/", LatencyRecorder.getTemplate(null, URI.create("http://other")));
+	}
+
+	public void testKey() {
+		final URI baseURL = URI.create("http://localhost:3000/records/1");
+		final URI url = URI.create("http://localhost:3000/records/1/root.xml");
+		assertEquals("- GET /records/{id}/root.xml", LatencyRecorder.getKey(baseURL, "GET", url));
+		LatencyRecorder.bindTest("6.3.1.1");
+		try {
+			assertEquals("6.3.1.1 GET /records/{id}/root.xml", LatencyRecorder.getKey(baseURL, "GET", url));
+		} finally {
+			LatencyRecorder.bindTest(null);
+		}
+	}
+
+	public void testIntendedStart() {
+		final long start = System.nanoTime() - 50 * MILLIS;
+		LatencyRecorder.setIntendedStart(start);
+		assertEquals(start, LatencyRecorder.getStartTime());
+		// only the first exchange of a run starts at the intended time
+		assertTrue(LatencyRecorder.getStartTime() > start);
+	}
+
+	public void testSummary() {
+		final LatencyRecorder recorder = new LatencyRecorder();
+		recorder.record("6.3.1.1 GET /records/{id}/root.xml", 2 * MILLIS);
+		final SortedMap<String, LatencyHistogram.Snapshot> snapshots = recorder.getSnapshots();
+		assertEquals(1, snapshots.size());
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		recorder.printSummary(new PrintStream(bos));
+		assertTrue(bos.toString(), bos.toString().contains("6.3.1.1 GET /records/{id}/root.xml"));
+		assertTrue(bos.toString(), bos.toString().contains("p99.9"));
+	}
+}
@@ -0,0 +1,150 @@
+package org.mitre.test;
+
+import org.mitre.rhex.BaseSectionFromRootXml;
+import org.mitre.rhex.BaseUrlGetTest;
+import org.mitre.rhex.BaseUrlRootXml;
+import org.mitre.rhex.DocumentGet;
+import org.mitre.rhex.DocumentTest;
+import org.mitre.rhex.server.SyntheticDataset;
+import org.mitre.test.http.LatencyHistogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Date: 10/17/26 5:40 AM
+ */
+public class TestLoadRunner extends MockServerTestCase {
+
+	@Override
+	protected void setUp() throws Exception {
+		startServer(new SyntheticDataset(2, 5, 2));
+		loader.load(new BaseUrlGetTest());
+		loader.load(new BaseUrlRootXml());
+		loader.load(new BaseSectionFromRootXml());
+		loader.load(new DocumentGet());
+	}
+
+	public void testClosed() {
+		// DocumentTest is not loaded so is added to the warm-up with its prerequisites
+		LoadRunner runner = new LoadRunner(loader,
+				LoadRunner.parseScenarios("BaseUrlGetTest:2, DocumentGet, org.mitre.rhex.DocumentTest:1"));
+		runner.setUsers(3);
+		runner.setDuration(1);
+		runner.run();
+		List<LoadRunner.Scenario> scenarios = runner.getScenarios();
+		assertEquals(3, scenarios.size());
+		int runs = 0;
+		for (LoadRunner.Scenario scenario : scenarios) {
+			assertNull(scenario.getSkipped());
+			assertEquals(0, scenario.getErrorCount());
+			runs += scenario.getCount();
+			// each run is recorded once
+			assertEquals(scenario.getCount(), scenario.getSnapshot().getCount());
+		}
+		assertTrue(runs > 3);
+		assertTrue(scenarios.get(0).getCount() > 0);
+		assertEquals(DocumentTest.class.getSimpleName(), scenarios.get(2).getName());
+
+		// tests of the template loader are not executed
+		for (TestUnit test : loader.getSortedSet()) {
+			assertNull(test.getStatus());
+		}
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(0, runner.generateReport(new PrintStream(bos)));
+		String report = bos.toString();
+		assertTrue(report, report.contains("Closed model: 3 users"));
+		assertTrue(report, report.contains("DocumentGet"));
+		assertTrue(report, report.contains("Errors: 0"));
+		// exchanges of the runs are recorded by test and URL template
+		assertTrue(report, report.contains("6.5.1.1 GET /records/{id}/{section}/{doc}"));
+		assertTrue(report, report.contains("6.2.1.4 GET /records/{id} "));
+	}
+
+	public void testOpen() {
+		LoadRunner runner = new LoadRunner(loader, LoadRunner.parseScenarios("BaseUrlGetTest"));
+		runner.setRate(20);
+		runner.setDuration(1);
+		runner.run();
+		LoadRunner.Scenario scenario = runner.getScenarios().get(0);
+		// arrivals at fixed interval regardless of response time
+		assertEquals(20, scenario.getCount() + scenario.getDroppedCount());
+		assertEquals(0, scenario.getErrorCount());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		runner.generateReport(new PrintStream(bos));
+		assertTrue(bos.toString(), bos.toString().contains("Open model: 20.0 runs/sec"));
+	}
+
+	public void testEveryRunSent() throws InterruptedException {
+		// identical requests of concurrent runs are neither cached nor coalesced
+		loader.getContext().getConfiguration().setProperty("http.cache", "true");
+		LoadRunner runner = new LoadRunner(loader, LoadRunner.parseScenarios("BaseUrlRootXml"));
+		runner.setUsers(4);
+		runner.setDuration(1);
+		Loader warmUp = runner.warmUp();
+		try {
+			final int before = server.getRequestCount();
+			runner.runPhase(warmUp);
+			LoadRunner.Scenario scenario = runner.getScenarios().get(0);
+			assertEquals(0, scenario.getErrorCount());
+			assertTrue(scenario.getCount() > 4);
+			assertEquals(scenario.getCount(), server.getRequestCount() - before);
+		} finally {
+			warmUp.getContext().close();
+		}
+	}
+
+	public void testThinkTime() throws InterruptedException {
+		// runs take longer than the think time yet only the runs sent are recorded
+		server.setDelay(50);
+		LoadRunner runner = new LoadRunner(loader, LoadRunner.parseScenarios("BaseUrlRootXml"));
+		runner.setUsers(2);
+		runner.setThinkTime(10);
+		runner.setDuration(1);
+		Loader warmUp = runner.warmUp();
+		try {
+			final int before = server.getRequestCount();
+			runner.runPhase(warmUp);
+			LoadRunner.Scenario scenario = runner.getScenarios().get(0);
+			assertEquals(0, scenario.getErrorCount());
+			assertTrue(scenario.getCount() > 0);
+			assertEquals(scenario.getCount(), scenario.getSnapshot().getCount());
+			long exchanges = 0;
+			for (LatencyHistogram.Snapshot snapshot : warmUp.getContext().getLatencyRecorder().getSnapshots().values()) {
+				exchanges += snapshot.getCount();
+			}
+			assertEquals(server.getRequestCount() - before, exchanges);
+		} finally {
+			warmUp.getContext().close();
+		}
+	}
+
+	public void testSkipped() {
+		// document.url property is required by DocumentGet
+		loader.getContext().getConfiguration().clearProperty("document.url");
+		LoadRunner runner = new LoadRunner(loader, LoadRunner.parseScenarios("BaseUrlGetTest,DocumentGet"));
+		runner.setDuration(1);
+		runner.run();
+		List<LoadRunner.Scenario> scenarios = runner.getScenarios();
+		assertNull(scenarios.get(0).getSkipped());
+		assertNotNull(scenarios.get(1).getSkipped());
+		assertEquals(0, scenarios.get(1).getCount());
+	}
+
+	public void testParse() {
+		List<LoadRunner.Scenario> scenarios = LoadRunner.parseScenarios(LoadRunner.DEFAULT_SCENARIOS);
+		assertEquals(4, scenarios.size());
+		assertEquals(4, scenarios.get(0).getWeight());
+		assertEquals("BaseUrlGetTest", scenarios.get(0).getName());
+		for (String spec : new String[]{"NoSuchTest", "java.lang.String", "BaseUrlGetTest:0", "BaseUrlGetTest:x"}) {
+			try {
+				LoadRunner.parseScenarios(spec);
+				fail("expected IllegalArgumentException: " + spec);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
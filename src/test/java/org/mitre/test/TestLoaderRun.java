@@ -0,0 +1,77 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.mitre.test.impl.TextReporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Date: 10/16/26 11:05 PM
+ */
+public class TestLoaderRun extends TestCase {
+
+	private static final int RUNS = 3;
+
+	public void testConcurrentRuns() throws Exception {
+		final Loader[] loaders = new Loader[RUNS];
+		final ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[RUNS];
+		final ExecutorService pool = Executors.newFixedThreadPool(RUNS);
+		try {
+			@SuppressWarnings("unchecked")
+			final Future<Integer>[] results = new Future[RUNS];
+			for (int i = 0; i < RUNS; i++) {
+				// each run starts its own mock server and no config file is needed
+				final Loader loader = loaders[i] = new Loader(new TextReporter());
+				loader.setMock(true);
+				final ByteArrayOutputStream bos = outputs[i] = new ByteArrayOutputStream();
+				final int threads = i + 1;
+				results[i] = pool.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						return loader.run(new File("target/notFound.xml"), threads, new PrintStream(bos, true));
+					}
+				});
+			}
+			for (int i = 0; i < RUNS; i++) {
+				assertEquals(Integer.valueOf(0), results[i].get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int i = 0; i < RUNS; i++) {
+			final Loader loader = loaders[i];
+			assertTrue(loader.getCount() != 0);
+			for (TestUnit test : loader.getSortedSet()) {
+				assertNotNull(test.getId(), test.getStatus());
+				assertSame(loader.getContext(), ((BaseTest) test).getContext());
+			}
+			// each run has one report of its own tests
+			final String report = outputs[i].toString();
+			assertEquals(report.indexOf("Conformance Test Report"), report.lastIndexOf("Conformance Test Report"));
+			assertTrue(report.contains(String.format("Exec Tests (%d)", loader.getCount())));
+		}
+		assertNotSame(loaders[0].getContext(), loaders[1].getContext());
+	}
+
+	public void testRoute() {
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		OutputCapture.install();
+		try {
+			OutputCapture.route(new PrintStream(bos, true));
+			System.out.print("routed");
+			OutputCapture.begin();
+			System.out.print("captured");
+			assertEquals("captured", OutputCapture.end());
+			OutputCapture.unroute();
+		} finally {
+			OutputCapture.uninstall();
+		}
+		assertEquals("routed", bos.toString());
+	}
+}
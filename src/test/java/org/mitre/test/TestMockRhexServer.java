@@ -0,0 +1,198 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.*;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.mitre.rhex.server.MockRhexServer;
+import org.mitre.rhex.server.SyntheticDataset;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Date: 10/16/26 5:30 PM
+ */
+public class TestMockRhexServer extends TestCase {
+
+	private static final int SECTIONS = 20;
+	private static final int DOCUMENTS = 7;
+
+	private final Context context = Loader.getInstance().getContext();
+	private MockRhexServer server;
+	private URI baseURL;
+	private HttpClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = new MockRhexServer(new SyntheticDataset(2, SECTIONS, DOCUMENTS));
+		server.setPageSize(3);
+		server.start(0);
+		baseURL = server.getBaseURL("1");
+		client = context.getHttpClient();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.getConnectionManager().shutdown();
+		server.stop();
+	}
+
+	public void testBaseURL() throws IOException {
+		HttpGet get = new HttpGet(baseURL);
+		get.setHeader("Accept", "application/atom+xml");
+		String feed = execute(get, 200);
+		assertTrue(feed.contains("<id>vital_signs</id>"));
+		get.setHeader("Accept", "text/html, application/xhtml+xml");
+		execute(get, 406);
+		HttpResponse response = client.execute(new HttpOptions(baseURL));
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		assertNotNull(response.getFirstHeader("X-hdata-security"));
+		assertNotNull(response.getFirstHeader("X-hdata-hcp"));
+		assertTrue(response.getFirstHeader("X-hdata-extensions").getValue()
+				.contains(SyntheticDataset.EXTENSION_PREFIX + "c32"));
+		EntityUtils.consume(response.getEntity());
+		execute(new HttpGet(server.getBaseURL("NotValid")), 404);
+		execute(new HttpGet(baseURL + "/notfound"), 404);
+	}
+
+	public void testRootXml() throws IOException {
+		final URI rootURL = URI.create(baseURL + "/root.xml");
+		String root = execute(new HttpGet(rootURL), 200);
+		assertTrue(root.contains("<section path=\"section_0019\""));
+		execute(new HttpPost(rootURL), 405);
+		execute(new HttpPut(rootURL), 405);
+		execute(new HttpDelete(rootURL), 405);
+	}
+
+	public void testCreateSection() throws IOException {
+		assertEquals(201, createSection("new_section", "2").getStatusLine().getStatusCode());
+		assertTrue(execute(new HttpGet(baseURL + "/root.xml"), 200).contains("path=\"new_section\""));
+		execute(new HttpGet(baseURL + "/new_section"), 200);
+		// collisions with existing section path or extension
+		assertEquals(409, createSection("new_section", "2").getStatusLine().getStatusCode());
+		assertEquals(409, createSection(SyntheticDataset.EXTENSION_PREFIX + "vital-sign", "2")
+				.getStatusLine().getStatusCode());
+		assertEquals(400, createSection("other", "99").getStatusLine().getStatusCode());
+		// other record is unchanged
+		execute(new HttpGet(server.getBaseURL("2") + "/new_section"), 404);
+	}
+
+	public void testDocuments() throws IOException {
+		final String sectionURL = baseURL + "/vital_signs";
+		final String xml = "<vitalSign xmlns=\"urn:hl7-org:greencda:c32\"><id>new</id></vitalSign>";
+		HttpPost post = new HttpPost(sectionURL);
+		post.setEntity(new StringEntity("plain text", ContentType.TEXT_PLAIN));
+		execute(post, 400);
+
+		post.setEntity(new StringEntity(xml, ContentType.APPLICATION_XML));
+		HttpResponse response = client.execute(post);
+		assertEquals(201, response.getStatusLine().getStatusCode());
+		EntityUtils.consume(response.getEntity());
+		final String location = response.getFirstHeader("Location").getValue();
+		assertTrue(location.startsWith(sectionURL + "/"));
+		assertEquals(xml, execute(new HttpGet(location), 200));
+		// newest document is first entry of the first page
+		assertTrue(execute(new HttpGet(sectionURL), 200).contains(location));
+
+		HttpPut put = new HttpPut(location);
+		put.setEntity(new StringEntity("<bogus></bogus>", ContentType.APPLICATION_XML));
+		execute(put, 400);
+		final String updated = xml.replace("new", "updated");
+		put.setEntity(new StringEntity(updated, ContentType.APPLICATION_XML));
+		execute(put, 200);
+		assertEquals(updated, execute(new HttpGet(location), 200));
+		put = new HttpPut(sectionURL + "/000000000000000000000000");
+		put.setEntity(new StringEntity(updated, ContentType.APPLICATION_XML));
+		execute(put, 404);
+
+		execute(new HttpDelete(location), 204);
+		execute(new HttpGet(location), 404);
+		execute(new HttpDelete(location), 404);
+		execute(new HttpPut(sectionURL), 405);
+	}
+
+	public void testDocumentRepresentations() throws IOException {
+		final String id = server.getDataset().getRecord("1").getSection("results").getDocumentIds().get(0);
+		final HttpGet get = new HttpGet(baseURL + "/results/" + id);
+		get.setHeader("Accept", "application/json, application/xml");
+		assertTrue(execute(get, 200).startsWith("{\"id\":\"" + id + "\""));
+		get.setHeader("Accept", "application/xml,text/xml,application/json,text/html;q=0.9,*/*;q=0.8");
+		String xml = execute(get, 200);
+		assertTrue(xml.contains("<effectiveTime>2010-06-27 04:00:00 +0000</effectiveTime>"));
+		get.setHeader("Accept", "text/html");
+		execute(get, 406);
+	}
+
+	public void testPagedFeed() {
+		final Set<String> ids = new HashSet<String>();
+		int pages = 0;
+		AtomFeedPager pager = new AtomFeedPager(context, URI.create(baseURL + "/medications"), 1);
+		try {
+			while (pager.hasNext()) {
+				AtomFeedPager.Page page = pager.next();
+				assertNull(page.getError());
+				assertEquals(200, page.getStatusCode());
+				assertEquals(0, page.getXmlErrors());
+				FeedIndex index = page.getIndex();
+				for (int i = 0; i < index.getEntryCount(); i++) {
+					assertTrue(ids.add(index.getEntryId(i)));
+				}
+				// generated documents have XML and JSON links
+				assertEquals(2 * index.getEntryCount(), index.getLinkCount());
+				pages++;
+			}
+		} finally {
+			pager.close();
+		}
+		assertEquals(3, pages);
+		assertEquals(DOCUMENTS, ids.size());
+	}
+
+	public void testLargeDataset() {
+		SyntheticDataset dataset = new SyntheticDataset(3, 2000, 1000);
+		SyntheticDataset.Record record = dataset.getRecord("3");
+		assertNotNull(record);
+		assertNull(dataset.getRecord("4"));
+		List<SyntheticDataset.Section> sections = record.getSections();
+		assertEquals(2000, sections.size());
+		SyntheticDataset.Section section = sections.get(1999);
+		List<String> ids = section.getDocumentIds();
+		assertEquals(1000, ids.size());
+		assertNotNull(section.getXml(ids.get(999)));
+		assertTrue(section.deleteDocument(ids.get(999)));
+		assertNull(section.getXml(ids.get(999)));
+		assertEquals(999, section.getDocumentIds().size());
+		// ids are unique across sections
+		assertFalse(sections.get(0).getDocumentIds().contains(ids.get(0)));
+	}
+
+	private HttpResponse createSection(String path, String extensionId) throws IOException {
+		HttpPost post = new HttpPost(baseURL);
+		List<NameValuePair> params = new ArrayList<NameValuePair>(2);
+		params.add(new BasicNameValuePair("path", path));
+		params.add(new BasicNameValuePair("extensionID", extensionId));
+		post.setEntity(new UrlEncodedFormEntity(params));
+		HttpResponse response = client.execute(post);
+		EntityUtils.consume(response.getEntity());
+		return response;
+	}
+
+	private String execute(HttpRequestBase req, int expectedCode) throws IOException {
+		HttpResponse response = client.execute(req);
+		assertEquals(req.getMethod() + " " + req.getURI(), expectedCode, response.getStatusLine().getStatusCode());
+		HttpEntity entity = response.getEntity();
+		return entity == null ? null : EntityUtils.toString(entity);
+	}
+}
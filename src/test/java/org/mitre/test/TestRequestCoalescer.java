@@ -0,0 +1,156 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.RequestCoalescer;
+import org.mitre.test.http.ResponseCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Date: 10/17/26 3:05 AM
+ */
+public class TestRequestCoalescer extends TestCase {
+
+	private static final int THREADS = 6;
+
+	private final RequestCoalescer coalescer = new RequestCoalescer();
+	private final AtomicInteger calls = new AtomicInteger();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	public void testCoalesce() throws Exception {
+		final RequestCoalescer.Execution execution = new RequestCoalescer.Execution() {
+			public HttpResponse execute() throws IOException {
+				calls.incrementAndGet();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+				response.setEntity(new StringEntity("<feed/>"));
+				return response;
+			}
+		};
+		final List<Future<String>> results = execute(execution);
+		for (Future<String> result : results) {
+			// each caller reads its own copy of the body
+			assertEquals("<feed/>", result.get());
+		}
+		assertEquals(1, calls.get());
+		assertEquals(THREADS - 1, coalescer.getCoalescedCount());
+	}
+
+	public void testFailure() throws Exception {
+		final RequestCoalescer.Execution execution = new RequestCoalescer.Execution() {
+			public HttpResponse execute() throws IOException {
+				calls.incrementAndGet();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				throw new IOException("connection refused");
+			}
+		};
+		for (Future<String> result : execute(execution)) {
+			try {
+				result.get();
+				fail("expected IOException");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		}
+		assertEquals(1, calls.get());
+	}
+
+	public void testLoneRequestStreams() throws IOException {
+		final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		final HttpEntity entity = new InputStreamEntity(new ByteArrayInputStream("<feed/>".getBytes("UTF-8")), -1);
+		response.setEntity(entity);
+		final HttpResponse result = coalescer.execute("key", new RequestCoalescer.Execution() {
+			public HttpResponse execute() {
+				calls.incrementAndGet();
+				return response;
+			}
+		});
+		// body is not buffered if no other caller is waiting
+		assertSame(entity, result.getEntity());
+		assertTrue(result.getEntity().isStreaming());
+		assertEquals("<feed/>", EntityUtils.toString(result.getEntity()));
+		assertEquals(0, coalescer.getCoalescedCount());
+	}
+
+	public void testLargeBody() throws Exception {
+		// larger than the maximum shared body
+		final int size = 2 << 20;
+		final RequestCoalescer.Execution execution = new RequestCoalescer.Execution() {
+			public HttpResponse execute() throws IOException {
+				calls.incrementAndGet();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+				response.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[size]), -1));
+				return response;
+			}
+		};
+		for (Future<String> result : execute(execution)) {
+			assertEquals(size, result.get().length());
+		}
+		// waiting callers execute their own request
+		assertEquals(THREADS, calls.get());
+	}
+
+	public void testKey() {
+		final HttpGet xml = new HttpGet("http://localhost/records/1");
+		xml.setHeader("Accept", "application/xml");
+		final HttpGet atom = new HttpGet("http://localhost/records/1");
+		atom.setHeader("Accept", "application/atom+xml");
+		final String url = xml.getURI().toString();
+		// content negotiation and users are never merged
+		assertFalse(ResponseCache.getKey(url, xml, null).equals(ResponseCache.getKey(url, atom, null)));
+		assertFalse(ResponseCache.getKey(url, xml, null).equals(ResponseCache.getKey(url, xml, "user@example.com")));
+		assertEquals(ResponseCache.getKey(url, xml, null), ResponseCache.getKey(url, xml, null));
+	}
+
+	/**
+	 * Execute request on all threads then complete it once all
+	 * but the first caller wait for its response
+	 */
+	private List<Future<String>> execute(final RequestCoalescer.Execution execution) throws InterruptedException {
+		final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		final List<Future<String>> results = new ArrayList<Future<String>>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				results.add(pool.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return EntityUtils.toString(coalescer.execute("key", execution).getEntity());
+					}
+				}));
+			}
+			final long timeout = System.currentTimeMillis() + 10000;
+			while (calls.get() + coalescer.getCoalescedCount() < THREADS && System.currentTimeMillis() < timeout) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+		} finally {
+			pool.shutdown();
+		}
+		return results;
+	}
+}
@@ -0,0 +1,115 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.RequestLimiter;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Date: 10/17/26 3:50 AM
+ */
+public class TestRequestLimiter extends TestCase {
+
+	private static final String HOST = "localhost:3000";
+
+	public void testMaxPerHost() throws Exception {
+		final RequestLimiter limiter = new RequestLimiter(2, 0, 0, false);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final ExecutorService pool = Executors.newFixedThreadPool(6);
+		try {
+			final List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int i = 0; i < 6; i++) {
+				results.add(pool.submit(new Callable<Object>() {
+					public Object call() throws Exception {
+						final RequestLimiter.Permit permit = limiter.acquire(HOST);
+						final int count = inFlight.incrementAndGet();
+						synchronized (maxInFlight) {
+							if (count > maxInFlight.get()) maxInFlight.set(count);
+						}
+						Thread.sleep(20);
+						inFlight.decrementAndGet();
+						limiter.release(permit, null);
+						return null;
+					}
+				}));
+			}
+			for (Future<?> result : results) result.get();
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(2, maxInFlight.get());
+		assertEquals(6, limiter.getRequestCount());
+		assertTrue(limiter.getWaitCount() > 0);
+		// other hosts have their own limit
+		limiter.release(limiter.acquire("other:80"), null);
+	}
+
+	public void testReleaseOnConsume() throws Exception {
+		final RequestLimiter limiter = new RequestLimiter(1, 0, 0, false);
+		final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+		response.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[100]), 100));
+		final Runnable release = limiter.releaseOnConsume(limiter.acquire(HOST), response);
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			final Future<RequestLimiter.Permit> next = pool.submit(new Callable<RequestLimiter.Permit>() {
+				public RequestLimiter.Permit call() throws Exception {
+					return limiter.acquire(HOST);
+				}
+			});
+			// request is in flight until its body is read
+			try {
+				next.get(200, TimeUnit.MILLISECONDS);
+				fail("expected TimeoutException");
+			} catch (TimeoutException e) {
+				// expected
+			}
+			assertEquals(100, EntityUtils.toByteArray(response.getEntity()).length);
+			limiter.release(next.get(5, TimeUnit.SECONDS), null);
+		} finally {
+			pool.shutdown();
+		}
+		// releasing an abandoned response again has no effect
+		release.run();
+		assertEquals(2, limiter.getRequestCount());
+		limiter.release(limiter.acquire(HOST), null);
+	}
+
+	public void testRate() throws Exception {
+		// 20 requests per second after a burst of 2
+		final RequestLimiter limiter = new RequestLimiter(0, 20, 2, false);
+		final long start = System.nanoTime();
+		for (int i = 0; i < 6; i++) {
+			limiter.release(limiter.acquire(HOST), null);
+		}
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("elapsed " + elapsed, elapsed >= 150);
+		assertTrue(limiter.getTotalWaitMillis() >= 150);
+		assertTrue(limiter.getMaxWaitMillis() > 0);
+	}
+
+	public void testBackoff() throws Exception {
+		final RequestLimiter limiter = new RequestLimiter(0, 0, 0, true);
+		limiter.release(limiter.acquire(HOST), new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"));
+		final BasicHttpResponse unavailable = new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, "Service Unavailable");
+		unavailable.setHeader("Retry-After", "1");
+		limiter.release(limiter.acquire(HOST), unavailable);
+		assertEquals(1, limiter.getBackoffCount());
+		final long start = System.nanoTime();
+		limiter.release(limiter.acquire(HOST), new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK"));
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue("elapsed " + elapsed, elapsed >= 900);
+		// other hosts are not paused
+		final long otherStart = System.nanoTime();
+		limiter.release(limiter.acquire("other:80"), null);
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - otherStart) < 500);
+	}
+}
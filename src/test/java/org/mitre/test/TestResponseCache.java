@@ -0,0 +1,121 @@
+package org.mitre.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
+import org.mitre.test.http.ResponseCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Date: 10/17/26 2:30 AM
+ */
+public class TestResponseCache extends TestCase {
+
+	private HttpServer server;
+	private final Context context = new Context();
+	private final AtomicInteger transfers = new AtomicInteger();
+	private volatile int version = 1;
+	private String url;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/records/1", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				if ("POST".equals(exchange.getRequestMethod())) {
+					version++;
+					exchange.sendResponseHeaders(201, -1);
+					exchange.close();
+					return;
+				}
+				final String etag = "\"v" + version + "\"";
+				exchange.getResponseHeaders().set("ETag", etag);
+				if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+				transfers.incrementAndGet();
+				final byte[] body = ("<root version=\"" + version + "\"/>").getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type", "application/xml");
+				exchange.sendResponseHeaders(200, body.length);
+				final OutputStream os = exchange.getResponseBody();
+				os.write(body);
+				os.close();
+			}
+		});
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/records/1";
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", url);
+		context.load(config);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		context.close();
+		server.stop(0);
+	}
+
+	public void testDisabled() {
+		final Context other = new Context();
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", url);
+		config.setProperty("http.cache", "false");
+		other.load(config);
+		assertNull(other.getResponseCache());
+	}
+
+	public void testRevalidation() throws IOException {
+		final ResponseCache cache = context.getResponseCache();
+		assertNotNull(cache);
+		assertEquals("<root version=\"1\"/>", get(url + "/root.xml"));
+		assertEquals(1, transfers.get());
+		// second request is revalidated and answered from the cache
+		final HttpGet req = new HttpGet(url + "/root.xml");
+		assertEquals("<root version=\"1\"/>", execute(req));
+		assertEquals(1, transfers.get());
+		assertEquals(1, cache.getHitCount());
+		// conditional headers are not left on the request
+		assertNull(req.getFirstHeader("If-None-Match"));
+
+		// write to a parent URL invalidates the cached response
+		execute(new HttpPost(url));
+		assertEquals(0, cache.size());
+		assertEquals("<root version=\"2\"/>", get(url + "/root.xml"));
+		assertEquals(2, transfers.get());
+
+		// opt-out always gets the response of the server
+		final HttpGet noCache = new HttpGet(url + "/root.xml");
+		ResponseCache.setNoCache(noCache);
+		assertEquals("<root version=\"2\"/>", execute(noCache));
+		assertEquals(3, transfers.get());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	private String get(String url) throws IOException {
+		return execute(new HttpGet(url));
+	}
+
+	private String execute(HttpRequestBase req) throws IOException {
+		final HttpClient client = context.getHttpClient();
+		try {
+			final HttpResponse response = context.executeRequest(client, req);
+			return response.getEntity() == null ? null : EntityUtils.toString(response.getEntity());
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+	}
+}
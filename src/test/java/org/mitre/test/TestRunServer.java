@@ -0,0 +1,68 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+
+/**
+ * Date: 10/16/26 11:55 PM
+ */
+public class TestRunServer extends TestCase {
+
+	private final Context context = new Context();
+	private RunServer server;
+	private HttpClient client;
+	private String runURL;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = new RunServer();
+		server.start(0);
+		runURL = "http://127.0.0.1:" + server.getPort() + RunServer.RUN_PATH;
+		client = context.getHttpClient();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.getConnectionManager().shutdown();
+		context.close();
+		server.stop();
+	}
+
+	public void testRuns() throws IOException {
+		// config file is optional with mock server
+		final String url = runURL + "?mock=true&config=target/notFound.xml&threads=2";
+		for (int i = 1; i <= 2; i++) {
+			String report = execute(new HttpGet(url), 200);
+			assertTrue(report, report.endsWith("Exit status: 0\n"));
+			assertTrue(report.contains("Conformance Test Report"));
+			assertEquals(i, server.getRunCount());
+		}
+		String report = execute(new HttpGet(url + "&reporter=html"), 200);
+		assertTrue(report.contains("</html>"));
+		assertTrue(report.endsWith("<!-- Exit status: 0 -->\n"));
+	}
+
+	public void testInvalidRequests() throws IOException {
+		execute(new HttpGet(runURL + "?config=target/notFound.xml"), 400);
+		execute(new HttpGet(runURL + "?mock=true&reporter=pdf"), 400);
+		execute(new HttpGet(runURL + "?mock=true&threads=x"), 400);
+		execute(new HttpGet(runURL + "?mock=true&profile=target/notFound.xml"), 400);
+		execute(new HttpGet(runURL + "/other"), 404);
+		execute(new HttpDelete(runURL), 405);
+		assertEquals(0, server.getRunCount());
+	}
+
+	private String execute(HttpUriRequest req, int expectedCode) throws IOException {
+		HttpResponse response = client.execute(req);
+		final String body = EntityUtils.toString(response.getEntity());
+		assertEquals(req.getURI().toString(), expectedCode, response.getStatusLine().getStatusCode());
+		return body;
+	}
+}
@@ -0,0 +1,87 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.validation.Schema;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Date: 10/16/26 11:45 AM
+ */
+public class TestSchemaRegistry extends TestCase implements ErrorHandler {
+
+	private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+
+	private final SchemaRegistry registry = new SchemaRegistry();
+	private int errors;
+
+	public void testSchemaCached() {
+		Schema schema = registry.getSchema("schemas/atom.xsd");
+		assertNotNull(schema);
+		assertSame(schema, registry.getSchema("schemas/atom.xsd"));
+		assertNull(registry.getSchema("schemas/notfound.xsd"));
+	}
+
+	public void testValidFeed() throws IOException, JDOMException {
+		Schema schema = registry.getSchema("schemas/atom.xsd");
+		assertNotNull(schema);
+		InputStream is = new FileInputStream("data/test.atom");
+		try {
+			Document doc = registry.build(is, this, schema, ATOM_NS, "feed");
+			assertEquals("feed", doc.getRootElement().getName());
+		} finally {
+			is.close();
+		}
+		assertEquals(0, errors);
+	}
+
+	public void testInvalidFeed() throws IOException, JDOMException {
+		Schema schema = registry.getSchema("schemas/atom.xsd");
+		assertNotNull(schema);
+		// entry requires id, title and updated elements
+		String xml = "<feed xmlns='" + ATOM_NS + "'><entry><bogus/></entry></feed>";
+		Document doc = registry.build(new ByteArrayInputStream(xml.getBytes("UTF-8")), this, schema, ATOM_NS, "feed");
+		assertNotNull(doc);
+		assertTrue(errors > 0);
+
+		// validator is reused by the same thread for the next document
+		errors = 0;
+		InputStream is = new FileInputStream("data/test.atom");
+		try {
+			registry.build(is, this, schema, ATOM_NS, "feed");
+		} finally {
+			is.close();
+		}
+		assertEquals(0, errors);
+	}
+
+	public void testOtherNamespaceNotValidated() throws IOException, JDOMException {
+		Schema schema = registry.getSchema("schemas/atom.xsd");
+		assertNotNull(schema);
+		String xml = "<feed xmlns='urn:other'><entry><bogus/></entry></feed>";
+		Document doc = registry.build(new ByteArrayInputStream(xml.getBytes("UTF-8")), this, schema, ATOM_NS, "feed");
+		assertNotNull(doc);
+		assertEquals(0, errors);
+	}
+
+	public void warning(SAXParseException exception) throws SAXException {
+		System.out.println("Warning: " + exception);
+	}
+
+	public void error(SAXParseException exception) throws SAXException {
+		System.out.println("Error: " + exception.getMessage());
+		errors++;
+	}
+
+	public void fatalError(SAXParseException exception) throws SAXException {
+		fail(exception.toString());
+	}
+}
@@ -0,0 +1,116 @@
+package org.mitre.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.commons.configuration.XMLConfiguration;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
+import org.mitre.rhex.security.RhexHttpSecurityChecker;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Date: 10/17/26 1:40 AM
+ */
+public class TestSessionRenewal extends TestCase {
+
+	private static final int THREADS = 8;
+
+	private HttpServer server;
+	private final AtomicInteger logins = new AtomicInteger();
+	private volatile String session;
+	private Context context;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/auth/developer/callback", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				session = "s" + logins.incrementAndGet();
+				exchange.getResponseHeaders().set("Set-Cookie", "_session_id=" + session + "; path=/");
+				exchange.getResponseHeaders().set("Location", "/");
+				exchange.sendResponseHeaders(302, -1);
+				exchange.close();
+			}
+		});
+		server.createContext("/records/1", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				final String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+				final boolean valid = cookie != null && cookie.contains("_session_id=" + session);
+				exchange.sendResponseHeaders(valid ? 200 : 401, -1);
+				exchange.close();
+			}
+		});
+		server.start();
+		final String url = "http://127.0.0.1:" + server.getAddress().getPort();
+		final XMLConfiguration config = new XMLConfiguration();
+		config.setProperty("baseURL", url + "/records/1");
+		config.setProperty("HttpRequestChecker", RhexHttpSecurityChecker.class.getName());
+		config.setProperty("loginURL", url + "/auth/developer/callback");
+		config.setProperty("loginEmail", "test@example.com");
+		config.setProperty("loginPassword", "test");
+		context = new Context(new Context(), config);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		context.close();
+		server.stop(0);
+	}
+
+	public void testRenewal() throws Exception {
+		assertEquals(1, logins.get());
+		assertEquals(200, execute(new HttpGet(context.getBaseURL())));
+
+		// session expires while concurrent requests are in flight
+		session = "expired";
+		final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+		final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(pool.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						barrier.await(10, TimeUnit.SECONDS);
+						return execute(new HttpGet(context.getBaseURL()));
+					}
+				}));
+			}
+			for (Future<Integer> result : results) {
+				assertEquals(Integer.valueOf(200), result.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		// one login renewed the session of all requests
+		assertEquals(2, logins.get());
+
+		// non-idempotent request is not replayed but renews the session
+		session = "expired";
+		assertEquals(401, execute(new HttpPost(context.getBaseURL())));
+		assertEquals(3, logins.get());
+		assertEquals(200, execute(new HttpGet(context.getBaseURL())));
+	}
+
+	private int execute(HttpRequestBase req) throws IOException {
+		final HttpClient client = context.getHttpClient();
+		try {
+			final HttpResponse response = context.executeRequest(client, req);
+			EntityUtils.consume(response.getEntity());
+			return response.getStatusLine().getStatusCode();
+		} finally {
+			client.getConnectionManager().shutdown();
+		}
+	}
+}
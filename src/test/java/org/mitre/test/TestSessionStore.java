@@ -0,0 +1,94 @@
+package org.mitre.test;
+
+import junit.framework.TestCase;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.mitre.rhex.security.SessionStore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Date: 10/17/26 12:45 AM
+ */
+public class TestSessionStore extends TestCase {
+
+	private static final URI LOGIN_URL = URI.create("http://localhost:3000/auth/developer/callback");
+	private static final String EMAIL = "test@example.com";
+
+	private final File file = new File("target/test-sessions.properties");
+
+	@Override
+	protected void setUp() throws Exception {
+		if (file.exists()) assertTrue(file.delete());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testRestore() throws IOException {
+		new SessionStore(file, 60).put(LOGIN_URL, EMAIL, createCookies(null),
+				Collections.singletonMap("nonce", "123"));
+		assertTrue(file.isFile());
+		// cookie fields are stored as plain properties
+		final Properties props = new Properties();
+		final InputStream is = new FileInputStream(file);
+		try {
+			props.load(is);
+		} finally {
+			is.close();
+		}
+		assertEquals("_session_id", props.getProperty("session.0.cookie.0.name"));
+		assertEquals("localhost", props.getProperty("session.0.cookie.0.domain"));
+
+		// new store instance as used by a later run
+		final SessionStore store = new SessionStore(file, 60);
+		assertNull(store.get(LOGIN_URL, "other@example.com"));
+		final SessionStore.Session session = store.get(LOGIN_URL, EMAIL);
+		assertNotNull(session);
+		assertEquals("123", session.getProperties().get("nonce"));
+		final CookieStore cookieStore = (CookieStore) session.newHttpContext().getAttribute(ClientContext.COOKIE_STORE);
+		final List<Cookie> cookies = cookieStore.getCookies();
+		assertEquals(1, cookies.size());
+		assertEquals("secret", cookies.get(0).getValue());
+		assertEquals("localhost", cookies.get(0).getDomain());
+		assertEquals("/", cookies.get(0).getPath());
+
+		store.remove(LOGIN_URL, EMAIL);
+		assertNull(new SessionStore(file, 60).get(LOGIN_URL, EMAIL));
+	}
+
+	public void testExpired() {
+		// session cookie expires when store maxAge is exceeded
+		SessionStore store = new SessionStore(file, 0);
+		store.put(LOGIN_URL, EMAIL, createCookies(null), null);
+		assertNull(store.get(LOGIN_URL, EMAIL));
+
+		// expired persistent cookie
+		store = new SessionStore(file, 60);
+		store.put(LOGIN_URL, EMAIL, createCookies(new Date(System.currentTimeMillis() - 1000)), null);
+		assertNull(store.get(LOGIN_URL, EMAIL));
+	}
+
+	private static CookieStore createCookies(Date expiry) {
+		final BasicClientCookie cookie = new BasicClientCookie("_session_id", "secret");
+		cookie.setDomain("localhost");
+		cookie.setPath("/");
+		cookie.setExpiryDate(expiry);
+		final CookieStore cookieStore = new BasicCookieStore();
+		cookieStore.addCookie(cookie);
+		return cookieStore;
+	}
+}
@@ -0,0 +1,124 @@
+package org.mitre.test;
+
+import org.mitre.rhex.BaseUrlRootXml;
+import org.mitre.rhex.server.SyntheticDataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Date: 10/17/26 7:50 AM
+ */
+public class TestSweepRunner extends MockServerTestCase {
+
+	@Override
+	protected void setUp() throws Exception {
+		startServer(new SyntheticDataset(2, 5, 2));
+		loader.load(new BaseUrlRootXml());
+	}
+
+	public void testAllLevels() {
+		SweepRunner sweep = new SweepRunner(loader, LoadRunner.parseScenarios("BaseUrlRootXml"),
+				Arrays.asList(1, 2));
+		sweep.setStepDuration(1);
+		// never detect the knee
+		sweep.setMinGain(-1000);
+		// identical requests of the steps are neither cached nor coalesced
+		loader.getContext().getConfiguration().setProperty("http.cache", "true");
+		sweep.run();
+		List<SweepRunner.Step> steps = sweep.getSteps();
+		assertEquals(2, steps.size());
+		// one request of the warm-up then one per run
+		assertEquals(1 + steps.get(0).getCount() + steps.get(1).getCount(), server.getRequestCount());
+		for (SweepRunner.Step step : steps) {
+			assertTrue(step.getCount() > 0);
+			assertEquals(0, step.getErrorCount());
+			assertTrue(step.getThroughput() > 0);
+			assertEquals(step.getCount(), step.getLatencies().getCount());
+		}
+		assertEquals(1, steps.get(0).getUsers());
+		assertEquals(2, steps.get(1).getUsers());
+		assertEquals(-1, sweep.getKnee());
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(0, sweep.generateReport(new PrintStream(bos)));
+		String report = bos.toString();
+		assertTrue(report, report.contains("Concurrency Sweep Report"));
+		assertTrue(report, report.contains("p99.9 ms"));
+		assertTrue(report, report.contains("Saturation point: not reached"));
+
+		bos = new ByteArrayOutputStream();
+		sweep.writeCsv(new PrintStream(bos));
+		String[] lines = bos.toString().trim().split("\r?\n");
+		assertEquals(3, lines.length);
+		assertTrue(lines[0], lines[0].startsWith("users,runs,errors,error_rate,throughput,"));
+		assertTrue(lines[1], lines[1].startsWith("1,"));
+		assertTrue(lines[2], lines[2].startsWith("2,"));
+	}
+
+	public void testKnee() {
+		SweepRunner sweep = new SweepRunner(loader, LoadRunner.parseScenarios("BaseUrlRootXml"),
+				Arrays.asList(1, 2, 4));
+		sweep.setStepDuration(1);
+		// throughput cannot grow tenfold so the knee is the first step
+		sweep.setMinGain(1000);
+		sweep.run();
+		assertEquals(2, sweep.getSteps().size());
+		assertEquals(1, sweep.getKnee());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(0, sweep.generateReport(new PrintStream(bos)));
+		String report = bos.toString();
+		assertTrue(report, report.contains("<- knee"));
+		assertTrue(report, report.contains("Saturation point: 1 users"));
+	}
+
+	public void testErrorRate() {
+		server.stop();
+		SweepRunner sweep = new SweepRunner(loader, LoadRunner.parseScenarios("BaseUrlRootXml"),
+				Arrays.asList(1, 2));
+		sweep.setStepDuration(1);
+		// the scenario fails in the warm-up so no runs are completed
+		sweep.run();
+		assertEquals(1, sweep.getSteps().size());
+		assertEquals(1, sweep.generateReport(new PrintStream(new ByteArrayOutputStream())));
+	}
+
+	public void testThreads() throws IOException {
+		// created as by the -sweep argument with -threads=2 sweeping 1 and 2 users
+		SweepRunner sweep = SweepRunner.create(loader, "");
+		File csv = File.createTempFile("sweep", ".csv");
+		assertTrue(csv.delete());
+		sweep.setCsvFile(csv);
+		sweep.setStepDuration(1);
+		sweep.setMinGain(-1000);
+		sweep.setThreads(2);
+		sweep.run();
+		assertEquals(2, sweep.getSteps().size());
+		assertEquals(2, sweep.getSteps().get(1).getUsers());
+		assertTrue(csv.isFile());
+		csv.delete();
+	}
+
+	public void testLevels() {
+		assertEquals(Arrays.asList(1, 2, 4, 8), SweepRunner.getLevels(8));
+		assertEquals(Arrays.asList(1, 2, 4, 6), SweepRunner.getLevels(6));
+		assertEquals(Arrays.asList(1), SweepRunner.getLevels(1));
+		assertEquals(Arrays.asList(1, 3, 10), SweepRunner.parseLevels("1, 3,10"));
+		try {
+			SweepRunner.parseLevels("4,2");
+			fail("levels must be increasing");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			SweepRunner.parseLevels("1,x");
+			fail("levels must be numbers");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
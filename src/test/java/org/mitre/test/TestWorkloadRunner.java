@@ -0,0 +1,131 @@
+package org.mitre.test;
+
+import org.mitre.rhex.server.SyntheticDataset;
+import org.mitre.test.http.LatencyHistogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Date: 10/17/26 9:10 AM
+ */
+public class TestWorkloadRunner extends MockServerTestCase {
+
+	private SyntheticDataset.Section section;
+
+	@Override
+	protected void setUp() throws Exception {
+		SyntheticDataset dataset = new SyntheticDataset(1, 5, 4);
+		startServer(dataset);
+		section = dataset.getRecords().iterator().next().getSection("vital_signs");
+	}
+
+	public void testMix() {
+		final List<String> before = new ArrayList<String>(section.getDocumentIds());
+		WorkloadRunner runner = new WorkloadRunner(loader,
+				WorkloadRunner.parseMix("feed:1, read:3, create:2, update:1, delete:1"));
+		runner.setUsers(3);
+		runner.setDuration(1);
+		runner.run();
+		for (WorkloadRunner.Operation op : WorkloadRunner.Operation.values()) {
+			WorkloadRunner.Stats stats = runner.getStats(op);
+			assertTrue(op.getName(), stats.getCount() > 0);
+			assertEquals(stats.getLastError(), 0, stats.getErrorCount());
+			assertEquals(stats.getCount(), stats.getSnapshot().getCount());
+		}
+		// documents created by the workload are deleted and the others are unchanged
+		assertEquals(0, runner.getCleanupErrorCount());
+		assertEquals(before, section.getDocumentIds());
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(0, runner.generateReport(new PrintStream(bos)));
+		String report = bos.toString();
+		assertTrue(report, report.contains("Workload Report"));
+		assertTrue(report, report.contains("update"));
+		assertTrue(report, report.contains("Errors: 0"));
+		assertTrue(report, report.contains("Clean-up: " + runner.getCleanedCount() + " documents deleted, 0 failed"));
+	}
+
+	public void testEveryReadSent() {
+		// identical reads of concurrent users are neither cached nor coalesced
+		loader.getContext().getConfiguration().setProperty("http.cache", "true");
+		WorkloadRunner runner = new WorkloadRunner(loader, WorkloadRunner.parseMix("feed:1, read:3"));
+		runner.setUsers(4);
+		runner.setDuration(1);
+		runner.run();
+		final int feeds = runner.getStats(WorkloadRunner.Operation.FEED).getCount();
+		final int reads = runner.getStats(WorkloadRunner.Operation.READ).getCount();
+		assertTrue(reads > 0);
+		// one feed request to prepare then one per operation
+		assertEquals(1 + feeds + reads, server.getRequestCount());
+	}
+
+	public void testThinkTime() {
+		// operations take longer than the think time yet only the requests sent are recorded
+		server.setDelay(50);
+		WorkloadRunner runner = new WorkloadRunner(loader, WorkloadRunner.parseMix("feed:1, read:3"));
+		runner.setUsers(2);
+		runner.setThinkTime(10);
+		runner.setDuration(1);
+		runner.run();
+		int operations = 0;
+		for (WorkloadRunner.Operation op : WorkloadRunner.Operation.values()) {
+			WorkloadRunner.Stats stats = runner.getStats(op);
+			assertEquals(stats.getCount(), stats.getSnapshot().getCount());
+			operations += stats.getCount();
+		}
+		assertTrue(operations > 0);
+		long exchanges = 0;
+		for (LatencyHistogram.Snapshot snapshot : loader.getContext().getLatencyRecorder().getSnapshots().values()) {
+			exchanges += snapshot.getCount();
+		}
+		assertEquals(operations, exchanges);
+	}
+
+	public void testWritesOnly() {
+		// updates and deletes create a document if no created document is left
+		WorkloadRunner runner = new WorkloadRunner(loader, WorkloadRunner.parseMix("update,delete"));
+		runner.setUsers(2);
+		runner.setDuration(1);
+		runner.run();
+		assertTrue(runner.getStats(WorkloadRunner.Operation.CREATE).getCount() > 0);
+		assertEquals(0, runner.getStats(WorkloadRunner.Operation.FEED).getCount());
+		assertEquals(0, runner.getStats(WorkloadRunner.Operation.READ).getCount());
+		assertEquals(0, runner.generateReport(new PrintStream(new ByteArrayOutputStream())));
+		assertEquals(4, section.getDocumentIds().size());
+	}
+
+	public void testNotRun() {
+		server.stop();
+		WorkloadRunner runner = new WorkloadRunner(loader, WorkloadRunner.parseMix("read"));
+		runner.setDuration(1);
+		runner.run();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		assertEquals(1, runner.generateReport(new PrintStream(bos)));
+		assertTrue(bos.toString(), bos.toString().contains("Workload not run"));
+	}
+
+	public void testParseMix() {
+		Map<WorkloadRunner.Operation, Integer> mix = WorkloadRunner.parseMix("read:80, create:10,delete");
+		assertEquals(3, mix.size());
+		assertEquals(Integer.valueOf(80), mix.get(WorkloadRunner.Operation.READ));
+		assertEquals(Integer.valueOf(1), mix.get(WorkloadRunner.Operation.DELETE));
+		assertTrue(WorkloadRunner.Operation.UPDATE.isWrite());
+		assertFalse(WorkloadRunner.Operation.FEED.isWrite());
+		try {
+			WorkloadRunner.parseMix("read:80,scan:20");
+			fail("unknown operation");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new WorkloadRunner(loader, WorkloadRunner.parseMix("read:0"));
+			fail("no operations");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}